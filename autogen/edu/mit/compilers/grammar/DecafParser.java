@@ -0,0 +1,2105 @@
+// $ANTLR 2.7.7 (2006-11-01): "parser.g" -> "DecafParser.java"$
+
+package edu.mit.compilers.grammar;
+
+import edu.mit.compilers.ErrorCenter;
+
+import antlr.TokenBuffer;
+import antlr.TokenStreamException;
+import antlr.TokenStreamIOException;
+import antlr.ANTLRException;
+import antlr.LLkParser;
+import antlr.Token;
+import antlr.TokenStream;
+import antlr.RecognitionException;
+import antlr.NoViableAltException;
+import antlr.MismatchedTokenException;
+import antlr.SemanticException;
+import antlr.ParserSharedInputState;
+import antlr.collections.impl.BitSet;
+import antlr.collections.AST;
+import java.util.Hashtable;
+import antlr.ASTFactory;
+import antlr.ASTPair;
+import antlr.collections.impl.ASTArray;
+
+public class DecafParser extends antlr.LLkParser       implements DecafParserTokenTypes
+ {
+
+  // Do our own reporting of errors so the parser can return a non-zero status
+  // if any errors are detected.
+  /** Reports if any errors were reported during parse. */
+  private boolean error;
+
+  @Override
+  public void reportError (RecognitionException ex) {
+    // Print the error via some kind of error reporting mechanism.
+    error = true;
+    ErrorCenter.reportError(ex.getLine(), ex.getColumn(), ex.toString());
+  }
+  @Override
+  public void reportError (String s) {
+    // Print the error via some kind of error reporting mechanism.
+    error = true;
+  }
+  
+  // Returns true if at least one error has occurred.
+  public boolean hasError () {
+    return error;
+  }
+
+  // Selectively turns on debug mode.
+
+  /** Whether to display debug information. */
+  private boolean trace = false;
+
+  public void setTrace(boolean shouldTrace) {
+    trace = shouldTrace;
+  }
+  @Override
+  public void traceIn(String rname) throws TokenStreamException {
+    if (trace) {
+      super.traceIn(rname);
+    }
+  }
+  @Override
+  public void traceOut(String rname) throws TokenStreamException {
+    if (trace) {
+      super.traceOut(rname);
+    }
+  }
+
+protected DecafParser(TokenBuffer tokenBuf, int k) {
+  super(tokenBuf,k);
+  tokenNames = _tokenNames;
+  buildTokenTypeASTClassMap();
+  astFactory = new ASTFactory(getTokenTypeToASTClassMap());
+}
+
+public DecafParser(TokenBuffer tokenBuf) {
+  this(tokenBuf,3);
+}
+
+protected DecafParser(TokenStream lexer, int k) {
+  super(lexer,k);
+  tokenNames = _tokenNames;
+  buildTokenTypeASTClassMap();
+  astFactory = new ASTFactory(getTokenTypeToASTClassMap());
+}
+
+public DecafParser(TokenStream lexer) {
+  this(lexer,3);
+}
+
+public DecafParser(ParserSharedInputState state) {
+  super(state,3);
+  tokenNames = _tokenNames;
+  buildTokenTypeASTClassMap();
+  astFactory = new ASTFactory(getTokenTypeToASTClassMap());
+}
+
+	public final void program() throws RecognitionException, TokenStreamException {
+		
+		traceIn("program");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode program_AST = null;
+			Token  id = null;
+			DecafNode id_AST = null;
+			DecafNode f_AST = null;
+			DecafNode m_AST = null;
+			
+			try {      // for error handling
+				
+					  TokenTypeSetter.setTokenTypeMap(this);
+				DecafNode fields = (DecafNode)astFactory.make( (new ASTArray(1)).add((DecafNode)astFactory.create(FIELDS,"fields")));
+				DecafNode methods = (DecafNode)astFactory.make( (new ASTArray(1)).add((DecafNode)astFactory.create(METHODS,"methods")));
+				
+				DecafNode tmp1_AST = null;
+				tmp1_AST = (DecafNode)astFactory.create(LT(1));
+				match(CLASS);
+				id = LT(1);
+				id_AST = (DecafNode)astFactory.create(id);
+				match(ID);
+				match(LCURLY);
+				{
+				_loop3:
+				do {
+					if ((LA(1)==BOOLEAN_TYPE||LA(1)==INT_TYPE) && (LA(2)==ID) && ((LA(3) >= COMMA && LA(3) <= LBRACKET))) {
+						field_decl();
+						f_AST = (DecafNode)returnAST;
+						fields.addChild(f_AST);
+					}
+					else {
+						break _loop3;
+					}
+					
+				} while (true);
+				}
+				{
+				_loop5:
+				do {
+					if ((LA(1)==BOOLEAN_TYPE||LA(1)==INT_TYPE||LA(1)==VOID)) {
+						method_decl();
+						m_AST = (DecafNode)returnAST;
+						methods.addChild(m_AST);
+					}
+					else {
+						break _loop5;
+					}
+					
+				} while (true);
+				}
+				match(RCURLY);
+				match(Token.EOF_TYPE);
+				program_AST = (DecafNode)currentAST.root;
+				
+				program_AST = (DecafNode)astFactory.make( (new ASTArray(4)).add(tmp1_AST).add(id_AST).add(fields).add(methods));
+				
+				currentAST.root = program_AST;
+				currentAST.child = program_AST!=null &&program_AST.getFirstChild()!=null ?
+					program_AST.getFirstChild() : program_AST;
+				currentAST.advanceChildToEnd();
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_0);
+			}
+			returnAST = program_AST;
+		} finally { // debugging
+			traceOut("program");
+		}
+	}
+	
+	public final void field_decl() throws RecognitionException, TokenStreamException {
+		
+		traceIn("field_decl");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode field_decl_AST = null;
+			DecafNode t_AST = null;
+			DecafNode id1_AST = null;
+			DecafNode id2_AST = null;
+			
+			try {      // for error handling
+				type();
+				t_AST = (DecafNode)returnAST;
+				field_decl_id();
+				id1_AST = (DecafNode)returnAST;
+				
+				DecafNode id1_array = id1_AST.getNextSibling();
+				id1_AST.setNextSibling(null);
+				DecafNode field = (DecafNode)astFactory.make( (new ASTArray(3)).add((DecafNode)astFactory.create(FIELD_DECL,"field_decl")).add((DecafNode)astFactory.make( (new ASTArray(2)).add(t_AST).add(id1_array))).add(id1_AST)); 
+				DecafNode next = field;  
+				
+				{
+				_loop8:
+				do {
+					if ((LA(1)==COMMA)) {
+						match(COMMA);
+						field_decl_id();
+						id2_AST = (DecafNode)returnAST;
+						
+										DecafNode id2_array = id2_AST.getNextSibling();
+										id2_AST.setNextSibling(null);
+						next.setNextSibling((DecafNode)astFactory.make( (new ASTArray(3)).add((DecafNode)astFactory.create(FIELD_DECL,"field_decl")).add((DecafNode)astFactory.make( (new ASTArray(2)).add(astFactory.create(t_AST)).add(id2_array))).add(id2_AST))); 
+						next = next.getNextSibling(); 
+						
+					}
+					else {
+						break _loop8;
+					}
+					
+				} while (true);
+				}
+				match(SEMICOLON);
+				field_decl_AST = (DecafNode)currentAST.root;
+				field_decl_AST = field;
+				currentAST.root = field_decl_AST;
+				currentAST.child = field_decl_AST!=null &&field_decl_AST.getFirstChild()!=null ?
+					field_decl_AST.getFirstChild() : field_decl_AST;
+				currentAST.advanceChildToEnd();
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_1);
+			}
+			returnAST = field_decl_AST;
+		} finally { // debugging
+			traceOut("field_decl");
+		}
+	}
+	
+	public final void method_decl() throws RecognitionException, TokenStreamException {
+		
+		traceIn("method_decl");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode method_decl_AST = null;
+			Token  i = null;
+			DecafNode i_AST = null;
+			Token  b = null;
+			DecafNode b_AST = null;
+			Token  v = null;
+			DecafNode v_AST = null;
+			Token  id = null;
+			DecafNode id_AST = null;
+			DecafNode p1_AST = null;
+			DecafNode p2_AST = null;
+			DecafNode bl_AST = null;
+			
+			try {      // for error handling
+				{
+				switch ( LA(1)) {
+				case INT_TYPE:
+				{
+					i = LT(1);
+					i_AST = (DecafNode)astFactory.create(i);
+					match(INT_TYPE);
+					break;
+				}
+				case BOOLEAN_TYPE:
+				{
+					b = LT(1);
+					b_AST = (DecafNode)astFactory.create(b);
+					match(BOOLEAN_TYPE);
+					break;
+				}
+				case VOID:
+				{
+					v = LT(1);
+					v_AST = (DecafNode)astFactory.create(v);
+					match(VOID);
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+				}
+				id = LT(1);
+				id_AST = (DecafNode)astFactory.create(id);
+				match(ID);
+				method_decl_AST = (DecafNode)currentAST.root;
+				
+				DecafNode methodDecl = (DecafNode)astFactory.create(METHOD_DECL,id.getText());
+						  methodDecl.copyFromNode(id_AST);
+							method_decl_AST = (DecafNode)astFactory.make( (new ASTArray(2)).add(methodDecl).add((DecafNode)astFactory.make( (new ASTArray(4)).add((DecafNode)astFactory.create(METHOD_RETURN,"return")).add(i_AST).add(b_AST).add(v_AST))));
+							DecafNode first = null;
+							DecafNode last = null;
+					
+				currentAST.root = method_decl_AST;
+				currentAST.child = method_decl_AST!=null &&method_decl_AST.getFirstChild()!=null ?
+					method_decl_AST.getFirstChild() : method_decl_AST;
+				currentAST.advanceChildToEnd();
+				match(LPAREN);
+				{
+				switch ( LA(1)) {
+				case BOOLEAN_TYPE:
+				case INT_TYPE:
+				{
+					method_decl_param();
+					p1_AST = (DecafNode)returnAST;
+					first = p1_AST; last = p1_AST;
+					{
+					_loop17:
+					do {
+						if ((LA(1)==COMMA)) {
+							match(COMMA);
+							method_decl_param();
+							p2_AST = (DecafNode)returnAST;
+							last.setNextSibling(p2_AST); last = p2_AST;
+						}
+						else {
+							break _loop17;
+						}
+						
+					} while (true);
+					}
+					break;
+				}
+				case RPAREN:
+				{
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+				}
+				match(RPAREN);
+				block();
+				bl_AST = (DecafNode)returnAST;
+				method_decl_AST = (DecafNode)currentAST.root;
+				
+							method_decl_AST.addChild(bl_AST);
+							if (first != null) {
+								DecafNode oldFirstChild = bl_AST.getFirstChild();
+								bl_AST.setFirstChild(first);
+								last.setNextSibling(oldFirstChild);
+							}
+						
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_1);
+			}
+			returnAST = method_decl_AST;
+		} finally { // debugging
+			traceOut("method_decl");
+		}
+	}
+	
+	public final void type() throws RecognitionException, TokenStreamException {
+		
+		traceIn("type");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode type_AST = null;
+			
+			try {      // for error handling
+				switch ( LA(1)) {
+				case INT_TYPE:
+				{
+					DecafNode tmp10_AST = null;
+					tmp10_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp10_AST);
+					match(INT_TYPE);
+					type_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case BOOLEAN_TYPE:
+				{
+					DecafNode tmp11_AST = null;
+					tmp11_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp11_AST);
+					match(BOOLEAN_TYPE);
+					type_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_2);
+			}
+			returnAST = type_AST;
+		} finally { // debugging
+			traceOut("type");
+		}
+	}
+	
+	public final void field_decl_id() throws RecognitionException, TokenStreamException {
+		
+		traceIn("field_decl_id");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode field_decl_id_AST = null;
+			Token  i = null;
+			DecafNode i_AST = null;
+			Token  m = null;
+			DecafNode m_AST = null;
+			Token  intlit = null;
+			DecafNode intlit_AST = null;
+			
+			try {      // for error handling
+				i = LT(1);
+				i_AST = (DecafNode)astFactory.create(i);
+				match(ID);
+				field_decl_id_AST = (DecafNode)currentAST.root;
+				field_decl_id_AST = i_AST; DecafNode rest = null;
+				currentAST.root = field_decl_id_AST;
+				currentAST.child = field_decl_id_AST!=null &&field_decl_id_AST.getFirstChild()!=null ?
+					field_decl_id_AST.getFirstChild() : field_decl_id_AST;
+				currentAST.advanceChildToEnd();
+				{
+				switch ( LA(1)) {
+				case LBRACKET:
+				{
+					match(LBRACKET);
+					{
+					switch ( LA(1)) {
+					case MINUS:
+					{
+						m = LT(1);
+						m_AST = (DecafNode)astFactory.create(m);
+						match(MINUS);
+						rest = m_AST;
+						break;
+					}
+					case INT_LITERAL:
+					{
+						break;
+					}
+					default:
+					{
+						throw new NoViableAltException(LT(1), getFilename());
+					}
+					}
+					}
+					intlit = LT(1);
+					intlit_AST = (DecafNode)astFactory.create(intlit);
+					match(INT_LITERAL);
+					field_decl_id_AST = (DecafNode)currentAST.root;
+					
+									if (rest == null) {
+										field_decl_id_AST.setNextSibling(intlit_AST);
+									} else {
+										rest.setFirstChild(intlit_AST);
+										field_decl_id_AST.setNextSibling(rest);
+									}
+								
+					match(RBRACKET);
+					break;
+				}
+				case COMMA:
+				case SEMICOLON:
+				{
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+				}
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_3);
+			}
+			returnAST = field_decl_id_AST;
+		} finally { // debugging
+			traceOut("field_decl_id");
+		}
+	}
+	
+	public final void method_decl_param() throws RecognitionException, TokenStreamException {
+		
+		traceIn("method_decl_param");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode method_decl_param_AST = null;
+			DecafNode t_AST = null;
+			Token  i = null;
+			DecafNode i_AST = null;
+			
+			try {      // for error handling
+				type();
+				t_AST = (DecafNode)returnAST;
+				i = LT(1);
+				i_AST = (DecafNode)astFactory.create(i);
+				match(ID);
+				method_decl_param_AST = (DecafNode)currentAST.root;
+				method_decl_param_AST = (DecafNode)astFactory.make( (new ASTArray(3)).add((DecafNode)astFactory.create(PARAM_DECL,"param decl")).add(t_AST).add(i_AST));
+				currentAST.root = method_decl_param_AST;
+				currentAST.child = method_decl_param_AST!=null &&method_decl_param_AST.getFirstChild()!=null ?
+					method_decl_param_AST.getFirstChild() : method_decl_param_AST;
+				currentAST.advanceChildToEnd();
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_4);
+			}
+			returnAST = method_decl_param_AST;
+		} finally { // debugging
+			traceOut("method_decl_param");
+		}
+	}
+	
+	public final void block() throws RecognitionException, TokenStreamException {
+		
+		traceIn("block");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode block_AST = null;
+			
+			try {      // for error handling
+				match(LCURLY);
+				{
+				_loop24:
+				do {
+					if ((LA(1)==BOOLEAN_TYPE||LA(1)==INT_TYPE)) {
+						var_decl();
+						astFactory.addASTChild(currentAST, returnAST);
+					}
+					else {
+						break _loop24;
+					}
+					
+				} while (true);
+				}
+				{
+				_loop26:
+				do {
+					if ((_tokenSet_5.member(LA(1)))) {
+						statement();
+						astFactory.addASTChild(currentAST, returnAST);
+					}
+					else {
+						break _loop26;
+					}
+					
+				} while (true);
+				}
+				match(RCURLY);
+				block_AST = (DecafNode)currentAST.root;
+				block_AST = (DecafNode)astFactory.make( (new ASTArray(2)).add((DecafNode)astFactory.create(BLOCK,"block")).add(block_AST));
+				currentAST.root = block_AST;
+				currentAST.child = block_AST!=null &&block_AST.getFirstChild()!=null ?
+					block_AST.getFirstChild() : block_AST;
+				currentAST.advanceChildToEnd();
+				block_AST = (DecafNode)currentAST.root;
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_6);
+			}
+			returnAST = block_AST;
+		} finally { // debugging
+			traceOut("block");
+		}
+	}
+	
+	public final void method_decl_params() throws RecognitionException, TokenStreamException {
+		
+		traceIn("method_decl_params");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode method_decl_params_AST = null;
+			
+			try {      // for error handling
+				method_decl_param();
+				astFactory.addASTChild(currentAST, returnAST);
+				{
+				_loop20:
+				do {
+					if ((LA(1)==COMMA)) {
+						match(COMMA);
+						method_decl_param();
+						astFactory.addASTChild(currentAST, returnAST);
+					}
+					else {
+						break _loop20;
+					}
+					
+				} while (true);
+				}
+				method_decl_params_AST = (DecafNode)currentAST.root;
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_0);
+			}
+			returnAST = method_decl_params_AST;
+		} finally { // debugging
+			traceOut("method_decl_params");
+		}
+	}
+	
+	public final void var_decl() throws RecognitionException, TokenStreamException {
+		
+		traceIn("var_decl");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode var_decl_AST = null;
+			DecafNode t_AST = null;
+			Token  id1 = null;
+			DecafNode id1_AST = null;
+			Token  id2 = null;
+			DecafNode id2_AST = null;
+			
+			try {      // for error handling
+				type();
+				t_AST = (DecafNode)returnAST;
+				id1 = LT(1);
+				id1_AST = (DecafNode)astFactory.create(id1);
+				match(ID);
+				
+					   DecafNode decl = (DecafNode)astFactory.make( (new ASTArray(3)).add((DecafNode)astFactory.create(VAR_DECL,"var decl")).add(t_AST).add(id1_AST));
+					   DecafNode next = decl;  
+					
+				{
+				_loop29:
+				do {
+					if ((LA(1)==COMMA)) {
+						match(COMMA);
+						id2 = LT(1);
+						id2_AST = (DecafNode)astFactory.create(id2);
+						match(ID);
+						
+							   next.setNextSibling((DecafNode)astFactory.make( (new ASTArray(3)).add((DecafNode)astFactory.create(VAR_DECL,"var decl")).add(astFactory.create(t_AST)).add(id2_AST))); 
+							   next = next.getNextSibling(); 
+							
+					}
+					else {
+						break _loop29;
+					}
+					
+				} while (true);
+				}
+				match(SEMICOLON);
+				var_decl_AST = (DecafNode)currentAST.root;
+				
+				var_decl_AST = decl;
+				
+				currentAST.root = var_decl_AST;
+				currentAST.child = var_decl_AST!=null &&var_decl_AST.getFirstChild()!=null ?
+					var_decl_AST.getFirstChild() : var_decl_AST;
+				currentAST.advanceChildToEnd();
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_7);
+			}
+			returnAST = var_decl_AST;
+		} finally { // debugging
+			traceOut("var_decl");
+		}
+	}
+	
+	public final void statement() throws RecognitionException, TokenStreamException {
+		
+		traceIn("statement");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode statement_AST = null;
+			DecafNode e_AST = null;
+			DecafNode if_block_AST = null;
+			DecafNode else_AST = null;
+			DecafNode init_AST = null;
+			DecafNode for_term_AST = null;
+			DecafNode for_block_AST = null;
+			DecafNode while_term_AST = null;
+			DecafNode while_block_AST = null;
+			
+			try {      // for error handling
+				switch ( LA(1)) {
+				case IF:
+				{
+					DecafNode tmp19_AST = null;
+					tmp19_AST = (DecafNode)astFactory.create(LT(1));
+					match(IF);
+					match(LPAREN);
+					expr();
+					e_AST = (DecafNode)returnAST;
+					match(RPAREN);
+					block();
+					if_block_AST = (DecafNode)returnAST;
+					statement_AST = (DecafNode)currentAST.root;
+					
+					statement_AST = (DecafNode)astFactory.make( (new ASTArray(3)).add(tmp19_AST).add((DecafNode)astFactory.make( (new ASTArray(2)).add((DecafNode)astFactory.create(IF_CLAUSE,"clause")).add(e_AST))).add(if_block_AST));
+					
+					currentAST.root = statement_AST;
+					currentAST.child = statement_AST!=null &&statement_AST.getFirstChild()!=null ?
+						statement_AST.getFirstChild() : statement_AST;
+					currentAST.advanceChildToEnd();
+					{
+					switch ( LA(1)) {
+					case ELSE:
+					{
+						DecafNode tmp22_AST = null;
+						tmp22_AST = (DecafNode)astFactory.create(LT(1));
+						match(ELSE);
+						block();
+						else_AST = (DecafNode)returnAST;
+						statement_AST = (DecafNode)currentAST.root;
+						statement_AST.addChild((DecafNode)astFactory.make( (new ASTArray(2)).add(tmp22_AST).add(else_AST)));
+						break;
+					}
+					case BREAK:
+					case CALLOUT:
+					case CONTINUE:
+					case FOR:
+					case IF:
+					case RETURN:
+					case WHILE:
+					case LCURLY:
+					case RCURLY:
+					case ID:
+					{
+						break;
+					}
+					default:
+					{
+						throw new NoViableAltException(LT(1), getFilename());
+					}
+					}
+					}
+					break;
+				}
+				case FOR:
+				{
+					DecafNode tmp23_AST = null;
+					tmp23_AST = (DecafNode)astFactory.create(LT(1));
+					match(FOR);
+					match(LPAREN);
+					DecafNode tmp25_AST = null;
+					tmp25_AST = (DecafNode)astFactory.create(LT(1));
+					match(ID);
+					DecafNode tmp26_AST = null;
+					tmp26_AST = (DecafNode)astFactory.create(LT(1));
+					match(ASSIGN);
+					expr();
+					init_AST = (DecafNode)returnAST;
+					match(SEMICOLON);
+					expr();
+					for_term_AST = (DecafNode)returnAST;
+					match(RPAREN);
+					block();
+					for_block_AST = (DecafNode)returnAST;
+					statement_AST = (DecafNode)currentAST.root;
+					
+					// Nest ASSIGN, ID, init into a statement
+					statement_AST = (DecafNode)astFactory.make( (new ASTArray(4)).add(tmp23_AST).add((DecafNode)astFactory.make( (new ASTArray(2)).add((DecafNode)astFactory.create(FOR_INITIALIZE,"init")).add((DecafNode)astFactory.make( (new ASTArray(3)).add(tmp26_AST).add(tmp25_AST).add(init_AST))))).add((DecafNode)astFactory.make( (new ASTArray(2)).add((DecafNode)astFactory.create(FOR_TERMINATE,"term")).add(for_term_AST))).add(for_block_AST));
+					
+					currentAST.root = statement_AST;
+					currentAST.child = statement_AST!=null &&statement_AST.getFirstChild()!=null ?
+						statement_AST.getFirstChild() : statement_AST;
+					currentAST.advanceChildToEnd();
+					break;
+				}
+				case WHILE:
+				{
+					DecafNode tmp29_AST = null;
+					tmp29_AST = (DecafNode)astFactory.create(LT(1));
+					match(WHILE);
+					match(LPAREN);
+					expr();
+					while_term_AST = (DecafNode)returnAST;
+					match(RPAREN);
+					block();
+					while_block_AST = (DecafNode)returnAST;
+					statement_AST = (DecafNode)currentAST.root;
+					
+					statement_AST = (DecafNode)astFactory.make( (new ASTArray(3)).add(tmp29_AST).add((DecafNode)astFactory.make( (new ASTArray(2)).add((DecafNode)astFactory.create(WHILE_TERMINATE,"term")).add(while_term_AST))).add(while_block_AST));
+					
+					currentAST.root = statement_AST;
+					currentAST.child = statement_AST!=null &&statement_AST.getFirstChild()!=null ?
+						statement_AST.getFirstChild() : statement_AST;
+					currentAST.advanceChildToEnd();
+					break;
+				}
+				case RETURN:
+				{
+					DecafNode tmp32_AST = null;
+					tmp32_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.makeASTRoot(currentAST, tmp32_AST);
+					match(RETURN);
+					{
+					switch ( LA(1)) {
+					case CALLOUT:
+					case TRUE:
+					case FALSE:
+					case LPAREN:
+					case CHAR_LITERAL:
+					case INT_LITERAL:
+					case BANG:
+					case MINUS:
+					case ID:
+					{
+						expr();
+						astFactory.addASTChild(currentAST, returnAST);
+						break;
+					}
+					case SEMICOLON:
+					{
+						break;
+					}
+					default:
+					{
+						throw new NoViableAltException(LT(1), getFilename());
+					}
+					}
+					}
+					match(SEMICOLON);
+					statement_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case BREAK:
+				{
+					DecafNode tmp34_AST = null;
+					tmp34_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp34_AST);
+					match(BREAK);
+					match(SEMICOLON);
+					statement_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case CONTINUE:
+				{
+					DecafNode tmp36_AST = null;
+					tmp36_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp36_AST);
+					match(CONTINUE);
+					match(SEMICOLON);
+					statement_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case LCURLY:
+				{
+					block();
+					astFactory.addASTChild(currentAST, returnAST);
+					statement_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				default:
+					if ((LA(1)==ID) && (_tokenSet_8.member(LA(2)))) {
+						location();
+						astFactory.addASTChild(currentAST, returnAST);
+						{
+						switch ( LA(1)) {
+						case ASSIGN:
+						{
+							DecafNode tmp38_AST = null;
+							tmp38_AST = (DecafNode)astFactory.create(LT(1));
+							astFactory.makeASTRoot(currentAST, tmp38_AST);
+							match(ASSIGN);
+							break;
+						}
+						case MINUS_ASSIGN:
+						{
+							DecafNode tmp39_AST = null;
+							tmp39_AST = (DecafNode)astFactory.create(LT(1));
+							astFactory.makeASTRoot(currentAST, tmp39_AST);
+							match(MINUS_ASSIGN);
+							break;
+						}
+						case PLUS_ASSIGN:
+						{
+							DecafNode tmp40_AST = null;
+							tmp40_AST = (DecafNode)astFactory.create(LT(1));
+							astFactory.makeASTRoot(currentAST, tmp40_AST);
+							match(PLUS_ASSIGN);
+							break;
+						}
+						default:
+						{
+							throw new NoViableAltException(LT(1), getFilename());
+						}
+						}
+						}
+						expr();
+						astFactory.addASTChild(currentAST, returnAST);
+						match(SEMICOLON);
+						statement_AST = (DecafNode)currentAST.root;
+					}
+					else if ((LA(1)==CALLOUT||LA(1)==ID) && (LA(2)==LPAREN)) {
+						method_call();
+						astFactory.addASTChild(currentAST, returnAST);
+						match(SEMICOLON);
+						statement_AST = (DecafNode)currentAST.root;
+					}
+				else {
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_9);
+			}
+			returnAST = statement_AST;
+		} finally { // debugging
+			traceOut("statement");
+		}
+	}
+	
+	public final void location() throws RecognitionException, TokenStreamException {
+		
+		traceIn("location");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode location_AST = null;
+			
+			try {      // for error handling
+				DecafNode tmp43_AST = null;
+				tmp43_AST = (DecafNode)astFactory.create(LT(1));
+				astFactory.makeASTRoot(currentAST, tmp43_AST);
+				match(ID);
+				{
+				switch ( LA(1)) {
+				case LBRACKET:
+				{
+					match(LBRACKET);
+					expr();
+					astFactory.addASTChild(currentAST, returnAST);
+					match(RBRACKET);
+					break;
+				}
+				case MINUS_ASSIGN:
+				case PLUS_ASSIGN:
+				case COMMA:
+				case SEMICOLON:
+				case RBRACKET:
+				case RPAREN:
+				case ASSIGN:
+				case MINUS:
+				case PLUS:
+				case TIMES:
+				case DIVIDE:
+				case MOD:
+				case GT:
+				case LT:
+				case GTE:
+				case LTE:
+				case EQ:
+				case NEQ:
+				case AND:
+				case OR:
+				{
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+				}
+				location_AST = (DecafNode)currentAST.root;
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_10);
+			}
+			returnAST = location_AST;
+		} finally { // debugging
+			traceOut("location");
+		}
+	}
+	
+	public final void expr() throws RecognitionException, TokenStreamException {
+		
+		traceIn("expr");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode expr_AST = null;
+			
+			try {      // for error handling
+				and_expr();
+				astFactory.addASTChild(currentAST, returnAST);
+				{
+				switch ( LA(1)) {
+				case OR:
+				{
+					DecafNode tmp46_AST = null;
+					tmp46_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.makeASTRoot(currentAST, tmp46_AST);
+					match(OR);
+					expr();
+					astFactory.addASTChild(currentAST, returnAST);
+					break;
+				}
+				case COMMA:
+				case SEMICOLON:
+				case RBRACKET:
+				case RPAREN:
+				{
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+				}
+				expr_AST = (DecafNode)currentAST.root;
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_11);
+			}
+			returnAST = expr_AST;
+		} finally { // debugging
+			traceOut("expr");
+		}
+	}
+	
+	public final void method_call() throws RecognitionException, TokenStreamException {
+		
+		traceIn("method_call");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode method_call_AST = null;
+			Token  i = null;
+			DecafNode i_AST = null;
+			DecafNode e_AST = null;
+			DecafNode f_AST = null;
+			Token  name = null;
+			DecafNode name_AST = null;
+			DecafNode arg_AST = null;
+			
+			try {      // for error handling
+				switch ( LA(1)) {
+				case ID:
+				{
+					i = LT(1);
+					i_AST = (DecafNode)astFactory.create(i);
+					match(ID);
+					method_call_AST = (DecafNode)currentAST.root;
+					
+					DecafNode methodId = (DecafNode)astFactory.create(METHOD_ID,i.getText());
+							  methodId.copyFromNode(i_AST);
+								DecafNode methodCall = (DecafNode)astFactory.create(METHOD_CALL,"method call");
+								methodCall.copyFromNode(methodId);
+								method_call_AST = (DecafNode)astFactory.make( (new ASTArray(2)).add(methodCall).add(methodId));
+							
+					currentAST.root = method_call_AST;
+					currentAST.child = method_call_AST!=null &&method_call_AST.getFirstChild()!=null ?
+						method_call_AST.getFirstChild() : method_call_AST;
+					currentAST.advanceChildToEnd();
+					match(LPAREN);
+					{
+					switch ( LA(1)) {
+					case CALLOUT:
+					case TRUE:
+					case FALSE:
+					case LPAREN:
+					case CHAR_LITERAL:
+					case INT_LITERAL:
+					case BANG:
+					case MINUS:
+					case ID:
+					{
+						expr();
+						e_AST = (DecafNode)returnAST;
+						method_call_AST = (DecafNode)currentAST.root;
+						method_call_AST.addChild(e_AST);
+						{
+						_loop37:
+						do {
+							if ((LA(1)==COMMA)) {
+								match(COMMA);
+								expr();
+								f_AST = (DecafNode)returnAST;
+								method_call_AST = (DecafNode)currentAST.root;
+								method_call_AST.addChild(f_AST);
+							}
+							else {
+								break _loop37;
+							}
+							
+						} while (true);
+						}
+						break;
+					}
+					case RPAREN:
+					{
+						break;
+					}
+					default:
+					{
+						throw new NoViableAltException(LT(1), getFilename());
+					}
+					}
+					}
+					match(RPAREN);
+					break;
+				}
+				case CALLOUT:
+				{
+					DecafNode tmp50_AST = null;
+					tmp50_AST = (DecafNode)astFactory.create(LT(1));
+					match(CALLOUT);
+					match(LPAREN);
+					name = LT(1);
+					name_AST = (DecafNode)astFactory.create(name);
+					match(STRING_LITERAL);
+					method_call_AST = (DecafNode)currentAST.root;
+					
+					DecafNode cargs = (DecafNode)astFactory.make( (new ASTArray(1)).add((DecafNode)astFactory.create(CALLOUT_ARGS,"args")));
+					method_call_AST = (DecafNode)astFactory.make( (new ASTArray(3)).add(tmp50_AST).add((DecafNode)astFactory.make( (new ASTArray(2)).add((DecafNode)astFactory.create(CALLOUT_NAME,"name")).add(name_AST))).add(cargs));
+					
+					currentAST.root = method_call_AST;
+					currentAST.child = method_call_AST!=null &&method_call_AST.getFirstChild()!=null ?
+						method_call_AST.getFirstChild() : method_call_AST;
+					currentAST.advanceChildToEnd();
+					{
+					_loop39:
+					do {
+						if ((LA(1)==COMMA)) {
+							match(COMMA);
+							callout_arg();
+							arg_AST = (DecafNode)returnAST;
+							cargs.addChild(arg_AST);
+						}
+						else {
+							break _loop39;
+						}
+						
+					} while (true);
+					}
+					match(RPAREN);
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_12);
+			}
+			returnAST = method_call_AST;
+		} finally { // debugging
+			traceOut("method_call");
+		}
+	}
+	
+	public final void callout_arg() throws RecognitionException, TokenStreamException {
+		
+		traceIn("callout_arg");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode callout_arg_AST = null;
+			
+			try {      // for error handling
+				switch ( LA(1)) {
+				case CALLOUT:
+				case TRUE:
+				case FALSE:
+				case LPAREN:
+				case CHAR_LITERAL:
+				case INT_LITERAL:
+				case BANG:
+				case MINUS:
+				case ID:
+				{
+					expr();
+					astFactory.addASTChild(currentAST, returnAST);
+					callout_arg_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case STRING_LITERAL:
+				{
+					DecafNode tmp54_AST = null;
+					tmp54_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp54_AST);
+					match(STRING_LITERAL);
+					callout_arg_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_13);
+			}
+			returnAST = callout_arg_AST;
+		} finally { // debugging
+			traceOut("callout_arg");
+		}
+	}
+	
+	public final void and_expr() throws RecognitionException, TokenStreamException {
+		
+		traceIn("and_expr");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode and_expr_AST = null;
+			
+			try {      // for error handling
+				eq_expr();
+				astFactory.addASTChild(currentAST, returnAST);
+				{
+				switch ( LA(1)) {
+				case AND:
+				{
+					DecafNode tmp55_AST = null;
+					tmp55_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.makeASTRoot(currentAST, tmp55_AST);
+					match(AND);
+					and_expr();
+					astFactory.addASTChild(currentAST, returnAST);
+					break;
+				}
+				case COMMA:
+				case SEMICOLON:
+				case RBRACKET:
+				case RPAREN:
+				case OR:
+				{
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+				}
+				and_expr_AST = (DecafNode)currentAST.root;
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_14);
+			}
+			returnAST = and_expr_AST;
+		} finally { // debugging
+			traceOut("and_expr");
+		}
+	}
+	
+	public final void eq_expr() throws RecognitionException, TokenStreamException {
+		
+		traceIn("eq_expr");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode eq_expr_AST = null;
+			
+			try {      // for error handling
+				rel_expr();
+				astFactory.addASTChild(currentAST, returnAST);
+				{
+				switch ( LA(1)) {
+				case EQ:
+				case NEQ:
+				{
+					{
+					switch ( LA(1)) {
+					case EQ:
+					{
+						DecafNode tmp56_AST = null;
+						tmp56_AST = (DecafNode)astFactory.create(LT(1));
+						astFactory.makeASTRoot(currentAST, tmp56_AST);
+						match(EQ);
+						break;
+					}
+					case NEQ:
+					{
+						DecafNode tmp57_AST = null;
+						tmp57_AST = (DecafNode)astFactory.create(LT(1));
+						astFactory.makeASTRoot(currentAST, tmp57_AST);
+						match(NEQ);
+						break;
+					}
+					default:
+					{
+						throw new NoViableAltException(LT(1), getFilename());
+					}
+					}
+					}
+					eq_expr();
+					astFactory.addASTChild(currentAST, returnAST);
+					break;
+				}
+				case COMMA:
+				case SEMICOLON:
+				case RBRACKET:
+				case RPAREN:
+				case AND:
+				case OR:
+				{
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+				}
+				eq_expr_AST = (DecafNode)currentAST.root;
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_15);
+			}
+			returnAST = eq_expr_AST;
+		} finally { // debugging
+			traceOut("eq_expr");
+		}
+	}
+	
+	public final void rel_expr() throws RecognitionException, TokenStreamException {
+		
+		traceIn("rel_expr");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode rel_expr_AST = null;
+			
+			try {      // for error handling
+				arith_expr_2();
+				astFactory.addASTChild(currentAST, returnAST);
+				{
+				switch ( LA(1)) {
+				case GT:
+				case LT:
+				case GTE:
+				case LTE:
+				{
+					{
+					switch ( LA(1)) {
+					case GT:
+					{
+						DecafNode tmp58_AST = null;
+						tmp58_AST = (DecafNode)astFactory.create(LT(1));
+						astFactory.makeASTRoot(currentAST, tmp58_AST);
+						match(GT);
+						break;
+					}
+					case LT:
+					{
+						DecafNode tmp59_AST = null;
+						tmp59_AST = (DecafNode)astFactory.create(LT(1));
+						astFactory.makeASTRoot(currentAST, tmp59_AST);
+						match(LT);
+						break;
+					}
+					case GTE:
+					{
+						DecafNode tmp60_AST = null;
+						tmp60_AST = (DecafNode)astFactory.create(LT(1));
+						astFactory.makeASTRoot(currentAST, tmp60_AST);
+						match(GTE);
+						break;
+					}
+					case LTE:
+					{
+						DecafNode tmp61_AST = null;
+						tmp61_AST = (DecafNode)astFactory.create(LT(1));
+						astFactory.makeASTRoot(currentAST, tmp61_AST);
+						match(LTE);
+						break;
+					}
+					default:
+					{
+						throw new NoViableAltException(LT(1), getFilename());
+					}
+					}
+					}
+					arith_expr_2();
+					astFactory.addASTChild(currentAST, returnAST);
+					break;
+				}
+				case COMMA:
+				case SEMICOLON:
+				case RBRACKET:
+				case RPAREN:
+				case EQ:
+				case NEQ:
+				case AND:
+				case OR:
+				{
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+				}
+				rel_expr_AST = (DecafNode)currentAST.root;
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_16);
+			}
+			returnAST = rel_expr_AST;
+		} finally { // debugging
+			traceOut("rel_expr");
+		}
+	}
+	
+	public final void arith_expr_2() throws RecognitionException, TokenStreamException {
+		
+		traceIn("arith_expr_2");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode arith_expr_2_AST = null;
+			
+			try {      // for error handling
+				arith_expr_1();
+				astFactory.addASTChild(currentAST, returnAST);
+				{
+				_loop55:
+				do {
+					if ((LA(1)==MINUS||LA(1)==PLUS)) {
+						{
+						switch ( LA(1)) {
+						case PLUS:
+						{
+							DecafNode tmp62_AST = null;
+							tmp62_AST = (DecafNode)astFactory.create(LT(1));
+							astFactory.makeASTRoot(currentAST, tmp62_AST);
+							match(PLUS);
+							break;
+						}
+						case MINUS:
+						{
+							DecafNode tmp63_AST = null;
+							tmp63_AST = (DecafNode)astFactory.create(LT(1));
+							astFactory.makeASTRoot(currentAST, tmp63_AST);
+							match(MINUS);
+							break;
+						}
+						default:
+						{
+							throw new NoViableAltException(LT(1), getFilename());
+						}
+						}
+						}
+						arith_expr_1();
+						astFactory.addASTChild(currentAST, returnAST);
+					}
+					else {
+						break _loop55;
+					}
+					
+				} while (true);
+				}
+				arith_expr_2_AST = (DecafNode)currentAST.root;
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_17);
+			}
+			returnAST = arith_expr_2_AST;
+		} finally { // debugging
+			traceOut("arith_expr_2");
+		}
+	}
+	
+	public final void arith_expr_1() throws RecognitionException, TokenStreamException {
+		
+		traceIn("arith_expr_1");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode arith_expr_1_AST = null;
+			
+			try {      // for error handling
+				not_expr();
+				astFactory.addASTChild(currentAST, returnAST);
+				{
+				_loop59:
+				do {
+					if (((LA(1) >= TIMES && LA(1) <= MOD))) {
+						{
+						switch ( LA(1)) {
+						case TIMES:
+						{
+							DecafNode tmp64_AST = null;
+							tmp64_AST = (DecafNode)astFactory.create(LT(1));
+							astFactory.makeASTRoot(currentAST, tmp64_AST);
+							match(TIMES);
+							break;
+						}
+						case DIVIDE:
+						{
+							DecafNode tmp65_AST = null;
+							tmp65_AST = (DecafNode)astFactory.create(LT(1));
+							astFactory.makeASTRoot(currentAST, tmp65_AST);
+							match(DIVIDE);
+							break;
+						}
+						case MOD:
+						{
+							DecafNode tmp66_AST = null;
+							tmp66_AST = (DecafNode)astFactory.create(LT(1));
+							astFactory.makeASTRoot(currentAST, tmp66_AST);
+							match(MOD);
+							break;
+						}
+						default:
+						{
+							throw new NoViableAltException(LT(1), getFilename());
+						}
+						}
+						}
+						not_expr();
+						astFactory.addASTChild(currentAST, returnAST);
+					}
+					else {
+						break _loop59;
+					}
+					
+				} while (true);
+				}
+				arith_expr_1_AST = (DecafNode)currentAST.root;
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_18);
+			}
+			returnAST = arith_expr_1_AST;
+		} finally { // debugging
+			traceOut("arith_expr_1");
+		}
+	}
+	
+	public final void not_expr() throws RecognitionException, TokenStreamException {
+		
+		traceIn("not_expr");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode not_expr_AST = null;
+			
+			try {      // for error handling
+				switch ( LA(1)) {
+				case BANG:
+				{
+					DecafNode tmp67_AST = null;
+					tmp67_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.makeASTRoot(currentAST, tmp67_AST);
+					match(BANG);
+					not_expr();
+					astFactory.addASTChild(currentAST, returnAST);
+					not_expr_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case CALLOUT:
+				case TRUE:
+				case FALSE:
+				case LPAREN:
+				case CHAR_LITERAL:
+				case INT_LITERAL:
+				case MINUS:
+				case ID:
+				{
+					unary_minus_expr();
+					astFactory.addASTChild(currentAST, returnAST);
+					not_expr_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_12);
+			}
+			returnAST = not_expr_AST;
+		} finally { // debugging
+			traceOut("not_expr");
+		}
+	}
+	
+	public final void unary_minus_expr() throws RecognitionException, TokenStreamException {
+		
+		traceIn("unary_minus_expr");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode unary_minus_expr_AST = null;
+			
+			try {      // for error handling
+				switch ( LA(1)) {
+				case MINUS:
+				{
+					DecafNode tmp68_AST = null;
+					tmp68_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.makeASTRoot(currentAST, tmp68_AST);
+					match(MINUS);
+					unary_minus_expr();
+					astFactory.addASTChild(currentAST, returnAST);
+					unary_minus_expr_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case CALLOUT:
+				case TRUE:
+				case FALSE:
+				case LPAREN:
+				case CHAR_LITERAL:
+				case INT_LITERAL:
+				case ID:
+				{
+					sub_expr();
+					astFactory.addASTChild(currentAST, returnAST);
+					unary_minus_expr_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_12);
+			}
+			returnAST = unary_minus_expr_AST;
+		} finally { // debugging
+			traceOut("unary_minus_expr");
+		}
+	}
+	
+	public final void sub_expr() throws RecognitionException, TokenStreamException {
+		
+		traceIn("sub_expr");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode sub_expr_AST = null;
+			
+			try {      // for error handling
+				switch ( LA(1)) {
+				case TRUE:
+				case FALSE:
+				case CHAR_LITERAL:
+				case INT_LITERAL:
+				{
+					literal();
+					astFactory.addASTChild(currentAST, returnAST);
+					sub_expr_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case LPAREN:
+				{
+					match(LPAREN);
+					expr();
+					astFactory.addASTChild(currentAST, returnAST);
+					match(RPAREN);
+					sub_expr_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				default:
+					if ((LA(1)==ID) && (_tokenSet_19.member(LA(2)))) {
+						location();
+						astFactory.addASTChild(currentAST, returnAST);
+						sub_expr_AST = (DecafNode)currentAST.root;
+					}
+					else if ((LA(1)==CALLOUT||LA(1)==ID) && (LA(2)==LPAREN)) {
+						method_call();
+						astFactory.addASTChild(currentAST, returnAST);
+						sub_expr_AST = (DecafNode)currentAST.root;
+					}
+				else {
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_12);
+			}
+			returnAST = sub_expr_AST;
+		} finally { // debugging
+			traceOut("sub_expr");
+		}
+	}
+	
+	public final void literal() throws RecognitionException, TokenStreamException {
+		
+		traceIn("literal");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode literal_AST = null;
+			
+			try {      // for error handling
+				switch ( LA(1)) {
+				case INT_LITERAL:
+				{
+					DecafNode tmp71_AST = null;
+					tmp71_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp71_AST);
+					match(INT_LITERAL);
+					literal_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case CHAR_LITERAL:
+				{
+					DecafNode tmp72_AST = null;
+					tmp72_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp72_AST);
+					match(CHAR_LITERAL);
+					literal_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case TRUE:
+				{
+					DecafNode tmp73_AST = null;
+					tmp73_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp73_AST);
+					match(TRUE);
+					literal_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case FALSE:
+				{
+					DecafNode tmp74_AST = null;
+					tmp74_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp74_AST);
+					match(FALSE);
+					literal_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_12);
+			}
+			returnAST = literal_AST;
+		} finally { // debugging
+			traceOut("literal");
+		}
+	}
+	
+	public final void bin_op() throws RecognitionException, TokenStreamException {
+		
+		traceIn("bin_op");
+		try { // debugging
+			returnAST = null;
+			ASTPair currentAST = new ASTPair();
+			DecafNode bin_op_AST = null;
+			
+			try {      // for error handling
+				switch ( LA(1)) {
+				case MINUS:
+				{
+					DecafNode tmp75_AST = null;
+					tmp75_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp75_AST);
+					match(MINUS);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case PLUS:
+				{
+					DecafNode tmp76_AST = null;
+					tmp76_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp76_AST);
+					match(PLUS);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case TIMES:
+				{
+					DecafNode tmp77_AST = null;
+					tmp77_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp77_AST);
+					match(TIMES);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case DIVIDES:
+				{
+					DecafNode tmp78_AST = null;
+					tmp78_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp78_AST);
+					match(DIVIDES);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case MOD:
+				{
+					DecafNode tmp79_AST = null;
+					tmp79_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp79_AST);
+					match(MOD);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case GT:
+				{
+					DecafNode tmp80_AST = null;
+					tmp80_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp80_AST);
+					match(GT);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case LT:
+				{
+					DecafNode tmp81_AST = null;
+					tmp81_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp81_AST);
+					match(LT);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case GTE:
+				{
+					DecafNode tmp82_AST = null;
+					tmp82_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp82_AST);
+					match(GTE);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case LTE:
+				{
+					DecafNode tmp83_AST = null;
+					tmp83_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp83_AST);
+					match(LTE);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case EQ:
+				{
+					DecafNode tmp84_AST = null;
+					tmp84_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp84_AST);
+					match(EQ);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case NEQ:
+				{
+					DecafNode tmp85_AST = null;
+					tmp85_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp85_AST);
+					match(NEQ);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case AND:
+				{
+					DecafNode tmp86_AST = null;
+					tmp86_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp86_AST);
+					match(AND);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				case OR:
+				{
+					DecafNode tmp87_AST = null;
+					tmp87_AST = (DecafNode)astFactory.create(LT(1));
+					astFactory.addASTChild(currentAST, tmp87_AST);
+					match(OR);
+					bin_op_AST = (DecafNode)currentAST.root;
+					break;
+				}
+				default:
+				{
+					throw new NoViableAltException(LT(1), getFilename());
+				}
+				}
+			}
+			catch (RecognitionException ex) {
+				reportError(ex);
+				recover(ex,_tokenSet_0);
+			}
+			returnAST = bin_op_AST;
+		} finally { // debugging
+			traceOut("bin_op");
+		}
+	}
+	
+	
+	public static final String[] _tokenNames = {
+		"<0>",
+		"EOF",
+		"<2>",
+		"NULL_TREE_LOOKAHEAD",
+		"FIELD_DECL",
+		"FIELDS",
+		"METHODS",
+		"METHOD_RETURN",
+		"PARAM_DECL",
+		"METHOD_DECL",
+		"BLOCK",
+		"VAR_DECL",
+		"METHOD_CALL",
+		"METHOD_ID",
+		"CALLOUT_NAME",
+		"CALLOUT_ARGS",
+		"IF_CLAUSE",
+		"ELSE_BLOCK",
+		"FOR_INITIALIZE",
+		"FOR_TERMINATE",
+		"WHILE_TERMINATE",
+		"\"boolean\"",
+		"\"break\"",
+		"\"callout\"",
+		"\"class\"",
+		"\"continue\"",
+		"\"else\"",
+		"\"for\"",
+		"\"if\"",
+		"\"int\"",
+		"\"return\"",
+		"\"void\"",
+		"\"while\"",
+		"\"true\"",
+		"\"false\"",
+		"MINUS_ASSIGN",
+		"PLUS_ASSIGN",
+		"LCURLY",
+		"RCURLY",
+		"COMMA",
+		"SEMICOLON",
+		"LBRACKET",
+		"RBRACKET",
+		"LPAREN",
+		"RPAREN",
+		"WS_",
+		"SL_COMMENT",
+		"CHAR_EL",
+		"a char",
+		"a string",
+		"an int",
+		"DECIMAL",
+		"HEX",
+		"BIN",
+		"DIGIT",
+		"HEX_DIGIT",
+		"ASSIGN",
+		"BANG",
+		"MINUS",
+		"PLUS",
+		"TIMES",
+		"DIVIDE",
+		"MOD",
+		"GT",
+		"LT",
+		"GTE",
+		"LTE",
+		"EQ",
+		"NEQ",
+		"AND",
+		"OR",
+		"ESC",
+		"an identifier",
+		"ALPHA",
+		"ALPHA_NUM",
+		"DIVIDES"
+	};
+	
+	protected void buildTokenTypeASTClassMap() {
+		tokenTypeToASTClassMap=null;
+	};
+	
+	private static final long[] mk_tokenSet_0() {
+		long[] data = { 2L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_0 = new BitSet(mk_tokenSet_0());
+	private static final long[] mk_tokenSet_1() {
+		long[] data = { 277564358656L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_1 = new BitSet(mk_tokenSet_1());
+	private static final long[] mk_tokenSet_2() {
+		long[] data = { 0L, 256L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_2 = new BitSet(mk_tokenSet_2());
+	private static final long[] mk_tokenSet_3() {
+		long[] data = { 1649267441664L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_3 = new BitSet(mk_tokenSet_3());
+	private static final long[] mk_tokenSet_4() {
+		long[] data = { 18141941858306L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_4 = new BitSet(mk_tokenSet_4());
+	private static final long[] mk_tokenSet_5() {
+		long[] data = { 143256453120L, 256L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_5 = new BitSet(mk_tokenSet_5());
+	private static final long[] mk_tokenSet_6() {
+		long[] data = { 420887920640L, 256L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_6 = new BitSet(mk_tokenSet_6());
+	private static final long[] mk_tokenSet_7() {
+		long[] data = { 418673328128L, 256L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_7 = new BitSet(mk_tokenSet_7());
+	private static final long[] mk_tokenSet_8() {
+		long[] data = { 72059896140398592L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_8 = new BitSet(mk_tokenSet_8());
+	private static final long[] mk_tokenSet_9() {
+		long[] data = { 418134360064L, 256L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_9 = new BitSet(mk_tokenSet_9());
+	private static final long[] mk_tokenSet_10() {
+		long[] data = { -216149039534571520L, 127L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_10 = new BitSet(mk_tokenSet_10());
+	private static final long[] mk_tokenSet_11() {
+		long[] data = { 23639499997184L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_11 = new BitSet(mk_tokenSet_11());
+	private static final long[] mk_tokenSet_12() {
+		long[] data = { -288206736651714560L, 127L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_12 = new BitSet(mk_tokenSet_12());
+	private static final long[] mk_tokenSet_13() {
+		long[] data = { 18141941858304L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_13 = new BitSet(mk_tokenSet_13());
+	private static final long[] mk_tokenSet_14() {
+		long[] data = { 23639499997184L, 64L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_14 = new BitSet(mk_tokenSet_14());
+	private static final long[] mk_tokenSet_15() {
+		long[] data = { 23639499997184L, 96L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_15 = new BitSet(mk_tokenSet_15());
+	private static final long[] mk_tokenSet_16() {
+		long[] data = { 23639499997184L, 120L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_16 = new BitSet(mk_tokenSet_16());
+	private static final long[] mk_tokenSet_17() {
+		long[] data = { -9223348397354778624L, 127L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_17 = new BitSet(mk_tokenSet_17());
+	private static final long[] mk_tokenSet_18() {
+		long[] data = { -8358657268899643392L, 127L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_18 = new BitSet(mk_tokenSet_18());
+	private static final long[] mk_tokenSet_19() {
+		long[] data = { -288204537628459008L, 127L, 0L, 0L};
+		return data;
+	}
+	public static final BitSet _tokenSet_19 = new BitSet(mk_tokenSet_19());
+	
+	}
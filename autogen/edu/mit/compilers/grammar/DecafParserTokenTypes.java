@@ -0,0 +1,82 @@
+// $ANTLR 2.7.7 (2006-11-01): "parser.g" -> "DecafParser.java"$
+
+package edu.mit.compilers.grammar;
+
+import edu.mit.compilers.ErrorCenter;
+
+public interface DecafParserTokenTypes {
+	int EOF = 1;
+	int NULL_TREE_LOOKAHEAD = 3;
+	int FIELD_DECL = 4;
+	int FIELDS = 5;
+	int METHODS = 6;
+	int METHOD_RETURN = 7;
+	int PARAM_DECL = 8;
+	int METHOD_DECL = 9;
+	int BLOCK = 10;
+	int VAR_DECL = 11;
+	int METHOD_CALL = 12;
+	int METHOD_ID = 13;
+	int CALLOUT_NAME = 14;
+	int CALLOUT_ARGS = 15;
+	int IF_CLAUSE = 16;
+	int ELSE_BLOCK = 17;
+	int FOR_INITIALIZE = 18;
+	int FOR_TERMINATE = 19;
+	int WHILE_TERMINATE = 20;
+	int BOOLEAN_TYPE = 21;
+	int BREAK = 22;
+	int CALLOUT = 23;
+	int CLASS = 24;
+	int CONTINUE = 25;
+	int ELSE = 26;
+	int FOR = 27;
+	int IF = 28;
+	int INT_TYPE = 29;
+	int RETURN = 30;
+	int VOID = 31;
+	int WHILE = 32;
+	int TRUE = 33;
+	int FALSE = 34;
+	int MINUS_ASSIGN = 35;
+	int PLUS_ASSIGN = 36;
+	int LCURLY = 37;
+	int RCURLY = 38;
+	int COMMA = 39;
+	int SEMICOLON = 40;
+	int LBRACKET = 41;
+	int RBRACKET = 42;
+	int LPAREN = 43;
+	int RPAREN = 44;
+	int WS_ = 45;
+	int SL_COMMENT = 46;
+	int CHAR_EL = 47;
+	int CHAR_LITERAL = 48;
+	int STRING_LITERAL = 49;
+	int INT_LITERAL = 50;
+	int DECIMAL = 51;
+	int HEX = 52;
+	int BIN = 53;
+	int DIGIT = 54;
+	int HEX_DIGIT = 55;
+	int ASSIGN = 56;
+	int BANG = 57;
+	int MINUS = 58;
+	int PLUS = 59;
+	int TIMES = 60;
+	int DIVIDE = 61;
+	int MOD = 62;
+	int GT = 63;
+	int LT = 64;
+	int GTE = 65;
+	int LTE = 66;
+	int EQ = 67;
+	int NEQ = 68;
+	int AND = 69;
+	int OR = 70;
+	int ESC = 71;
+	int ID = 72;
+	int ALPHA = 73;
+	int ALPHA_NUM = 74;
+	int DIVIDES = 75;
+}
@@ -0,0 +1,233 @@
+package edu.mit.compilers.bench;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Writes valid Decaf programs of a given shape, for finding out how the
+ * compiler's passes scale with program size. The same parameters and seed
+ * always give the same program.
+ *
+ * Every method declares its live variables and keeps them all live to the
+ * end by returning their sum. Its body is a sequence of loop nests; each
+ * loop body updates the variables from one another, reads and writes the
+ * arrays and, if it isn't at the maximum depth, holds an if and another
+ * loop. Loops run from 0 to 8 and arrays have 64 elements, so the programs
+ * also run.
+ *
+ * <pre>
+ * ProgramGenerator [-methods N] [-depth N] [-loops N] [-vars N]
+ *                  [-arrays N] [-seed N] [-o FILE]
+ * </pre>
+ */
+public class ProgramGenerator {
+
+	private static final int LOOP_BOUND = 8;
+	private static final int ARRAY_SIZE = 64;
+
+	private int methods = 4;
+	private int depth = 2;
+	private int loops = 2;
+	private int vars = 8;
+	private int arrays = 2;
+	private long seed = 6035;
+
+	private StringBuilder out;
+	private Random random;
+
+	public ProgramGenerator setMethods(int methods) {
+		this.methods = Math.max(1, methods);
+		return this;
+	}
+
+	/**
+	 * Sets how deep loops nest.
+	 */
+	public ProgramGenerator setDepth(int depth) {
+		this.depth = Math.max(1, depth);
+		return this;
+	}
+
+	/**
+	 * Sets the number of loop nests in each method.
+	 */
+	public ProgramGenerator setLoops(int loops) {
+		this.loops = Math.max(1, loops);
+		return this;
+	}
+
+	/**
+	 * Sets the number of variables each method keeps live throughout.
+	 */
+	public ProgramGenerator setVars(int vars) {
+		this.vars = Math.max(2, vars);
+		return this;
+	}
+
+	/**
+	 * Sets the number of array reads and writes in each loop body.
+	 */
+	public ProgramGenerator setArrays(int arrays) {
+		this.arrays = Math.max(0, arrays);
+		return this;
+	}
+
+	public ProgramGenerator setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Sets the parameter called name, as on the command line without the
+	 * dash. Returns false if there's no such parameter.
+	 */
+	public boolean set(String name, int value) {
+		if (name.equals("methods")) {
+			setMethods(value);
+		} else if (name.equals("depth")) {
+			setDepth(value);
+		} else if (name.equals("loops")) {
+			setLoops(value);
+		} else if (name.equals("vars")) {
+			setVars(value);
+		} else if (name.equals("arrays")) {
+			setArrays(value);
+		} else if (name.equals("seed")) {
+			setSeed(value);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	public String generate() {
+		out = new StringBuilder();
+		random = new Random(seed);
+		line(0, "// Generated by ProgramGenerator -methods " + methods
+				+ " -depth " + depth + " -loops " + loops + " -vars " + vars
+				+ " -arrays " + arrays + " -seed " + seed);
+		line(0, "class Program {");
+		line(1, "int a0[" + ARRAY_SIZE + "], a1[" + ARRAY_SIZE + "];");
+		line(1, "int g;");
+		for (int m = 0; m < methods; m++) {
+			method(m);
+		}
+		line(1, "void main() {");
+		line(2, "int r;");
+		line(2, "r = 0;");
+		for (int m = 0; m < methods; m++) {
+			line(2, "r = r + m" + m + "(r, " + (m + 1) + ");");
+		}
+		line(2, "callout(\"printf\", \"%d\\n\", r);");
+		line(1, "}");
+		line(0, "}");
+		return out.toString();
+	}
+
+	private void method(int m) {
+		line(1, "int m" + m + "(int p0, int p1) {");
+		StringBuilder decl = new StringBuilder("int ");
+		for (int v = 0; v < vars; v++) {
+			decl.append("v" + v + ", ");
+		}
+		for (int d = 0; d < depth; d++) {
+			decl.append("i" + d + (d < depth - 1 ? ", " : ";"));
+		}
+		line(2, decl.toString());
+		for (int v = 0; v < vars; v++) {
+			line(2, "v" + v + " = p" + (v % 2) + " + " + v + ";");
+		}
+		for (int l = 0; l < loops; l++) {
+			loop(0, 2);
+		}
+		StringBuilder sum = new StringBuilder("return v0");
+		for (int v = 1; v < vars; v++) {
+			sum.append(" + v" + v);
+		}
+		line(2, sum.append(";").toString());
+		line(1, "}");
+	}
+
+	private void loop(int d, int indent) {
+		String i = "i" + d;
+		line(indent, "for (" + i + " = 0; " + LOOP_BOUND + ") {");
+		int body = indent + 1;
+		for (int k = 0; k < 2; k++) {
+			line(body, var() + " = " + var() + " " + op() + " " + var() + " + "
+					+ i + ";");
+		}
+		for (int k = 0; k < arrays; k++) {
+			String array = "a" + (k % 2);
+			String index = i + " + " + random.nextInt(ARRAY_SIZE - LOOP_BOUND);
+			if (random.nextBoolean()) {
+				line(body, array + "[" + index + "] = " + var() + ";");
+			} else {
+				line(body, var() + " = " + var() + " + " + array + "[" + index
+						+ "];");
+			}
+		}
+		if (d + 1 < depth) {
+			line(body, "if (" + var() + " > " + var() + ") {");
+			line(body + 1, var() + " = " + var() + " - " + i + ";");
+			line(body + 1, "g = g + 1;");
+			line(body, "} else {");
+			line(body + 1, var() + " = " + var() + " + g;");
+			line(body, "}");
+			loop(d + 1, body);
+		}
+		line(indent, "}");
+	}
+
+	private String var() {
+		return "v" + random.nextInt(vars);
+	}
+
+	private String op() {
+		switch (random.nextInt(3)) {
+		case 0:
+			return "+";
+		case 1:
+			return "-";
+		default:
+			return "*";
+		}
+	}
+
+	private void line(int indent, String text) {
+		for (int k = 0; k < indent; k++) {
+			out.append("  ");
+		}
+		out.append(text).append('\n');
+	}
+
+	public static void main(String[] args) throws IOException {
+		ProgramGenerator generator = new ProgramGenerator();
+		String outfile = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-o")) {
+				outfile = args[++i];
+			} else if (args[i].startsWith("-") && i + 1 < args.length
+					&& generator.set(args[i].substring(1), Integer
+							.parseInt(args[i + 1]))) {
+				i++;
+			} else {
+				System.err.println("Unknown option " + args[i]);
+				System.exit(1);
+			}
+		}
+		String program = generator.generate();
+		if (outfile == null) {
+			System.out.print(program);
+			return;
+		}
+		Writer writer = new FileWriter(outfile);
+		try {
+			writer.write(program);
+		} finally {
+			writer.close();
+		}
+	}
+
+}
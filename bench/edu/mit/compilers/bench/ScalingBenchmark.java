@@ -0,0 +1,326 @@
+package edu.mit.compilers.bench;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.mit.compilers.ErrorCenter;
+import edu.mit.compilers.Main;
+import edu.mit.compilers.Stats;
+import edu.mit.compilers.codegen.MidSymbolTable;
+import edu.mit.compilers.codegen.MidVisitor;
+import edu.mit.compilers.crawler.DecafSemanticChecker;
+import edu.mit.compilers.grammar.DecafParser;
+import edu.mit.compilers.grammar.DecafScanner;
+import edu.mit.compilers.grammar.tokens.CLASSNode;
+import edu.mit.compilers.opt.meta.Optimizer;
+import edu.mit.compilers.opt.meta.Options;
+
+/**
+ * Compiles generated programs of growing size with each optimization on
+ * its own and reports how compile time, the time of each pass and the heap
+ * taken by the compiled program grow with size. Run through
+ * <tt>ant bench_scaling</tt>.
+ *
+ * For every pass the growth exponent k in time ~ size^k is fitted over the
+ * sizes; passes with k well above 1 are the ones to look at. The raw
+ * numbers can be written as CSV, one row per pass, setting and size, for
+ * plotting.
+ *
+ * <pre>
+ * ScalingBenchmark [-param NAME] [-sizes N,N,...] [-settings S,S,...]
+ *                  [-repeat N] [-csv FILE] [-NAME N]...
+ * </pre>
+ *
+ * NAME is a ProgramGenerator parameter; -param picks the one that's
+ * scaled, the others are fixed at their defaults or the given values.
+ */
+public class ScalingBenchmark {
+
+	// Growth exponents above this are reported as super-linear.
+	private static final double SUPERLINEAR = 1.3;
+
+	// Measurements smaller than these are mostly noise, so growth isn't
+	// fitted to them.
+	private static final double MIN_MS = 0.5;
+	private static final double MIN_MB = 0.1;
+
+	private static final Map<String, Integer> SETTINGS = new LinkedHashMap<String, Integer>();
+	static {
+		SETTINGS.put("none", 0);
+		SETTINGS.put("as", Options.OPTS_ON);
+		SETTINGS.put("cse", Options.OPTS_ON | Options.CSE);
+		SETTINGS.put("cp", Options.OPTS_ON | Options.CP);
+		SETTINGS.put("dce", Options.OPTS_ON | Options.DCE);
+		SETTINGS.put("cm", Options.OPTS_ON | Options.CM);
+		SETTINGS.put("sr", Options.OPTS_ON | Options.SR);
+		SETTINGS.put("regalloc", Options.OPTS_ON | Options.RA);
+		SETTINGS.put("linearscan", Options.OPTS_ON | Options.RA
+				| Options.LINEAR_SCAN);
+		SETTINGS.put("all", Options.OPTS_ON | Options.CSE | Options.CP
+				| Options.DCE | Options.CM | Options.SR | Options.RA);
+	}
+
+	/**
+	 * Measurements of one compile.
+	 */
+	private static class Sample {
+		final Map<String, Double> passMs = new LinkedHashMap<String, Double>();
+		double totalMs;
+		double heapMB;
+	}
+
+	private static long sink;
+
+	/**
+	 * Compiles program, which has been written to source, with options to
+	 * outfile the same way Main does, and measures it.
+	 */
+	private static Sample compile(String program, File source, int options,
+			File outfile) throws Exception {
+		Sample sample = new Sample();
+		long heapBefore = usedHeap();
+		Stats.configure(true);
+		long start = System.nanoTime();
+
+		Main.resetFileState();
+		// For error messages; parsing reads program directly.
+		ErrorCenter.loadFile(source.getPath());
+		DecafParser parser = new DecafParser(new DecafScanner(
+				new StringReader(program)));
+		Stats.Timer timer = Stats.begin("scan + parse");
+		parser.program();
+		Stats.end(timer);
+		CLASSNode root = (CLASSNode) parser.getAST();
+		timer = Stats.begin("semantic check");
+		new DecafSemanticChecker().crawl(root);
+		Stats.end(timer);
+		if ((options & Options.OPTS_ON) != 0) {
+			timer = Stats.begin("simplify expressions");
+			root.simplifyExpressions();
+			Stats.end(timer);
+			timer = Stats.begin("unroll");
+			root.unroll();
+			Stats.end(timer);
+		}
+		if (ErrorCenter.hasError()) {
+			throw new RuntimeException("Generated program doesn't compile.");
+		}
+		timer = Stats.begin("mid-level IR");
+		MidSymbolTable symbolTable = MidVisitor.createMidLevelIR(root);
+		Stats.end(timer);
+		if (!Optimizer.getOptimizer(options, 1).ventureForth(symbolTable,
+				outfile.getPath())) {
+			throw new IOException("Couldn't write " + outfile);
+		}
+
+		sample.totalMs = (System.nanoTime() - start) / 1e6;
+		Map<String, Long> phases = Stats.getPhaseNanos();
+		Stats.configure(false);
+		for (String phase : phases.keySet()) {
+			// "cse 1", "cse 2"... are rounds of the same pass.
+			String pass = phase.replaceFirst(" [0-9]+$", "");
+			Double ms = sample.passMs.get(pass);
+			sample.passMs.put(pass, (ms == null ? 0 : ms) + phases.get(phase)
+					/ 1e6);
+		}
+		// What the IR still holds once the compile is done.
+		sample.heapMB = Math.max(0, usedHeap() - heapBefore) / (1024.0 * 1024.0);
+		sink += symbolTable.getMethods().size();
+		return sample;
+	}
+
+	private static void write(String program, File file) throws IOException {
+		Writer out = new FileWriter(file);
+		try {
+			out.write(program);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 2; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Least squares slope of log(y) against log(x). NaN if some y is too
+	 * small to measure.
+	 */
+	private static double growthExponent(List<Integer> sizes, List<Double> ys,
+			double smallest) {
+		int n = 0;
+		double sx = 0, sy = 0, sxx = 0, sxy = 0;
+		for (int i = 0; i < sizes.size(); i++) {
+			if (ys.get(i) < smallest) {
+				return Double.NaN;
+			}
+			double x = Math.log(sizes.get(i));
+			double y = Math.log(ys.get(i));
+			n++;
+			sx += x;
+			sy += y;
+			sxx += x * x;
+			sxy += x * y;
+		}
+		double denominator = n * sxx - sx * sx;
+		if (n < 2 || denominator == 0) {
+			return Double.NaN;
+		}
+		return (n * sxy - sx * sy) / denominator;
+	}
+
+	private static List<Integer> parseSizes(String list) {
+		List<Integer> sizes = new ArrayList<Integer>();
+		for (String size : list.split(",")) {
+			sizes.add(Integer.parseInt(size.trim()));
+		}
+		return sizes;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String param = "loops";
+		List<Integer> sizes = parseSizes("4,8,16,32");
+		List<String> settings = new ArrayList<String>(SETTINGS.keySet());
+		int repeat = 3;
+		String csvFile = null;
+		ProgramGenerator generator = new ProgramGenerator();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-param")) {
+				param = args[++i];
+			} else if (args[i].equals("-sizes")) {
+				sizes = parseSizes(args[++i]);
+			} else if (args[i].equals("-settings")) {
+				settings.clear();
+				for (String setting : args[++i].split(",")) {
+					if (!SETTINGS.containsKey(setting)) {
+						System.err.println("Unknown setting " + setting
+								+ ", expected one of " + SETTINGS.keySet());
+						System.exit(1);
+					}
+					settings.add(setting);
+				}
+			} else if (args[i].equals("-repeat")) {
+				repeat = Math.max(1, Integer.parseInt(args[++i]));
+			} else if (args[i].equals("-csv")) {
+				csvFile = args[++i];
+			} else if (args[i].startsWith("-") && i + 1 < args.length
+					&& generator.set(args[i].substring(1), Integer
+							.parseInt(args[i + 1]))) {
+				i++;
+			} else {
+				System.err.println("Unknown option " + args[i]);
+				System.exit(1);
+			}
+		}
+		if (!generator.set(param, sizes.get(0))) {
+			System.err.println("Unknown parameter " + param);
+			System.exit(1);
+		}
+
+		File source = File.createTempFile("scaling", ".dcf");
+		source.deleteOnExit();
+		File outfile = File.createTempFile("scaling", ".s");
+		outfile.deleteOnExit();
+		PrintWriter csv = null;
+		if (csvFile != null) {
+			csv = new PrintWriter(new FileWriter(csvFile));
+			csv.println("setting," + param + ",pass,ms,heapMB");
+		}
+
+		// Warm up the JIT on a mid-sized program first.
+		generator.set(param, sizes.get(sizes.size() / 2));
+		String warmup = generator.generate();
+		write(warmup, source);
+		for (int i = 0; i < 3; i++) {
+			compile(warmup, source, SETTINGS.get("all"), outfile);
+		}
+
+		System.out.println(String.format("Scaling %s over %s, best of %d",
+				param, sizes, repeat));
+		try {
+			for (String setting : settings) {
+				// pass -> time at each size, in order.
+				Map<String, List<Double>> passTimes = new LinkedHashMap<String, List<Double>>();
+				List<Double> totals = new ArrayList<Double>();
+				List<Double> heaps = new ArrayList<Double>();
+				System.out.println();
+				System.out.println(String.format("%-10s %8s %10s %10s",
+						setting, param, "total ms", "heap MB"));
+				for (int s = 0; s < sizes.size(); s++) {
+					generator.set(param, sizes.get(s));
+					String program = generator.generate();
+					write(program, source);
+					Sample best = null;
+					for (int r = 0; r < repeat; r++) {
+						Sample sample = compile(program, source, SETTINGS
+								.get(setting), outfile);
+						if (best == null || sample.totalMs < best.totalMs) {
+							best = sample;
+						}
+					}
+					totals.add(best.totalMs);
+					heaps.add(best.heapMB);
+					for (String pass : best.passMs.keySet()) {
+						if (!passTimes.containsKey(pass)) {
+							List<Double> times = new ArrayList<Double>();
+							for (int k = 0; k < sizes.size(); k++) {
+								times.add(0.0);
+							}
+							passTimes.put(pass, times);
+						}
+						passTimes.get(pass).set(s, best.passMs.get(pass));
+					}
+					System.out.println(String.format("%-10s %8d %10.1f %10.2f",
+							"", sizes.get(s), best.totalMs, best.heapMB));
+					if (csv != null) {
+						csv.println(String.format("%s,%d,total,%.3f,%.3f",
+								setting, sizes.get(s), best.totalMs,
+								best.heapMB));
+						for (String pass : best.passMs.keySet()) {
+							csv.println(String.format("%s,%d,%s,%.3f,",
+									setting, sizes.get(s), pass, best.passMs
+											.get(pass)));
+						}
+					}
+				}
+				printGrowth("total", sizes, totals, MIN_MS);
+				printGrowth("heap", sizes, heaps, MIN_MB);
+				for (String pass : passTimes.keySet()) {
+					printGrowth(pass, sizes, passTimes.get(pass), MIN_MS);
+				}
+			}
+		} finally {
+			if (csv != null) {
+				csv.close();
+			}
+		}
+		if (csvFile != null) {
+			System.out.println();
+			System.out.println("Wrote " + csvFile);
+		}
+	}
+
+	private static void printGrowth(String name, List<Integer> sizes,
+			List<Double> values, double smallest) {
+		double k = growthExponent(sizes, values, smallest);
+		if (Double.isNaN(k)) {
+			System.out.println(String.format("  %-22s too small to fit", name));
+			return;
+		}
+		System.out.println(String.format("  %-22s ~ n^%-5.2f %s", name, k,
+				k > SUPERLINEAR ? "SUPER-LINEAR" : ""));
+	}
+
+}
@@ -0,0 +1,580 @@
+package edu.mit.compilers.bench;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.mit.compilers.ErrorCenter;
+import edu.mit.compilers.Main;
+import edu.mit.compilers.codegen.AsmVisitor;
+import edu.mit.compilers.codegen.MemoryManager;
+import edu.mit.compilers.codegen.MidSymbolTable;
+import edu.mit.compilers.codegen.MidVisitor;
+import edu.mit.compilers.codegen.asm.ASM;
+import edu.mit.compilers.codegen.nodes.MidMethodDeclNode;
+import edu.mit.compilers.crawler.DecafSemanticChecker;
+import edu.mit.compilers.grammar.DecafParser;
+import edu.mit.compilers.grammar.DecafScanner;
+import edu.mit.compilers.grammar.tokens.CLASSNode;
+import edu.mit.compilers.opt.AnalysisManager;
+import edu.mit.compilers.opt.Analyzer;
+import edu.mit.compilers.opt.BackwardsAnalyzer;
+import edu.mit.compilers.opt.Block;
+import edu.mit.compilers.opt.cm.DomState;
+import edu.mit.compilers.opt.cm.DomTransfer;
+import edu.mit.compilers.opt.cp.CPState;
+import edu.mit.compilers.opt.cp.CPTransfer;
+import edu.mit.compilers.opt.cse.CSEGlobalState;
+import edu.mit.compilers.opt.cse.CSETransfer;
+import edu.mit.compilers.opt.low.Peephole;
+import edu.mit.compilers.opt.meta.Optimizer;
+import edu.mit.compilers.opt.meta.Options;
+import edu.mit.compilers.opt.regalloc.LivenessDoctor;
+import edu.mit.compilers.opt.regalloc.LivenessState;
+import edu.mit.compilers.opt.regalloc.RegisterAllocator;
+
+/**
+ * Times each stage of the compiler on its own, over a set of programs, so
+ * changes to the compile time of one stage don't get lost in the others.
+ * Run through <tt>ant bench</tt>.
+ *
+ * Every stage gets its input built by the stages before it, untimed, like
+ * JMH's per-invocation setup. An iteration runs the stage once on every
+ * program; after some warmup iterations the mean, standard deviation and
+ * minimum of the measured ones are reported. Results can be saved as a
+ * JSON baseline, and a later run compared against it fails if a stage's
+ * minimum got slower than the tolerance allows; the minimum is the least
+ * disturbed by GC and other processes.
+ *
+ * <pre>
+ * StageBenchmark [-warmup N] [-iterations N] [-tolerance F]
+ *                [-baseline FILE] [-save FILE] DIR...
+ * </pre>
+ */
+public class StageBenchmark {
+
+	// Changes smaller than this are timer noise, whatever the percentage.
+	private static final double MIN_REGRESSION_MS = 1;
+
+	private static final int ALL_OPTS = Options.OPTS_ON | Options.CSE
+			| Options.CP | Options.DCE | Options.CM;
+
+	// Keeps stage results alive so the JIT can't drop the work.
+	private static long sink;
+
+	/**
+	 * A .dcf program to benchmark on.
+	 */
+	private static class Program {
+		final String filename;
+		final String source;
+
+		Program(String filename, String source) {
+			this.filename = filename;
+			this.source = source;
+		}
+	}
+
+	/**
+	 * One stage of the compiler.
+	 */
+	private static abstract class Stage {
+		final String name;
+		// Whether run() changes its input, so it has to be set up again
+		// before every run.
+		final boolean mutates;
+
+		Stage(String name, boolean mutates) {
+			this.name = name;
+			this.mutates = mutates;
+		}
+
+		/**
+		 * Builds the stage's input for program. Not timed.
+		 */
+		abstract Object setUp(Program program) throws Exception;
+
+		/**
+		 * Runs the stage on input, returning something derived from the
+		 * result.
+		 */
+		abstract long run(Object input) throws Exception;
+	}
+
+	/**
+	 * A method's name and CFG.
+	 */
+	private static class MethodBlocks {
+		final String name;
+		final List<Block> blocks;
+
+		MethodBlocks(String name, List<Block> blocks) {
+			this.name = name;
+			this.blocks = blocks;
+		}
+	}
+
+	/**
+	 * Per-method assembly, before or after Peephole.
+	 */
+	private static class Lowered {
+		final MidSymbolTable symbolTable;
+		final List<List<ASM>> methodsASM;
+
+		Lowered(MidSymbolTable symbolTable, List<List<ASM>> methodsASM) {
+			this.symbolTable = symbolTable;
+			this.methodsASM = methodsASM;
+		}
+	}
+
+	/**
+	 * Register allocation of every method, by graph coloring or linear scan.
+	 */
+	private static class RegallocStage extends Stage {
+		final boolean linearScan;
+
+		RegallocStage(String name, boolean linearScan) {
+			super(name, true);
+			this.linearScan = linearScan;
+		}
+
+		Object setUp(Program program) throws Exception {
+			MidSymbolTable symbolTable = optimize(program, ALL_OPTS);
+			List<AnalysisManager> managers = new ArrayList<AnalysisManager>();
+			Map<String, MidMethodDeclNode> methods = symbolTable.getMethods();
+			for (String methodName : methods.keySet()) {
+				managers.add(new AnalysisManager(methodName, methods
+						.get(methodName)));
+			}
+			return managers;
+		}
+
+		@SuppressWarnings("unchecked")
+		long run(Object input) {
+			for (AnalysisManager manager : (List<AnalysisManager>) input) {
+				new RegisterAllocator(linearScan).run(manager);
+			}
+			return ((List<AnalysisManager>) input).size();
+		}
+	}
+
+	private static List<Stage> getStages() {
+		List<Stage> stages = new ArrayList<Stage>();
+		stages.add(new Stage("parse", true) {
+			Object setUp(Program program) {
+				Main.resetFileState();
+				ErrorCenter.loadFile(program.filename);
+				return program;
+			}
+
+			long run(Object input) throws Exception {
+				return parse((Program) input).getNumberOfChildren();
+			}
+		});
+		stages.add(new Stage("semantic check", true) {
+			Object setUp(Program program) throws Exception {
+				Main.resetFileState();
+				ErrorCenter.loadFile(program.filename);
+				return parse(program);
+			}
+
+			long run(Object input) {
+				new DecafSemanticChecker().crawl((CLASSNode) input);
+				return ErrorCenter.hasError() ? 1 : 0;
+			}
+		});
+		stages.add(new Stage("mid-level IR", true) {
+			Object setUp(Program program) throws Exception {
+				return frontEnd(program);
+			}
+
+			long run(Object input) {
+				return MidVisitor.createMidLevelIR((CLASSNode) input)
+						.getMethods().size();
+			}
+		});
+		stages.add(new Stage("cse analyzer", true) {
+			Object setUp(Program program) throws Exception {
+				return getBlocks(midLevelIR(program));
+			}
+
+			@SuppressWarnings("unchecked")
+			long run(Object input) {
+				long visits = 0;
+				for (MethodBlocks method : (List<MethodBlocks>) input) {
+					Analyzer<CSEGlobalState, CSETransfer> analyzer = new Analyzer<CSEGlobalState, CSETransfer>(
+							new CSEGlobalState(), new CSETransfer());
+					analyzer.analyze(method.name, method.blocks);
+					visits += analyzer.getIterationCounts().get(method.name);
+				}
+				return visits;
+			}
+		});
+		stages.add(new Stage("cp analyzer", false) {
+			Object setUp(Program program) throws Exception {
+				return getBlocks(midLevelIR(program));
+			}
+
+			@SuppressWarnings("unchecked")
+			long run(Object input) {
+				long visits = 0;
+				for (MethodBlocks method : (List<MethodBlocks>) input) {
+					Analyzer<CPState, CPTransfer> analyzer = new Analyzer<CPState, CPTransfer>(
+							new CPState(), new CPTransfer());
+					analyzer.analyze(method.name, method.blocks);
+					visits += analyzer.getIterationCounts().get(method.name);
+				}
+				return visits;
+			}
+		});
+		stages.add(new Stage("dominance analyzer", false) {
+			Object setUp(Program program) throws Exception {
+				return getBlocks(midLevelIR(program));
+			}
+
+			@SuppressWarnings("unchecked")
+			long run(Object input) {
+				long visits = 0;
+				for (MethodBlocks method : (List<MethodBlocks>) input) {
+					Analyzer<DomState, DomTransfer> analyzer = new Analyzer<DomState, DomTransfer>(
+							new DomState(), new DomTransfer());
+					analyzer.analyze(method.name, method.blocks);
+					visits += analyzer.getIterationCounts().get(method.name);
+				}
+				return visits;
+			}
+		});
+		stages.add(new Stage("liveness analyzer", false) {
+			Object setUp(Program program) throws Exception {
+				return getBlocks(midLevelIR(program));
+			}
+
+			@SuppressWarnings("unchecked")
+			long run(Object input) {
+				long visits = 0;
+				for (MethodBlocks method : (List<MethodBlocks>) input) {
+					LivenessDoctor doctor = new LivenessDoctor();
+					BackwardsAnalyzer<LivenessState, LivenessDoctor> analyzer = new BackwardsAnalyzer<LivenessState, LivenessDoctor>(
+							doctor.getStartState(), doctor);
+					analyzer.analyze(method.name, method.blocks);
+					visits += analyzer.getIterationCounts().get(method.name);
+				}
+				return visits;
+			}
+		});
+		stages.add(new RegallocStage("regalloc", false));
+		stages.add(new RegallocStage("linear scan", true));
+		stages.add(new Stage("peephole", false) {
+			Object setUp(Program program) throws Exception {
+				return lower(program, false);
+			}
+
+			long run(Object input) {
+				long size = 0;
+				for (List<ASM> methodASM : ((Lowered) input).methodsASM) {
+					size += Peephole.optimize(methodASM).size();
+				}
+				return size;
+			}
+		});
+		stages.add(new Stage("build asm", false) {
+			Object setUp(Program program) throws Exception {
+				return lower(program, true);
+			}
+
+			long run(Object input) {
+				Lowered lowered = (Lowered) input;
+				List<ASM> methodsASM = new ArrayList<ASM>();
+				for (List<ASM> methodASM : lowered.methodsASM) {
+					methodsASM.addAll(methodASM);
+				}
+				return AsmVisitor.buildASMList(lowered.symbolTable, methodsASM)
+						.size();
+			}
+		});
+		return stages;
+	}
+
+	private static CLASSNode parse(Program program) throws Exception {
+		DecafParser parser = new DecafParser(new DecafScanner(
+				new StringReader(program.source)));
+		parser.program();
+		return (CLASSNode) parser.getAST();
+	}
+
+	/**
+	 * Parses, checks and simplifies the program like -opt all does.
+	 */
+	private static CLASSNode frontEnd(Program program) throws Exception {
+		Main.resetFileState();
+		ErrorCenter.loadFile(program.filename);
+		CLASSNode root = parse(program);
+		new DecafSemanticChecker().crawl(root);
+		root.simplifyExpressions();
+		root.unroll();
+		if (ErrorCenter.hasError()) {
+			throw new RuntimeException(program.filename + " doesn't compile.");
+		}
+		return root;
+	}
+
+	private static MidSymbolTable midLevelIR(Program program)
+			throws Exception {
+		return MidVisitor.createMidLevelIR(frontEnd(program));
+	}
+
+	private static List<MethodBlocks> getBlocks(MidSymbolTable symbolTable) {
+		List<MethodBlocks> out = new ArrayList<MethodBlocks>();
+		Map<String, MidMethodDeclNode> methods = symbolTable.getMethods();
+		for (String methodName : methods.keySet()) {
+			out.add(new MethodBlocks(methodName, Block.getAllBlocks(methods
+					.get(methodName).getNodeList())));
+		}
+		return out;
+	}
+
+	/**
+	 * Runs the mid-level optimizations in options on every method.
+	 */
+	private static MidSymbolTable optimize(Program program, int options)
+			throws Exception {
+		MidSymbolTable symbolTable = midLevelIR(program);
+		Optimizer.reset();
+		Optimizer optimizer = Optimizer.getOptimizer(options, 1);
+		Map<String, MidMethodDeclNode> methods = symbolTable.getMethods();
+		for (String methodName : methods.keySet()) {
+			optimizer.optimizeMethod(methodName, methods.get(methodName));
+		}
+		return symbolTable;
+	}
+
+	/**
+	 * Optimizes with register allocation and lowers every method to
+	 * assembly, running Peephole on it if pruned.
+	 */
+	private static Lowered lower(Program program, boolean pruned)
+			throws Exception {
+		MidSymbolTable symbolTable = optimize(program, ALL_OPTS | Options.RA);
+		MemoryManager.assignFieldStorage(symbolTable);
+		List<MidMethodDeclNode> methods = new ArrayList<MidMethodDeclNode>(
+				symbolTable.getMethods().values());
+		methods.addAll(symbolTable.getStarbucksMethods().values());
+		List<List<ASM>> methodsASM = new ArrayList<List<ASM>>();
+		for (MidMethodDeclNode method : methods) {
+			MemoryManager.assignStorage(method);
+			List<ASM> methodASM = method.toASM();
+			if (pruned) {
+				methodASM = Peephole.optimize(methodASM);
+			}
+			methodsASM.add(methodASM);
+		}
+		return new Lowered(symbolTable, methodsASM);
+	}
+
+	/**
+	 * Measured times of one stage, in ms per iteration.
+	 */
+	private static class Result {
+		final String stage;
+		final double meanMs;
+		final double stddevMs;
+		final double minMs;
+
+		Result(String stage, double meanMs, double stddevMs, double minMs) {
+			this.stage = stage;
+			this.meanMs = meanMs;
+			this.stddevMs = stddevMs;
+			this.minMs = minMs;
+		}
+	}
+
+	private static Result measure(Stage stage, List<Program> programs,
+			int warmup, int iterations) throws Exception {
+		List<Object> inputs = new ArrayList<Object>();
+		if (!stage.mutates) {
+			for (Program program : programs) {
+				inputs.add(stage.setUp(program));
+			}
+		}
+		double[] times = new double[iterations];
+		for (int i = 0; i < warmup + iterations; i++) {
+			long nanos = 0;
+			for (int j = 0; j < programs.size(); j++) {
+				Object input = stage.mutates ? stage.setUp(programs.get(j))
+						: inputs.get(j);
+				long start = System.nanoTime();
+				sink += stage.run(input);
+				nanos += System.nanoTime() - start;
+			}
+			if (i >= warmup) {
+				times[i - warmup] = nanos / 1e6;
+			}
+		}
+
+		double sum = 0;
+		double min = Double.MAX_VALUE;
+		for (double time : times) {
+			sum += time;
+			min = Math.min(min, time);
+		}
+		double mean = sum / iterations;
+		double squares = 0;
+		for (double time : times) {
+			squares += (time - mean) * (time - mean);
+		}
+		double stddev = iterations > 1 ? Math.sqrt(squares / (iterations - 1))
+				: 0;
+		return new Result(stage.name, mean, stddev, min);
+	}
+
+	private static List<Program> loadPrograms(List<String> dirs)
+			throws IOException {
+		List<Program> programs = new ArrayList<Program>();
+		for (String dir : dirs) {
+			File[] files = new File(dir).listFiles();
+			if (files == null) {
+				throw new IOException("Can't list " + dir);
+			}
+			Arrays.sort(files);
+			for (File file : files) {
+				if (file.getName().endsWith(".dcf")) {
+					programs.add(new Program(file.getPath(), read(file)));
+				}
+			}
+		}
+		return programs;
+	}
+
+	private static String read(File file) throws IOException {
+		StringBuilder out = new StringBuilder();
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			char[] buffer = new char[1 << 12];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				out.append(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+		return out.toString();
+	}
+
+	private static void writeJSON(String file, List<Result> results,
+			int warmup, int iterations) throws IOException {
+		Writer out = new BufferedWriter(new FileWriter(file));
+		try {
+			out.write(String.format("{\n  \"warmup\": %d,\n"
+					+ "  \"iterations\": %d,\n  \"stages\": [\n", warmup,
+					iterations));
+			for (int i = 0; i < results.size(); i++) {
+				Result result = results.get(i);
+				out.write(String.format(
+						"    {\"stage\": \"%s\", \"meanMs\": %.3f, "
+								+ "\"stddevMs\": %.3f, \"minMs\": %.3f}%s\n",
+						result.stage, result.meanMs, result.stddevMs,
+						result.minMs, i < results.size() - 1 ? "," : ""));
+			}
+			out.write("  ]\n}\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads the minimum time of each stage from a file written by
+	 * writeJSON().
+	 */
+	private static Map<String, Double> readBaseline(String file)
+			throws IOException {
+		Pattern stageLine = Pattern
+				.compile("\"stage\": \"([^\"]*)\".*\"minMs\": ([0-9.]+)");
+		Map<String, Double> baseline = new LinkedHashMap<String, Double>();
+		Matcher matcher = stageLine.matcher(read(new File(file)));
+		while (matcher.find()) {
+			baseline.put(matcher.group(1), Double.parseDouble(matcher.group(2)));
+		}
+		return baseline;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int warmup = 3;
+		int iterations = 10;
+		double tolerance = 0.25;
+		String baselineFile = null;
+		String saveFile = null;
+		List<String> dirs = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-warmup")) {
+				warmup = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-iterations")) {
+				iterations = Math.max(1, Integer.parseInt(args[++i]));
+			} else if (args[i].equals("-tolerance")) {
+				tolerance = Double.parseDouble(args[++i]);
+			} else if (args[i].equals("-baseline")) {
+				baselineFile = args[++i];
+			} else if (args[i].equals("-save")) {
+				saveFile = args[++i];
+			} else {
+				dirs.add(args[i]);
+			}
+		}
+
+		List<Program> programs = loadPrograms(dirs);
+		System.out.println(String.format(
+				"%d programs, %d warmup + %d measured iterations per stage",
+				programs.size(), warmup, iterations));
+		System.out.println(String.format("%-20s %10s %10s %10s", "stage",
+				"mean ms", "stddev", "min ms"));
+		List<Result> results = new ArrayList<Result>();
+		for (Stage stage : getStages()) {
+			Result result = measure(stage, programs, warmup, iterations);
+			results.add(result);
+			System.out.println(String.format("%-20s %10.2f %10.2f %10.2f",
+					result.stage, result.meanMs, result.stddevMs,
+					result.minMs));
+		}
+
+		if (saveFile != null) {
+			writeJSON(saveFile, results, warmup, iterations);
+			System.out.println("Saved results to " + saveFile);
+		}
+
+		if (baselineFile != null && new File(baselineFile).exists()) {
+			Map<String, Double> baseline = readBaseline(baselineFile);
+			boolean regressed = false;
+			for (Result result : results) {
+				Double before = baseline.get(result.stage);
+				if (before == null) {
+					continue;
+				}
+				double change = result.minMs / before - 1;
+				boolean slower = change > tolerance
+						&& result.minMs - before > MIN_REGRESSION_MS;
+				regressed |= slower;
+				System.out.println(String.format("%-20s %+7.1f%% %s",
+						result.stage, 100 * change, slower ? "REGRESSION"
+								: ""));
+			}
+			if (regressed) {
+				System.out.println(String.format(
+						"Stages got more than %.0f%% slower than %s.",
+						100 * tolerance, baselineFile));
+				System.exit(1);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,316 @@
+package edu.mit.compilers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.io.Files;
+
+import edu.mit.compilers.opt.meta.PassManager;
+import edu.mit.compilers.opt.meta.TestBench;
+import edu.mit.compilers.opt.meta.Tuning;
+import edu.mit.compilers.tools.CLI;
+import edu.mit.compilers.tools.CLI.Action;
+
+/**
+ * Compiles one program with many Tunings, runs each build on the same
+ * input and writes out the fastest. Every build has to behave like the
+ * unoptimized one, so a setting that miscompiles the program is never
+ * picked. A report of all trials is printed and written next to the
+ * output.
+ *
+ * Builds are made several at a time, but the programs are timed one at a
+ * time, since programs running side by side slow each other down. A build
+ * whose compile runs too long counts as a failed trial.
+ */
+public class Autotuner {
+
+	private static final String[] PIPELINES = { "cse,cp,dce,as,ra,bl",
+			PassManager.LEVELS[2],
+			"(cp,cse,dce,as)*2,cm*2,sr,(cp,cse,dce,as)*2,ra,bl",
+			PassManager.LEVELS[3] };
+	private static final int[] UNROLL_FACTORS = { 0, 2, 4 };
+	private static final long COMPILE_TIMEOUT_SECONDS = 60;
+
+	/**
+	 * One setting being tried.
+	 */
+	private static class Trial {
+		final int id;
+		final Tuning tuning;
+		final File asmFile;
+		File program;
+		// Why this trial is out, null while it's still in.
+		String failure;
+		final List<Long> nanos = new ArrayList<Long>();
+
+		Trial(int id, Tuning tuning, File dir) {
+			this.id = id;
+			this.tuning = tuning;
+			this.asmFile = new File(dir, "trial" + id + ".s");
+		}
+
+		long getMedian() {
+			List<Long> sorted = new ArrayList<Long>(nanos);
+			Collections.sort(sorted);
+			return sorted.get(sorted.size() / 2);
+		}
+	}
+
+	/**
+	 * Autotunes infile with the input files in CLI.autotune, trying jobs
+	 * settings at a time, and writes the fastest build to outfile. Returns
+	 * the exit code.
+	 */
+	public static int tune(String infile, String outfile, int jobs) {
+		if (infile == null || outfile == null) {
+			System.out.println("Autotuning needs one input file.");
+			return 1;
+		}
+		if (CLI.target != Action.ASSEMBLY) {
+			System.out.println("Autotuning needs -target codegen.");
+			return 1;
+		}
+		File inputDir = CLI.resolve(CLI.autotune);
+		if (!inputDir.isDirectory()) {
+			System.out.println("No input directory " + inputDir + ".");
+			return 1;
+		}
+		File libDir = CLI.tunelib != null ? CLI.resolve(CLI.tunelib)
+				: new File(inputDir.getAbsoluteFile().getParentFile(), "lib");
+		TestBench bench = new TestBench(inputDir, libDir);
+
+		File dir = Files.createTempDir();
+		try {
+			List<Trial> trials = new ArrayList<Trial>();
+			for (Tuning tuning : getTunings()) {
+				trials.add(new Trial(trials.size(), tuning, dir));
+			}
+			buildAll(infile, trials, bench, jobs);
+			Trial reference = trials.get(0);
+			if (reference.failure != null) {
+				System.out.println("Unoptimized build failed: "
+						+ reference.failure);
+				return 1;
+			}
+			TestBench.Run expected = bench.run(reference.program);
+			if (expected.getExitCode() != 0) {
+				System.out.println("Unoptimized build exited with "
+						+ expected.getExitCode() + ".");
+				return 1;
+			}
+			for (int rep = 0; rep < CLI.tunereps; rep++) {
+				// Round robin, so drift in the machine's speed hits every
+				// trial alike.
+				for (Trial trial : trials) {
+					if (trial.failure == null) {
+						time(trial, bench, expected);
+					}
+				}
+			}
+
+			Trial best = null;
+			for (Trial trial : trials) {
+				if (trial.failure == null
+						&& (best == null || trial.getMedian() < best
+								.getMedian())) {
+					best = trial;
+				}
+			}
+			Files.copy(best.asmFile, CLI.resolve(outfile));
+			String report = report(infile, trials, best);
+			System.out.print(report);
+			Files.write(report, CLI.resolve(outfile + ".tune"), Charset
+					.forName("UTF-8"));
+			return 0;
+		} catch (IOException e) {
+			System.out.println("Autotuning failed: " + e.getMessage());
+			return 1;
+		} finally {
+			deleteAll(dir);
+		}
+	}
+
+	/**
+	 * The unoptimized settings, then every combination of pipeline,
+	 * allocator, unroll factor and peephole.
+	 */
+	private static List<Tuning> getTunings() {
+		List<Tuning> out = new ArrayList<Tuning>();
+		out.add(new Tuning("", false, false, 0, true, CLI.passBudget));
+		for (String pipeline : PIPELINES) {
+			for (boolean linearScan : new boolean[] { false, true }) {
+				for (int unroll : UNROLL_FACTORS) {
+					for (boolean peephole : new boolean[] { true, false }) {
+						out.add(new Tuning(pipeline, linearScan, true, unroll,
+								peephole, CLI.passBudget));
+					}
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Compiles and builds every trial, jobs at a time.
+	 */
+	private static void buildAll(final String infile, List<Trial> trials,
+			final TestBench bench, int jobs) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, jobs));
+		try {
+			List<Future<?>> results = new ArrayList<Future<?>>();
+			for (final Trial trial : trials) {
+				results.add(pool.submit(new Callable<Void>() {
+					public Void call() {
+						build(infile, trial, bench);
+						return null;
+					}
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted", e);
+		} catch (ExecutionException e) {
+			// Builds catch everything themselves.
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Compiles the trial on a thread of its own and builds it. A compile that
+	 * takes longer than COMPILE_TIMEOUT_SECONDS fails the trial; its thread
+	 * is interrupted and left to stop at the next pass.
+	 */
+	private static void build(final String infile, final Trial trial,
+			TestBench bench) {
+		// Written only by the compile thread, so one that's given up on
+		// can't touch the trial.
+		final String[] failure = new String[1];
+		Thread compiler = new Thread(new Runnable() {
+			public void run() {
+				failure[0] = compile(infile, trial);
+			}
+		}, "trial" + trial.id);
+		compiler.setDaemon(true);
+		compiler.start();
+		try {
+			compiler.join(TimeUnit.SECONDS.toMillis(COMPILE_TIMEOUT_SECONDS));
+		} catch (InterruptedException e) {
+			compiler.interrupt();
+			trial.failure = "interrupted";
+			return;
+		}
+		if (compiler.isAlive()) {
+			compiler.interrupt();
+			trial.failure = "compile timed out";
+			return;
+		}
+		if (failure[0] != null) {
+			trial.failure = failure[0];
+			return;
+		}
+		try {
+			trial.program = bench.build(trial.asmFile);
+		} catch (IOException e) {
+			trial.failure = e.getMessage();
+		} catch (Throwable t) {
+			trial.failure = "build crashed: " + t;
+		}
+	}
+
+	/**
+	 * Compiles the trial to its assembly file, and returns why it failed or
+	 * null.
+	 */
+	private static String compile(String infile, Trial trial) {
+		try {
+			if (Main.compileFile(infile, trial.asmFile.getPath(), 1,
+					new PhaseTimes(), trial.tuning) != 0) {
+				return "didn't compile";
+			}
+			return null;
+		} catch (Throwable t) {
+			return "compiler crashed: " + t;
+		}
+	}
+
+	private static void time(Trial trial, TestBench bench,
+			TestBench.Run expected) throws IOException {
+		TestBench.Run run = bench.run(trial.program);
+		if (run.getExitCode() == -1) {
+			trial.failure = "timed out";
+		} else if (run.getExitCode() != expected.getExitCode()) {
+			trial.failure = "exited with " + run.getExitCode();
+		} else if (!run.getOutput().equals(expected.getOutput())) {
+			trial.failure = "wrong output";
+		} else {
+			trial.nanos.add(run.getNanos());
+		}
+	}
+
+	private static String report(String infile, List<Trial> trials, Trial best) {
+		List<Trial> sorted = new ArrayList<Trial>(trials);
+		Collections.sort(sorted, new Comparator<Trial>() {
+			@Override
+			public int compare(Trial a, Trial b) {
+				if ((a.failure == null) != (b.failure == null)) {
+					return a.failure == null ? -1 : 1;
+				}
+				if (a.failure != null) {
+					return a.id - b.id;
+				}
+				return Long.valueOf(a.getMedian()).compareTo(b.getMedian());
+			}
+		});
+		double baseline = trials.get(0).failure == null ? trials.get(0)
+				.getMedian() : Double.NaN;
+		StringWriter text = new StringWriter();
+		PrintWriter out = new PrintWriter(text);
+		out.println(String.format("Autotuned %s: %d trials, %d runs each",
+				infile, trials.size(), CLI.tunereps));
+		out.println(String.format("Fastest: %s", best.tuning));
+		out.println(String.format("%5s %10s %10s %10s %7s  %s", "trial",
+				"median ms", "min ms", "max ms", "speedup", "settings"));
+		for (Trial trial : sorted) {
+			if (trial.failure != null) {
+				out.println(String.format("%5d %-37s  %s", trial.id,
+						trial.failure.split("\n")[0], trial.tuning));
+				continue;
+			}
+			out.println(String.format("%5d %10.2f %10.2f %10.2f %6.2fx  %s",
+					trial.id, trial.getMedian() / 1e6, Collections
+							.min(trial.nanos) / 1e6, Collections
+							.max(trial.nanos) / 1e6, baseline
+							/ trial.getMedian(), trial.tuning));
+		}
+		out.flush();
+		return text.toString();
+	}
+
+	private static void deleteAll(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				deleteAll(child);
+			}
+		}
+		file.delete();
+	}
+
+}
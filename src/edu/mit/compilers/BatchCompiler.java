@@ -0,0 +1,211 @@
+package edu.mit.compilers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.mit.compilers.PhaseTimes.Phase;
+import edu.mit.compilers.tools.CLI;
+
+/**
+ * Compiles many files in one JVM, several at a time on a shared pool of
+ * threads. Each file is compiled start to finish on one thread, which has
+ * its own ErrorCenter, label numbering and optimizer, so an error in one
+ * file doesn't affect the others. Each file's output is held back and
+ * printed in the order the files were given, followed by a throughput
+ * report.
+ */
+public class BatchCompiler {
+
+	/**
+	 * Result of compiling one file.
+	 */
+	private static class Result {
+		int exitCode;
+		byte[] out;
+		byte[] err;
+	}
+
+	/**
+	 * Compiles every file in infiles with the options in CLI, threads at a
+	 * time. Returns 0 if they all compiled, 1 otherwise.
+	 */
+	public static int compileAll(List<String> infiles, int threads) {
+		if (infiles.isEmpty()) {
+			System.out.println("No input files.");
+			return 1;
+		}
+		if (CLI.outfile != null && infiles.size() > 1) {
+			// Every file would be written to the same place.
+			System.out.println("Can't use -o with several input files. "
+					+ "Use -outdir instead.");
+			return 1;
+		}
+		Set<String> outfiles = new HashSet<String>();
+		for (String infile : infiles) {
+			if (!outfiles.add(CLI.getOutfile(infile))) {
+				System.out.println("More than one input file would be "
+						+ "written to " + CLI.getOutfile(infile) + ".");
+				return 1;
+			}
+		}
+		if (CLI.outdir != null) {
+			CLI.resolve(CLI.outdir).mkdirs();
+		}
+
+		final PhaseTimes times = new PhaseTimes();
+		PrintStream oldOut = System.out;
+		PrintStream oldErr = System.err;
+		final PerThreadOutput out = new PerThreadOutput(oldOut);
+		final PerThreadOutput err = new PerThreadOutput(oldErr);
+		System.setOut(new PrintStream(out, true));
+		System.setErr(new PrintStream(err, true));
+
+		long start = System.nanoTime();
+		List<String> failed = new ArrayList<String>();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Result>> results = new ArrayList<Future<Result>>();
+			for (final String infile : infiles) {
+				final String outfile = CLI.outfile != null ? CLI.outfile : CLI
+						.getOutfile(infile);
+				results.add(pool.submit(new Callable<Result>() {
+					public Result call() {
+						out.capture();
+						err.capture();
+						Result result = new Result();
+						try {
+							// The pool is already busy with other files, so
+							// methods are optimized one at a time.
+							result.exitCode = Main.compileFile(infile, outfile,
+									1, times);
+						} catch (Throwable t) {
+							// Same as the JVM prints when main() throws.
+							System.err.print("Exception in thread \"main\" ");
+							t.printStackTrace();
+							result.exitCode = 1;
+						}
+						System.out.flush();
+						System.err.flush();
+						result.out = out.release();
+						result.err = err.release();
+						return result;
+					}
+				}));
+			}
+			for (int i = 0; i < infiles.size(); i++) {
+				Result result = results.get(i).get();
+				oldOut.write(result.out);
+				oldOut.flush();
+				oldErr.write(result.err);
+				oldErr.flush();
+				if (result.exitCode != 0) {
+					failed.add(infiles.get(i));
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			// Compiles catch everything themselves.
+			throw new RuntimeException(e.getCause());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			pool.shutdown();
+			System.setOut(oldOut);
+			System.setErr(oldErr);
+		}
+
+		report(infiles.size(), failed, System.nanoTime() - start, threads,
+				times);
+		return failed.isEmpty() ? 0 : 1;
+	}
+
+	private static void report(int files, List<String> failed, long nanos,
+			int threads, PhaseTimes times) {
+		double seconds = nanos / 1e9;
+		System.out.println(String.format(
+				"Compiled %d files (%d failed) in %.2fs on %d thread%s, %.1f files/sec",
+				files, failed.size(), seconds, threads, threads == 1 ? "" : "s",
+				files / seconds));
+		long total = Math.max(1, times.getTotalNanos());
+		for (Phase phase : Phase.values()) {
+			long phaseNanos = times.getNanos(phase);
+			System.out.println(String.format("  %-20s %8.2fs %5.1f%%", phase
+					.getDescription(), phaseNanos / 1e9, 100.0 * phaseNanos
+					/ total));
+		}
+		for (String infile : failed) {
+			System.out.println("Failed: " + infile);
+		}
+	}
+
+	/**
+	 * Sends what's written by a thread that's compiling a file to that
+	 * file's buffer, and everything else through to the real stream.
+	 */
+	private static class PerThreadOutput extends OutputStream {
+
+		private final OutputStream passThrough;
+		private final ThreadLocal<ByteArrayOutputStream> buffer = new ThreadLocal<ByteArrayOutputStream>();
+
+		public PerThreadOutput(OutputStream passThrough) {
+			this.passThrough = passThrough;
+		}
+
+		/**
+		 * Starts holding back what the calling thread writes.
+		 */
+		public void capture() {
+			buffer.set(new ByteArrayOutputStream());
+		}
+
+		/**
+		 * Stops holding back what the calling thread writes and returns what
+		 * it wrote since capture().
+		 */
+		public byte[] release() {
+			byte[] bytes = buffer.get().toByteArray();
+			buffer.remove();
+			return bytes;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			ByteArrayOutputStream captured = buffer.get();
+			if (captured != null) {
+				captured.write(b);
+			} else {
+				passThrough.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			ByteArrayOutputStream captured = buffer.get();
+			if (captured != null) {
+				captured.write(b, off, len);
+			} else {
+				passThrough.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (buffer.get() == null) {
+				passThrough.flush();
+			}
+		}
+	}
+
+}
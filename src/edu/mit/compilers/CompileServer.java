@@ -0,0 +1,168 @@
+package edu.mit.compilers;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.mit.compilers.tools.CLI;
+
+/**
+ * Keeps one JVM around to compile many files, so each compile doesn't pay
+ * for JVM startup, class loading and JIT warmup again. Started with
+ * <tt>-server [port]</tt>; bin/decafc is the client.
+ *
+ * Requests are served one at a time on 127.0.0.1, since the compiler is
+ * full of static state (see Main.compile()). A request is the client's
+ * working directory followed by the compiler's arguments, one per line, and
+ * then an empty line. The response is everything the compile printed, a line
+ * at a time prefixed with "o " for stdout or "e " for stderr ("O " and "E "
+ * for a last line without a newline), followed by "x " and the exit code.
+ */
+public class CompileServer {
+
+	public static final int DEFAULT_PORT = 6035;
+
+	public static void main(String[] args) {
+		int port = DEFAULT_PORT;
+		if (args.length > 1) {
+			port = Integer.parseInt(args[1]);
+		}
+		try {
+			serve(port);
+		} catch (IOException e) {
+			System.err.println("Compile server failed: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	public static void serve(int port) throws IOException {
+		ServerSocket server = new ServerSocket(port, 0, InetAddress
+				.getByName("127.0.0.1"));
+		System.err.println("Compile server listening on port " + port);
+		while (true) {
+			Socket socket = server.accept();
+			try {
+				handle(socket);
+			} catch (IOException e) {
+				System.err.println("Dropped request: " + e.getMessage());
+			} finally {
+				socket.close();
+			}
+		}
+	}
+
+	private static void handle(Socket socket) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(socket
+				.getInputStream()));
+		String workdir = in.readLine();
+		if (workdir == null) {
+			return;
+		}
+		List<String> args = new ArrayList<String>();
+		String line;
+		while ((line = in.readLine()) != null && line.length() > 0) {
+			args.add(line);
+		}
+
+		OutputStream response = new BufferedOutputStream(socket
+				.getOutputStream());
+		LineFramer out = new LineFramer(response, 'o');
+		LineFramer err = new LineFramer(response, 'e');
+		PrintStream oldOut = System.out;
+		PrintStream oldErr = System.err;
+		InputStream oldIn = System.in;
+		int exitCode;
+		System.setOut(new PrintStream(out, true));
+		System.setErr(new PrintStream(err, true));
+		System.setIn(new ByteArrayInputStream(new byte[0]));
+		CLI.workdir = new File(workdir);
+		try {
+			exitCode = Main.compile(args.toArray(new String[args.size()]));
+		} catch (Throwable t) {
+			// Same as the JVM prints when main() throws.
+			System.err.print("Exception in thread \"main\" ");
+			t.printStackTrace();
+			exitCode = 1;
+		} finally {
+			System.out.flush();
+			System.err.flush();
+			System.setOut(oldOut);
+			System.setErr(oldErr);
+			System.setIn(oldIn);
+			CLI.workdir = null;
+		}
+		out.finish();
+		err.finish();
+		response.write(("x " + exitCode + "\n").getBytes());
+		response.flush();
+	}
+
+	/**
+	 * Sends what's written to it to the client a line at a time, tagged with
+	 * which stream it came from.
+	 */
+	private static class LineFramer extends OutputStream {
+
+		private final OutputStream response;
+		private final char tag;
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		public LineFramer(OutputStream response, char tag) {
+			this.response = response;
+			this.tag = tag;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			// stdout and stderr share the connection.
+			synchronized (response) {
+				if (b == '\n') {
+					sendLine(tag);
+				} else {
+					line.write(b);
+				}
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			synchronized (response) {
+				for (int i = off; i < off + len; i++) {
+					write(b[i]);
+				}
+			}
+		}
+
+		/**
+		 * Sends whatever's left after the last newline.
+		 */
+		public void finish() throws IOException {
+			synchronized (response) {
+				if (line.size() > 0) {
+					sendLine(Character.toUpperCase(tag));
+				}
+			}
+		}
+
+		private void sendLine(char lineTag) throws IOException {
+			response.write(lineTag);
+			response.write(' ');
+			line.writeTo(response);
+			response.write('\n');
+			line.reset();
+		}
+	}
+
+}
@@ -5,13 +5,29 @@ import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.List;
 
+import edu.mit.compilers.tools.CLI;
+
 public class ErrorCenter {
 
-	static String filename = "";
-	static RandomAccessFile file;
-	static List<Long> lineOffsets;
-	static int maxLineNumberWidth;
-	static boolean hasError = false;
+	/**
+	 * The file being compiled. Each thread has its own, so files compiled
+	 * side by side don't see each other's errors.
+	 */
+	private static class LoadedFile {
+		String filename = "";
+		RandomAccessFile file;
+		List<Long> lineOffsets;
+		int maxLineNumberWidth;
+		boolean hasError = false;
+	}
+
+	private static final ThreadLocal<LoadedFile> loaded = new ThreadLocal<LoadedFile>() {
+		@Override
+		protected LoadedFile initialValue() {
+			return new LoadedFile();
+		}
+	};
+
 	// This has to match with ANTLR's size, unfortunately.
 	static int ANTLR_TAB_SIZE = 8;
 	// This is OUR tab size. Much nicer.
@@ -24,18 +40,19 @@ public class ErrorCenter {
 	 * @throws IOException
 	 */
 	public static void loadFile(String newFilename) {
+		LoadedFile current = loaded.get();
 		try {
-			file = new RandomAccessFile(newFilename, "r");
-			filename = newFilename;
-			lineOffsets = new ArrayList<Long>();
+			current.file = new RandomAccessFile(CLI.resolve(newFilename), "r");
+			current.filename = newFilename;
+			current.lineOffsets = new ArrayList<Long>();
 			// Line "0" doesn't exist.
-			lineOffsets.add(0L);
-			lineOffsets.add(file.getFilePointer());
-			while (file.readLine() != null) {
-				lineOffsets.add(file.getFilePointer());
+			current.lineOffsets.add(0L);
+			current.lineOffsets.add(current.file.getFilePointer());
+			while (current.file.readLine() != null) {
+				current.lineOffsets.add(current.file.getFilePointer());
 			}
-			maxLineNumberWidth = Integer.toString(lineOffsets.size() - 1)
-					.length();
+			current.maxLineNumberWidth = Integer.toString(
+					current.lineOffsets.size() - 1).length();
 		} catch (IOException e) {
 			System.out.println("Error opening " + newFilename);
 		}
@@ -47,32 +64,34 @@ public class ErrorCenter {
 	}
 
 	public static void reportError(int line, int col, String message) {
-		hasError = true;
+		LoadedFile current = loaded.get();
+		current.hasError = true;
 		try {
 			// If both line and col are 0, treat it as a "global" error with no
 			// real context.
 			if (line == 0 && col == 0) {
-				if(!filename.equals("")){
-					System.out.println("Error in " + filename + ":" + message);
+				if(!current.filename.equals("")){
+					System.out.println("Error in " + current.filename + ":"
+							+ message);
 				}else{
 					System.out.println(message);
 				}
 				return;
 			}
-			System.out.println("Error at " + filename + ":" + line + "," + col
-					+ ": " + message);
-			file.seek(lineOffsets.get(line));
+			System.out.println("Error at " + current.filename + ":" + line
+					+ "," + col + ": " + message);
+			current.file.seek(current.lineOffsets.get(line));
 
 			// Generate the prefix before the line of code.
 			StringBuilder prefixSb = new StringBuilder();
-			for (int i = 0; i < maxLineNumberWidth
+			for (int i = 0; i < current.maxLineNumberWidth
 					- Integer.toString(line).length(); i++) {
 				prefixSb.append(" ");
 			}
 			prefixSb.append(line);
 			prefixSb.append(":");
 			// Combine the prefix and the code.
-			String out = prefixSb.toString() + file.readLine();
+			String out = prefixSb.toString() + current.file.readLine();
 
 			// This is absurd.
 			String spaces = "";
@@ -114,7 +133,23 @@ public class ErrorCenter {
 	}
 
 	public static boolean hasError() {
-		return hasError;
+		return loaded.get().hasError;
+	}
+
+	/**
+	 * Closes this thread's loaded file and clears its errors, for compiling
+	 * another file on the same thread.
+	 */
+	public static void reset() {
+		LoadedFile current = loaded.get();
+		if (current.file != null) {
+			try {
+				current.file.close();
+			} catch (IOException e) {
+				// Only read from, nothing to lose.
+			}
+		}
+		loaded.set(new LoadedFile());
 	}
 
 }
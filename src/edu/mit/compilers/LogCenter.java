@@ -1,29 +1,104 @@
 package edu.mit.compilers;
 
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
 import edu.mit.compilers.tools.CLI;
 
 public class LogCenter {
 
-	public static void debug(String tag, String s) {
-		if (!CLI.debug) {
-			return;
+	// Null means every tag is on. Only read after configure().
+	private static Set<String> enabledTags;
+	private static boolean enabled = false;
+
+	// Chrome trace-event sink, see configureTrace().
+	private static Writer trace;
+	private static boolean firstEvent;
+	private static long startNanos;
+
+	/**
+	 * Turns logging on or off. tags are the tags to show; null shows them
+	 * all. Must be called before any other thread starts logging.
+	 */
+	public static void configure(boolean debug, String[] tags) {
+		enabled = debug;
+		if (tags == null) {
+			enabledTags = null;
+		} else {
+			enabledTags = new HashSet<String>();
+			for (String tag : tags) {
+				enabledTags.add(tag);
+			}
 		}
+	}
 
-		if (CLI.tags != null) {
-			boolean print = false;
-			for (int i = 0; i < CLI.tags.length; i++) {
-				if (CLI.tags[i].equals(tag)) {
-					print = true;
+	/**
+	 * Sends enabled messages to traceFile as Chrome trace events (one instant
+	 * event per line, loadable in chrome://tracing) instead of stdout, until
+	 * closeTrace().
+	 */
+	public static void configureTrace(String traceFile) throws IOException {
+		closeTrace();
+		trace = new BufferedWriter(new FileWriter(CLI.resolve(traceFile)));
+		trace.write("[\n");
+		firstEvent = true;
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Whether messages for tag are shown. Tags like "CSE|CPJ" are shown if
+	 * any of their parts are. Use this to guard logging that is expensive to
+	 * set up.
+	 */
+	public static boolean isEnabled(String tag) {
+		if (!enabled) {
+			return false;
+		}
+		if (enabledTags == null || enabledTags.contains(tag)) {
+			return true;
+		}
+		if (tag.indexOf('|') >= 0) {
+			for (String part : tag.split("\\|")) {
+				if (enabledTags.contains(part)) {
+					return true;
 				}
 			}
-			if (!print) {
-				return;
-			}
+		}
+		return false;
+	}
+
+	public static void debug(String tag, String s) {
+		if (!isEnabled(tag)) {
+			return;
+		}
+		emit(tag, s);
+	}
+
+	/**
+	 * Like debug(tag, s), but the message is only formatted (with
+	 * String.format) if the tag is enabled.
+	 */
+	public static void debug(String tag, String format, Object... args) {
+		if (!isEnabled(tag)) {
+			return;
+		}
+		emit(tag, String.format(format, args));
+	}
+
+	private static void emit(String tag, String s) {
+		if (trace != null) {
+			traceEvent(tag, s);
+			return;
 		}
 
+		// 0 is getStackTrace, 1 is emit, 2 is debug.
 		StackTraceElement[] stackTraceElements = Thread.currentThread()
 				.getStackTrace();
-		StackTraceElement lastElement = stackTraceElements[2];
+		StackTraceElement lastElement = stackTraceElements[3];
 		String[] lines = s.split("\n");
 		String[] classComponents = lastElement.getClassName().split("\\.");
 		for (String line : lines) {
@@ -33,4 +108,72 @@ public class LogCenter {
 									.getLineNumber(), line));
 		}
 	}
+
+	private static synchronized void traceEvent(String tag, String s) {
+		if (trace == null) {
+			return;
+		}
+		StringBuilder event = new StringBuilder();
+		event.append(firstEvent ? "" : ",\n");
+		event.append("{\"name\":");
+		appendJSONString(event, s);
+		event.append(",\"cat\":");
+		appendJSONString(event, tag);
+		event.append(",\"ph\":\"i\",\"s\":\"t\",\"pid\":0,\"tid\":");
+		event.append(Thread.currentThread().getId());
+		event.append(",\"ts\":");
+		event.append((System.nanoTime() - startNanos) / 1000);
+		event.append("}");
+		try {
+			trace.write(event.toString());
+			firstEvent = false;
+		} catch (IOException e) {
+			System.err.println("Could not write trace event: " + e);
+			trace = null;
+		}
+	}
+
+	/**
+	 * Finishes the trace file, if there is one.
+	 */
+	public static synchronized void closeTrace() {
+		if (trace == null) {
+			return;
+		}
+		try {
+			trace.write("\n]\n");
+			trace.close();
+		} catch (IOException e) {
+			System.err.println("Could not close trace: " + e);
+		}
+		trace = null;
+	}
+
+	private static void appendJSONString(StringBuilder out, String s) {
+		out.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					out.append(String.format("\\u%04x", (int) c));
+				} else {
+					out.append(c);
+				}
+			}
+		}
+		out.append('"');
+	}
 }
@@ -1,12 +1,16 @@
 package edu.mit.compilers;
 
 import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 
 import antlr.Token;
 import antlr.TokenStreamRecognitionException;
 import antlr.collections.AST;
 import antlr.debug.misc.ASTFrame;
+import edu.mit.compilers.PhaseTimes.Phase;
+import edu.mit.compilers.codegen.MidLabelManager;
 import edu.mit.compilers.codegen.MidSymbolTable;
 import edu.mit.compilers.codegen.MidVisitor;
 import edu.mit.compilers.crawler.DecafSemanticChecker;
@@ -15,8 +19,14 @@ import edu.mit.compilers.grammar.DecafParserTokenTypes;
 import edu.mit.compilers.grammar.DecafScanner;
 import edu.mit.compilers.grammar.DecafScannerTokenTypes;
 import edu.mit.compilers.grammar.tokens.CLASSNode;
+import edu.mit.compilers.opt.algebra.AlgebraicSimplifier;
+import edu.mit.compilers.opt.forunroll.Unroller;
 import edu.mit.compilers.opt.meta.Optimizer;
 import edu.mit.compilers.opt.meta.Options;
+import edu.mit.compilers.opt.meta.PassManager;
+import edu.mit.compilers.opt.meta.Tuning;
+import edu.mit.compilers.opt.profile.Instrumenter;
+import edu.mit.compilers.opt.profile.Profile;
 import edu.mit.compilers.tools.CLI;
 import edu.mit.compilers.tools.CLI.Action;
 
@@ -26,16 +36,93 @@ public class Main {
 	private static final String OPT_RA = "regalloc";
 	private static final String OPT_DCE = "dce";
 	private static final String OPT_CM = "cm";
+	private static final String OPT_SR = "sr";
 	private static String[] OPTS = new String[] { OPT_CSE, OPT_CP, OPT_RA,
-			OPT_DCE, OPT_CM };
+			OPT_DCE, OPT_CM, OPT_SR };
 
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("-server")) {
+			CompileServer.main(args);
+			return;
+		}
+		int exitCode = compile(args);
+		if (exitCode != 0) {
+			System.exit(exitCode);
+		}
+	}
+
+	/**
+	 * Compiles as if args were given on the command line and returns the
+	 * exit code. Resets all of the compiler's static state first, so it can
+	 * be called any number of times in one JVM.
+	 */
+	public static int compile(String[] args) {
+		CLI.reset();
+		LogCenter.configure(false, null);
 		try {
 			CLI.parse(args, OPTS);
-			InputStream inputStream = args.length == 0 ? System.in
-					: new java.io.FileInputStream(CLI.infile);
+			// A trace file turns on debug messages without -debug.
+			LogCenter.configure(CLI.debug || CLI.tracefile != null, CLI.tags);
+			if (CLI.tracefile != null) {
+				LogCenter.configureTrace(CLI.tracefile);
+			}
+			Stats.configure(CLI.stats || CLI.statsfile != null);
+			try {
+				getTuning().getPasses();
+			} catch (IllegalArgumentException e) {
+				System.out.println(e.getMessage());
+				return 1;
+			}
+			int exitCode;
+			if (CLI.autotune != null) {
+				exitCode = Autotuner.tune(CLI.infile, CLI.outfile, CLI.jobs);
+			} else if (CLI.outdir != null || CLI.infiles.size() > 1) {
+				exitCode = BatchCompiler.compileAll(CLI.infiles, CLI.jobs);
+			} else {
+				exitCode = compileFile(args.length == 0 ? null : CLI.infile,
+						CLI.outfile, CLI.jobs, new PhaseTimes());
+			}
+			if (CLI.stats) {
+				Stats.printTable(System.out);
+			}
+			if (CLI.statsfile != null) {
+				Stats.writeJSON(CLI.statsfile);
+			}
+			return exitCode;
+		} catch (Exception e) {
+			reportUnrecoverable(e);
+			return 1;
+		} finally {
+			LogCenter.closeTrace();
+		}
+	}
+
+	/**
+	 * Compiles infile (stdin if it's null) into outfile with the options in
+	 * CLI, optimizing up to jobs methods at a time, and returns the exit
+	 * code. Only the calling thread's compiler state is used, so different
+	 * threads can compile different files at once. The time spent in each
+	 * phase is added to times.
+	 */
+	public static int compileFile(String infile, String outfile, int jobs,
+			PhaseTimes times) {
+		return compileFile(infile, outfile, jobs, times, getTuning());
+	}
+
+	/**
+	 * Same as above, optimizing with tuning instead of the settings in CLI.
+	 */
+	public static int compileFile(String infile, String outfile, int jobs,
+			PhaseTimes times, Tuning tuning) {
+		resetFileState();
+		Unroller.setFactor(tuning.getUnrollFactor());
+		InputStream inputStream = null;
+		long start = System.nanoTime();
+		try {
+			inputStream = infile == null ? System.in : new FileInputStream(CLI
+					.resolve(infile));
 
-			ErrorCenter.loadFile(CLI.infile);
+			ErrorCenter.loadFile(infile);
 
 			if (CLI.target == Action.SCAN) {
 				DecafScanner scanner = new DecafScanner(new DataInputStream(
@@ -43,6 +130,7 @@ public class Main {
 				scanner.setTrace(CLI.debug);
 				Token token;
 				boolean done = false;
+				Stats.Timer timer = Stats.begin("scan");
 				while (!done) {
 					try {
 						for (token = scanner.nextToken(); token.getType() != DecafParserTokenTypes.EOF; token = scanner
@@ -73,10 +161,12 @@ public class Main {
 						done = true;
 					} catch (Exception e) {
 						// print the error:
-						System.out.println(CLI.infile + " " + e);
+						System.out.println(infile + " " + e);
 						scanner.consume();
 					}
 				}
+				Stats.end(timer);
+				times.lap(Phase.PARSE, start);
 			} else if (CLI.target == Action.PARSE || CLI.target == Action.INTER
 					|| CLI.target == Action.LOWIR
 					|| CLI.target == Action.ASSEMBLY
@@ -95,6 +185,8 @@ public class Main {
 				}
 				parser.setTrace(trace);
 
+				// Tokens are scanned as the parser asks for them.
+				Stats.Timer timer = Stats.begin("scan + parse");
 				try {
 					parser.program();
 				} catch (TokenStreamRecognitionException e) {
@@ -103,27 +195,38 @@ public class Main {
 									.getMessage());
 					scanner.consume();
 				}
+				Stats.end(timer, parser.getAST());
+				start = times.lap(Phase.PARSE, start);
 
 				// Return a non-zero code if an error has occurred. DO NOT
 				// proceed with semantic checking.
 				if (ErrorCenter.hasError()) {
-					System.exit(1);
+					return 1;
 				}
 
 				if (CLI.target == Action.INTER || CLI.target == Action.LOWIR
 						|| CLI.target == Action.ASSEMBLY) {
 					DecafSemanticChecker semanticChecker = new DecafSemanticChecker();
+					timer = Stats.begin("semantic check");
 					semanticChecker.crawl((CLASSNode) parser.getAST());
+					Stats.end(timer, parser.getAST());
+					start = times.lap(Phase.CHECK, start);
 
-					if (CLI.optOn) {
+					if (tuning.simplifies()) {
 						// Do algebraic simplifications.
 						LogCenter.debug("SB", "Begin For Algebraic Simplifications");
+						timer = Stats.begin("simplify expressions");
 						((CLASSNode) parser.getAST()).simplifyExpressions();
-						
+						Stats.end(timer, parser.getAST());
+
+
 						// Do for loop unrolling.
 						LogCenter.debug("SB", "Begin For Loop Unrolling");
+						timer = Stats.begin("unroll");
 						((CLASSNode) parser.getAST()).unroll();
+						Stats.end(timer, parser.getAST());
 						LogCenter.debug("SB", "Finished Loop Unrolling");
+						start = times.lap(Phase.SIMPLIFY, start);
 					}
 
 					if (CLI.visual) {
@@ -138,45 +241,99 @@ public class Main {
 						frame.setVisible(true);
 					} else if (ErrorCenter.hasError()) {
 						// Only exit if we're not trying to show the frame.
-						System.exit(1);
+						return 1;
 					}
 
 					if (CLI.target == Action.LOWIR
 							|| CLI.target == Action.ASSEMBLY) {
+						timer = Stats.begin("mid-level IR");
 						MidSymbolTable symbolTable = MidVisitor
 								.createMidLevelIR((CLASSNode) parser.getAST());
+						Stats.end(timer, symbolTable);
+						start = times.lap(Phase.IR, start);
 
-						// Bit masks for options.
-						int options = 0;
-						options = (CLI.optOn) ? options | Options.OPTS_ON
-								: options;
-						options = (isEnabled(OPT_CSE)) ? options | Options.CSE
-								: options;
-						options = (isEnabled(OPT_CP)) ? options | Options.CP
-								: options;
-						options = (isEnabled(OPT_DCE)) ? options | Options.DCE
-								: options;
-						options = (isEnabled(OPT_CM)) ? options | Options.CM
-								: options;
-						options = (isEnabled(OPT_RA)) ? options | Options.RA
-								: options;
-
-						Optimizer optimizer = Optimizer.getOptimizer(options);
-						optimizer.ventureForth(symbolTable, CLI.outfile);
+						Optimizer optimizer = Optimizer.getOptimizer(tuning,
+								jobs);
+						if (CLI.profileGenerate) {
+							optimizer.instrument(Instrumenter
+									.getProfileFile(outfile));
+						}
+						if (CLI.profileUse != null) {
+							try {
+								optimizer.useProfile(Profile.read(CLI
+										.resolve(CLI.profileUse)));
+							} catch (IOException e) {
+								System.out.println("Could not read profile "
+										+ e.getMessage());
+								return 1;
+							}
+						}
+						boolean written = optimizer.ventureForth(symbolTable,
+								outfile);
+						times.lap(Phase.BACKEND, start);
+						if (!written) {
+							return 1;
+						}
 
 					}
 				}
 			}
 		} catch (Exception e) {
-			ErrorCenter.reportError(0, 0, String
-					.format("Unrecoverable error of %s\nSTACKTRACE:", e
-							.getClass()));
-			e.printStackTrace();
-			// print the error:
-			// System.out.println(CLI.infile);
-			// e.printStackTrace();
-			System.exit(1);
+			reportUnrecoverable(e);
+			return 1;
+		} finally {
+			// Matters for the compile server, which would run out of files.
+			if (inputStream != null && inputStream != System.in) {
+				try {
+					inputStream.close();
+				} catch (IOException e) {
+					// Only read from, nothing to lose.
+				}
+			}
+		}
+		return 0;
+	}
+
+	private static void reportUnrecoverable(Exception e) {
+		ErrorCenter.reportError(0, 0, String.format(
+				"Unrecoverable error of %s\nSTACKTRACE:", e.getClass()));
+		e.printStackTrace();
+	}
+
+	/**
+	 * Clears everything a previous compile on this thread left behind.
+	 */
+	public static void resetFileState() {
+		ErrorCenter.reset();
+		MidLabelManager.reset();
+		AlgebraicSimplifier.reset();
+		Unroller.reset();
+		Optimizer.reset();
+	}
+
+	/**
+	 * The settings CLI asks for. The pipeline is -passes if given, then -O,
+	 * then the one -opt has always run.
+	 */
+	private static Tuning getTuning() {
+		String pipeline = CLI.passes;
+		if (pipeline == null && CLI.level >= 0) {
+			pipeline = PassManager.getLevel(CLI.level);
+		}
+		if (pipeline == null) {
+			// Bit masks for options.
+			int options = 0;
+			options = (CLI.optOn) ? options | Options.OPTS_ON : options;
+			options = (isEnabled(OPT_CSE)) ? options | Options.CSE : options;
+			options = (isEnabled(OPT_CP)) ? options | Options.CP : options;
+			options = (isEnabled(OPT_DCE)) ? options | Options.DCE : options;
+			options = (isEnabled(OPT_CM)) ? options | Options.CM : options;
+			options = (isEnabled(OPT_SR)) ? options | Options.SR : options;
+			options = (isEnabled(OPT_RA)) ? options | Options.RA : options;
+			pipeline = PassManager.getPipeline(options);
 		}
+		return new Tuning(pipeline, CLI.linearScan, CLI.optOn, CLI.unroll,
+				CLI.peephole, CLI.passBudget);
 	}
 
 	/**
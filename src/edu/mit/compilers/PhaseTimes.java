@@ -0,0 +1,51 @@
+package edu.mit.compilers;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Time spent in each phase of compiling, added up over every file compiled.
+ * Safe to share between threads compiling different files.
+ */
+public class PhaseTimes {
+
+	public enum Phase {
+		PARSE("parse"), CHECK("semantic check"), SIMPLIFY("AST opts"), IR(
+				"mid-level IR"), BACKEND("optimize + codegen");
+
+		private final String description;
+
+		private Phase(String description) {
+			this.description = description;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+	}
+
+	private final AtomicLongArray nanos = new AtomicLongArray(Phase
+			.values().length);
+
+	/**
+	 * Counts the time since start towards phase and returns the current
+	 * time, to start timing the next phase from.
+	 */
+	public long lap(Phase phase, long start) {
+		long now = System.nanoTime();
+		nanos.addAndGet(phase.ordinal(), now - start);
+		return now;
+	}
+
+	public long getNanos(Phase phase) {
+		return nanos.get(phase.ordinal());
+	}
+
+	public long getTotalNanos() {
+		long total = 0;
+		for (Phase phase : Phase.values()) {
+			total += getNanos(phase);
+		}
+		return total;
+	}
+
+}
@@ -0,0 +1,314 @@
+package edu.mit.compilers;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import antlr.collections.AST;
+import edu.mit.compilers.codegen.MidSymbolTable;
+import edu.mit.compilers.codegen.nodes.MidMethodDeclNode;
+import edu.mit.compilers.tools.CLI;
+
+/**
+ * Compile-time profile for <tt>-stats</tt>. For every phase it records wall
+ * time, bytes allocated, the size of the IR afterwards and how many blocks
+ * dataflow analyses visited. Phases that run once per method (or once per
+ * file when compiling several) are added up under one name. Passes can also
+ * count events, like how often each peephole rule fired.
+ *
+ * Everything is a no-op unless configure() turned stats on, so phases can
+ * be timed unconditionally.
+ */
+public class Stats {
+
+	private static volatile boolean enabled = false;
+	private static final Map<String, Record> records = new LinkedHashMap<String, Record>();
+	private static final Map<String, Long> counters = new LinkedHashMap<String, Long>();
+
+	// Dataflow block visits so far on each thread, see countDataflowVisits().
+	private static final ThreadLocal<long[]> dataflowVisits = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+
+	private static class Record {
+		final String phase;
+		int runs;
+		long nanos;
+		long allocatedBytes;
+		long nodes;
+		long dataflowVisits;
+
+		Record(String phase) {
+			this.phase = phase;
+		}
+	}
+
+	/**
+	 * A phase being timed on the thread that started it.
+	 */
+	public static class Timer {
+		private final String phase;
+		private final long startNanos;
+		private final long startBytes;
+		private final long startVisits;
+
+		private Timer(String phase) {
+			this.phase = phase;
+			this.startBytes = allocatedBytes();
+			this.startVisits = dataflowVisits.get()[0];
+			this.startNanos = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Turns stats on or off and forgets anything recorded so far.
+	 */
+	public static void configure(boolean on) {
+		synchronized (records) {
+			records.clear();
+			counters.clear();
+		}
+		enabled = on;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Starts timing phase. Returns null if stats are off; the end() methods
+	 * accept that.
+	 */
+	public static Timer begin(String phase) {
+		if (!enabled) {
+			return null;
+		}
+		return new Timer(phase);
+	}
+
+	/**
+	 * Ends a phase that doesn't have an IR to measure.
+	 */
+	public static void end(Timer timer) {
+		if (timer != null) {
+			record(timer, 0);
+		}
+	}
+
+	/**
+	 * Ends a phase on the AST rooted at root.
+	 */
+	public static void end(Timer timer, AST root) {
+		if (timer != null) {
+			record(timer, countNodes(root));
+		}
+	}
+
+	/**
+	 * Ends a phase on a single method.
+	 */
+	public static void end(Timer timer, MidMethodDeclNode method) {
+		if (timer != null) {
+			record(timer, method.getNodeList().size());
+		}
+	}
+
+	/**
+	 * Ends a phase on the whole mid-level IR.
+	 */
+	public static void end(Timer timer, MidSymbolTable symbolTable) {
+		if (timer != null) {
+			long nodes = 0;
+			for (MidMethodDeclNode method : symbolTable.getMethods().values()) {
+				nodes += method.getNodeList().size();
+			}
+			for (MidMethodDeclNode method : symbolTable.getStarbucksMethods()
+					.values()) {
+				nodes += method.getNodeList().size();
+			}
+			record(timer, nodes);
+		}
+	}
+
+	/**
+	 * Ends a phase whose result is a list, e.g. of ASM lines.
+	 */
+	public static void end(Timer timer, Collection<?> result) {
+		if (timer != null) {
+			record(timer, result.size());
+		}
+	}
+
+	/**
+	 * Called by dataflow analyses with the number of blocks they applied
+	 * their transfer function to.
+	 */
+	public static void countDataflowVisits(int visits) {
+		if (enabled) {
+			dataflowVisits.get()[0] += visits;
+		}
+	}
+
+	/**
+	 * Adds n to counter.
+	 */
+	public static void count(String counter, long n) {
+		if (!enabled) {
+			return;
+		}
+		synchronized (records) {
+			Long count = counters.get(counter);
+			counters.put(counter, count == null ? n : count + n);
+		}
+	}
+
+	private static void record(Timer timer, long nodes) {
+		long nanos = System.nanoTime() - timer.startNanos;
+		long bytes = allocatedBytes() - timer.startBytes;
+		long visits = dataflowVisits.get()[0] - timer.startVisits;
+		synchronized (records) {
+			Record record = records.get(timer.phase);
+			if (record == null) {
+				record = new Record(timer.phase);
+				records.put(timer.phase, record);
+			}
+			record.runs++;
+			record.nanos += nanos;
+			record.allocatedBytes += bytes;
+			record.nodes += nodes;
+			record.dataflowVisits += visits;
+		}
+	}
+
+	private static long countNodes(AST root) {
+		long count = 0;
+		for (AST node = root; node != null; node = node.getNextSibling()) {
+			count += 1 + countNodes(node.getFirstChild());
+		}
+		return count;
+	}
+
+	/**
+	 * Bytes allocated by the calling thread so far, or 0 if the JVM can't
+	 * tell.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory
+				.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported()
+					&& sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread()
+						.getId());
+			}
+		}
+		return 0;
+	}
+
+	private static List<Record> getRecords() {
+		synchronized (records) {
+			return new ArrayList<Record>(records.values());
+		}
+	}
+
+	/**
+	 * Returns every counter so far, in the order they were first counted.
+	 */
+	public static Map<String, Long> getCounters() {
+		synchronized (records) {
+			return new LinkedHashMap<String, Long>(counters);
+		}
+	}
+
+	/**
+	 * Returns the wall time recorded for each phase so far, in the order the
+	 * phases first ran.
+	 */
+	public static Map<String, Long> getPhaseNanos() {
+		Map<String, Long> out = new LinkedHashMap<String, Long>();
+		for (Record record : getRecords()) {
+			out.put(record.phase, record.nanos);
+		}
+		return out;
+	}
+
+	/**
+	 * Prints the stats as a table, in the order the phases first ran, and
+	 * the counters after it.
+	 */
+	public static void printTable(PrintStream out) {
+		String format = "%-22s %6s %10s %10s %10s %10s";
+		out.println(String.format(format, "phase", "runs", "time ms",
+				"alloc MB", "IR size", "df visits"));
+		Record total = new Record("total");
+		for (Record record : getRecords()) {
+			printRow(out, record);
+			total.runs += record.runs;
+			total.nanos += record.nanos;
+			total.allocatedBytes += record.allocatedBytes;
+			total.dataflowVisits += record.dataflowVisits;
+		}
+		printRow(out, total);
+		Map<String, Long> counts = getCounters();
+		if (!counts.isEmpty()) {
+			out.println();
+			out.println(String.format("%-40s %10s", "counter", "count"));
+			for (Map.Entry<String, Long> count : counts.entrySet()) {
+				out.println(String.format("%-40s %10d", count.getKey(), count
+						.getValue()));
+			}
+		}
+	}
+
+	private static void printRow(PrintStream out, Record record) {
+		out.println(String.format("%-22s %6d %10.1f %10.1f %10s %10d",
+				record.phase, record.runs, record.nanos / 1e6,
+				record.allocatedBytes / (1024.0 * 1024.0),
+				record.nodes == 0 ? "-" : Long.toString(record.nodes),
+				record.dataflowVisits));
+	}
+
+	/**
+	 * Writes the stats to file as a JSON array with one object per phase,
+	 * then one per counter.
+	 */
+	public static void writeJSON(String file) throws IOException {
+		Writer out = new BufferedWriter(new FileWriter(CLI.resolve(file)));
+		try {
+			out.write("[\n");
+			boolean first = true;
+			for (Record record : getRecords()) {
+				out.write(first ? "" : ",\n");
+				first = false;
+				out.write(String.format("  {\"phase\": \"%s\", \"runs\": %d, "
+						+ "\"nanos\": %d, \"allocatedBytes\": %d, "
+						+ "\"irSize\": %d, \"dataflowVisits\": %d}",
+						record.phase, record.runs, record.nanos,
+						record.allocatedBytes, record.nodes,
+						record.dataflowVisits));
+			}
+			for (Map.Entry<String, Long> count : getCounters().entrySet()) {
+				out.write(first ? "" : ",\n");
+				first = false;
+				out.write(String.format("  {\"counter\": \"%s\", \"count\": %d}",
+						count.getKey(), count.getValue()));
+			}
+			out.write("\n]\n");
+		} finally {
+			out.close();
+		}
+	}
+
+}
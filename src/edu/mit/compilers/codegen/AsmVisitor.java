@@ -1,5 +1,7 @@
 package edu.mit.compilers.codegen;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -7,12 +9,14 @@ import java.util.Map;
 import java.util.Set;
 
 import edu.mit.compilers.codegen.asm.ASM;
+import edu.mit.compilers.codegen.asm.AsmWriter;
 import edu.mit.compilers.codegen.asm.LabelASM;
+import edu.mit.compilers.codegen.asm.LabelOperand;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.asm.SectionASM;
 import edu.mit.compilers.codegen.nodes.MidCallNode;
-import edu.mit.compilers.codegen.nodes.MidCalloutNode;
 import edu.mit.compilers.codegen.nodes.memory.MidFieldDeclNode;
 import edu.mit.compilers.codegen.nodes.memory.MidMemoryNode;
 import edu.mit.compilers.codegen.nodes.memory.MidStringDeclNode;
@@ -22,36 +26,68 @@ public class AsmVisitor {
 	public static String PRINTF = "printf";
 	public static String EXIT = "exit";
 
-	// Static variable because Strings have to be added to it from within other
-	// code.
-	private static List<ASM> dataSection;
-	private static List<ASM> readOnlySection;
-	private static Set<String> externCalls;
-
-	static {
-		readOnlySection = createReadOnlySection();
-		externCalls = new HashSet<String>();
-	}
-
 	private AsmVisitor(MidSymbolTable symbolTable) {
 	}
 
-	public static String generateText(List<ASM> asm) {
-
-		StringBuilder out = new StringBuilder();
-		for (String extern : externCalls) {
-			out.append(new OpASM(OpCode.EXTERN, extern).toString());
+	/**
+	 * Writes the program to out, one line at a time.
+	 */
+	public static void writeText(List<ASM> asm, Writer out) throws IOException {
+		AsmWriter writer = new AsmWriter(out);
+		for (String extern : findExternCalls(asm)) {
+			new OpASM(OpCode.EXTERN, Operand.label(extern)).emit(writer);
 		}
-		
+
 		for (ASM asmLine : asm) {
-			out.append(asmLine.toString());
+			asmLine.emit(writer);
 		}
+		writer.flush();
+	}
 
-		return out.toString();
+	/**
+	 * Anything we CALL that isn't a label in this file has to be declared
+	 * extern, i.e. callouts and exit.
+	 */
+	private static Set<String> findExternCalls(List<ASM> asm) {
+		Set<String> labels = new HashSet<String>();
+		for (ASM asmLine : asm) {
+			if (asmLine instanceof LabelASM) {
+				labels.add(((LabelASM) asmLine).getName());
+			}
+		}
+		Set<String> externCalls = new HashSet<String>();
+		for (ASM asmLine : asm) {
+			if (asmLine instanceof OpASM
+					&& ((OpASM) asmLine).getOpCode() == OpCode.CALL) {
+				String target = ((LabelOperand) ((OpASM) asmLine).getArg(0))
+						.getName();
+				if (!labels.contains(target)) {
+					externCalls.add(target);
+				}
+			}
+		}
+		return externCalls;
 	}
-	
+
 	public static List<ASM> buildASMList(MidSymbolTable symbolTable) {
-		dataSection = createDataSection();
+		List<ASM> methodsASM = new ArrayList<ASM>();
+		for (String methodName : symbolTable.getMethods().keySet()) {
+			methodsASM.addAll(symbolTable.getMethod(methodName).toASM());
+		}
+		for (String methodName : symbolTable.getStarbucksMethods().keySet()) {
+			methodsASM.addAll(symbolTable.getStarbucksMethod(methodName)
+					.toASM());
+		}
+		return buildASMList(symbolTable, methodsASM);
+	}
+
+	/**
+	 * Wraps the already lowered methods with the data, read-only and text
+	 * section headers.
+	 */
+	public static List<ASM> buildASMList(MidSymbolTable symbolTable,
+			List<ASM> methodsASM) {
+		List<ASM> dataSection = createDataSection();
 
 		List<ASM> asm = new ArrayList<ASM>();
 		List<ASM> textSection = createTextSection();
@@ -65,16 +101,10 @@ public class AsmVisitor {
 			dataSection.add(fieldNode.getFieldDeclarationASM());
 		}
 
-		for (String methodName : symbolTable.getMethods().keySet()) {
-			textSection.addAll(symbolTable.getMethod(methodName).toASM());
-		}
-		for (String methodName : symbolTable.getStarbucksMethods().keySet()) {
-			textSection.addAll(symbolTable.getStarbucksMethod(methodName)
-					.toASM());
-		}
+		textSection.addAll(methodsASM);
 
 		asm.addAll(dataSection);
-		asm.addAll(readOnlySection);
+		asm.addAll(createReadOnlySection(symbolTable));
 		asm.addAll(textSection);
 		return asm;
 	}
@@ -82,10 +112,10 @@ public class AsmVisitor {
 	public static List<ASM> exitCall(int exitCode) {
 		List<ASM> out = new ArrayList<ASM>();
 		out.add(new OpASM(String.format("Exit interrupt %d", exitCode),
-				OpCode.XOR, Reg.RAX.name(), Reg.RAX.name()));
-		out.add(new OpASM(OpCode.XOR, Reg.RDI.name(), Reg.RDI.name()));
-		externCalls.add(EXIT);
-		out.add(new OpASM(OpCode.CALL, EXIT));
+				OpCode.XOR, Operand.reg(Reg.RAX), Operand.reg(Reg.RAX)));
+		out.add(new OpASM(OpCode.XOR, Operand.reg(Reg.RDI), Operand
+				.reg(Reg.RDI)));
+		out.add(new OpASM(OpCode.CALL, Operand.label(EXIT)));
 		return out;
 	}
 
@@ -95,40 +125,46 @@ public class AsmVisitor {
 		return out;
 	}
 
-	private static List<ASM> createReadOnlySection() {
+	private static List<ASM> createReadOnlySection(MidSymbolTable symbolTable) {
 		List<ASM> out = new ArrayList<ASM>();
 		out.add(new SectionASM("rodata"));
+		Map<String, String> stringLiterals = symbolTable.getStringLiterals();
+		for (String labelText : stringLiterals.keySet()) {
+			String text = stringLiterals.get(labelText);
+			out.add(new LabelASM("", labelText));
+			String outputString = String.format("`%s`,0", text);
+			out.add(new OpASM("`" + text + "`", OpCode.DB, Operand
+					.label(outputString)));
+		}
 		return out;
 	}
 
 	private static List<ASM> createTextSection() {
 		List<ASM> out = new ArrayList<ASM>();
 		out.add(new SectionASM("text"));
-		out.add(new OpASM(OpCode.GLOBAL, SemanticRules.MAIN));
+		out.add(new OpASM(OpCode.GLOBAL, Operand.label(SemanticRules.MAIN)));
 		return out;
 	}
 
-	private static int stringLabelCount = 0;
-
-	private static String labelSafeString(String text) {
+	private static String labelSafeString(String text, int count) {
 		String clean = text.replaceAll("[^0-9A-Za-z]", "");
 		return "s_" + clean.substring(0, Math.min(8, clean.length()))
-				+ stringLabelCount++;
+				+ count;
 	}
 
 	/**
-	 * Register a string literal, returns a MidFieldDeclNode to use in
-	 * MidVisitor calls.
+	 * Register a string literal with the program's symbol table, returns a
+	 * MidFieldDeclNode to use in MidVisitor calls.
 	 * 
+	 * @param symbolTable
 	 * @param text
 	 * @return
 	 */
-	public static MidStringDeclNode addStringLiteral(String text) {
-		String labelText = labelSafeString(text);
-		readOnlySection.add(new LabelASM("", labelText));
-		String outputString = String.format("`%s`,0", text);
-		readOnlySection
-				.add(new OpASM("`" + text + "`", OpCode.DB, outputString));
+	public static MidStringDeclNode addStringLiteral(
+			MidSymbolTable symbolTable, String text) {
+		Map<String, String> stringLiterals = symbolTable.getStringLiterals();
+		String labelText = labelSafeString(text, stringLiterals.size());
+		stringLiterals.put(labelText, text);
 
 		MidStringDeclNode out = new MidStringDeclNode(labelText);
 		out.setRawLocationReference(labelText);
@@ -142,19 +178,16 @@ public class AsmVisitor {
 			boolean saveValueDisabled) {
 		String name = callNode.getName();
 
-		if (callNode instanceof MidCalloutNode) {
-			externCalls.add(name);
-		}
 		List<ASM> out = new ArrayList<ASM>();
 
 		// Always set RAX to 0.
-		out.add(new OpASM(OpCode.CALL, name));
+		out.add(new OpASM(OpCode.CALL, Operand.label(name)));
 
 		if (!callNode.saveValueDisabled()) {
 			Reg destinationRegister = callNode.getRegister();
 			// Push RAX into destinationRegister.
 			out.add(new OpASM("Saving results of " + name, OpCode.MOV,
-					destinationRegister.name(), Reg.RAX.name()));
+					Operand.reg(destinationRegister), Operand.reg(Reg.RAX)));
 		}
 
 		return out;
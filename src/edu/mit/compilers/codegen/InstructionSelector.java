@@ -0,0 +1,754 @@
+package edu.mit.compilers.codegen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.Stats;
+import edu.mit.compilers.codegen.asm.ASM;
+import edu.mit.compilers.codegen.asm.ImmediateOperand;
+import edu.mit.compilers.codegen.asm.LabelOperand;
+import edu.mit.compilers.codegen.asm.MemoryOperand;
+import edu.mit.compilers.codegen.asm.OpASM;
+import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
+import edu.mit.compilers.codegen.asm.RegisterOperand;
+import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.codegen.nodes.MidSaveNode;
+import edu.mit.compilers.codegen.nodes.memory.ArrayReferenceNode;
+import edu.mit.compilers.codegen.nodes.memory.MidLocalMemoryNode;
+import edu.mit.compilers.codegen.nodes.regops.MidAndNode;
+import edu.mit.compilers.codegen.nodes.regops.MidBinaryRegNode;
+import edu.mit.compilers.codegen.nodes.regops.MidCompareNode;
+import edu.mit.compilers.codegen.nodes.regops.MidLoadNode;
+import edu.mit.compilers.codegen.nodes.regops.MidMinusNode;
+import edu.mit.compilers.codegen.nodes.regops.MidNegNode;
+import edu.mit.compilers.codegen.nodes.regops.MidNotNode;
+import edu.mit.compilers.codegen.nodes.regops.MidOrNode;
+import edu.mit.compilers.codegen.nodes.regops.MidParamLoadNode;
+import edu.mit.compilers.codegen.nodes.regops.MidPlusNode;
+import edu.mit.compilers.codegen.nodes.regops.MidRegisterNode;
+import edu.mit.compilers.codegen.nodes.regops.MidTimesNode;
+import edu.mit.compilers.codegen.nodes.regops.MidUnaryRegNode;
+import edu.mit.compilers.codegen.nodes.regops.RegisterOpNode;
+import edu.mit.compilers.opt.regalloc.RegisterAllocator;
+
+/**
+ * Lowers a method's nodes a tree at a time instead of a node at a time.
+ * MidVisitor turns x = a + b into loads of a and b into temps, a plus node
+ * and a save, which node by node is
+ *
+ * <pre>
+ * MOV R10, a
+ * MOV R11, b
+ * ADD R10, R11
+ * MOV x, R10
+ * </pre>
+ *
+ * The loads, the op and the save (or a compare) form a tree. Each Pattern
+ * covers a whole tree, reading operands straight from memory or as
+ * immediates, addressing array elements as [ a + 8*i ] and using LEA for
+ * adds and small multiplies. Every pattern that fits is tried and the one
+ * with the fewest instructions is kept.
+ *
+ * A tree is only covered when its nodes are the run just before its root,
+ * give or take declarations, and no temp is live into or out of that run,
+ * so nothing else reads the temps it no longer sets. Other nodes are
+ * lowered by their own toASM().
+ */
+public class InstructionSelector {
+
+	private static final Set<Reg> TEMPS = EnumSet.noneOf(Reg.class);
+	static {
+		Collections.addAll(TEMPS, RegisterAllocator.TEMP_REGISTERS);
+	}
+
+	/**
+	 * A value in a tree: a leaf where the value already is, or an op on
+	 * leaves.
+	 */
+	private static class Value {
+		// Null for a constant saved by a save node.
+		final MidRegisterNode node;
+		// Null for leaves.
+		final OpCode op;
+		final Value left;
+		final Value right;
+		// Where a leaf is, with its index in indexTemp if it's an array
+		// element.
+		final Operand operand;
+		final Value index;
+		final Reg indexTemp;
+
+		Value(MidRegisterNode node, Operand operand, Value index,
+				Reg indexTemp) {
+			this.node = node;
+			this.op = null;
+			this.left = null;
+			this.right = null;
+			this.operand = operand;
+			this.index = index;
+			this.indexTemp = indexTemp;
+		}
+
+		Value(MidRegisterNode node, OpCode op, Value left, Value right) {
+			this.node = node;
+			this.op = op;
+			this.left = left;
+			this.right = right;
+			this.operand = null;
+			this.index = null;
+			this.indexTemp = null;
+		}
+
+		boolean isLeaf() {
+			return op == null;
+		}
+
+		boolean isConstant() {
+			return operand instanceof ImmediateOperand;
+		}
+
+		void addNodes(List<MidNode> out) {
+			if (node != null) {
+				out.add(node);
+			}
+			if (index != null) {
+				index.addNodes(out);
+			}
+			if (left != null) {
+				left.addNodes(out);
+			}
+			if (right != null) {
+				right.addNodes(out);
+			}
+		}
+	}
+
+	/**
+	 * A save of source to dest, or a compare of left to right.
+	 */
+	private static class Tree {
+		final MidNode root;
+		final Value source;
+		final Value dest;
+		final Value left;
+		final Value right;
+		final List<MidNode> nodes = new ArrayList<MidNode>();
+
+		Tree(MidSaveNode root, Value source, Value dest) {
+			this.root = root;
+			this.source = source;
+			this.dest = dest;
+			this.left = null;
+			this.right = null;
+			nodes.add(root);
+			source.addNodes(nodes);
+			dest.addNodes(nodes);
+		}
+
+		Tree(MidCompareNode root, Value left, Value right) {
+			this.root = root;
+			this.source = null;
+			this.dest = null;
+			this.left = left;
+			this.right = right;
+			nodes.add(root);
+			left.addNodes(nodes);
+			right.addNodes(nodes);
+		}
+
+		boolean isSave() {
+			return source != null;
+		}
+	}
+
+	/**
+	 * The code a pattern emits for one tree. Only the destination and the
+	 * temps are written; running out of temps makes the code unusable.
+	 */
+	private static class Code {
+		final String comment;
+		final List<ASM> out = new ArrayList<ASM>();
+		private final Set<Reg> used = EnumSet.noneOf(Reg.class);
+		boolean failed;
+
+		Code(String comment) {
+			this.comment = comment;
+		}
+
+		void add(OpCode op, Operand... args) {
+			out.add(new OpASM(comment, op, args));
+		}
+
+		Reg scratch() {
+			for (Reg r : RegisterAllocator.TEMP_REGISTERS) {
+				if (!used.contains(r)) {
+					used.add(r);
+					return r;
+				}
+			}
+			failed = true;
+			return RegisterAllocator.TEMP_REGISTERS[0];
+		}
+
+		/**
+		 * Where leaf is, loading its index into a temp if it has to.
+		 */
+		Operand read(Value leaf) {
+			assert leaf.isLeaf();
+			if (leaf.index == null) {
+				return leaf.operand;
+			}
+			MemoryOperand element = (MemoryOperand) leaf.operand;
+			Operand index = read(leaf.index);
+			if (index instanceof ImmediateOperand) {
+				long disp = element.getDisplacement() + element.getScale()
+						* ((ImmediateOperand) index).getValue();
+				return new MemoryOperand(element.getSymbol(),
+						element.getBase(), null, 0, disp, element.isSized());
+			}
+			return element.replace(leaf.indexTemp, toRegister(index));
+		}
+
+		/**
+		 * A register holding leaf.
+		 */
+		Reg inRegister(Value leaf) {
+			return toRegister(read(leaf));
+		}
+
+		/**
+		 * A register holding operand, reusing a temp it reads if there is
+		 * one.
+		 */
+		Reg toRegister(Operand operand) {
+			if (operand instanceof RegisterOperand) {
+				return ((RegisterOperand) operand).getRegister();
+			}
+			Reg r = null;
+			for (Reg temp : RegisterAllocator.TEMP_REGISTERS) {
+				if (used.contains(temp) && operand.uses(temp)) {
+					r = temp;
+				}
+			}
+			if (r == null) {
+				r = scratch();
+			}
+			add(OpCode.MOV, Operand.reg(r), operand);
+			return r;
+		}
+
+		/**
+		 * leaf as a source operand: in a register, or also in memory if
+		 * memory is allowed, or as a 32-bit immediate.
+		 */
+		Operand source(Value leaf, boolean memory) {
+			Operand operand = read(leaf);
+			if (operand instanceof RegisterOperand
+					|| (operand instanceof MemoryOperand && memory)
+					|| (operand instanceof ImmediateOperand
+							&& ((ImmediateOperand) operand).fits32())) {
+				return operand;
+			}
+			return Operand.reg(toRegister(operand));
+		}
+
+		/**
+		 * Saves value in a register or an immediate to dest.
+		 */
+		void store(Operand dest, Operand value) {
+			if (dest.equals(value)) {
+				return;
+			}
+			if (dest instanceof MemoryOperand) {
+				if (!(value instanceof RegisterOperand)
+						&& !(value instanceof ImmediateOperand
+								&& ((ImmediateOperand) value).fits32())) {
+					value = Operand.reg(toRegister(value));
+				}
+				dest = ((MemoryOperand) dest).toSized();
+			}
+			add(OpCode.MOV, dest, value);
+		}
+	}
+
+	/**
+	 * A way to cover a tree.
+	 */
+	private abstract static class Pattern {
+		final String name;
+
+		Pattern(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Emits code for tree, or returns false if the pattern doesn't fit
+		 * it.
+		 */
+		abstract boolean emit(Tree tree, Code code);
+	}
+
+	/**
+	 * x = y: one MOV, or a load and a store between memory locations.
+	 */
+	private static final Pattern MOVE = new Pattern("move") {
+		@Override
+		boolean emit(Tree tree, Code code) {
+			if (!tree.isSave() || !tree.source.isLeaf()) {
+				return false;
+			}
+			Operand dest = code.read(tree.dest);
+			code.store(dest, code.read(tree.source));
+			return true;
+		}
+	};
+
+	/**
+	 * x = x op y, or x = y op x for commutative ops: OP x, y.
+	 */
+	private static final Pattern UPDATE = new Pattern("update") {
+		@Override
+		boolean emit(Tree tree, Code code) {
+			if (!tree.isSave() || tree.source.isLeaf()) {
+				return false;
+			}
+			Value source = tree.source;
+			Operand dest = code.read(tree.dest);
+			boolean memory = dest instanceof MemoryOperand;
+			Operand sized = memory ? ((MemoryOperand) dest).toSized() : dest;
+			if (source.right == null) {
+				if (!isSameLocation(tree.dest, source.left)) {
+					return false;
+				}
+				code.add(source.op, sized);
+				return true;
+			}
+			if (memory && source.op == OpCode.IMUL) {
+				return false;
+			}
+			Value other;
+			if (isSameLocation(tree.dest, source.left)) {
+				other = source.right;
+			} else if (isCommutative(source.op)
+					&& isSameLocation(tree.dest, source.right)) {
+				other = source.left;
+			} else {
+				return false;
+			}
+			code.add(source.op, sized, code.source(other, !memory));
+			return true;
+		}
+	};
+
+	/**
+	 * x = y + z or x = y +- c into a register: LEA x, [ y + z ].
+	 */
+	private static final Pattern LEA = new Pattern("lea") {
+		@Override
+		boolean emit(Tree tree, Code code) {
+			if (!tree.isSave() || tree.source.isLeaf()) {
+				return false;
+			}
+			Value source = tree.source;
+			Operand dest = code.read(tree.dest);
+			if (!(dest instanceof RegisterOperand)) {
+				return false;
+			}
+			Value base = source.left;
+			Value offset = source.right;
+			long sign;
+			if (source.op == OpCode.ADD) {
+				if (base.isConstant()) {
+					base = source.right;
+					offset = source.left;
+				}
+				sign = 1;
+			} else if (source.op == OpCode.SUB && offset.isConstant()) {
+				sign = -1;
+			} else {
+				return false;
+			}
+			Reg b = code.inRegister(base);
+			Operand o = code.read(offset);
+			MemoryOperand address;
+			if (o instanceof ImmediateOperand
+					&& ((ImmediateOperand) o).fits32()
+					&& Operand.imm(sign * ((ImmediateOperand) o).getValue())
+							.fits32()) {
+				address = new MemoryOperand(null, b, null, 0, sign
+						* ((ImmediateOperand) o).getValue(), false);
+			} else if (sign > 0) {
+				address = new MemoryOperand(null, b, code.toRegister(o), 1, 0,
+						false);
+			} else {
+				return false;
+			}
+			code.add(OpCode.LEA, dest, address);
+			return true;
+		}
+	};
+
+	/**
+	 * x = y * c for c in 2, 3, 4, 5, 8, 9 into a register: LEA x, [ y +
+	 * 2*y ] and so on.
+	 */
+	private static final Pattern SCALE = new Pattern("scale") {
+		@Override
+		boolean emit(Tree tree, Code code) {
+			if (!tree.isSave() || tree.source.op != OpCode.IMUL) {
+				return false;
+			}
+			Operand dest = code.read(tree.dest);
+			Value factor = constantSide(tree.source);
+			if (!(dest instanceof RegisterOperand) || factor == null) {
+				return false;
+			}
+			long c = ((ImmediateOperand) factor.operand).getValue();
+			MemoryOperand address;
+			if (c == 2 || c == 3 || c == 5 || c == 9) {
+				Reg y = code.inRegister(otherSide(tree.source, factor));
+				address = new MemoryOperand(null, y, y, (int) c - 1, 0, false);
+			} else if (c == 4 || c == 8) {
+				Reg y = code.inRegister(otherSide(tree.source, factor));
+				address = new MemoryOperand(null, null, y, (int) c, 0, false);
+			} else {
+				return false;
+			}
+			code.add(OpCode.LEA, dest, address);
+			return true;
+		}
+	};
+
+	/**
+	 * x = y * c into a register: IMUL x, y, c.
+	 */
+	private static final Pattern MULTIPLY = new Pattern("imul") {
+		@Override
+		boolean emit(Tree tree, Code code) {
+			if (!tree.isSave() || tree.source.op != OpCode.IMUL) {
+				return false;
+			}
+			Operand dest = code.read(tree.dest);
+			Value factor = constantSide(tree.source);
+			if (!(dest instanceof RegisterOperand) || factor == null
+					|| !((ImmediateOperand) factor.operand).fits32()) {
+				return false;
+			}
+			Operand y = code.read(otherSide(tree.source, factor));
+			if (y instanceof ImmediateOperand || y instanceof LabelOperand) {
+				y = Operand.reg(code.toRegister(y));
+			}
+			code.add(OpCode.IMUL, dest, y, factor.operand);
+			return true;
+		}
+	};
+
+	/**
+	 * x = y op z: MOV t, y; OP t, z; MOV x, t, where t is x if it's a
+	 * register z doesn't read.
+	 */
+	private static final Pattern TWO_ADDRESS = new Pattern("two-address") {
+		@Override
+		boolean emit(Tree tree, Code code) {
+			if (!tree.isSave() || tree.source.isLeaf()) {
+				return false;
+			}
+			Value source = tree.source;
+			Operand dest = code.read(tree.dest);
+			Operand left = code.read(source.left);
+			Operand right = source.right == null ? null : code.source(
+					source.right, true);
+			Reg t;
+			if (dest instanceof RegisterOperand
+					&& (right == null || !right.uses(((RegisterOperand) dest)
+							.getRegister()))) {
+				t = ((RegisterOperand) dest).getRegister();
+			} else {
+				t = code.scratch();
+			}
+			Operand target = Operand.reg(t);
+			if (!target.equals(left)) {
+				code.add(OpCode.MOV, target, left);
+			}
+			if (right == null) {
+				code.add(source.op, target);
+			} else {
+				code.add(source.op, target, right);
+			}
+			code.store(dest, target);
+			return true;
+		}
+	};
+
+	/**
+	 * CMP x, y, with at most one of them in memory.
+	 */
+	private static final Pattern COMPARE = new Pattern("compare") {
+		@Override
+		boolean emit(Tree tree, Code code) {
+			if (tree.isSave()) {
+				return false;
+			}
+			Operand left = code.read(tree.left);
+			if (!(left instanceof RegisterOperand)
+					&& !(left instanceof MemoryOperand)) {
+				left = Operand.reg(code.toRegister(left));
+			}
+			Operand right = code.source(tree.right,
+					left instanceof RegisterOperand);
+			if (left instanceof MemoryOperand
+					&& right instanceof ImmediateOperand) {
+				left = ((MemoryOperand) left).toSized();
+			}
+			code.add(OpCode.CMP, left, right);
+			return true;
+		}
+	};
+
+	/**
+	 * In order of preference when they cost the same.
+	 */
+	private static final Pattern[] PATTERNS = { MOVE, UPDATE, LEA, SCALE,
+			MULTIPLY, TWO_ADDRESS, COMPARE };
+
+	private static boolean isCommutative(OpCode op) {
+		return op == OpCode.ADD || op == OpCode.IMUL || op == OpCode.AND
+				|| op == OpCode.OR;
+	}
+
+	/**
+	 * Whether two leaves are the same register or variable. Array elements
+	 * never are, their indexes could differ.
+	 */
+	private static boolean isSameLocation(Value a, Value b) {
+		return a.isLeaf() && b.isLeaf() && a.index == null && b.index == null
+				&& a.operand.equals(b.operand);
+	}
+
+	private static Value constantSide(Value op) {
+		if (op.right == null) {
+			return null;
+		}
+		if (op.right.isConstant()) {
+			return op.right;
+		}
+		return op.left.isConstant() ? op.left : null;
+	}
+
+	private static Value otherSide(Value op, Value side) {
+		return side == op.left ? op.right : op.left;
+	}
+
+	/**
+	 * Lowers nodeList, which has had its storage assigned, to assembly.
+	 * Adds how often each pattern was used to the stats.
+	 */
+	public static List<ASM> select(MidNodeList nodeList) {
+		List<MidNode> nodes = new ArrayList<MidNode>();
+		for (MidNode node : nodeList) {
+			nodes.add(node);
+		}
+		Set<Reg>[] liveIn = liveTemps(nodes);
+
+		// The code for each covered root, and the other nodes it covers.
+		Map<MidNode, List<ASM>> selected = new IdentityHashMap<MidNode, List<ASM>>();
+		Set<MidNode> covered = Collections
+				.newSetFromMap(new IdentityHashMap<MidNode, Boolean>());
+		Map<String, Integer> hits = new LinkedHashMap<String, Integer>();
+		for (int i = 0; i < nodes.size(); i++) {
+			Tree tree = buildTree(nodes.get(i));
+			if (tree == null) {
+				continue;
+			}
+			// Walk back over the tree's nodes, which only declarations that
+			// emit nothing may sit between.
+			Set<MidNode> members = Collections
+					.newSetFromMap(new IdentityHashMap<MidNode, Boolean>());
+			members.addAll(tree.nodes);
+			int found = 0;
+			int start = i;
+			for (int k = i; k >= 0 && found < members.size(); k--) {
+				MidNode node = nodes.get(k);
+				if (members.contains(node)) {
+					found++;
+					start = k;
+				} else if (!(node instanceof MidLocalMemoryNode)) {
+					break;
+				}
+			}
+			if (found < members.size() || !liveIn[start].isEmpty()
+					|| (i + 1 < nodes.size() && !liveIn[i + 1].isEmpty())) {
+				continue;
+			}
+			Code best = null;
+			String bestName = null;
+			for (Pattern pattern : PATTERNS) {
+				Code code = new Code(pattern.name + " " + tree.root);
+				if (!pattern.emit(tree, code) || code.failed) {
+					continue;
+				}
+				if (best == null || code.out.size() < best.out.size()) {
+					best = code;
+					bestName = pattern.name;
+				}
+			}
+			if (best == null) {
+				continue;
+			}
+			selected.put(tree.root, best.out);
+			covered.addAll(tree.nodes);
+			Integer count = hits.get(bestName);
+			hits.put(bestName, count == null ? 1 : count + 1);
+		}
+
+		List<ASM> out = new ArrayList<ASM>();
+		for (MidNode node : nodes) {
+			if (selected.containsKey(node)) {
+				out.addAll(selected.get(node));
+			} else if (!covered.contains(node)) {
+				out.addAll(node.toASM());
+			}
+		}
+		for (Map.Entry<String, Integer> hit : hits.entrySet()) {
+			Stats.count("isel " + hit.getKey(), hit.getValue());
+		}
+		LogCenter.debug("ISEL", "%d nodes, patterns used: %s", nodes.size(),
+				hits);
+		return out;
+	}
+
+	/**
+	 * The temps live into each node.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Set<Reg>[] liveTemps(List<MidNode> nodes) {
+		Set<Reg>[] liveIn = new Set[nodes.size()];
+		Set<Reg> live = EnumSet.noneOf(Reg.class);
+		for (int i = nodes.size() - 1; i >= 0; i--) {
+			MidNode node = nodes.get(i);
+			if (node instanceof MidRegisterNode
+					&& ((MidRegisterNode) node).hasRegister()) {
+				live.remove(((MidRegisterNode) node).getRegister());
+			}
+			if (node instanceof RegisterOpNode) {
+				live.addAll(((RegisterOpNode) node).getOperandRegisters());
+			}
+			if (node instanceof MidSaveNode
+					&& ((MidSaveNode) node).savesRegister()) {
+				live.add(((MidSaveNode) node).getRegNode().getRegister());
+			}
+			if (node instanceof ArrayReferenceNode
+					&& ((ArrayReferenceNode) node).usesArrayRegister()) {
+				live.add(((ArrayReferenceNode) node).getArrayRegister());
+			}
+			live.retainAll(TEMPS);
+			liveIn[i] = EnumSet.copyOf(live);
+		}
+		return liveIn;
+	}
+
+	/**
+	 * The tree rooted at node, or null if node isn't the root of one.
+	 */
+	private static Tree buildTree(MidNode node) {
+		if (node instanceof MidSaveNode) {
+			MidSaveNode save = (MidSaveNode) node;
+			Value source;
+			if (save.savesRegister()) {
+				source = value(save.getRegNode());
+			} else {
+				source = new Value(null, save.getSourceOperand(), null, null);
+			}
+			Value dest;
+			if (save.getAllocatedRegister() == null
+					&& save.usesArrayRegister()) {
+				Value index = leaf(save.getMidArrayElementNode().getLoadNode());
+				if (index == null || index.index != null) {
+					return null;
+				}
+				dest = new Value(null, save.getDestinationOperand(), index,
+						save.getArrayRegister());
+			} else {
+				dest = new Value(null, save.getDestinationOperand(), null,
+						null);
+			}
+			return source == null ? null : new Tree(save, source, dest);
+		}
+		if (node instanceof MidCompareNode) {
+			MidCompareNode compare = (MidCompareNode) node;
+			if (!(compare.getLeftOperand() instanceof MidLoadNode)
+					|| !(compare.getRightOperand() instanceof MidLoadNode)) {
+				return null;
+			}
+			Value left = leaf((MidLoadNode) compare.getLeftOperand());
+			Value right = leaf((MidLoadNode) compare.getRightOperand());
+			if (left == null || right == null) {
+				return null;
+			}
+			return new Tree(compare, left, right);
+		}
+		return null;
+	}
+
+	private static Value value(MidRegisterNode node) {
+		if (node instanceof MidLoadNode) {
+			return leaf((MidLoadNode) node);
+		}
+		OpCode op = null;
+		if (node instanceof MidPlusNode) {
+			op = OpCode.ADD;
+		} else if (node instanceof MidMinusNode) {
+			op = OpCode.SUB;
+		} else if (node instanceof MidTimesNode) {
+			op = OpCode.IMUL;
+		} else if (node instanceof MidAndNode) {
+			op = OpCode.AND;
+		} else if (node instanceof MidOrNode) {
+			op = OpCode.OR;
+		} else if (node instanceof MidNegNode) {
+			op = OpCode.NEG;
+		} else if (node instanceof MidNotNode) {
+			op = OpCode.NOT;
+		}
+		if (op == null) {
+			return null;
+		}
+		Value left;
+		Value right = null;
+		if (node instanceof MidBinaryRegNode) {
+			MidBinaryRegNode binary = (MidBinaryRegNode) node;
+			left = leaf(binary.getLeftOperand());
+			right = leaf(binary.getRightOperand());
+			if (right == null) {
+				return null;
+			}
+		} else {
+			left = leaf(((MidUnaryRegNode) node).getOperand());
+		}
+		return left == null ? null : new Value(node, op, left, right);
+	}
+
+	private static Value leaf(MidLoadNode load) {
+		if (load instanceof MidParamLoadNode) {
+			// Tied to the preserve node before it.
+			return null;
+		}
+		if (load.getAllocatedRegister() == null && load.usesArrayRegister()) {
+			Value index = leaf(load.getMidArrayElementNode().getLoadNode());
+			if (index == null || index.index != null) {
+				return null;
+			}
+			return new Value(load, load.getSourceOperand(), index, load
+					.getArrayRegister());
+		}
+		return new Value(load, load.getSourceOperand(), null, null);
+	}
+}
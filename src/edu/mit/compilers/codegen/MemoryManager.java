@@ -1,6 +1,6 @@
 package edu.mit.compilers.codegen;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import edu.mit.compilers.LogCenter;
@@ -27,53 +27,65 @@ public class MemoryManager {
 	public static final String ADDRESS_SIZE_STRING = Integer
 			.toString(ADDRESS_SIZE);
 
-	@SuppressWarnings("serial")
-	public static Map<Reg, Boolean> tempRegisterMap = new HashMap<Reg, Boolean>() {
-		{
-			for (Reg r : RegisterAllocator.TEMP_REGISTERS) {
-				// Only allow R10 and R11
-				put(r, true);
-			}
+	// Free/used temp registers. One per method being assigned, in
+	// TEMP_REGISTERS order so allocation doesn't depend on hash order.
+	private final Map<Reg, Boolean> tempRegisterMap;
+
+	private MemoryManager() {
+		tempRegisterMap = new LinkedHashMap<Reg, Boolean>();
+		for (Reg r : RegisterAllocator.TEMP_REGISTERS) {
+			// Only allow R10 and R11
+			tempRegisterMap.put(r, true);
 		}
-	};
+	}
 
 	/**
 	 * Visits MidSymbolTable generated by MidVisitor and allocates memory
 	 * storage.
 	 */
 	public static void assignStorage(MidSymbolTable codeRoot) {
-		// Label the fields.
-		Map<String, MidMemoryNode> localVars = codeRoot.getLocalVars();
-		String prefix = "field";
-		int count = 0;
-		for (String fieldName : localVars.keySet()) {
-			MidMemoryNode fieldMemoryNode = localVars.get(fieldName);
-			assert fieldMemoryNode instanceof MidFieldDeclNode;
-			fieldMemoryNode.setRawLocationReference(prefix + count);
-			count++;
-		}
+		assignFieldStorage(codeRoot);
 
 		Map<String, MidMethodDeclNode> methods = codeRoot.getMethods();
 		for (String methodName : methods.keySet()) {
-			LogCenter.debug("MEM", "METHOD: " + methodName);
-			processMethod(methods.get(methodName));
+			LogCenter.debug("MEM", "METHOD: %s", methodName);
+			assignStorage(methods.get(methodName));
 		}
 
 		Map<String, MidMethodDeclNode> starbucksMethods = codeRoot
 				.getStarbucksMethods();
 		for (String methodName : starbucksMethods.keySet()) {
-			LogCenter.debug("MEM", "STARBUCKS_METHOD: " + methodName);
-			processMethod(starbucksMethods.get(methodName));
+			LogCenter.debug("MEM", "STARBUCKS_METHOD: %s", methodName);
+			assignStorage(starbucksMethods.get(methodName));
 		}
 	}
 
-	public static MidNode temp;
+	/**
+	 * Labels the fields. Methods can be assigned independently afterwards.
+	 */
+	public static void assignFieldStorage(MidSymbolTable codeRoot) {
+		Map<String, MidMemoryNode> localVars = codeRoot.getLocalVars();
+		String prefix = "field";
+		int count = 0;
+		for (String fieldName : localVars.keySet()) {
+			MidMemoryNode fieldMemoryNode = localVars.get(fieldName);
+			assert fieldMemoryNode instanceof MidFieldDeclNode;
+			fieldMemoryNode.setRawLocationReference(prefix + count);
+			count++;
+		}
+	}
 
-	private static void processMethod(MidMethodDeclNode methodDeclNode) {
-		deallocAllTempRegisters();
+	/**
+	 * Allocates stack and temp register storage for a single method.
+	 */
+	public static void assignStorage(MidMethodDeclNode methodDeclNode) {
+		new MemoryManager().processMethod(methodDeclNode);
+	}
+
+	private void processMethod(MidMethodDeclNode methodDeclNode) {
 		int localStackSize = 0;
 		for (MidNode m : methodDeclNode.getNodeList()) {
-			LogCenter.debug("MEM", m.toString());
+			LogCenter.debug("MEM", "%s", m);
 
 			if (m instanceof MidLocalMemoryNode) {
 				localStackSize += ADDRESS_SIZE;
@@ -84,7 +96,6 @@ public class MemoryManager {
 			if (m instanceof RegisterOpNode) {
 				// We dealloc before alloc in order to allow a register node
 				// to save to itself.
-				temp = m;
 				for (Reg r : ((RegisterOpNode) m).getOperandRegisters()) {
 					assert r != null : m + "(" + m.getClass()
 							+ ") is missing registers";
@@ -103,7 +114,7 @@ public class MemoryManager {
 					ArrayReferenceNode arrayNode = (ArrayReferenceNode) m;
 					if (arrayNode.usesArrayRegister()) {
 						LogCenter.debug("MEM",
-								"deallocating array register of " + m);
+								"deallocating array register of %s", m);
 						deallocTempRegister(arrayNode.getArrayRegister());
 					}
 				}
@@ -111,8 +122,8 @@ public class MemoryManager {
 			if (m instanceof ArrayReferenceNode) {
 				ArrayReferenceNode arrayNode = (ArrayReferenceNode) m;
 				if (arrayNode.usesArrayRegister()) {
-					LogCenter.debug("MEM", "deallocating array register of "
-							+ m);
+					LogCenter.debug("MEM", "deallocating array register of %s",
+							m);
 					deallocTempRegister(arrayNode.getArrayRegister());
 				}
 			}
@@ -121,8 +132,8 @@ public class MemoryManager {
 				if (!(m instanceof MidCallNode)
 						|| !((MidCallNode) m).saveValueDisabled()) {
 					if (m instanceof MidCallNode) {
-						LogCenter.debug("MEM", "Allocating reg for "
-								+ ((MidCallNode) m).getName());
+						LogCenter.debug("MEM", "Allocating reg for %s",
+								((MidCallNode) m).getName());
 					}
 					((MidRegisterNode) m).setRegister(allocTempRegister());
 				}
@@ -131,12 +142,12 @@ public class MemoryManager {
 		methodDeclNode.setLocalStackSize(localStackSize);
 	}
 
-	public static Reg allocTempRegister() {
+	private Reg allocTempRegister() {
 		for (Reg r : tempRegisterMap.keySet()) {
 			if (tempRegisterMap.get(r)) {
-				LogCenter.debug("MEM", "alloc " + r.name());
+				LogCenter.debug("MEM", "alloc %s", r.name());
 				tempRegisterMap.put(r, false);
-				LogCenter.debug("MEM", tempRegisterMap.toString());
+				LogCenter.debug("MEM", "%s", tempRegisterMap);
 				LogCenter.debug("MEM", "");
 				return r;
 			}
@@ -144,23 +155,17 @@ public class MemoryManager {
 		throw new RuntimeException("Ran out of registers somehow!.");
 	}
 
-	public static void deallocTempRegister(Reg r) {
+	private void deallocTempRegister(Reg r) {
 		if (tempRegisterMap.containsKey(r)) {
 			// Only deallocate it if it was ever allocated in the first place.
 			// Sometimes we accidentally deallocate something like RAX for a
 			// custom call and we don't want it to be re-used.
 			tempRegisterMap.put(r, true);
 			assert r != null : "Why is this register null?";
-			LogCenter.debug("MEM", " dealloc " + r.name());
-			LogCenter.debug("MEM", tempRegisterMap.toString());
+			LogCenter.debug("MEM", " dealloc %s", r.name());
+			LogCenter.debug("MEM", "%s", tempRegisterMap);
 			LogCenter.debug("MEM", "");
 		}
 	}
 
-	private static void deallocAllTempRegisters() {
-		for (Reg r : tempRegisterMap.keySet()) {
-			deallocTempRegister(r);
-		}
-	}
-
 }
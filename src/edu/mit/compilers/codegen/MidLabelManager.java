@@ -1,33 +1,100 @@
 package edu.mit.compilers.codegen;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
 import edu.mit.compilers.codegen.nodes.MidLabelNode;
 
 public class MidLabelManager {
-	
-	@SuppressWarnings("serial")
-	private static Map<LabelType, Integer> tracker = new HashMap<LabelType, Integer>(){{
-		for (LabelType type : LabelType.values()) {
-			this.put(type, 0);
-		}
-	}};
-	
+
 	public enum LabelType {
 		FOR, ROF, WHILE, ELIHW, IF, FI, FOR_NEXT, SHORT, ELSE, WHILE_BODY, SKIP;
 	}
-	
+
+	/**
+	 * Label and id numbering for the program being compiled. Each thread
+	 * compiling a program has its own, so programs compiled side by side get
+	 * the same names as when they're compiled alone.
+	 */
+	private static class Numbering {
+		final Map<LabelType, Integer> tracker = new EnumMap<LabelType, Integer>(
+				LabelType.class);
+		int count = 0;
+
+		Numbering() {
+			for (LabelType type : LabelType.values()) {
+				tracker.put(type, 0);
+			}
+		}
+	}
+
+	private static final ThreadLocal<Numbering> numbering = new ThreadLocal<Numbering>() {
+		@Override
+		protected Numbering initialValue() {
+			return new Numbering();
+		}
+	};
+
+	/**
+	 * Labels are only handed out while building the mid-level IR, which is
+	 * single threaded, so they always come from the program's tracker.
+	 */
 	public static MidLabelNode getLabel(LabelType type) {
+		Map<LabelType, Integer> tracker = numbering.get().tracker;
 		tracker.put(type, tracker.get(type) + 1);
 		return new MidLabelNode(type, type.toString().toLowerCase()
 				+ tracker.get(type));
 	}
 
-	private static int count = 0;
+	// Per-thread id counter, set while a single method is being optimized.
+	private static final ThreadLocal<int[]> scopedCount = new ThreadLocal<int[]>();
 
 	public static String getNewId() {
-		return Integer.toString(count++);
+		int[] scoped = scopedCount.get();
+		if (scoped != null) {
+			return Integer.toString(scoped[0]++);
+		}
+		return Integer.toString(numbering.get().count++);
+	}
+
+	/**
+	 * Returns the id the next getNewId() call outside a method scope would
+	 * hand out.
+	 */
+	public static int peekNextId() {
+		return numbering.get().count;
+	}
+
+	/**
+	 * Restarts label and id numbering, for compiling another program on the
+	 * same thread.
+	 */
+	public static void reset() {
+		assert scopedCount.get() == null : "Can't reset inside a method scope.";
+		numbering.set(new Numbering());
+	}
+
+	/**
+	 * Gives the calling thread its own id counter starting at start. Callers
+	 * processing several methods should start every scope from the same
+	 * peekNextId() value, so that the names of nodes created while optimizing
+	 * a method don't depend on which thread runs it or in what order. Ids are
+	 * only used for debug names, so repeats across methods are harmless.
+	 */
+	public static void beginMethodScope(int start) {
+		assert scopedCount.get() == null : "Method scopes don't nest.";
+		scopedCount.set(new int[] { start });
+	}
+
+	/**
+	 * Drops the calling thread's id counter. The scope may have run on a
+	 * different thread than the rest of the program, so the ids it handed
+	 * out aren't counted by the program's numbering; method scopes are for
+	 * the last phase of a compile only.
+	 */
+	public static void endMethodScope() {
+		assert scopedCount.get() != null : "No method scope to end.";
+		scopedCount.remove();
 	}
 
 }
@@ -1,6 +1,7 @@
 package edu.mit.compilers.codegen;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import edu.mit.compilers.codegen.nodes.MidLabelNode;
@@ -13,6 +14,8 @@ public class MidSymbolTable {
 	private Map<String, MidMemoryNode> localVars;
 	private Map<String, MidMethodDeclNode> methods;
 	private Map<String, MidMethodDeclNode> starbucksMethods;
+	// String literal label -> text, for the read-only section.
+	private Map<String, String> stringLiterals;
 	private MidSymbolTable parent;
 	private MidLabelNode continueLabel;
 	private MidLabelNode breakLabel;
@@ -53,6 +56,8 @@ public class MidSymbolTable {
 				: parent.getMethods();
 		this.starbucksMethods = (parent == null) ? new HashMap<String, MidMethodDeclNode>()
 				: parent.getStarbucksMethods();
+		this.stringLiterals = (parent == null) ? new LinkedHashMap<String, String>()
+				: parent.getStringLiterals();
 	}
 
 	public Map<String, MidMethodDeclNode> getMethods() {
@@ -63,6 +68,10 @@ public class MidSymbolTable {
 		return starbucksMethods;
 	}
 
+	public Map<String, String> getStringLiterals() {
+		return stringLiterals;
+	}
+
 	public MidLabelNode getBreakLabel() {
 		if (breakLabel != null) {
 			return breakLabel;
@@ -163,9 +163,11 @@ public class MidVisitor {
 		out.addAll(paramExpr);
 
 		// Push caller-saved.
-		out.add(new MidSaveRegLaterNode(methodNode));
 		MidPreserveParamsNode preserveParamsNode = new MidPreserveParamsNode(
 				preservationList);
+		MidSaveRegLaterNode saveRegLaterNode = new MidSaveRegLaterNode(
+				methodNode, preserveParamsNode);
+		out.add(saveRegLaterNode);
 		out.add(preserveParamsNode);
 		out.addAll(paramLoadNodes);
 		out.addAll(paramPushStack);
@@ -181,7 +183,8 @@ public class MidVisitor {
 		}
 
 		// Pop preserved params.
-		out.add(new MidUndoPreserveParamsNode(preserveParamsNode));
+		out.add(new MidUndoPreserveParamsNode(preserveParamsNode,
+				saveRegLaterNode));
 		// Pop caller-saved.
 		out.add(new MidRestoreRegLaterNode(methodNode));
 
@@ -211,8 +214,8 @@ public class MidVisitor {
 		for (int i = 0; i < paramNodes.size(); i++) {
 			DecafNode paramRoot = paramNodes.get(i);
 			if (paramRoot instanceof STRING_LITERALNode) {
-				MidFieldDeclNode stringDeclNode = AsmVisitor
-						.addStringLiteral(stripQuotes(paramRoot.getText()));
+				MidFieldDeclNode stringDeclNode = AsmVisitor.addStringLiteral(
+						symbolTable, stripQuotes(paramRoot.getText()));
 				paramMemoryNodes.add(stringDeclNode);
 			} else if (paramRoot instanceof ExpressionNode) {
 				ValuedMidNodeList expList = MidShortCircuitVisitor
@@ -366,7 +369,7 @@ public class MidVisitor {
 			instrList.add(lengthCompareNode);
 			instrList.add(lengthJumpNode);
 		}
-		LogCenter.debug("REBC", "SKIPPED " + (2 - count) + " bound checks!");
+		LogCenter.debug("REBC", "SKIPPED %s bound checks!", 2 - count);
 		if (checkZeroBound || checkLenBound) {
 			instrList.add(skipErrorNode);
 			instrList.add(errorLabelNode);
@@ -674,7 +677,7 @@ public class MidVisitor {
 					.valuedHelper(node.getExpressionNode(), symbolTable);
 			MidMemoryNode exprNode = exprList.getReturnNode();
 
-			LogCenter.debug("REBC", "Working with array " + node.getText());
+			LogCenter.debug("REBC", "Working with array %s", node.getText());
 			boolean mustCheckZeroBound = true;
 			boolean mustCheckLenBound = true;
 			// REBC
@@ -682,9 +685,10 @@ public class MidVisitor {
 			if (node.getExpressionNode() instanceof IDNode) {
 				LogCenter.debug("REBC", "p2");
 				IDNode idNode = (IDNode) node.getExpressionNode();
-				LogCenter.debug("REBC", "Loop variable is " + idNode.getText());
+				LogCenter.debug("REBC", "Loop variable is %s",
+						idNode.getText());
 				MidMemoryNode memNode = symbolTable.getVar(idNode.getText());
-				LogCenter.debug("REBC", "Mem node is " + memNode.getClass());
+				LogCenter.debug("REBC", "Mem node is %s", memNode.getClass());
 				if (memNode instanceof MidLocalVarDeclNode) {
 					LogCenter.debug("REBC", "p3");
 					MidLocalVarDeclNode iterDeclNode = (MidLocalVarDeclNode) memNode;
@@ -745,7 +749,7 @@ public class MidVisitor {
 			boolean needsNewScope, String methodName) {
 		MidSymbolTable blockSymbolTable = new MidSymbolTable(symbolTable);
 		blockSymbolTable.setCurrentMethodNameNode(AsmVisitor
-				.addStringLiteral(methodName));
+				.addStringLiteral(symbolTable, methodName));
 		// Calls the rest of the code, but doesn't require creating a new scope
 		// since we did it here.
 		return visit(node, blockSymbolTable, false);
@@ -844,7 +848,7 @@ public class MidVisitor {
 
 		// ADD META DATA FOR FOR LOOP (REBC)
 		String iterVar = node.getAssignNode().getLocation().getText();
-		LogCenter.debug("REBC", "iter variable for for loop is: " + iterVar);
+		LogCenter.debug("REBC", "iter variable for for loop is: %s", iterVar);
 		MidLocalVarDeclNode iterDeclNode = (MidLocalVarDeclNode) newSymbolTable
 				.getVar(iterVar);
 		iterDeclNode.setForNode(node);
@@ -1012,7 +1016,7 @@ public class MidVisitor {
 				sanitizedOutOfBounds, OUT_OF_BOUNDS_METHOD_NAME, VarType.VOID);
 		symbolTable
 				.addStarbucksMethod(OUT_OF_BOUNDS_METHOD_NAME, outOfBoundsMethodDecl);
-		outOfBoundsMethodDecl.setNodeList(generateOutOfBoundsMethod());
+		outOfBoundsMethodDecl.setNodeList(generateOutOfBoundsMethod(symbolTable));
 
 		String sanitizedDivideByZero = MidMethodNameManager
 				.sanitizeCustomMethodName(DIVIDE_BY_ZERO_NAME);
@@ -1021,7 +1025,7 @@ public class MidVisitor {
 				sanitizedDivideByZero, DIVIDE_BY_ZERO_NAME, VarType.VOID);
 		symbolTable
 				.addStarbucksMethod(DIVIDE_BY_ZERO_NAME, divideByZeroMethodDecl);
-		divideByZeroMethodDecl.setNodeList(generateDivideByZeroMethod());
+		divideByZeroMethodDecl.setNodeList(generateDivideByZeroMethod(symbolTable));
 
 		for (METHOD_DECLNode methodNode : node.getMethodNodes()) {
 			String originalMethodName = methodNode.getId();
@@ -1039,21 +1043,24 @@ public class MidVisitor {
 		return symbolTable;
 	}
 
-	private static MidNodeList generateOutOfBoundsMethod() {
-		return generateHelper(OUT_OF_BOUNDS_ERROR);
+	private static MidNodeList generateOutOfBoundsMethod(
+			MidSymbolTable symbolTable) {
+		return generateHelper(symbolTable, OUT_OF_BOUNDS_ERROR);
 	}
 
-	private static MidNodeList generateDivideByZeroMethod() {
-		return generateHelper(DIVIDE_BY_ZERO_ERROR);
+	private static MidNodeList generateDivideByZeroMethod(
+			MidSymbolTable symbolTable) {
+		return generateHelper(symbolTable, DIVIDE_BY_ZERO_ERROR);
 	}
 
-	private static MidNodeList generateHelper(String errorText) {
+	private static MidNodeList generateHelper(MidSymbolTable symbolTable,
+			String errorText) {
 		MidNodeList instrList = new MidNodeList();
 		// Name isn't really necessary, avoiding declaring unnecessary
 		// constants. 0 refers to the offset, specifying method name.
 		MidParamDeclNode methodParam = new MidParamDeclNode("", 0);
-		MidMemoryNode errorStringLocation = AsmVisitor
-				.addStringLiteral(errorText);
+		MidMemoryNode errorStringLocation = AsmVisitor.addStringLiteral(
+				symbolTable, errorText);
 
 		List<MidMemoryNode> params = new ArrayList<MidMemoryNode>();
 
@@ -1,7 +1,19 @@
 package edu.mit.compilers.codegen.asm;
 
+import java.io.IOException;
+
 abstract public class ASM {
 
+	/**
+	 * Writes this line, including its trailing newline.
+	 */
+	public abstract void emit(AsmWriter out) throws IOException;
+
+	@Override
+	public String toString() {
+		return AsmWriter.render(this);
+	}
+
 	public boolean isRet() {
 		return false;
 	}
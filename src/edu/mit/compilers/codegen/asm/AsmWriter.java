@@ -0,0 +1,72 @@
+package edu.mit.compilers.codegen.asm;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Writes ASM lines to a Writer as they're visited, so the program is never
+ * held in memory as text. Does the little column padding the ASM classes
+ * need by hand instead of going through String.format.
+ */
+public class AsmWriter {
+
+	private static final String SPACES = "                                                  ";
+
+	private final Writer out;
+
+	public AsmWriter(Writer out) {
+		this.out = out;
+	}
+
+	public AsmWriter write(String s) throws IOException {
+		// Same as String.format would print.
+		out.write(String.valueOf(s));
+		return this;
+	}
+
+	public AsmWriter write(char c) throws IOException {
+		out.write(c);
+		return this;
+	}
+
+	/**
+	 * Writes n spaces.
+	 */
+	public AsmWriter spaces(int n) throws IOException {
+		while (n > 0) {
+			int chunk = Math.min(n, SPACES.length());
+			out.write(SPACES, 0, chunk);
+			n -= chunk;
+		}
+		return this;
+	}
+
+	/**
+	 * Writes s left justified in a column width wide, like %-<width>s.
+	 */
+	public AsmWriter pad(String s, int width) throws IOException {
+		s = String.valueOf(s);
+		out.write(s);
+		return spaces(width - s.length());
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Renders a single line, for toString() and debugging.
+	 */
+	static String render(ASM asm) {
+		StringWriter text = new StringWriter();
+		try {
+			asm.emit(new AsmWriter(text));
+		} catch (IOException e) {
+			// StringWriter doesn't throw.
+			throw new RuntimeException(e);
+		}
+		return text.toString();
+	}
+
+}
@@ -0,0 +1,54 @@
+package edu.mit.compilers.codegen.asm;
+
+import edu.mit.compilers.codegen.Reg;
+
+/**
+ * A number.
+ */
+public class ImmediateOperand extends Operand {
+
+	private final long value;
+
+	public ImmediateOperand(long value) {
+		this.value = value;
+	}
+
+	public long getValue() {
+		return value;
+	}
+
+	/**
+	 * Whether the value fits in the 32 bits most instructions take. Only MOV
+	 * to a register takes all 64.
+	 */
+	public boolean fits32() {
+		return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+	}
+
+	@Override
+	public boolean uses(Reg reg) {
+		return false;
+	}
+
+	@Override
+	public Operand replace(Reg reg, Reg with) {
+		return this;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof ImmediateOperand
+				&& ((ImmediateOperand) o).value == value;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (value ^ (value >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(value);
+	}
+
+}
@@ -1,5 +1,7 @@
 package edu.mit.compilers.codegen.asm;
 
+import java.io.IOException;
+
 public class LabelASM extends ASM {
 
 	private String name;
@@ -10,12 +12,17 @@ public class LabelASM extends ASM {
 		this.name = name;
 	}
 
+	public String getName() {
+		return name;
+	}
+
 	@Override
-	public String toString() {
+	public void emit(AsmWriter out) throws IOException {
+		out.write('\n').write(name).write(':');
 		if (comment != "") {
-			return String.format("\n%-44s ; %s\n", name + ":", comment);
+			out.spaces(43 - String.valueOf(name).length()).write(" ; ").write(comment);
 		}
-		return String.format("\n%s:\n", name);
+		out.write('\n');
 	}
 
 }
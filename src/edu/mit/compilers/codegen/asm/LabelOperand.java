@@ -0,0 +1,48 @@
+package edu.mit.compilers.codegen.asm;
+
+import edu.mit.compilers.codegen.Reg;
+
+/**
+ * A label used as an address, like a jump target, a callout or a string.
+ * Data directives also keep their text in one, e.g. TIMES's "8 DW 0".
+ */
+public class LabelOperand extends Operand {
+
+	private final String name;
+
+	public LabelOperand(String name) {
+		assert name != null;
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean uses(Reg reg) {
+		return false;
+	}
+
+	@Override
+	public Operand replace(Reg reg, Reg with) {
+		return this;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof LabelOperand
+				&& ((LabelOperand) o).name.equals(name);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
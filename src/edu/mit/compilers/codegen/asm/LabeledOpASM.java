@@ -1,14 +1,17 @@
 package edu.mit.compilers.codegen.asm;
 
+import java.io.IOException;
+
 public class LabeledOpASM extends OpASM {
 	private String label;
-	public LabeledOpASM(String label, OpCode op, String... args) {
+	public LabeledOpASM(String label, OpCode op, Operand... args) {
 		super(op, args);
 		this.label = label;
 	}
 	
-	@Override 
-	public String toString(){
-		return String.format("%s:     %s", label, super.toString());
+	@Override
+	public void emit(AsmWriter out) throws IOException {
+		out.write(label).write(":     ");
+		super.emit(out);
 	}
 }
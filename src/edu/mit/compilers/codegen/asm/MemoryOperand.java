@@ -0,0 +1,141 @@
+package edu.mit.compilers.codegen.asm;
+
+import edu.mit.compilers.codegen.Reg;
+
+/**
+ * The memory at symbol + base + scale*index + disp, where any part may be
+ * missing, e.g. "[ field2 + 8*R10 ]" or "qword [ RBP - 16 ]". Sized operands
+ * say they're a qword, which nasm needs when nothing else gives the size.
+ * The size doesn't matter to equals(), since everything here is a qword.
+ */
+public class MemoryOperand extends Operand {
+
+	private final String symbol;
+	private final Reg base;
+	private final Reg index;
+	private final int scale;
+	private final long disp;
+	private final boolean sized;
+
+	public MemoryOperand(String symbol, Reg base, Reg index, int scale,
+			long disp, boolean sized) {
+		assert index == null || scale == 1 || scale == 2 || scale == 4
+				|| scale == 8 : scale;
+		this.symbol = symbol;
+		this.base = base;
+		this.index = index;
+		this.scale = index == null ? 0 : scale;
+		this.disp = disp;
+		this.sized = sized;
+	}
+
+	/**
+	 * [ base + disp ]
+	 */
+	public MemoryOperand(Reg base, long disp, boolean sized) {
+		this(null, base, null, 0, disp, sized);
+	}
+
+	/**
+	 * [ symbol + disp ]
+	 */
+	public MemoryOperand(String symbol, long disp) {
+		this(symbol, null, null, 0, disp, false);
+	}
+
+	public String getSymbol() {
+		return symbol;
+	}
+
+	public Reg getBase() {
+		return base;
+	}
+
+	public Reg getIndex() {
+		return index;
+	}
+
+	public int getScale() {
+		return scale;
+	}
+
+	public long getDisplacement() {
+		return disp;
+	}
+
+	public boolean isSized() {
+		return sized;
+	}
+
+	/**
+	 * This address as a qword.
+	 */
+	public MemoryOperand toSized() {
+		return sized ? this : new MemoryOperand(symbol, base, index, scale,
+				disp, true);
+	}
+
+	@Override
+	public boolean uses(Reg reg) {
+		return base == reg || index == reg;
+	}
+
+	@Override
+	public Operand replace(Reg reg, Reg with) {
+		if (!uses(reg)) {
+			return this;
+		}
+		return new MemoryOperand(symbol, base == reg ? with : base,
+				index == reg ? with : index, scale, disp, sized);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof MemoryOperand)) {
+			return false;
+		}
+		MemoryOperand m = (MemoryOperand) o;
+		return base == m.base && index == m.index && scale == m.scale
+				&& disp == m.disp
+				&& (symbol == null ? m.symbol == null : symbol.equals(m.symbol));
+	}
+
+	@Override
+	public int hashCode() {
+		int out = symbol == null ? 0 : symbol.hashCode();
+		out = 31 * out + (base == null ? 0 : base.hashCode());
+		out = 31 * out + (index == null ? 0 : index.hashCode());
+		return 31 * out + (int) disp;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder(sized ? "qword [ " : "[ ");
+		boolean first = true;
+		if (symbol != null) {
+			out.append(symbol);
+			first = false;
+		}
+		if (base != null) {
+			out.append(first ? "" : " + ").append(base.name());
+			first = false;
+		}
+		if (index != null) {
+			out.append(first ? "" : " + ");
+			if (scale != 1) {
+				out.append(scale).append('*');
+			}
+			out.append(index.name());
+			first = false;
+		}
+		if (first) {
+			out.append(disp);
+		} else if (disp > 0) {
+			out.append(" + ").append(disp);
+		} else if (disp < 0) {
+			out.append(" - ").append(-disp);
+		}
+		return out.append(" ]").toString();
+	}
+
+}
@@ -1,18 +1,65 @@
 package edu.mit.compilers.codegen.asm;
 
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import edu.mit.compilers.codegen.Reg;
+
 public class OpASM extends ASM {
 
+	// Write their first operand without reading it.
+	private static final Set<OpCode> WRITE_FIRST = EnumSet.of(OpCode.MOV,
+			OpCode.LEA, OpCode.POP);
+	// Read and write their first operand. The rest only read theirs.
+	private static final Set<OpCode> UPDATE_FIRST = EnumSet.of(OpCode.ADD,
+			OpCode.AND, OpCode.CMOVE, OpCode.CMOVGE, OpCode.CMOVG,
+			OpCode.CMOVLE, OpCode.CMOVL, OpCode.CMOVNE, OpCode.IMUL,
+			OpCode.NEG, OpCode.NOT, OpCode.OR, OpCode.SHL, OpCode.SAR,
+			OpCode.SUB, OpCode.XCHG, OpCode.XOR);
+
+	// Registers that ops read or write without naming them. Calls follow
+	// the System V convention, and RET hands the callee-saved ones back.
+	private static final Map<OpCode, Set<Reg>> IMPLICIT_READS = new EnumMap<OpCode, Set<Reg>>(
+			OpCode.class);
+	private static final Map<OpCode, Set<Reg>> IMPLICIT_WRITES = new EnumMap<OpCode, Set<Reg>>(
+			OpCode.class);
+	static {
+		IMPLICIT_READS.put(OpCode.CQO, EnumSet.of(Reg.RAX));
+		IMPLICIT_WRITES.put(OpCode.CQO, EnumSet.of(Reg.RDX));
+		IMPLICIT_READS.put(OpCode.IDIV, EnumSet.of(Reg.RAX, Reg.RDX));
+		IMPLICIT_WRITES.put(OpCode.IDIV, EnumSet.of(Reg.RAX, Reg.RDX));
+		IMPLICIT_READS.put(OpCode.CALL, EnumSet.of(Reg.RDI, Reg.RSI, Reg.RDX,
+				Reg.RCX, Reg.R8, Reg.R9, Reg.RAX, Reg.RSP));
+		IMPLICIT_WRITES.put(OpCode.CALL, EnumSet.of(Reg.RAX, Reg.RCX,
+				Reg.RDX, Reg.RSI, Reg.RDI, Reg.R8, Reg.R9, Reg.R10, Reg.R11,
+				Reg.RSP));
+		IMPLICIT_READS.put(OpCode.RET, EnumSet.of(Reg.RAX, Reg.RBX, Reg.R12,
+				Reg.R13, Reg.R14, Reg.R15, Reg.RSP, Reg.RBP));
+		IMPLICIT_WRITES.put(OpCode.RET, EnumSet.of(Reg.RSP));
+		for (OpCode op : EnumSet.of(OpCode.PUSH, OpCode.POP)) {
+			IMPLICIT_READS.put(op, EnumSet.of(Reg.RSP));
+			IMPLICIT_WRITES.put(op, EnumSet.of(Reg.RSP));
+		}
+		IMPLICIT_READS.put(OpCode.ENTER, EnumSet.of(Reg.RSP, Reg.RBP));
+		IMPLICIT_WRITES.put(OpCode.ENTER, EnumSet.of(Reg.RSP, Reg.RBP));
+		IMPLICIT_READS.put(OpCode.LEAVE, EnumSet.of(Reg.RBP));
+		IMPLICIT_WRITES.put(OpCode.LEAVE, EnumSet.of(Reg.RSP, Reg.RBP));
+	}
+
 	private String comment;
 	private OpCode op;
-	private String[] args;
+	private Operand[] args;
 
-	public OpASM(String comment, OpCode op, String... args) {
+	public OpASM(String comment, OpCode op, Operand... args) {
 		this.comment = comment;
 		this.op = op;
 		this.args = args;
 	}
 
-	public OpASM(OpCode op, String... args) {
+	public OpASM(OpCode op, Operand... args) {
 		this.comment = "";
 		this.op = op;
 		this.args = args;
@@ -22,9 +69,13 @@ public class OpASM extends ASM {
 		return op;
 	}
 	
-	public String[] getArgs() {
+	public Operand[] getArgs() {
 		return args;
 	}
+
+	public Operand getArg(int i) {
+		return args[i];
+	}
 	
 	public String getComment() {
 		return comment;
@@ -34,20 +85,84 @@ public class OpASM extends ASM {
 		this.comment = comment;
 	}
 
+	/**
+	 * Whether this reads reg, as an operand, in an address or implicitly
+	 * like IDIV reads RAX.
+	 */
+	public boolean reads(Reg reg) {
+		if (isZeroing()) {
+			return false;
+		}
+		Set<Reg> implicit = IMPLICIT_READS.get(op);
+		if (implicit != null && implicit.contains(reg)) {
+			return true;
+		}
+		for (int i = 0; i < args.length; i++) {
+			boolean writeOnly = i == 0 && WRITE_FIRST.contains(op)
+					&& args[0] instanceof RegisterOperand;
+			if (!writeOnly && args[i].uses(reg)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Whether this changes reg.
+	 */
+	public boolean writes(Reg reg) {
+		Set<Reg> implicit = IMPLICIT_WRITES.get(op);
+		if (implicit != null && implicit.contains(reg)) {
+			return true;
+		}
+		if (args.length == 0 || !(args[0] instanceof RegisterOperand)) {
+			return op == OpCode.XCHG && args.length == 2
+					&& args[1] instanceof RegisterOperand && args[1].uses(reg);
+		}
+		boolean first = args[0].uses(reg)
+				&& (WRITE_FIRST.contains(op) || UPDATE_FIRST.contains(op));
+		return first || op == OpCode.XCHG && args[1].uses(reg);
+	}
+
+	/**
+	 * Whether this replaces what was in reg rather than updating it. It may
+	 * still read reg for the new value, like MOV R10, [ R10 ].
+	 */
+	public boolean overwrites(Reg reg) {
+		Set<Reg> implicit = IMPLICIT_WRITES.get(op);
+		if (implicit != null && implicit.contains(reg)) {
+			return !IMPLICIT_READS.get(op).contains(reg);
+		}
+		return args.length > 0 && args[0] instanceof RegisterOperand
+				&& args[0].uses(reg)
+				&& (WRITE_FIRST.contains(op) || isZeroing());
+	}
+
+	// XOR RBX, RBX
+	private boolean isZeroing() {
+		return (op == OpCode.XOR || op == OpCode.SUB) && args.length == 2
+				&& args[0] instanceof RegisterOperand && args[0].equals(args[1]);
+	}
+
 	@Override
-	public String toString() {
-		StringBuilder arguments = new StringBuilder();
-		String prefix = "";
-		for (String a : this.args) {
-			arguments.append(prefix + a);
-			prefix = ", ";
+	public void emit(AsmWriter out) throws IOException {
+		out.write("   ").pad(op.name(), 10).write(' ');
+		// Arguments are padded to 30 columns as a whole.
+		int width = 0;
+		for (int i = 0; i < args.length; i++) {
+			if (i > 0) {
+				out.write(", ");
+				width += 2;
+			}
+			String arg = String.valueOf(args[i]);
+			out.write(arg);
+			width += arg.length();
 		}
+		out.spaces(30 - width);
 		if (comment != "") {
-			return String.format("   %-10s %-30s ; %s\n", op.name(), arguments
-					.toString(), comment);
+			out.write(" ; ").write(comment);
 		}
-		return String.format("   %-10s %-30s\n", op.name(), arguments
-				.toString());
+		out.write('\n');
 	}
 	
 	@Override
@@ -0,0 +1,39 @@
+package edu.mit.compilers.codegen.asm;
+
+import edu.mit.compilers.codegen.Reg;
+
+/**
+ * An operand of an OpASM. Operands are values, equal when they name the same
+ * register, number, label or address, and only become text when emitted.
+ */
+public abstract class Operand {
+
+	public static RegisterOperand reg(Reg reg) {
+		return RegisterOperand.of(reg);
+	}
+
+	public static ImmediateOperand imm(long value) {
+		return new ImmediateOperand(value);
+	}
+
+	public static LabelOperand label(String name) {
+		return new LabelOperand(name);
+	}
+
+	/**
+	 * Whether this operand is reg or reads it to find its address.
+	 */
+	public abstract boolean uses(Reg reg);
+
+	/**
+	 * This operand with every use of reg replaced by with.
+	 */
+	public abstract Operand replace(Reg reg, Reg with);
+
+	/**
+	 * The text nasm reads.
+	 */
+	@Override
+	public abstract String toString();
+
+}
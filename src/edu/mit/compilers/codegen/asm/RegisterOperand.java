@@ -0,0 +1,48 @@
+package edu.mit.compilers.codegen.asm;
+
+import edu.mit.compilers.codegen.Reg;
+
+/**
+ * A register. There's one instance per register, see of().
+ */
+public class RegisterOperand extends Operand {
+
+	private static final RegisterOperand[] INSTANCES = new RegisterOperand[Reg
+			.values().length];
+	static {
+		for (Reg reg : Reg.values()) {
+			INSTANCES[reg.ordinal()] = new RegisterOperand(reg);
+		}
+	}
+
+	private final Reg reg;
+
+	private RegisterOperand(Reg reg) {
+		this.reg = reg;
+	}
+
+	public static RegisterOperand of(Reg reg) {
+		assert reg != null;
+		return INSTANCES[reg.ordinal()];
+	}
+
+	public Reg getRegister() {
+		return reg;
+	}
+
+	@Override
+	public boolean uses(Reg reg) {
+		return this.reg == reg;
+	}
+
+	@Override
+	public Operand replace(Reg reg, Reg with) {
+		return this.reg == reg ? of(with) : this;
+	}
+
+	@Override
+	public String toString() {
+		return reg.name();
+	}
+
+}
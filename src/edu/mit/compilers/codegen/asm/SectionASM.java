@@ -1,5 +1,7 @@
 package edu.mit.compilers.codegen.asm;
 
+import java.io.IOException;
+
 public class SectionASM extends ASM {
 	
 	private String sectionName;
@@ -8,8 +10,9 @@ public class SectionASM extends ASM {
 		this.sectionName = sectionName;
 	}
 	
-	public String toString() {
-		return String.format("\nsection .%s\n", sectionName);
+	@Override
+	public void emit(AsmWriter out) throws IOException {
+		out.write("\nsection .").write(sectionName).write('\n');
 	}
 
 }
@@ -66,8 +66,8 @@ public abstract class MidCallNode extends MidRegisterNode implements
 				needToSaveRegisters.add(r);
 			}
 		}
-		LogCenter.debug("CALL", "APPLIED ALLOCATED MAPPINGS FOR " + getName()
-				+ ": " + needToSaveRegisters);
+		LogCenter.debug("CALL", "APPLIED ALLOCATED MAPPINGS FOR %s: %s",
+				getName(), needToSaveRegisters);
 	}
 
 	@Override
@@ -2,17 +2,20 @@ package edu.mit.compilers.codegen.nodes;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.codegen.InstructionSelector;
+import edu.mit.compilers.codegen.MemoryManager;
 import edu.mit.compilers.codegen.MidNodeList;
 import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.LabelASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.crawler.VarType;
 import edu.mit.compilers.opt.regalloc.RegisterAllocator;
 
@@ -81,18 +84,21 @@ public class MidMethodDeclNode extends MidNode {
 		List<ASM> out = new ArrayList<ASM>();
 
 		out.add(new LabelASM("ENTERING " + this.getName(), this.getName()));
-		out.add(new OpASM(name, OpCode.ENTER, Integer.toString(localStackSize),
-				"0"));
 
-		List<ASM> mainList = nodeList.toASM();
+		List<ASM> mainList = InstructionSelector.select(nodeList);
+		int pushedRegs = 0;
 
-		// Only save items if we're going to return (and not exit) at the end.
-		if (!mainList.isEmpty() && mainList.get(mainList.size() - 1).isRet()) {
+		// Only save items if we're going to return (and not exit).
+		boolean returns = false;
+		for (ASM asm : mainList) {
+			returns |= asm.isRet();
+		}
+		if (returns) {
 			// Save callee-saved registers. Traverse the tree to figure out
 			// which ones we need to save - assume that any ones that we need to
 			// save will be identified in a save node.
 			LogCenter.debug("RA", "Saving callee-saved registers.");
-			Set<Reg> needToSaveRegs = new HashSet<Reg>();
+			Set<Reg> needToSaveRegs = new LinkedHashSet<Reg>();
 			for (MidNode node : nodeList) {
 				if (node instanceof MidSaveNode) {
 					MidSaveNode loadNode = (MidSaveNode) node;
@@ -108,27 +114,43 @@ public class MidMethodDeclNode extends MidNode {
 					}
 				}
 			}
-			LogCenter.debug("RA", "Found " + needToSaveRegs.size()
-					+ " registers to save: " + needToSaveRegs);
+			LogCenter.debug("RA", "Found %s registers to save: %s",
+					needToSaveRegs.size(), needToSaveRegs);
 			// Convert to a list so that it's ordered consistently.
 			List<Reg> orderedSaveRegs = new ArrayList<Reg>(needToSaveRegs);
 			for (Reg reg : orderedSaveRegs) {
-				out.add(new OpASM("Callee-saved", OpCode.PUSH, reg.name()));
+				out.add(new OpASM("Callee-saved", OpCode.PUSH, Operand.reg(reg)));
 			}
-
-			out.addAll(mainList);
+			pushedRegs = orderedSaveRegs.size();
 
 			// Caution, this modifies the original array.
 			Collections.reverse(orderedSaveRegs);
-			for (Reg reg : orderedSaveRegs) {
-				// Insert it right before the last one.
-				out.add(out.size() - 2, new OpASM("Callee-saved", OpCode.POP,
-						reg.name()));
+			// Every return restores them, not just the one at the end.
+			for (ASM asm : mainList) {
+				if (asm.isRet()) {
+					// Right before the LEAVE in front of the RET.
+					ASM leave = out.remove(out.size() - 1);
+					for (Reg reg : orderedSaveRegs) {
+						out.add(new OpASM("Callee-saved", OpCode.POP, Operand
+								.reg(reg)));
+					}
+					out.add(leave);
+				}
+				out.add(asm);
 			}
 		} else {
 			out.addAll(mainList);
 		}
 
+		// The return address and RBP take 16 bytes, so calls are 16-byte
+		// aligned as long as the frame and the callee-saved pushes are.
+		int frameSize = localStackSize;
+		if ((frameSize + pushedRegs * MemoryManager.ADDRESS_SIZE) % 16 != 0) {
+			frameSize += MemoryManager.ADDRESS_SIZE;
+		}
+		out.add(1, new OpASM(name, OpCode.ENTER, Operand.imm(frameSize),
+				Operand.imm(0)));
+
 		return out;
 	}
 }
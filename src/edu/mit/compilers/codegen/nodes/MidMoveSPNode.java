@@ -8,6 +8,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 
 public class MidMoveSPNode extends MidNode {
 	int params;
@@ -18,8 +19,8 @@ public class MidMoveSPNode extends MidNode {
 	@Override
 	public List<ASM> toASM() {
 		List<ASM> out = new ArrayList<ASM>();
-		out.add(new OpASM("Clean up params", OpCode.ADD, Reg.RSP.name(),
-				Integer.toString(params * MemoryManager.ADDRESS_SIZE)));
+		out.add(new OpASM("Clean up params", OpCode.ADD, Operand.reg(Reg.RSP),
+				Operand.imm(params * MemoryManager.ADDRESS_SIZE)));
 		return out;
 	}
 }
\ No newline at end of file
@@ -13,7 +13,38 @@ public abstract class MidNode {
 	private MidNode prevNode;
 	public boolean isOptimization;
 
+	// Number of link edits made by each thread, then of edits to what nodes
+	// read and write. A method's nodes are only ever edited by the thread
+	// optimizing it, so comparing counts tells whether the method changed.
+	private static final ThreadLocal<int[]> editCount = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[2];
+		}
+	};
+
+	public static int getEditCount() {
+		return editCount.get()[0];
+	}
+
+	/**
+	 * Number of operand edits, which change what nodes read or write but
+	 * not the CFG.
+	 */
+	public static int getOperandEditCount() {
+		return editCount.get()[1];
+	}
+
+	/**
+	 * Counts an operand edit, e.g. a load reading another memory node.
+	 * Setters that rewrite operands call it.
+	 */
+	protected static void edited() {
+		editCount.get()[1]++;
+	}
+
 	public void setNextNode(MidNode node) {
+		editCount.get()[0]++;
 		nextNode = node;
 		// Also set a backpointer.
 		if (nextNode != null) {
@@ -7,6 +7,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.regops.MidLoadNode;
 import edu.mit.compilers.codegen.nodes.regops.RegisterOpNode;
 
@@ -27,7 +28,7 @@ public class MidPushNode extends MidNode implements RegisterOpNode {
 		if(this.node != null){
 			r = node.getRegister();
 		}
-		out.add(new OpASM("push param onto stack", OpCode.PUSH, r.name()));
+		out.add(new OpASM("push param onto stack", OpCode.PUSH, Operand.reg(r)));
 		return out;
 	}
 	@Override
@@ -39,6 +40,7 @@ public class MidPushNode extends MidNode implements RegisterOpNode {
 	
 	@Override
 	public void updateLoadNode(MidLoadNode oldNode, MidLoadNode newNode) {
+		edited();
 		node =  newNode;
 	}
 }
@@ -9,6 +9,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.memory.MidMemoryNode;
 import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
 import edu.mit.compilers.opt.meta.Optimizer;
@@ -30,20 +31,19 @@ public class MidReturnNode extends MidNode implements MidUseNode, Allocatable {
 	@Override
 	public List<ASM> toASM() {
 		List<ASM> out = new ArrayList<ASM>();
-		String returnValueLocation;
+		Operand returnValueLocation;
 		if (!allocatedRegs.containsKey(Optimizer.getIterID())) {
 			if (returnValue == null) {
-				returnValueLocation = "0";
+				returnValueLocation = Operand.imm(0);
 			} else {
-				returnValueLocation = returnValue
-						.getFormattedLocationReference();
+				returnValueLocation = returnValue.getLocationOperand();
 			}
 		} else {
-			returnValueLocation = allocatedRegs.get(Optimizer.getIterID())
-					.name();
+			returnValueLocation = Operand.reg(allocatedRegs.get(Optimizer
+					.getIterID()));
 		}
-		out.add(new OpASM("Setting return value", OpCode.MOV, Reg.RAX.name(),
-				returnValueLocation));
+		out.add(new OpASM("Setting return value", OpCode.MOV, Operand
+				.reg(Reg.RAX), returnValueLocation));
 		out.add(new OpASM(OpCode.LEAVE));
 		out.add(new OpASM(OpCode.RET));
 		return out;
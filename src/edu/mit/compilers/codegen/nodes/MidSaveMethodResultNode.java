@@ -7,6 +7,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 
 public class MidSaveMethodResultNode extends MidNode {
 	MidCallNode node;
@@ -18,7 +19,7 @@ public class MidSaveMethodResultNode extends MidNode {
 	public List<ASM> toASM() {
 		List<ASM> out = new ArrayList<ASM>();
 		out.add(new OpASM("Saving results of " + node.getName(), OpCode.MOV,
-				node.getRegister().name(), Reg.RAX.name()));
+				Operand.reg(node.getRegister()), Operand.reg(Reg.RAX)));
 		return out;
 	}
 }
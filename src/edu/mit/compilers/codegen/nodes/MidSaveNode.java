@@ -5,12 +5,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import edu.mit.compilers.codegen.MemoryManager;
 import edu.mit.compilers.codegen.MidNodeList;
 import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.memory.ArrayReferenceNode;
 import edu.mit.compilers.codegen.nodes.memory.MidArrayElementNode;
 import edu.mit.compilers.codegen.nodes.memory.MidConstantNode;
@@ -131,6 +131,15 @@ public class MidSaveNode extends MidNode implements RegisterOpNode,
 		return this.destination;
 	}
 
+	/**
+	 * Writes another memory node instead, see MidLoadNode.setMemoryNode().
+	 */
+	public void setDestinationNode(MidMemoryNode destination) {
+		assert destination != null;
+		edited();
+		this.destination = destination;
+	}
+
 	public String toString() {
 		String className = getClass().getName();
 		int mid = className.lastIndexOf('.') + 1;
@@ -161,41 +170,45 @@ public class MidSaveNode extends MidNode implements RegisterOpNode,
 		return out;
 	}
 
-	@Override
-	public List<ASM> toASM() {
-
-		List<ASM> out = new ArrayList<ASM>();
-
-		String rightOperand;
+	/**
+	 * The value that's saved: a register or a constant.
+	 */
+	public Operand getSourceOperand() {
 		switch (saveType) {
 		case REGISTER:
-			rightOperand = registerNode.getRegister().name();
-			break;
+			return Operand.reg(registerNode.getRegister());
 		case INT:
-			rightOperand = Long.toString(decafIntValue);
-			break;
+			return Operand.imm(decafIntValue);
 		case BOOLEAN:
-			rightOperand = ((decafBooleanValue) ? "1" : "0");
-			break;
+			return Operand.imm(decafBooleanValue ? 1 : 0);
 		default:
-			rightOperand = null;
 			assert false : "invalid saveType";
+			return null;
 		}
+	}
 
-		String comment = (isOptimization ? "[OPT] " : "") + toString();
-		String destinationString;
+	/**
+	 * Where the value is saved to.
+	 */
+	public Operand getDestinationOperand() {
 		if (!allocatedRegs.containsKey(Optimizer.getIterID())) {
-			destinationString = destination.getFormattedLocationReference();
-		} else {
-			destinationString = allocatedRegs.get(Optimizer.getIterID()).name();
+			return destination.getLocationOperand();
 		}
-		out.add(new OpASM(comment, OpCode.MOV, destinationString, rightOperand));
+		return Operand.reg(allocatedRegs.get(Optimizer.getIterID()));
+	}
 
+	@Override
+	public List<ASM> toASM() {
+		List<ASM> out = new ArrayList<ASM>();
+		String comment = (isOptimization ? "[OPT] " : "") + toString();
+		out.add(new OpASM(comment, OpCode.MOV, getDestinationOperand(),
+				getSourceOperand()));
 		return out;
 	}
 
 	@Override
 	public void updateLoadNode(MidLoadNode oldNode, MidLoadNode newNode) {
+		edited();
 		registerNode = newNode;
 	}
 
@@ -204,8 +217,7 @@ public class MidSaveNode extends MidNode implements RegisterOpNode,
 		List<Reg> out = new ArrayList<Reg>();
 		if (registerNode != null) {
 			assert registerNode.getRegister() != null : registerNode + " "
-					+ registerNode.hashCode() + " -> " + MemoryManager.temp
-					+ " " + MemoryManager.temp.hashCode();
+					+ registerNode.hashCode() + " -> " + this;
 			out.add(registerNode.getRegister());
 		}
 		return out;
@@ -7,6 +7,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 
 public class MidZeroRegNode extends MidNode {
 	Reg r;
@@ -17,7 +18,7 @@ public class MidZeroRegNode extends MidNode {
 	@Override
 	public List<ASM> toASM() {
 		List<ASM> out = new ArrayList<ASM>();
-		out.add(new OpASM(OpCode.XOR, r.name(), r.name()));
+		out.add(new OpASM(OpCode.XOR, Operand.reg(r), Operand.reg(r)));
 		return out;
 	}
 }
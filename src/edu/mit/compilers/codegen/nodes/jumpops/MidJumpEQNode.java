@@ -22,4 +22,8 @@ public class MidJumpEQNode extends MidJumpNode {
 		return true;
 	}
 	
+	@Override
+	public MidJumpNode invert(MidLabelNode label) {
+		return new MidJumpNENode(label);
+	}
 }
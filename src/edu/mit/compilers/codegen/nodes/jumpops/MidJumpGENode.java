@@ -21,4 +21,9 @@ public class MidJumpGENode extends MidJumpNode {
 	public boolean isConditional() {
 		return true;
 	}
+
+	@Override
+	public MidJumpNode invert(MidLabelNode label) {
+		return new MidJumpLNode(label);
+	}
 }
@@ -22,4 +22,8 @@ public class MidJumpGNode extends MidJumpNode {
 		return true;
 	}
 
+	@Override
+	public MidJumpNode invert(MidLabelNode label) {
+		return new MidJumpLENode(label);
+	}
 }
@@ -21,4 +21,9 @@ public class MidJumpLENode extends MidJumpNode {
 	public boolean isConditional() {
 		return true;
 	}
+
+	@Override
+	public MidJumpNode invert(MidLabelNode label) {
+		return new MidJumpGNode(label);
+	}
 }
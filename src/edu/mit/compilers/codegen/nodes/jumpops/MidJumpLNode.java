@@ -22,4 +22,8 @@ public class MidJumpLNode extends MidJumpNode {
 		return true;
 	}
 
+	@Override
+	public MidJumpNode invert(MidLabelNode label) {
+		return new MidJumpGENode(label);
+	}
 }
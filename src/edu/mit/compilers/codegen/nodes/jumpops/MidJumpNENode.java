@@ -21,4 +21,9 @@ public class MidJumpNENode extends MidJumpNode {
 	public boolean isConditional() {
 		return true;
 	}
+
+	@Override
+	public MidJumpNode invert(MidLabelNode label) {
+		return new MidJumpEQNode(label);
+	}
 }
@@ -6,6 +6,7 @@ import java.util.List;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.MidLabelNode;
 import edu.mit.compilers.codegen.nodes.MidNode;
 
@@ -31,7 +32,8 @@ public class MidJumpNode extends MidNode {
 	
 	public List<ASM> toASM(OpCode op) {
 		List<ASM> out = new ArrayList<ASM>();
-		out.add(new OpASM(toString(), op, this.getLabelNode().getName()));
+		out.add(new OpASM(toString(), op, Operand.label(this
+				.getLabelNode().getName())));
 		return out;
 	}
 	
@@ -43,5 +45,13 @@ public class MidJumpNode extends MidNode {
 	public boolean isConditional() {
 		return false;
 	}
+
+	/**
+	 * A jump to label that's taken exactly when this one isn't, or null if
+	 * this one is unconditional.
+	 */
+	public MidJumpNode invert(MidLabelNode label) {
+		return null;
+	}
 	
 }
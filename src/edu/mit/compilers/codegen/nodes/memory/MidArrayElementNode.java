@@ -3,6 +3,8 @@ package edu.mit.compilers.codegen.nodes.memory;
 import edu.mit.compilers.LogCenter;
 import edu.mit.compilers.codegen.MemoryManager;
 import edu.mit.compilers.codegen.Reg;
+import edu.mit.compilers.codegen.asm.MemoryOperand;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.regops.MidLoadNode;
 
 /**
@@ -30,16 +32,14 @@ public class MidArrayElementNode extends MidMemoryNode {
 	}
 
 	@Override
-	public String getFormattedLocationReference() {
-		String memoryLocation;
+	public Operand getLocationOperand() {
+		String array = arrayNode.getRawLocationReference();
 		if (constantNode == null) {
-			memoryLocation = loadNode.getRegister().name();
-		} else {
-			memoryLocation = constantNode.getFormattedLocationReference();
+			return new MemoryOperand(array, null, loadNode.getRegister(),
+					MemoryManager.ADDRESS_SIZE, 0, false);
 		}
-		return String.format("[ %s + %d*%s ]",
-				arrayNode.getRawLocationReference(),
-				MemoryManager.ADDRESS_SIZE, memoryLocation);
+		return new MemoryOperand(array, MemoryManager.ADDRESS_SIZE
+				* constantNode.getConstant());
 	}
 
 	public MidLoadNode getLoadNode() {
@@ -55,10 +55,19 @@ public class MidArrayElementNode extends MidMemoryNode {
 	}
 
 	public void setConstantNode(MidConstantNode constantNode) {
-		LogCenter.debug("CPJ", "Setting array constant node: " + constantNode);
+		LogCenter.debug("CPJ", "Setting array constant node: %s", constantNode);
+		edited();
 		this.constantNode = constantNode;
 	}
 
+	/**
+	 * The index, once it's known to be a constant.
+	 */
+	public long getConstantIndex() {
+		assert isConstant();
+		return constantNode.getConstant();
+	}
+
 	@Override
 	public boolean isConstant() {
 		return constantNode != null;
@@ -1,5 +1,7 @@
 package edu.mit.compilers.codegen.nodes.memory;
 
+import edu.mit.compilers.codegen.asm.Operand;
+
 /**
  * A wrapper class that lets constant propagation refer to constants as
  * "memory nodes" like on other definitions.
@@ -19,8 +21,8 @@ public class MidConstantNode extends MidMemoryNode {
 	}
 
 	@Override
-	public String getFormattedLocationReference() {
-		return Long.toString(value);
+	public Operand getLocationOperand() {
+		return Operand.imm(value);
 	}
 
 	@Override
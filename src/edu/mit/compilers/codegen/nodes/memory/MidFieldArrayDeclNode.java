@@ -1,5 +1,6 @@
 package edu.mit.compilers.codegen.nodes.memory;
 
+import edu.mit.compilers.codegen.asm.Operand;
 
 
 public class MidFieldArrayDeclNode extends MidFieldDeclNode {
@@ -19,7 +20,7 @@ public class MidFieldArrayDeclNode extends MidFieldDeclNode {
 	 */
 	
 	@Override
-	public String getFormattedLocationReference(){
+	public Operand getLocationOperand(){
 		assert false : "Arrays are accessed by element: " + this;
 		return null;
 	}
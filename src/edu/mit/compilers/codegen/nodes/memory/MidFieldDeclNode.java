@@ -1,8 +1,10 @@
 package edu.mit.compilers.codegen.nodes.memory;
 
 import edu.mit.compilers.codegen.asm.LabelASM;
+import edu.mit.compilers.codegen.asm.MemoryOperand;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 
 public class MidFieldDeclNode extends MidMemoryNode {
 
@@ -22,7 +24,8 @@ public class MidFieldDeclNode extends MidMemoryNode {
 		return new OpASM(
 				String.format("placeholder for `%s`", getName()),
 				OpCode.TIMES,
-				String.format("%d %s %d", getSize() * FIELD_SIZE, OpCode.DW, FIELD_DEFAULT));
+				Operand.label(String.format("%d %s %d", getSize() * FIELD_SIZE,
+						OpCode.DW, FIELD_DEFAULT)));
 	}
 
 	/**
@@ -30,10 +33,10 @@ public class MidFieldDeclNode extends MidMemoryNode {
 	 */
 
 	@Override
-	public String getFormattedLocationReference() {
+	public Operand getLocationOperand() {
 		assert rawLocationReference != null : "rawLocationReference is null!";
-		// Adding brackets evaluates to the _data at that address_
-		return String.format("[ %s ]", rawLocationReference);
+		// The data at that address, not the address.
+		return new MemoryOperand(rawLocationReference, 0);
 	}
 
 	public long getSize() {
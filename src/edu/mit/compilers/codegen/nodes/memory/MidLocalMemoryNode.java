@@ -5,6 +5,8 @@ import java.util.List;
 
 import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
+import edu.mit.compilers.codegen.asm.MemoryOperand;
+import edu.mit.compilers.codegen.asm.Operand;
 
 /**
  * Represents memory on the stack that would be deallocated after a method.
@@ -16,10 +18,11 @@ abstract public class MidLocalMemoryNode extends MidMemoryNode {
 	}
 	
 	@Override
-	public String getFormattedLocationReference() {
+	public Operand getLocationOperand() {
 		assert rawLocationReference != null : this;
 		// qword gives it 64 bits.
-		return String.format("qword [ %s - %s ]", Reg.RBP.name(), rawLocationReference);
+		return new MemoryOperand(Reg.RBP, -Long.parseLong(rawLocationReference),
+				true);
 	}
 	
 	@Override
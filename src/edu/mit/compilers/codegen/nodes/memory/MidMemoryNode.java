@@ -1,6 +1,7 @@
 package edu.mit.compilers.codegen.nodes.memory;
 
 import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.MidNode;
 
 abstract public class MidMemoryNode extends MidNode {
@@ -37,8 +38,8 @@ abstract public class MidMemoryNode extends MidNode {
 //				+ rawLocationReference
 //				+ " but it's already "
 //				+ this.rawLocationReference;
-		LogCenter.debug("MEM", "Raw location reference set to "
-				+ rawLocationReference);
+		LogCenter.debug("MEM", "Raw location reference set to %s",
+				rawLocationReference);
 		this.rawLocationReference = rawLocationReference;
 	}
 
@@ -47,9 +48,9 @@ abstract public class MidMemoryNode extends MidNode {
 	}
 
 	/**
-	 * Returns location reference, formatted if necessary.
+	 * Returns the operand instructions use to reach this memory.
 	 */
-	abstract public String getFormattedLocationReference();
+	abstract public Operand getLocationOperand();
 
 	public String toString() {
 		String className = getClass().getName();
@@ -58,6 +59,7 @@ abstract public class MidMemoryNode extends MidNode {
 	}
 
 	public void setConstantValue(long decafIntValue) {
+		edited();
 		this.constantValue = decafIntValue;
 		this.isConstant = true;
 	}
@@ -7,8 +7,10 @@ import edu.mit.compilers.codegen.AsmVisitor;
 import edu.mit.compilers.codegen.MemoryManager;
 import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
+import edu.mit.compilers.codegen.asm.MemoryOperand;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 
 public class MidParamDeclNode extends MidLocalMemoryNode {
 	
@@ -21,7 +23,7 @@ public class MidParamDeclNode extends MidLocalMemoryNode {
 
 	/*
 	@Override
-	public String getFormattedLocationReference() {
+	public Operand getLocationOperand() {
 		return AsmVisitor.paramAccess(paramOffset);
 	}
 	*/
@@ -32,13 +34,14 @@ public class MidParamDeclNode extends MidLocalMemoryNode {
 		ArrayList<ASM> out = new ArrayList<ASM>();
 		if (paramOffset < AsmVisitor.paramRegisters.length) {
 			//return paramRegisters[paramOffset].name();
-			out.add(new OpASM("Load param into stack here", OpCode.MOV, getFormattedLocationReference(), AsmVisitor.paramRegisters[paramOffset].name()));
+			out.add(new OpASM("Load param into stack here", OpCode.MOV, getLocationOperand(), Operand.reg(AsmVisitor.paramRegisters[paramOffset])));
 		} else {
 			//NOTE: We assume that this is done at top -> r10, r11 empty
-			out.add(new OpASM("Load stack param into register here", OpCode.MOV, Reg.R10.name(), String.format("[ %s + %d*%d + %d]", Reg.RBP,
-					(paramOffset - AsmVisitor.paramRegisters.length),
-					MemoryManager.ADDRESS_SIZE, MemoryManager.ADDRESS_SIZE * 2)));
-			out.add(new OpASM("Load temp reg into stack here", OpCode.MOV, getFormattedLocationReference(), Reg.R10.name()));
+			// Past the saved RBP and the return address.
+			out.add(new OpASM("Load stack param into register here", OpCode.MOV, Operand.reg(Reg.R10), new MemoryOperand(Reg.RBP,
+					(paramOffset - AsmVisitor.paramRegisters.length)
+							* MemoryManager.ADDRESS_SIZE + MemoryManager.ADDRESS_SIZE * 2, false)));
+			out.add(new OpASM("Load temp reg into stack here", OpCode.MOV, getLocationOperand(), Operand.reg(Reg.R10)));
 		}
 		
 		return out;
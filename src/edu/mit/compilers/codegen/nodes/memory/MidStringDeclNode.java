@@ -1,5 +1,7 @@
 package edu.mit.compilers.codegen.nodes.memory;
 
+import edu.mit.compilers.codegen.asm.Operand;
+
 /**
  * Same as MidFielDeclNode, except since strings are referred to by pointer the
  * memory location is not evaluated, i.e. not wrapped in brackets.
@@ -14,9 +16,9 @@ public class MidStringDeclNode extends MidFieldDeclNode {
 	 * Get the location reference. Returns reference to pointer, not data.
 	 */
 	@Override
-	public String getFormattedLocationReference() {
+	public Operand getLocationOperand() {
 		assert rawLocationReference != null : "rawLocationReference is null!";
-		return rawLocationReference;
+		return Operand.label(rawLocationReference);
 	}
 
 }
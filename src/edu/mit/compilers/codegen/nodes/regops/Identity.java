@@ -55,8 +55,10 @@ public class Identity {
 		MidMemoryNode rightMemNode = binaryNode.getRightOperand()
 				.getMemoryNode();
 		
-		LogCenter.debug("MAS", "Left is constant? "+leftMemNode.isConstant());
-		LogCenter.debug("MAS", "Right is constant? "+rightMemNode.isConstant());
+		LogCenter.debug("MAS", "Left is constant? %s",
+				leftMemNode.isConstant());
+		LogCenter.debug("MAS", "Right is constant? %s",
+				rightMemNode.isConstant());
 		
 		if(type == IdType.LEFT || type == IdType.BOTH){
 			if(leftMemNode.isConstant() && leftMemNode.getConstant() == inValue){
@@ -7,6 +7,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 
 public abstract class MidBinaryRegNode extends MidRegisterNode implements RegisterOpNode {
 
@@ -48,8 +49,8 @@ public abstract class MidBinaryRegNode extends MidRegisterNode implements Regist
 	
 	public List<ASM> toASM(OpCode op) {
 		List<ASM> out = new ArrayList<ASM>();
-		out.add(new OpASM(toString(), op, this.getLeftOperand().getRegister().name(),
-				this.getRightOperand().getRegister().name()));
+		out.add(new OpASM(toString(), op, Operand.reg(this.getLeftOperand()
+				.getRegister()), Operand.reg(this.getRightOperand().getRegister())));
 		return out;
 	}
 		
@@ -64,6 +65,7 @@ public abstract class MidBinaryRegNode extends MidRegisterNode implements Regist
 	@Override
 	public void updateLoadNode(MidLoadNode oldNode,
 			MidLoadNode newNode) {
+		edited();
 		if (oldNode == leftOperand) {
 			leftOperand = newNode;
 		}
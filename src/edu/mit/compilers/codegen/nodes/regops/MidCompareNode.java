@@ -7,6 +7,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.MidNode;
 
 public class MidCompareNode extends MidNode implements RegisterOpNode {
@@ -23,10 +24,18 @@ public class MidCompareNode extends MidNode implements RegisterOpNode {
 		rightOperand.recordRegisterOp(this);
 	}
 
+	public MidRegisterNode getLeftOperand() {
+		return leftOperand;
+	}
+
+	public MidRegisterNode getRightOperand() {
+		return rightOperand;
+	}
+
 	public List<ASM> toASM() {
 		List<ASM> out = new ArrayList<ASM>();
-		out.add(new OpASM(toString(), OpCode.CMP, leftOperand.getRegister()
-				.name(), rightOperand.getRegister().name()));
+		out.add(new OpASM(toString(), OpCode.CMP, Operand.reg(leftOperand
+				.getRegister()), Operand.reg(rightOperand.getRegister())));
 		return out;
 	}
 
@@ -53,6 +62,7 @@ public class MidCompareNode extends MidNode implements RegisterOpNode {
 
 	@Override
 	public void updateLoadNode(MidLoadNode oldNode, MidLoadNode newNode) {
+		edited();
 		if (oldNode == leftOperand) {
 			leftOperand = newNode;
 		}
@@ -7,6 +7,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.opt.regalloc.nodes.MidRDXOverwriter;
 
 public class MidDivideNode extends MidRDXOverwriter {
@@ -20,19 +21,19 @@ public class MidDivideNode extends MidRDXOverwriter {
 		List<ASM> out = new ArrayList<ASM>();
 		// a/b -> a is dividend, b is divisor (i always forget :[)
 		if (shouldPreserveRDX()) {
-			out.add(new OpASM(toString() + " (save)", OpCode.PUSH, Reg.RDX
-					.name()));
+			out.add(new OpASM(toString() + " (save)", OpCode.PUSH, Operand
+					.reg(Reg.RDX)));
 		}
-		out.add(new OpASM(toString(), OpCode.MOV, Reg.RAX.name(), this
-				.getLeftOperand().getRegister().name()));
+		out.add(new OpASM(toString(), OpCode.MOV, Operand.reg(Reg.RAX),
+				Operand.reg(this.getLeftOperand().getRegister())));
 		out.add(new OpASM(toString(), OpCode.CQO));
-		out.add(new OpASM(toString(), OpCode.IDIV, this.getRightOperand()
-				.getRegister().name()));
-		out.add(new OpASM(toString(), OpCode.MOV, this.getRegister().name(),
-				Reg.RAX.name()));
+		out.add(new OpASM(toString(), OpCode.IDIV, Operand.reg(this
+				.getRightOperand().getRegister())));
+		out.add(new OpASM(toString(), OpCode.MOV, Operand.reg(this
+				.getRegister()), Operand.reg(Reg.RAX)));
 		if (shouldPreserveRDX()) {
-			out.add(new OpASM(toString() + " (restore)", OpCode.POP, Reg.RDX
-					.name()));
+			out.add(new OpASM(toString() + " (restore)", OpCode.POP, Operand
+					.reg(Reg.RDX)));
 		}
 		return out;
 	}
@@ -9,6 +9,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.memory.ArrayReferenceNode;
 import edu.mit.compilers.codegen.nodes.memory.MidArrayElementNode;
 import edu.mit.compilers.codegen.nodes.memory.MidFieldArrayDeclNode;
@@ -58,18 +59,23 @@ public class MidLoadNode extends MidRegisterNode implements ArrayReferenceNode,
 				+ hashCode() + " [style=dotted,color=orange];\n";
 	}
 
+	/**
+	 * Where the value is loaded from.
+	 */
+	public Operand getSourceOperand() {
+		if (!allocatedRegs.containsKey(Optimizer.getIterID())) {
+			return memoryNode.getLocationOperand();
+		}
+		// If the load node has instead been given a register, load from
+		// that instead.
+		return Operand.reg(allocatedRegs.get(Optimizer.getIterID()));
+	}
+
 	@Override
 	public List<ASM> toASM() {
 		List<ASM> out = new ArrayList<ASM>();
-		if (!allocatedRegs.containsKey(Optimizer.getIterID())) {
-			out.add(new OpASM(toString(), OpCode.MOV, getRegister().name(),
-					memoryNode.getFormattedLocationReference()));
-		} else {
-			// If the load node has instead been given a register, load from
-			// that instead.
-			out.add(new OpASM(toString(), OpCode.MOV, getRegister().name(),
-					allocatedRegs.get(Optimizer.getIterID()).name()));
-		}
+		out.add(new OpASM(toString(), OpCode.MOV, Operand.reg(getRegister()),
+				getSourceOperand()));
 		return out;
 	}
 
@@ -98,6 +104,7 @@ public class MidLoadNode extends MidRegisterNode implements ArrayReferenceNode,
 	public void updateMemoryNode(MidMemoryNode tempReplacement,
 			boolean isOptimization) {
 		assert tempReplacement != null : tempReplacement + " is null.";
+		edited();
 		oldMemoryNode = memoryNode;
 		memoryNode = tempReplacement;
 		if (isOptimization) {
@@ -105,6 +112,17 @@ public class MidLoadNode extends MidRegisterNode implements ArrayReferenceNode,
 		}
 	}
 
+	/**
+	 * Reads another memory node holding the same value. Unlike
+	 * updateMemoryNode() this doesn't remember the old one, so it can be
+	 * undone by setting the old node back.
+	 */
+	public void setMemoryNode(MidMemoryNode memoryNode) {
+		assert memoryNode != null;
+		edited();
+		this.memoryNode = memoryNode;
+	}
+
 	@Override
 	public void allocateRegister(Reg allocatedReg) {
 		allocatedRegs.put(Optimizer.getIterID(), allocatedReg);
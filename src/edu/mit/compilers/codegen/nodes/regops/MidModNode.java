@@ -7,6 +7,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.opt.regalloc.nodes.MidRDXOverwriter;
 
 public class MidModNode extends MidRDXOverwriter {
@@ -19,23 +20,21 @@ public class MidModNode extends MidRDXOverwriter {
 	public List<ASM> toASM() {
 		List<ASM> out = new ArrayList<ASM>();
 		// a/b -> a is dividend, b is divisor (i always forget :[)
-		String RDX = Reg.RDX.name();
-		String RAX = Reg.RAX.name();
+		Operand RDX = Operand.reg(Reg.RDX);
+		Operand RAX = Operand.reg(Reg.RAX);
 		if (shouldPreserveRDX()) {
 			// RDX is overwritten, so we need to save / restore it.
-			out.add(new OpASM(toString() + " (save)", OpCode.PUSH, Reg.RDX
-					.name()));
+			out.add(new OpASM(toString() + " (save)", OpCode.PUSH, RDX));
 		}
-		out.add(new OpASM(toString(), OpCode.MOV, RAX, this.getLeftOperand()
-				.getRegister().name()));
+		out.add(new OpASM(toString(), OpCode.MOV, RAX, Operand.reg(this
+				.getLeftOperand().getRegister())));
 		out.add(new OpASM(toString(), OpCode.CQO));
-		out.add(new OpASM(toString(), OpCode.IDIV, this.getRightOperand()
-				.getRegister().name()));
-		out.add(new OpASM(toString(), OpCode.MOV, this.getRegister().name(),
-				RDX));
+		out.add(new OpASM(toString(), OpCode.IDIV, Operand.reg(this
+				.getRightOperand().getRegister())));
+		out.add(new OpASM(toString(), OpCode.MOV, Operand.reg(this
+				.getRegister()), RDX));
 		if (shouldPreserveRDX()) {
-			out.add(new OpASM(toString() + " (restore)", OpCode.POP, Reg.RDX
-					.name()));
+			out.add(new OpASM(toString() + " (restore)", OpCode.POP, RDX));
 		}
 		return out;
 	}
@@ -6,8 +6,10 @@ import java.util.List;
 import edu.mit.compilers.LogCenter;
 import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
+import edu.mit.compilers.codegen.asm.MemoryOperand;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.memory.MidMemoryNode;
 import edu.mit.compilers.opt.regalloc.nodes.MidPreserveParamsNode;
 
@@ -38,10 +40,10 @@ public class MidParamLoadNode extends MidLoadNode {
 			out = new ArrayList<ASM>();
 			out.add(new OpASM(String
 					.format("Phew, reg was saved for us. (%s <- %s)", destReg
-							.name(), fromReg.name()), OpCode.MOV, destReg
-					.name(), String.format("qword [ RSP + %d ]", preserveNode
-					.getOffset())));
-			LogCenter.debug("JM", "Requesting we shift offset (" + this + ")");
+							.name(), fromReg.name()), OpCode.MOV, Operand
+					.reg(destReg), new MemoryOperand(Reg.RSP, preserveNode
+					.getOffset(), true)));
+			LogCenter.debug("JM", "Requesting we shift offset (%s)", this);
 			preserveNode.shiftOffset();
 		} else {
 			out = super.toASM();
@@ -50,7 +52,7 @@ public class MidParamLoadNode extends MidLoadNode {
 		if (destRegIndex == -1) {
 			// We'll be pushing to the stack, so we need to adjust the stack
 			// offset for preserved params.
-			LogCenter.debug("JM", "Requesting we shift offset (" + this + ")");
+			LogCenter.debug("JM", "Requesting we shift offset (%s)", this);
 			preserveNode.shiftOffset();
 		}
 		return out;
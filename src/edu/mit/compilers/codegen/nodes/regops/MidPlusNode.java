@@ -25,7 +25,7 @@ public class MidPlusNode extends MidArithmeticNode {
 
 	@Override
 	public long applyOperation(long left, long right) {
-		LogCenter.debug("MAS",String.format("%d + %d = %d", left, right, left+right));
+		LogCenter.debug("MAS", "%d + %d = %d", left, right, left+right);
 		return left + right;
 	}
 	
@@ -7,6 +7,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 
 public abstract class MidUnaryRegNode extends MidRegisterNode implements
 		RegisterOpNode {
@@ -37,13 +38,14 @@ public abstract class MidUnaryRegNode extends MidRegisterNode implements
 
 	public List<ASM> toASM(OpCode op) {
 		List<ASM> out = new ArrayList<ASM>();
-		out.add(new OpASM(toString(), op, this.getOperand().getRegister()
-				.name()));
+		out.add(new OpASM(toString(), op, Operand.reg(this.getOperand()
+				.getRegister())));
 		return out;
 	}
 
 	@Override
 	public void updateLoadNode(MidLoadNode oldNode, MidLoadNode newNode) {
+		edited();
 		operand = newNode;
 	}
 	
@@ -212,7 +212,7 @@ public abstract class DecafNode extends CommonAST {
 		LogCenter
 				.debug("FU", "Deep copying " + n + " ( " + n.hashCode() + " )");
 		try {
-			LogCenter.debug("FU", "Node class is " + n.getClass());
+			LogCenter.debug("FU", "Node class is %s", n.getClass());
 			DecafNode copyNode = n.getClass().getConstructor().newInstance();
 			copyNode.setText(n.getText());
 
@@ -246,7 +246,7 @@ public abstract class DecafNode extends CommonAST {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		} catch (NoSuchMethodException e) {
-			LogCenter.debug("FU", "OOPS! " + n);
+			LogCenter.debug("FU", "OOPS! %s", n);
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
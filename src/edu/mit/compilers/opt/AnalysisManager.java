@@ -0,0 +1,190 @@
+package edu.mit.compilers.opt;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.codegen.nodes.MidMethodDeclNode;
+import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.opt.cm.DomState;
+import edu.mit.compilers.opt.cm.DomTransfer;
+import edu.mit.compilers.opt.cm.DominanceRecord;
+import edu.mit.compilers.opt.cm.LoopGenerator;
+import edu.mit.compilers.opt.profile.BlockCounts;
+import edu.mit.compilers.opt.regalloc.LivenessDoctor;
+import edu.mit.compilers.opt.regalloc.LivenessState;
+
+/**
+ * Caches the CFG and the analyses built on top of it for a single method, so
+ * passes that don't touch the method don't pay for recomputing them.
+ *
+ * A cached analysis is thrown away as soon as the method's nodes are edited
+ * (see MidNode.getEditCount()), unless the pass that made the edit says it
+ * preserves it with transformed(). Edits that only rewrite operands (see
+ * MidNode.getOperandEditCount()) leave the CFG, dominance and loops alone
+ * and throw away liveness.
+ */
+public class AnalysisManager {
+
+	public enum Analysis {
+		CFG, DOMINANCE, LOOPS, LIVENESS;
+	}
+
+	private final String methodName;
+	private final MidMethodDeclNode method;
+
+	// Edit counts the cached analyses were computed (or last preserved) at.
+	private int editCount;
+	private int operandEditCount;
+
+	private List<Block> blocks;
+	private DominanceRecord dominanceRecord;
+	private LoopGenerator loops;
+	private LivenessDoctor doctor;
+	private BackwardsAnalyzer<LivenessState, LivenessDoctor> liveness;
+	// Not derived from the method, so edits never drop it.
+	private BlockCounts blockCounts;
+
+	public AnalysisManager(String methodName, MidMethodDeclNode method) {
+		this.methodName = methodName;
+		this.method = method;
+		this.editCount = MidNode.getEditCount();
+		this.operandEditCount = MidNode.getOperandEditCount();
+	}
+
+	public String getMethodName() {
+		return methodName;
+	}
+
+	public MidMethodDeclNode getMethod() {
+		return method;
+	}
+
+	/**
+	 * Profiled block counts, or null if the method wasn't profiled.
+	 */
+	public BlockCounts getBlockCounts() {
+		return blockCounts;
+	}
+
+	public void setBlockCounts(BlockCounts blockCounts) {
+		this.blockCounts = blockCounts;
+	}
+
+	/**
+	 * Called after a pass has run on the method. If the pass edited the
+	 * method, every cached analysis not listed in preserved is dropped.
+	 */
+	public void transformed(Analysis... preserved) {
+		if (!isEdited()) {
+			return;
+		}
+		EnumSet<Analysis> kept = EnumSet.noneOf(Analysis.class);
+		for (Analysis a : preserved) {
+			kept.add(a);
+		}
+		if (MidNode.getEditCount() == editCount) {
+			kept.addAll(EnumSet.of(Analysis.CFG, Analysis.DOMINANCE,
+					Analysis.LOOPS));
+		}
+		invalidate(EnumSet.complementOf(kept));
+		editCount = MidNode.getEditCount();
+		operandEditCount = MidNode.getOperandEditCount();
+	}
+
+	private boolean isEdited() {
+		return MidNode.getEditCount() != editCount
+				|| MidNode.getOperandEditCount() != operandEditCount;
+	}
+
+	private void invalidate(Set<Analysis> analyses) {
+		LogCenter.debug("AM", "%s: invalidating %s", methodName, analyses);
+		// Everything else is built on top of the CFG.
+		if (analyses.contains(Analysis.CFG)) {
+			blocks = null;
+			dominanceRecord = null;
+			loops = null;
+			doctor = null;
+			liveness = null;
+			return;
+		}
+		if (analyses.contains(Analysis.DOMINANCE)) {
+			dominanceRecord = null;
+			loops = null;
+		}
+		if (analyses.contains(Analysis.LOOPS)) {
+			loops = null;
+		}
+		if (analyses.contains(Analysis.LIVENESS)) {
+			doctor = null;
+			liveness = null;
+		}
+	}
+
+	/**
+	 * Anything edited without going through transformed() invalidates
+	 * everything it can have changed.
+	 */
+	private void checkEdits() {
+		if (MidNode.getEditCount() != editCount) {
+			invalidate(EnumSet.allOf(Analysis.class));
+		} else if (MidNode.getOperandEditCount() != operandEditCount) {
+			invalidate(EnumSet.of(Analysis.LIVENESS));
+		}
+		editCount = MidNode.getEditCount();
+		operandEditCount = MidNode.getOperandEditCount();
+	}
+
+	public List<Block> getBlocks() {
+		checkEdits();
+		if (blocks == null) {
+			blocks = Block.getAllBlocks(method.getNodeList());
+		}
+		return blocks;
+	}
+
+	public DominanceRecord getDominanceRecord() {
+		checkEdits();
+		if (dominanceRecord == null) {
+			Analyzer<DomState, DomTransfer> dominatorAnalyzer = new Analyzer<DomState, DomTransfer>(
+					new DomState(), new DomTransfer());
+			dominatorAnalyzer.analyze(methodName, getBlocks());
+			dominanceRecord = new DominanceRecord(dominatorAnalyzer);
+		}
+		return dominanceRecord;
+	}
+
+	/**
+	 * Loops found by DFS through the CFG, IDed by loop end.
+	 */
+	public LoopGenerator getLoops() {
+		checkEdits();
+		if (loops == null) {
+			loops = new LoopGenerator(getDominanceRecord());
+			loops.run();
+		}
+		return loops;
+	}
+
+	/**
+	 * The liveness analysis. Its transfer function, getLivenessDoctor(),
+	 * holds the def-use chains.
+	 */
+	public BackwardsAnalyzer<LivenessState, LivenessDoctor> getLiveness() {
+		checkEdits();
+		if (liveness == null) {
+			doctor = new LivenessDoctor();
+			liveness = new BackwardsAnalyzer<LivenessState, LivenessDoctor>(
+					doctor.getStartState(), doctor);
+			liveness.analyze(methodName, getBlocks());
+		}
+		return liveness;
+	}
+
+	public LivenessDoctor getLivenessDoctor() {
+		getLiveness();
+		return doctor;
+	}
+
+}
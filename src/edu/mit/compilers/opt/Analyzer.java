@@ -2,10 +2,12 @@ package edu.mit.compilers.opt;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.Stats;
 import edu.mit.compilers.codegen.MidNodeList;
 import edu.mit.compilers.codegen.MidSymbolTable;
 import edu.mit.compilers.codegen.nodes.MidMethodDeclNode;
@@ -16,57 +18,75 @@ public class Analyzer<S extends State<S>, T extends Transfer<S>> implements
 	protected S startState;
 	private T transferFunction;
 	private HashMap<Block, S> outHash;
-	private static List<Block> referenceBlocks;
+	private Map<String, Integer> iterationCounts;
 
 	public Analyzer(S s, T t) {
 		startState = s;
 		transferFunction = t;
-		outHash = new HashMap<Block, S>();
-	}
-	
-	public static List<Block> getReferenceBlocks() {
-		return referenceBlocks;
+		// Keep blocks in CFG order so transformers visit them the same way
+		// every run.
+		outHash = new LinkedHashMap<Block, S>();
+		iterationCounts = new LinkedHashMap<String, Integer>();
 	}
 
 	public void analyze(MidSymbolTable symbolTable) {
 		Map<String, MidMethodDeclNode> methods = symbolTable.getMethods();
 		for (String methodName : methods.keySet()) {
-			LogCenter.debug("DCE", "Analyzing " + methodName);
-			analyzeMidNodeList(methods.get(methodName).getNodeList());
+			analyze(methodName, methods.get(methodName));
 		}
 	}
 
-	private void analyzeMidNodeList(MidNodeList nodeList) {
-		// Get all the blocks
-		List<Block> worklist = Block.getAllBlocks(nodeList);
-		referenceBlocks = new ArrayList<Block>(worklist);
+	public void analyze(String methodName, MidMethodDeclNode method) {
+		LogCenter.debug("DCE", "Analyzing %s", methodName);
+		analyzeMidNodeList(methodName, method.getNodeList());
+	}
+
+	private void analyzeMidNodeList(String methodName, MidNodeList nodeList) {
+		analyze(methodName, Block.getAllBlocks(nodeList));
+	}
+
+	/**
+	 * Analyzes an already built CFG, e.g. one cached by an AnalysisManager.
+	 * The first block must be the method's entry.
+	 */
+	public void analyze(String methodName, List<Block> blocks) {
 
 		// Set all the outs to bottom
-		for (Block block : worklist) {
+		for (Block block : blocks) {
 			outHash.put(block, startState.getBottomState());
 		}
 
 		// Do the first node
-		Block n0 = worklist.get(0);
-		LogCenter.debug("OPT", "Process " + n0);
+		Block n0 = blocks.get(0);
+		LogCenter.debug("OPT", "Process %s", n0);
 		outHash.put(n0, transferFunction.apply(n0, startState.getInitialState(n0)));
-		worklist.remove(n0);
+
+		BlockWorklist worklist = new BlockWorklist(blocks, true);
+		for (Block block : blocks) {
+			if (block != n0) {
+				worklist.add(block);
+			}
+		}
 
 		while (!worklist.isEmpty()) {
-			Block currentBlock = worklist.remove(0);
+			Block currentBlock = worklist.remove();
 			S in = getInState(currentBlock);
 			S out = transferFunction.apply(currentBlock, in);
 			if (!out.equals(outHash.get(currentBlock))) {
 				outHash.put(currentBlock, out);
 				for (Block s : currentBlock.getSuccessors()) {
-					if (!worklist.contains(s)) {
-						worklist.add(s);
-					}
+					worklist.add(s);
 				}
 			}
 			// TODO: return with less perfect result if it takes a really long
 			// time?
 		}
+		// Count the entry block too.
+		int iterations = worklist.getIterations() + 1;
+		iterationCounts.put(methodName, iterations);
+		Stats.countDataflowVisits(iterations);
+		LogCenter.debug("DF", "%s: converged after %s block visits (%s blocks)",
+				methodName, iterations, blocks.size());
 	}
 
 	private S getInState(Block b) {
@@ -78,6 +98,13 @@ public class Analyzer<S extends State<S>, T extends Transfer<S>> implements
 		return out;
 	}
 
+	/**
+	 * Number of blocks the transfer function was applied to, per method.
+	 */
+	public Map<String, Integer> getIterationCounts() {
+		return iterationCounts;
+	}
+
 	@Override
 	public S getAnalyzedState(Block block) {
 		return getInState(block);
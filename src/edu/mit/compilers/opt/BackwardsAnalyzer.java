@@ -2,10 +2,12 @@ package edu.mit.compilers.opt;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.Stats;
 import edu.mit.compilers.codegen.MidNodeList;
 import edu.mit.compilers.codegen.MidSymbolTable;
 import edu.mit.compilers.codegen.nodes.MidMethodDeclNode;
@@ -16,56 +18,73 @@ public class BackwardsAnalyzer<S extends State<S>, T extends Transfer<S>>
 	protected S startState;
 	private T transferFunction;
 	private HashMap<Block, S> inStates;
+	private Map<String, Integer> iterationCounts;
 
 	public BackwardsAnalyzer(S s, T t) {
 		startState = s;
 		transferFunction = t;
-		inStates = new HashMap<Block, S>();
+		// Keep blocks in CFG order so transformers visit them the same way
+		// every run.
+		inStates = new LinkedHashMap<Block, S>();
+		iterationCounts = new LinkedHashMap<String, Integer>();
 	}
 
 	public void analyze(MidSymbolTable symbolTable) {
 		Map<String, MidMethodDeclNode> methods = symbolTable.getMethods();
 		for (String methodName : methods.keySet()) {
-			LogCenter.debug("RA", "Analyzing " + methodName);
-			analyzeMidNodeList(methods.get(methodName).getNodeList());
+			analyze(methodName, methods.get(methodName));
 		}
 	}
 
-	private void analyzeMidNodeList(MidNodeList nodeList) {
-		// Get all the blocks
-		List<Block> worklist = Block.getAllBlocks(nodeList);
+	public void analyze(String methodName, MidMethodDeclNode method) {
+		LogCenter.debug("RA", "Analyzing %s", methodName);
+		analyzeMidNodeList(methodName, method.getNodeList());
+	}
+
+	private void analyzeMidNodeList(String methodName, MidNodeList nodeList) {
+		analyze(methodName, Block.getAllBlocks(nodeList));
+	}
 
+	/**
+	 * Analyzes an already built CFG, e.g. one cached by an AnalysisManager.
+	 * The first block must be the method's entry.
+	 */
+	public void analyze(String methodName, List<Block> blocks) {
 		// Don't forget that since we're working backwards the "in state" is the
 		// output of the block!
 		
 		LogCenter.debug("RA", "analzying shit");
 		
-		Block exit = findTail(worklist.get(0), new ArrayList<Block>());
+		Block exit = findTail(blocks.get(0), new ArrayList<Block>());
 		assert exit != null : "Found null tail.";
-		for (Block b : worklist) {
+		BlockWorklist worklist = new BlockWorklist(blocks, false);
+		for (Block b : blocks) {
 			if (b != exit) {
 				inStates.put(b, startState.getBottomState());
+				worklist.add(b);
 			}
 		}
 		inStates.put(exit,
 				transferFunction.apply(exit, startState.getInitialState(exit)));
-		worklist.remove(exit);
 
 		while (!worklist.isEmpty()) {
-			Block currentBlock = worklist.remove(0);
+			Block currentBlock = worklist.remove();
 			S out = getOutState(currentBlock);
 			S in = transferFunction.apply(currentBlock, out);
 			if (!in.equals(inStates.get(currentBlock))) {
 				inStates.put(currentBlock, in);
 				for (Block s : currentBlock.getPredecessors()) {
-					if (!worklist.contains(s)) {
-						worklist.add(s);
-					}
+					worklist.add(s);
 				}
 			}
 			LogCenter.debug("RA", "Done looking at block.");
 		}
-		LogCenter.debug("RA", "Done with this analyze thing");
+		// Count the exit block too.
+		int iterations = worklist.getIterations() + 1;
+		iterationCounts.put(methodName, iterations);
+		Stats.countDataflowVisits(iterations);
+		LogCenter.debug("DF", "%s: converged after %s block visits (%s blocks)",
+				methodName, iterations, blocks.size());
 	}
 
 	private S getOutState(Block b) {
@@ -98,6 +117,13 @@ public class BackwardsAnalyzer<S extends State<S>, T extends Transfer<S>>
 		return head;
 	}
 
+	/**
+	 * Number of blocks the transfer function was applied to, per method.
+	 */
+	public Map<String, Integer> getIterationCounts() {
+		return iterationCounts;
+	}
+
 	@Override
 	public S getAnalyzedState(Block block) {
 		return getOutState(block);
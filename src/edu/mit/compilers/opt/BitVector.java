@@ -0,0 +1,222 @@
+package edu.mit.compilers.opt;
+
+import java.util.Arrays;
+
+/**
+ * Dense set of non-negative integers backed by a long[]. Meant to be used as
+ * the lattice of dataflow states whose elements have been numbered by a
+ * {@link Numbering}. All the set operations update the vector in place so
+ * that joins don't allocate.
+ */
+public class BitVector {
+
+	private static final int ADDRESS_BITS = 6;
+	private static final int WORD_SIZE = 1 << ADDRESS_BITS;
+
+	private long[] words;
+
+	public BitVector() {
+		this(WORD_SIZE);
+	}
+
+	public BitVector(int nbits) {
+		words = new long[Math.max(1, wordIndex(nbits - 1) + 1)];
+	}
+
+	private BitVector(long[] words) {
+		this.words = words;
+	}
+
+	private static int wordIndex(int bit) {
+		return bit >> ADDRESS_BITS;
+	}
+
+	private void ensureCapacity(int wordsRequired) {
+		if (words.length < wordsRequired) {
+			words = Arrays.copyOf(words, Math.max(2 * words.length,
+					wordsRequired));
+		}
+	}
+
+	public boolean get(int bit) {
+		assert bit >= 0;
+		int w = wordIndex(bit);
+		return w < words.length && (words[w] & (1L << bit)) != 0;
+	}
+
+	public void set(int bit) {
+		assert bit >= 0;
+		int w = wordIndex(bit);
+		ensureCapacity(w + 1);
+		words[w] |= (1L << bit);
+	}
+
+	public void clear(int bit) {
+		assert bit >= 0;
+		int w = wordIndex(bit);
+		if (w < words.length) {
+			words[w] &= ~(1L << bit);
+		}
+	}
+
+	/**
+	 * Sets bits [0, nbits).
+	 */
+	public void setFirst(int nbits) {
+		if (nbits <= 0) {
+			return;
+		}
+		int last = wordIndex(nbits - 1);
+		ensureCapacity(last + 1);
+		for (int i = 0; i < last; i++) {
+			words[i] = -1L;
+		}
+		words[last] |= -1L >>> -nbits;
+	}
+
+	/**
+	 * this = this | other. Returns true if this changed.
+	 */
+	public boolean or(BitVector other) {
+		ensureCapacity(other.words.length);
+		boolean changed = false;
+		for (int i = 0; i < other.words.length; i++) {
+			long old = words[i];
+			words[i] |= other.words[i];
+			changed |= (old != words[i]);
+		}
+		return changed;
+	}
+
+	/**
+	 * this = this & other.
+	 */
+	public void and(BitVector other) {
+		int common = Math.min(words.length, other.words.length);
+		for (int i = 0; i < common; i++) {
+			words[i] &= other.words[i];
+		}
+		for (int i = common; i < words.length; i++) {
+			words[i] = 0;
+		}
+	}
+
+	/**
+	 * this = this & ~other.
+	 */
+	public void andNot(BitVector other) {
+		int common = Math.min(words.length, other.words.length);
+		for (int i = 0; i < common; i++) {
+			words[i] &= ~other.words[i];
+		}
+	}
+
+	public boolean intersects(BitVector other) {
+		int common = Math.min(words.length, other.words.length);
+		for (int i = 0; i < common; i++) {
+			if ((words[i] & other.words[i]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean isEmpty() {
+		for (long word : words) {
+			if (word != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int cardinality() {
+		int sum = 0;
+		for (long word : words) {
+			sum += Long.bitCount(word);
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the first set bit at or after fromIndex, or -1 if there is none.
+	 * Iterate with:
+	 *
+	 * <pre>
+	 * for (int i = v.nextSetBit(0); i &gt;= 0; i = v.nextSetBit(i + 1))
+	 * </pre>
+	 */
+	public int nextSetBit(int fromIndex) {
+		int w = wordIndex(fromIndex);
+		if (w >= words.length) {
+			return -1;
+		}
+		long word = words[w] & (-1L << fromIndex);
+		while (true) {
+			if (word != 0) {
+				return (w * WORD_SIZE) + Long.numberOfTrailingZeros(word);
+			}
+			if (++w == words.length) {
+				return -1;
+			}
+			word = words[w];
+		}
+	}
+
+	@Override
+	public BitVector clone() {
+		return new BitVector(words.clone());
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof BitVector)) {
+			return false;
+		}
+		long[] other = ((BitVector) o).words;
+		int common = Math.min(words.length, other.length);
+		for (int i = 0; i < common; i++) {
+			if (words[i] != other[i]) {
+				return false;
+			}
+		}
+		// Trailing words that only one side has allocated must be empty.
+		for (int i = common; i < words.length; i++) {
+			if (words[i] != 0) {
+				return false;
+			}
+		}
+		for (int i = common; i < other.length; i++) {
+			if (other[i] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		// Skip trailing empty words so that equal vectors hash equally.
+		int last = words.length - 1;
+		while (last > 0 && words[last] == 0) {
+			last--;
+		}
+		long h = 1234;
+		for (int i = last; i >= 0; i--) {
+			h ^= words[i] * (i + 1);
+		}
+		return (int) ((h >> 32) ^ h);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder("{");
+		String prefix = "";
+		for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+			out.append(prefix).append(i);
+			prefix = ", ";
+		}
+		return out.append("}").toString();
+	}
+
+}
@@ -119,18 +119,21 @@ public class Block implements Iterable<MidNode> {
 		return out;
 	}
 
-	private static Map<MidNode, Block> blockCache = new LinkedHashMap<MidNode, Block>();
-	public static int blockNumCounter = 0;
+	/**
+	 * Builds the block starting at n and, recursively, all the blocks
+	 * reachable from it. Blocks are numbered in the order they're made and
+	 * saved into blockCache, which is local to a single getAllBlocks() call so
+	 * that several methods can be split into blocks at once.
+	 */
+	private static Block makeBlock(MidNode n, Map<MidNode, Block> blockCache) {
 
-	public static Block makeBlock(MidNode n) {
-		
 		if (n == null) {
 			return null;
 		}
-		LogCenter.debug("OPT", "Starting block with "+n.hashCode());
+		LogCenter.debug("OPT", "Starting block with %s", n.hashCode());
 		if (n instanceof MidJumpNode) {
 			MidJumpNode jumpNode = (MidJumpNode) n;
-			return makeBlock(jumpNode.getLabelNode());
+			return makeBlock(jumpNode.getLabelNode(), blockCache);
 		}
 		if (blockCache.containsKey(n)) {
 			LogCenter.debug("OPT", "BLOCK: snap its cached");
@@ -138,8 +141,8 @@ public class Block implements Iterable<MidNode> {
 		}
 		
 		LogCenter.debug("OPT", "Done making this block");
-		LogCenter.debug("OPT", "BLOCK: makeBlock " + n);
-		Block b = new Block(n, blockNumCounter++);
+		LogCenter.debug("OPT", "BLOCK: makeBlock %s", n);
+		Block b = new Block(n, blockCache.size());
 		blockCache.put(n, b);
 		MidNode lastNonJumpLabel = n;
 		MidNode nextNode = n.getNextNode();
@@ -148,32 +151,32 @@ public class Block implements Iterable<MidNode> {
 			nextNode = lastNonJumpLabel.getNextNode();
 		}
 		b.setTail(lastNonJumpLabel);
-		Block newSuc = makeBlock(nextNode);
+		Block newSuc = makeBlock(nextNode, blockCache);
 		if (newSuc != null) {
 			b.addSuccessor(newSuc);
-			LogCenter.debug("OPT", "Connecting " + b.getHead() + " to "
-					+ newSuc.getHead());
+			LogCenter.debug("OPT", "Connecting %s to %s", b.getHead(),
+					newSuc.getHead());
 		}
 		if (nextNode != null && nextNode instanceof MidJumpNode
 				&& ((MidJumpNode) nextNode).isConditional()) {
-			Block secondSuc = makeBlock(nextNode.getNextNode());
+			Block secondSuc = makeBlock(nextNode.getNextNode(), blockCache);
 			if (secondSuc != null) {
 				b.addSuccessor(secondSuc);
-				LogCenter.debug("OPT", "Connecting " + b.getHead() + " to "
-						+ secondSuc.getHead());
+				LogCenter.debug("OPT", "Connecting %s to %s", b.getHead(),
+						secondSuc.getHead());
 			}
 		}
-		LogCenter.debug("OPT", "Done making this block with "+n.hashCode());
+		LogCenter.debug("OPT", "Done making this block with %s", n.hashCode());
 		return b;
 	}
 
 	public static List<Block> getAllBlocks(MidNodeList nodeList) {
-		blockCache.clear();
+		Map<MidNode, Block> blockCache = new LinkedHashMap<MidNode, Block>();
 		// Make block will recursively make all the blocks and save them into
 		// the block cache.
-		LogCenter.debug("OPT",
-				"BLOCK: Starting getAllBlocks with " + nodeList.getHead());
-		Block head = makeBlock(nodeList.getHead());
+		LogCenter.debug("OPT", "BLOCK: Starting getAllBlocks with %s",
+				nodeList.getHead());
+		Block head = makeBlock(nodeList.getHead(), blockCache);
 		List<Block> out = new ArrayList<Block>(blockCache.values());
 		// Force head to the beginning.
 		out.remove(head);
@@ -0,0 +1,119 @@
+package edu.mit.compilers.opt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Worklist for the dataflow analyzers. Blocks are ranked once up front and
+ * always handed out lowest rank first:
+ *
+ * - forward analyses use reverse postorder from the entry block, so a block
+ * is visited after all of its non-back-edge predecessors;
+ *
+ * - backwards analyses use postorder from the entry block.
+ *
+ * Membership is tracked in a BitVector indexed by rank, which doubles as the
+ * priority queue.
+ */
+public class BlockWorklist {
+
+	private final List<Block> order;
+	private final Map<Block, Integer> rank;
+	private final BitVector pending;
+	private int size;
+	private int iterations;
+
+	public BlockWorklist(List<Block> blocks, boolean forward) {
+		List<Block> postorder = postorder(blocks);
+		if (forward) {
+			order = new ArrayList<Block>(postorder.size());
+			for (int i = postorder.size() - 1; i >= 0; i--) {
+				order.add(postorder.get(i));
+			}
+		} else {
+			order = postorder;
+		}
+		// Blocks unreachable from the entry go last.
+		rank = new HashMap<Block, Integer>();
+		for (Block b : order) {
+			rank.put(b, rank.size());
+		}
+		for (Block b : blocks) {
+			if (!rank.containsKey(b)) {
+				rank.put(b, order.size());
+				order.add(b);
+			}
+		}
+		pending = new BitVector(order.size());
+		size = 0;
+		iterations = 0;
+	}
+
+	/**
+	 * Iterative DFS from the first block, so large unrolled methods don't
+	 * blow the stack.
+	 */
+	private static List<Block> postorder(List<Block> blocks) {
+		List<Block> out = new ArrayList<Block>();
+		if (blocks.isEmpty()) {
+			return out;
+		}
+		Map<Block, Integer> nextChild = new HashMap<Block, Integer>();
+		List<Block> stack = new ArrayList<Block>();
+		Block entry = blocks.get(0);
+		stack.add(entry);
+		nextChild.put(entry, 0);
+		while (!stack.isEmpty()) {
+			Block top = stack.get(stack.size() - 1);
+			int i = nextChild.get(top);
+			List<Block> successors = top.getSuccessors();
+			if (i < successors.size()) {
+				nextChild.put(top, i + 1);
+				Block succ = successors.get(i);
+				if (!nextChild.containsKey(succ)) {
+					nextChild.put(succ, 0);
+					stack.add(succ);
+				}
+			} else {
+				stack.remove(stack.size() - 1);
+				out.add(top);
+			}
+		}
+		return out;
+	}
+
+	public void add(Block b) {
+		Integer r = rank.get(b);
+		assert r != null : "Block isn't part of this method: " + b.getBlockNum();
+		if (!pending.get(r)) {
+			pending.set(r);
+			size++;
+		}
+	}
+
+	/**
+	 * Removes and returns the pending block with the lowest rank.
+	 */
+	public Block remove() {
+		assert size > 0 : "Worklist is empty.";
+		int r = pending.nextSetBit(0);
+		pending.clear(r);
+		size--;
+		iterations++;
+		return order.get(r);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Number of blocks handed out so far.
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+}
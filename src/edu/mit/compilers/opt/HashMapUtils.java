@@ -2,6 +2,7 @@ package edu.mit.compilers.opt;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -9,7 +10,7 @@ public class HashMapUtils {
 
 	static public <K, V> HashMap<K, List<V>> deepCloneList(
 			HashMap<K, List<V>> map) {
-		HashMap<K, List<V>> out = new HashMap<K, List<V>>();
+		HashMap<K, List<V>> out = new LinkedHashMap<K, List<V>>();
 		for (K key : map.keySet()) {
 			out.put(key, new ArrayList<V>(map.get(key)));
 		}
@@ -17,7 +18,7 @@ public class HashMapUtils {
 	}
 
 	static public <K, V> HashMap<K, V> deepClone(HashMap<K, V> map) {
-		HashMap<K, V> out = new HashMap<K, V>();
+		HashMap<K, V> out = new LinkedHashMap<K, V>();
 		for (K key : map.keySet()) {
 			out.put(key, map.get(key));
 		}
@@ -0,0 +1,58 @@
+package edu.mit.compilers.opt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out dense ids (0, 1, 2, ...) to objects in the order they are first
+ * seen, so that sets of them can be stored in a {@link BitVector}.
+ */
+public class Numbering<T> {
+
+	private final Map<T, Integer> ids;
+	private final List<T> items;
+
+	public Numbering() {
+		ids = new HashMap<T, Integer>();
+		items = new ArrayList<T>();
+	}
+
+	public Numbering(List<T> initialItems) {
+		this();
+		for (T item : initialItems) {
+			getId(item);
+		}
+	}
+
+	/**
+	 * Returns the id of item, numbering it if it hasn't been seen before.
+	 */
+	public int getId(T item) {
+		Integer id = ids.get(item);
+		if (id == null) {
+			id = items.size();
+			ids.put(item, id);
+			items.add(item);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the id of item, or -1 if it was never numbered.
+	 */
+	public int lookupId(T item) {
+		Integer id = ids.get(item);
+		return (id == null) ? -1 : id;
+	}
+
+	public T get(int id) {
+		return items.get(id);
+	}
+
+	public int size() {
+		return items.size();
+	}
+
+}
@@ -1,26 +1,36 @@
 package edu.mit.compilers.opt;
 
 import java.util.List;
-import java.util.Map;
 
 import edu.mit.compilers.LogCenter;
-import edu.mit.compilers.codegen.MidSymbolTable;
-import edu.mit.compilers.codegen.nodes.MidMethodDeclNode;
 
 public abstract class Transformer<S> {
 
-	public void analyze(DataflowAnalysis<S> analysis, MidSymbolTable symbolTable) {
-		Map<String, MidMethodDeclNode> methods = symbolTable.getMethods();
-		for (String methodName : methods.keySet()) {
-			List<Block> blocks = analysis.getProcessedBlocks();
-			LogCenter.debug("DCE", "Analyzing " + methodName + " ("
-					+ blocks.size() + " blocks)");
-			for (Block b : blocks) {
-				transform(b, analysis.getAnalyzedState(b));
-			}
+	private boolean changed;
+
+	/**
+	 * Transforms every block the analysis processed, once each. Returns
+	 * whether anything was optimized, see markChanged().
+	 */
+	public boolean analyze(DataflowAnalysis<S> analysis) {
+		List<Block> blocks = analysis.getProcessedBlocks();
+		LogCenter.debug("DCE", "Transforming %s blocks", blocks.size());
+		changed = false;
+		for (Block b : blocks) {
+			transform(b, analysis.getAnalyzedState(b));
 		}
+		return changed;
 	}
 
 	protected abstract void transform(Block block, S state);
 
+	/**
+	 * Records that transform() optimized something, so running the passes
+	 * again may find more to do. Bookkeeping edits, like the temps CSE adds
+	 * for later reuse, don't count.
+	 */
+	protected void markChanged() {
+		changed = true;
+	}
+
 }
@@ -1,13 +1,15 @@
 package edu.mit.compilers.opt;
 
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Value {
 	
-	private static int globalCount = 0;
+	// Shared by every method's analysis, which may run concurrently.
+	private static final AtomicInteger globalCount = new AtomicInteger();
 	private int count;
 
 	public Value() {
-		count = globalCount++;
+		count = globalCount.getAndIncrement();
 	}
 	
 	public String toString() {
@@ -65,19 +65,34 @@ public class AlgebraicSimplifier {
 	public static final String DIVIDE_BY_ZERO_ERROR = "Divide by zero";
 	public static final String OUT_OF_BOUNDS_ERROR = "Array out of Bounds access";
 
-	private static Map<String, Long> arrayLengths = new HashMap<String, Long>();
+	// Lengths of the field arrays of the program being simplified, one map
+	// per compiling thread.
+	private static final ThreadLocal<Map<String, Long>> arrayLengths = new ThreadLocal<Map<String, Long>>() {
+		@Override
+		protected Map<String, Long> initialValue() {
+			return new HashMap<String, Long>();
+		}
+	};
 
 	public AlgebraicSimplifier(){
 		assert false : "Fuck you";
 	}
 	
+	/**
+	 * Forgets the array lengths of the last program compiled on this thread.
+	 */
+	public static void reset() {
+		arrayLengths.get().clear();
+	}
+
 	public static void visit(CLASSNode node) {
 		for (FIELD_DECLNode declNode : node.getFieldNodes()) {
 			if (declNode.getArrayLength() != -1) {
-				arrayLengths.put(declNode.getIDNode().getText(), declNode
+				arrayLengths.get().put(declNode.getIDNode().getText(), declNode
 						.getArrayLength());
-				LogCenter.debug("AS", "Array " + declNode.getIDNode().getText()
-						+ "->" + declNode.getArrayLength());
+				LogCenter.debug("AS", "Array %s->%s",
+						declNode.getIDNode().getText(),
+						declNode.getArrayLength());
 			}
 		}
 		for (METHOD_DECLNode methodNode : node.getMethodNodes()) {
@@ -112,11 +127,16 @@ public class AlgebraicSimplifier {
 
 	public static void visit(ASSIGNNode node) {
 		node.getLocation().simplifyExpressions();
-		String oldList = node.getExpression().toStringList();
+		// Printing the expression walks the whole tree, so only do it when
+		// someone's reading.
+		boolean log = LogCenter.isEnabled("AS");
+		String oldList = log ? node.getExpression().toStringList() : null;
 		node.setExpression(node.getExpression().simplify(null));
 
-		LogCenter.debug("AS", "Simplimifying " + oldList + " --> "
-				+ node.getExpression().toStringList());
+		if (log) {
+			LogCenter.debug("AS", "Simplimifying %s --> %s", oldList, node
+					.getExpression().toStringList());
+		}
 
 	}
 
@@ -156,13 +176,19 @@ public class AlgebraicSimplifier {
 	}
 
 	public static void visit(RETURNNode node) {
-		String oldList = node.toStringList();
-		LogCenter.debug("AS", "About to simplify return node "
-				+ node.getReturnExpression().toStringList());
+		boolean log = LogCenter.isEnabled("AS");
+		String oldList = null;
+		if (log) {
+			oldList = node.toStringList();
+			LogCenter.debug("AS", "About to simplify return node %s", node
+					.getReturnExpression().toStringList());
+		}
 		node.setReturnExpression(node.getReturnExpression().simplify(null));
 
-		LogCenter.debug("AS", "Simplified" + oldList + " --> "
-				+ node.getReturnExpression().toStringList());
+		if (log) {
+			LogCenter.debug("AS", "Simplified%s --> %s", oldList, node
+					.getReturnExpression().toStringList());
+		}
 
 	}
 
@@ -722,7 +748,7 @@ public class AlgebraicSimplifier {
 				// MidFieldArrayDeclNode arrayNode = (MidFieldArrayDeclNode)
 				// symbolTable.getVar(node.getText());
 				// long arrayLength = arrayNode.getLength();
-				long arrayLength = arrayLengths.get(node.getText());
+				long arrayLength = arrayLengths.get().get(node.getText());
 				if (exprValue < 0 || exprValue >= arrayLength) {
 					ErrorCenter
 							.reportError(node.getLine(), node.getColumn(), String
@@ -22,129 +22,134 @@ public class MidAlgebraicSimplifier {
 	public void analyze(MidSymbolTable symbolTable) {
 		for (Entry<String, MidMethodDeclNode> entry : symbolTable.getMethods()
 				.entrySet()) {
-			LogCenter.debug("MAS", "Old Method " + entry.getKey());
-			for (MidNode node : entry.getValue().getNodeList()) {
-				LogCenter.debug("MAS", node.toString());
-			}
+			analyze(entry.getKey(), entry.getValue());
 		}
-		for (Entry<String, MidMethodDeclNode> entry : symbolTable.getMethods()
-				.entrySet()) {
-			for (MidNode node : entry.getValue().getNodeList()) {
-				if (!(node instanceof MidSaveNode)) {
-					continue;
-				}
-				MidSaveNode saveNode = (MidSaveNode) node;
-				if (!saveNode.savesRegister()) {
-					continue;
-				}
-
-				MidMemoryNode destNode = saveNode.getDestinationNode();
-				MidRegisterNode regNode = saveNode.getRegNode();
-				if (regNode instanceof MidBinaryRegNode) {
-
-					MidBinaryRegNode binaryNode = (MidBinaryRegNode) regNode;
-
-					MidMemoryNode leftMemNode = binaryNode.getLeftOperand()
-							.getMemoryNode();
-					MidMemoryNode rightMemNode = binaryNode.getRightOperand()
-							.getMemoryNode();
-
-					if (leftMemNode.isConstant() && rightMemNode.isConstant()) {
-						// If so, replace with a constant load.
-
-						long leftVal = leftMemNode.getConstant();
-						long rightVal = rightMemNode.getConstant();
-						long simpleVal = binaryNode
-								.applyOperation(leftVal, rightVal);
+	}
 
-						LogCenter.debug("MAS", ""
-								+ binaryNode.getLeftOperand().getMemoryNode()
-										.getClass());
-						LogCenter.debug("MAS", ""
-								+ binaryNode.getRightOperand().getMemoryNode()
-										.getClass());
-						LogCenter.debug("MAS", "About to replace " + node
-								+ " with " + simpleVal);
+	/**
+	 * Simplifies the method's arithmetic in place. Returns whether anything
+	 * was simplified.
+	 */
+	public boolean analyze(String methodName, MidMethodDeclNode methodDeclNode) {
+		boolean changed = false;
+		LogCenter.debug("MAS", "Old Method %s", methodName);
+		for (MidNode node : methodDeclNode.getNodeList()) {
+			LogCenter.debug("MAS", "%s", node);
+		}
+		for (MidNode node : methodDeclNode.getNodeList()) {
+			if (!(node instanceof MidSaveNode)) {
+				continue;
+			}
+			MidSaveNode saveNode = (MidSaveNode) node;
+			if (!saveNode.savesRegister()) {
+				continue;
+			}
 
-						MidRegisterNode newRegNode = new MidLoadNode(
-								new MidConstantNode(simpleVal));
+			MidMemoryNode destNode = saveNode.getDestinationNode();
+			MidRegisterNode regNode = saveNode.getRegNode();
+			if (regNode instanceof MidBinaryRegNode) {
+
+				MidBinaryRegNode binaryNode = (MidBinaryRegNode) regNode;
+
+				MidMemoryNode leftMemNode = binaryNode.getLeftOperand()
+						.getMemoryNode();
+				MidMemoryNode rightMemNode = binaryNode.getRightOperand()
+						.getMemoryNode();
+
+				if (leftMemNode.isConstant() && rightMemNode.isConstant()) {
+					// If so, replace with a constant load.
+
+					long leftVal = leftMemNode.getConstant();
+					long rightVal = rightMemNode.getConstant();
+					long simpleVal = binaryNode
+							.applyOperation(leftVal, rightVal);
+
+					LogCenter.debug("MAS", "%s", binaryNode.getLeftOperand()
+							.getMemoryNode().getClass());
+					LogCenter.debug("MAS", "%s", binaryNode.getRightOperand()
+							.getMemoryNode().getClass());
+					LogCenter.debug("MAS", "About to replace %s with %s", node,
+							simpleVal);
+
+					MidRegisterNode newRegNode = new MidLoadNode(
+							new MidConstantNode(simpleVal));
+
+					if (binaryNode.hasRegister())
+						newRegNode.setRegister(binaryNode.getRegister());
+					MidSaveNode newSaveNode = new MidSaveNode(newRegNode,
+							destNode);
+					MidNodeList replList = new MidNodeList();
+					replList.add(newRegNode);
+					replList.add(newSaveNode);
+
+					AnalyzerHelpers
+							.completeReplaceBinary(saveNode, replList);
+					changed = true;
+					continue;
+				}
+				for (Identity id : binaryNode.getIdentities()) {
+					if (id.matches(binaryNode)) {
 
+						MidRegisterNode newRegNode = id
+								.simplify(binaryNode);
 						if (binaryNode.hasRegister())
-							newRegNode.setRegister(binaryNode.getRegister());
-						MidSaveNode newSaveNode = new MidSaveNode(newRegNode,
-								destNode);
+							newRegNode
+									.setRegister(binaryNode.getRegister());
+						MidSaveNode newSaveNode = new MidSaveNode(
+								newRegNode, destNode);
 						MidNodeList replList = new MidNodeList();
 						replList.add(newRegNode);
 						replList.add(newSaveNode);
 
 						AnalyzerHelpers
 								.completeReplaceBinary(saveNode, replList);
-						continue;
-					}
-					for (Identity id : binaryNode.getIdentities()) {
-						if (id.matches(binaryNode)) {
-
-							MidRegisterNode newRegNode = id
-									.simplify(binaryNode);
-							if (binaryNode.hasRegister())
-								newRegNode
-										.setRegister(binaryNode.getRegister());
-							MidSaveNode newSaveNode = new MidSaveNode(
-									newRegNode, destNode);
-							MidNodeList replList = new MidNodeList();
-							replList.add(newRegNode);
-							replList.add(newSaveNode);
-
-							AnalyzerHelpers
-									.completeReplaceBinary(saveNode, replList);
-							LogCenter.debug("MAS", "About to replace "
-									+ binaryNode + " with " + newRegNode);
-
-							break;
-						}
+						changed = true;
+						LogCenter.debug("MAS", "About to replace %s with %s",
+								binaryNode, newRegNode);
+
+						break;
 					}
-					continue;
+				}
+				continue;
 
-				} else if (regNode instanceof MidUnaryRegNode) {
-					MidUnaryRegNode unaryNode = (MidUnaryRegNode) regNode;
-					MidMemoryNode memNode = unaryNode.getOperand()
-							.getMemoryNode();
-					if (memNode.isConstant()) {
+			} else if (regNode instanceof MidUnaryRegNode) {
+				MidUnaryRegNode unaryNode = (MidUnaryRegNode) regNode;
+				MidMemoryNode memNode = unaryNode.getOperand()
+						.getMemoryNode();
+				if (memNode.isConstant()) {
 
-						long val = memNode.getConstant();
-						long simpleVal = unaryNode.applyOperation(val);
+					long val = memNode.getConstant();
+					long simpleVal = unaryNode.applyOperation(val);
 
-						LogCenter.debug("MAS", "About to replace " + node
-								+ " with " + simpleVal);
+					LogCenter.debug("MAS", "About to replace %s with %s", node,
+							simpleVal);
 
-						MidRegisterNode newRegNode = new MidLoadNode(
-								new MidConstantNode(simpleVal));
+					MidRegisterNode newRegNode = new MidLoadNode(
+							new MidConstantNode(simpleVal));
 
-						if (unaryNode.hasRegister())
-							newRegNode.setRegister(unaryNode.getRegister());
+					if (unaryNode.hasRegister())
+						newRegNode.setRegister(unaryNode.getRegister());
 
-						MidSaveNode newSaveNode = new MidSaveNode(newRegNode,
-								destNode);
-						MidNodeList replList = new MidNodeList();
-						replList.add(newRegNode);
-						replList.add(newSaveNode);
+					MidSaveNode newSaveNode = new MidSaveNode(newRegNode,
+							destNode);
+					MidNodeList replList = new MidNodeList();
+					replList.add(newRegNode);
+					replList.add(newSaveNode);
 
-						AnalyzerHelpers
-								.completeReplaceUnary(saveNode, replList);
-						continue;
+					AnalyzerHelpers
+							.completeReplaceUnary(saveNode, replList);
+					changed = true;
+					continue;
 
-					}
 				}
-
 			}
+
 		}
-		for (Entry<String, MidMethodDeclNode> entry : symbolTable.getMethods()
-				.entrySet()) {
-			LogCenter.debug("MAS", "Method " + entry.getKey());
-			for (MidNode node : entry.getValue().getNodeList()) {
-				LogCenter.debug("MAS", node.toString());
-			}
+		LogCenter.debug("MAS", "Method %s", methodName);
+		for (MidNode node : methodDeclNode.getNodeList()) {
+			LogCenter.debug("MAS", "%s", node);
 		}
+		return changed;
 	}
 
 }
@@ -1,191 +1,538 @@
 package edu.mit.compilers.opt.cm;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Map;
 import java.util.Set;
 
 import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.Stats;
+import edu.mit.compilers.codegen.nodes.MidMethodCallNode;
 import edu.mit.compilers.codegen.nodes.MidNode;
 import edu.mit.compilers.codegen.nodes.MidSaveNode;
 import edu.mit.compilers.codegen.nodes.memory.MidArrayElementNode;
+import edu.mit.compilers.codegen.nodes.memory.MidFieldArrayDeclNode;
+import edu.mit.compilers.codegen.nodes.memory.MidFieldDeclNode;
+import edu.mit.compilers.codegen.nodes.memory.MidLocalMemoryNode;
+import edu.mit.compilers.codegen.nodes.memory.MidMemoryNode;
+import edu.mit.compilers.codegen.nodes.memory.MidTempDeclNode;
 import edu.mit.compilers.codegen.nodes.regops.MidArithmeticNode;
 import edu.mit.compilers.codegen.nodes.regops.MidLoadNode;
-import edu.mit.compilers.codegen.nodes.regops.MidNegNode;
 import edu.mit.compilers.codegen.nodes.regops.MidRegisterNode;
+import edu.mit.compilers.codegen.nodes.regops.MidUnaryRegNode;
 import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
-import edu.mit.compilers.opt.AnalyzerHelpers;
+import edu.mit.compilers.opt.AnalysisManager;
 import edu.mit.compilers.opt.Block;
-import edu.mit.compilers.opt.regalloc.LivenessDoctor;
+import edu.mit.compilers.opt.profile.BlockCounts;
+import edu.mit.compilers.opt.regalloc.nodes.MidRDXOverwriter;
 
+/**
+ * Moves loop-invariant saves into loop preheaders. A save is invariant in a
+ * loop if everything it reads is: constants, variables only written outside
+ * the loop or by saves already moved out of it, and elements of arrays the
+ * loop never writes. It moves, along with the loads and operation feeding
+ * it, if
+ *
+ * <ul>
+ * <li>it's the loop's only write to a local or temp,</li>
+ * <li>reads of it in the loop see no other write,</li>
+ * <li>its value isn't read after the loop, unless it dominates every exit
+ * and so would have run anyway, and</li>
+ * <li>running it when the loop doesn't run a full iteration is harmless.
+ * Array loads need a constant index in bounds and divides a constant
+ * divisor, unless they dominate every exit.</li>
+ * </ul>
+ *
+ * Each save goes out of the outermost loop it can. With a profile, a save
+ * that doesn't dominate every exit also has to have run at least as often
+ * as the loop was entered, since the preheader runs once per entry.
+ */
 public class CodeHoister {
 
+	/**
+	 * What a loop's blocks do that decides what's invariant in it.
+	 */
+	private static class Body {
+		final Set<Block> blocks;
+		final Set<Block> exits;
+		final List<MidSaveNode> saves;
+		final List<MidUseNode> uses;
+		// Arrays the loop writes.
+		final Set<MidFieldArrayDeclNode> arrays;
+		// Whether it calls methods, which can write any field. The runtime
+		// library's can't.
+		boolean calls;
+
+		Body(Set<Block> blocks) {
+			this.blocks = blocks;
+			this.exits = new LinkedHashSet<Block>();
+			this.saves = new ArrayList<MidSaveNode>();
+			this.uses = new ArrayList<MidUseNode>();
+			this.arrays = new LinkedHashSet<MidFieldArrayDeclNode>();
+			for (Block block : blocks) {
+				for (MidNode node : block) {
+					if (node instanceof MidSaveNode) {
+						MidSaveNode saveNode = (MidSaveNode) node;
+						MidMemoryNode dest = saveNode.getDestinationNode();
+						if (dest instanceof MidArrayElementNode) {
+							arrays.add(((MidArrayElementNode) dest)
+									.getArrayDecl());
+						} else {
+							saves.add(saveNode);
+						}
+					} else if (node instanceof MidUseNode) {
+						uses.add((MidUseNode) node);
+					} else if (node instanceof MidMethodCallNode) {
+						calls |= !((MidMethodCallNode) node).isStarbucksCall();
+					}
+				}
+				for (Block succ : block.getSuccessors()) {
+					if (!blocks.contains(succ)) {
+						exits.add(succ);
+					}
+				}
+			}
+		}
+
+		boolean writes(MidMemoryNode memory) {
+			for (MidSaveNode saveNode : saves) {
+				if (memory.equals(saveNode.getDestinationNode())) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
 	private final LoopGenerator generator;
-	private final LivenessDoctor doctor;
+	private final DominanceRecord record;
+	// Null without a profile.
+	private final BlockCounts counts;
+	private final Map<MidSaveNode, Set<MidUseNode>> defUseMap;
+	private final Map<MidUseNode, Set<MidSaveNode>> useDefMap;
+	// Loops with a preheader, outermost first.
+	private final Map<Loop, Body> loops;
+	// Where each invariant save goes, in the order they were found, and
+	// the nodes that go with it.
 	private final Map<MidSaveNode, Loop> invariantSaves;
+	private final Map<MidSaveNode, List<MidNode>> trees;
+	// Saves left in because the profile says they rarely run.
+	private final Set<MidSaveNode> coldSaves;
 
-	public CodeHoister(LoopGenerator generator, LivenessDoctor doctor) {
-		this.generator = generator;
-		this.doctor = doctor;
-		this.invariantSaves = new HashMap<MidSaveNode, Loop>();
+	public CodeHoister(AnalysisManager analyses) {
+		this.generator = analyses.getLoops();
+		this.record = analyses.getDominanceRecord();
+		this.counts = analyses.getBlockCounts();
+		this.defUseMap = analyses.getLivenessDoctor().getDefUseMap();
+		this.useDefMap = new HashMap<MidUseNode, Set<MidSaveNode>>();
+		for (Entry<MidSaveNode, Set<MidUseNode>> entry : defUseMap.entrySet()) {
+			for (MidUseNode useNode : entry.getValue()) {
+				Set<MidSaveNode> saveNodes = useDefMap.get(useNode);
+				if (saveNodes == null) {
+					saveNodes = new LinkedHashSet<MidSaveNode>();
+					useDefMap.put(useNode, saveNodes);
+				}
+				saveNodes.add(entry.getKey());
+			}
+		}
+		List<Loop> sorted = new ArrayList<Loop>(generator.getLoops());
+		Collections.sort(sorted, new Comparator<Loop>() {
+			@Override
+			public int compare(Loop a, Loop b) {
+				return generator.getBlocks(b).size()
+						- generator.getBlocks(a).size();
+			}
+		});
+		this.loops = new LinkedHashMap<Loop, Body>();
+		for (Loop loop : sorted) {
+			Set<Block> blocks = generator.getBlocks(loop);
+			if (loop.hasPreheader(blocks)) {
+				loops.put(loop, new Body(blocks));
+			}
+		}
+		this.invariantSaves = new LinkedHashMap<MidSaveNode, Loop>();
+		this.trees = new HashMap<MidSaveNode, List<MidNode>>();
+		this.coldSaves = new LinkedHashSet<MidSaveNode>();
 	}
 
-	public void hoist() {
+	/**
+	 * Returns whether anything was moved out of a loop.
+	 */
+	public boolean hoist() {
 
 		findInvariantSaveNodes();
-		doActualHoisting();
+		return doActualHoisting();
 
 	}
 
-	private void doActualHoisting() {
+	private boolean doActualHoisting() {
+		int arrayLoads = 0;
+		int shared = 0;
+		Map<Loop, List<MidSaveNode>> hoisted = new HashMap<Loop, List<MidSaveNode>>();
 		for (Entry<MidSaveNode, Loop> entry : invariantSaves.entrySet()) {
 			MidSaveNode saveNode = entry.getKey();
-			LogCenter.debug("CM", "Hoisting " + saveNode);
-//			if (saveNode.usesArrayRegister()) {
-//				continue;
-//			}
-//			List<MidNode> deleted = null;
-//			Block ownerBlock = generator.getBlock(saveNode);
-//			if (saveNode.savesRegister()) {
-//				MidRegisterNode regNode = saveNode.getRegNode();
-//				if (regNode instanceof MidLoadNode) {
-//					deleted = AnalyzerHelpers
-//							.completeDeleteAssignment(saveNode, ownerBlock);
-//				} else if (regNode instanceof MidArithmeticNode) {
-//					deleted = AnalyzerHelpers
-//							.completeDeleteBinary(saveNode, ownerBlock);
-//				} else if (regNode instanceof MidNegNode) {
-//					deleted = AnalyzerHelpers
-//							.completeDeleteUnary(saveNode, ownerBlock);
-//				}
-//			} else {
-//				ownerBlock.delete(saveNode);
-//				deleted = new ArrayList<MidNode>();
-//				deleted.add(saveNode);
-//			}
-//
-//			if (deleted != null) {
-//				Loop loop = entry.getValue();
-//				Block preHeader = loop.getPreheaderBlock();
-//				for (MidNode node : deleted) {
-//					preHeader.add(node);
-//				}
-//			}
+			Loop loop = entry.getValue();
+			Block ownerBlock = generator.getBlock(saveNode);
+			List<MidNode> tree = trees.get(saveNode);
+			for (MidNode node : tree) {
+				ownerBlock.delete(node);
+			}
+			List<MidSaveNode> preheaderSaves = hoisted.get(loop);
+			if (preheaderSaves == null) {
+				preheaderSaves = new ArrayList<MidSaveNode>();
+				hoisted.put(loop, preheaderSaves);
+			}
+			// Bounds checks keep CSE from merging copies of an expression
+			// inside the loop, so merge them here instead of paying a
+			// register for each.
+			MidSaveNode same = findSameSave(saveNode, preheaderSaves, loop);
+			if (same != null) {
+				LogCenter.debug("CM", "Sharing %s with %s out of the loop at %s",
+						saveNode, same, loop.getStart().getHead());
+				for (MidUseNode useNode : defUseMap.get(saveNode)) {
+					((MidLoadNode) useNode).setMemoryNode(same
+							.getDestinationNode());
+				}
+				shared++;
+				continue;
+			}
+			LogCenter.debug("CM", "Hoisting %s out of the loop at %s",
+					saveNode, loop.getStart().getHead());
+			preheaderSaves.add(saveNode);
+			Block preHeader = loop.getPreheaderBlock(loops.get(loop).blocks);
+			for (MidNode node : tree) {
+				preHeader.add(node);
+			}
+			if (saveNode.savesRegister()
+					&& saveNode.getRegNode() instanceof MidLoadNode
+					&& ((MidLoadNode) saveNode.getRegNode()).getMemoryNode() instanceof MidArrayElementNode) {
+				arrayLoads++;
+			}
 		}
+		Stats.count("cm hoisted", invariantSaves.size() - shared);
+		Stats.count("cm hoisted array loads", arrayLoads);
+		Stats.count("cm shared", shared);
+		// Some were still hoisted out of a loop inside.
+		coldSaves.removeAll(invariantSaves.keySet());
+		Stats.count("cm cold", coldSaves.size());
+		return !invariantSaves.isEmpty();
 	}
 
-	private void findInvariantSaveNodes() {
-		Map<MidUseNode, Set<MidSaveNode>> useDefMap = new HashMap<MidUseNode, Set<MidSaveNode>>();
-		for (Entry<MidSaveNode, Set<MidUseNode>> entry : doctor.getDefUseMap()
-				.entrySet()) {
-			MidSaveNode saveNode = entry.getKey();
-			Set<MidUseNode> useNodes = entry.getValue();
-
-			for (MidUseNode useNode : useNodes) {
-				Set<MidSaveNode> saveNodes = useDefMap.get(useNode);
-				if (saveNodes == null) {
-					saveNodes = new LinkedHashSet<MidSaveNode>();
-					useDefMap.put(useNode, saveNodes);
-				}
-				saveNodes.add(saveNode);
+	/**
+	 * A save already in loop's preheader that saves the same value as
+	 * saveNode, if every read of saveNode is a load in the loop and can read
+	 * that one instead.
+	 */
+	private MidSaveNode findSameSave(MidSaveNode saveNode,
+			List<MidSaveNode> preheaderSaves, Loop loop) {
+		Set<MidUseNode> uses = defUseMap.get(saveNode);
+		if (uses == null || !saveNode.savesRegister()) {
+			return null;
+		}
+		for (MidUseNode useNode : uses) {
+			if (!(useNode instanceof MidLoadNode)
+					|| !loops.get(loop).blocks.contains(generator
+							.getBlock((MidNode) useNode))) {
+				return null;
+			}
+		}
+		for (MidSaveNode other : preheaderSaves) {
+			if (other.savesRegister()
+					&& computesSame(saveNode.getRegNode(), other.getRegNode())) {
+				return other;
 			}
 		}
+		return null;
+	}
 
-		for (Block block : generator.getAllBlocks()) {
-			Set<Loop> loops = generator.getLoops(block);
-			Loop innerMostLoop = findInnerMostLoop(loops);
+	/**
+	 * Whether two hoisted operations compute the same value. Their operands
+	 * are invariant, so the same variables hold the same values.
+	 */
+	private static boolean computesSame(MidRegisterNode a, MidRegisterNode b) {
+		if (a.getClass() != b.getClass()) {
+			return false;
+		}
+		if (a instanceof MidLoadNode) {
+			return sameValue(((MidLoadNode) a).getMemoryNode(),
+					((MidLoadNode) b).getMemoryNode());
+		}
+		if (a instanceof MidArithmeticNode) {
+			MidArithmeticNode arithA = (MidArithmeticNode) a;
+			MidArithmeticNode arithB = (MidArithmeticNode) b;
+			MidMemoryNode leftA = arithA.getLeftOperand().getMemoryNode();
+			MidMemoryNode rightA = arithA.getRightOperand().getMemoryNode();
+			MidMemoryNode leftB = arithB.getLeftOperand().getMemoryNode();
+			MidMemoryNode rightB = arithB.getRightOperand().getMemoryNode();
+			return (sameValue(leftA, leftB) && sameValue(rightA, rightB))
+					|| (arithA.isCommutative() && sameValue(leftA, rightB) && sameValue(
+							rightA, leftB));
+		}
+		return a instanceof MidUnaryRegNode
+				&& sameValue(((MidUnaryRegNode) a).getOperand().getMemoryNode(),
+						((MidUnaryRegNode) b).getOperand().getMemoryNode());
+	}
 
-			for (MidNode node : block) {
-				if (node instanceof MidSaveNode) {
+	private static boolean sameValue(MidMemoryNode a, MidMemoryNode b) {
+		if (!(a instanceof MidArrayElementNode)
+				&& !(b instanceof MidArrayElementNode)) {
+			return a.equals(b);
+		}
+		if (!(a instanceof MidArrayElementNode)
+				|| !(b instanceof MidArrayElementNode)) {
+			return false;
+		}
+		MidArrayElementNode elementA = (MidArrayElementNode) a;
+		MidArrayElementNode elementB = (MidArrayElementNode) b;
+		if (elementA.getArrayDecl() != elementB.getArrayDecl()
+				|| elementA.isConstant() != elementB.isConstant()) {
+			return false;
+		}
+		if (elementA.isConstant()) {
+			return elementA.getConstantIndex() == elementB.getConstantIndex();
+		}
+		return sameValue(elementA.getLoadNode().getMemoryNode(), elementB
+				.getLoadNode().getMemoryNode());
+	}
 
+	private void findInvariantSaveNodes() {
+		// Saves can become invariant once what they read is moved out.
+		boolean found = true;
+		while (found) {
+			found = false;
+			for (Block block : generator.getAllBlocks()) {
+				for (MidNode node : block) {
+					if (!(node instanceof MidSaveNode)
+							|| invariantSaves.containsKey(node)) {
+						continue;
+					}
 					MidSaveNode saveNode = (MidSaveNode) node;
-					if (((MidSaveNode) node).savesRegister()) {
-
-						List<MidLoadNode> operands = new ArrayList<MidLoadNode>();
-						MidRegisterNode regNode = saveNode.getRegNode();
-
-						if (regNode instanceof MidLoadNode) {
-							MidLoadNode loadNode = (MidLoadNode) regNode;
-							operands.add(loadNode);
-							if (loadNode.usesArrayRegister()) {
-								// Skip hoisting array accesses for now.
-								continue;
-								// MidArrayElementNode elNode =
-								// loadNode.getMidArrayElementNode();
-								// operands.add(elNode.getLoadNode());
-							}
-						} else if (regNode instanceof MidArithmeticNode) {
-							MidArithmeticNode arithNode = (MidArithmeticNode) regNode;
-							operands.add(arithNode.getLeftOperand());
-							operands.add(arithNode.getRightOperand());
-						} else if (regNode instanceof MidNegNode) {
-							MidNegNode negNode = (MidNegNode) regNode;
-							operands.add(negNode.getOperand());
-						}
-
-						// Check if operands are constants.
-						boolean allConstant = true;
-						for (MidLoadNode operand : operands) {
-							if (!operand.getMemoryNode().isConstant()) {
-								allConstant = false;
-								break;
-							}
-						}
-						if (allConstant) {
-							invariantSaves.put(saveNode, innerMostLoop);
-							continue;
-						}
-
-						// Check if all reaching defs of x and y are outside the
-						// inner-most loop.
-						boolean isInvariant = true;
-						for (MidLoadNode operand : operands) {
-							Set<Loop> operandSaveLoops = new LinkedHashSet<Loop>();
-							Set<MidSaveNode> saveNodes = useDefMap.get(operand);
-							if (saveNodes == null) {
-								// No other save nodes, so it must be invariant.
-								continue;
-							}
-							for (MidSaveNode operandSave : saveNodes) {
-								Block operandParent = generator
-										.getBlock(operandSave);
-								operandSaveLoops.addAll(generator
-										.getLoops(operandParent));
-							}
-							if (operandSaveLoops.contains(innerMostLoop)) {
-								isInvariant = false;
-								break;
-							}
-						}
-						if (isInvariant) {
-							invariantSaves.put(saveNode, innerMostLoop);
+					List<MidNode> tree = getTree(saveNode);
+					if (tree == null) {
+						continue;
+					}
+					for (Entry<Loop, Body> entry : loops.entrySet()) {
+						Body body = entry.getValue();
+						if (body.blocks.contains(block)
+								&& canHoist(saveNode, tree, block, entry.getKey(),
+										body)) {
+							invariantSaves.put(saveNode, entry.getKey());
+							trees.put(saveNode, tree);
+							found = true;
+							break;
 						}
-					} else {
-						// Otherwise it saves a constant so it's invariant.
-						invariantSaves.put(saveNode, innerMostLoop);
 					}
 				}
 			}
 		}
 	}
 
-	private Loop findInnerMostLoop(Set<Loop> loops) {
-		Loop out = null;
-		int domSetSize = -1;
-		DominanceRecord dr = generator.getRecord();
-		for (Loop loop : loops) {
-			Block start = loop.getStart();
-			Set<Block> dominatedSet = dr.getBlocks(start);
-			int newSize = dominatedSet.size();
-			if (newSize > domSetSize) {
-				out = loop;
-				domSetSize = newSize;
+	/**
+	 * The nodes computing what saveNode saves, then saveNode, or null if
+	 * it isn't a save that can move.
+	 */
+	private List<MidNode> getTree(MidSaveNode saveNode) {
+		List<MidNode> out = new ArrayList<MidNode>();
+		if (saveNode.savesRegister()) {
+			MidRegisterNode regNode = saveNode.getRegNode();
+			if (regNode instanceof MidLoadNode) {
+				MidLoadNode loadNode = (MidLoadNode) regNode;
+				if (loadNode.usesArrayRegister()) {
+					out.add(loadNode.getMidArrayElementNode().getLoadNode());
+				}
+			} else if (regNode instanceof MidArithmeticNode) {
+				MidArithmeticNode arithNode = (MidArithmeticNode) regNode;
+				out.add(arithNode.getLeftOperand());
+				out.add(arithNode.getRightOperand());
+			} else if (regNode instanceof MidUnaryRegNode) {
+				out.add(((MidUnaryRegNode) regNode).getOperand());
+			} else {
+				return null;
+			}
+			out.add(regNode);
+		}
+		out.add(saveNode);
+		Block block = generator.getBlock(saveNode);
+		for (MidNode node : out) {
+			if (generator.getBlock(node) != block) {
+				return null;
 			}
 		}
 		return out;
 	}
 
+	private boolean canHoist(MidSaveNode saveNode, List<MidNode> tree,
+			Block block, Loop loop, Body body) {
+		MidMemoryNode dest = saveNode.getDestinationNode();
+		// Linked temps share a location with another temp.
+		if (!(dest instanceof MidLocalMemoryNode)
+				|| (dest instanceof MidTempDeclNode && ((MidTempDeclNode) dest)
+						.getLink() != null)) {
+			return false;
+		}
+		for (MidSaveNode other : body.saves) {
+			if (other != saveNode && dest.equals(other.getDestinationNode())) {
+				return false;
+			}
+		}
+		for (MidUseNode useNode : body.uses) {
+			if (reads(useNode, dest)) {
+				Set<MidSaveNode> defs = useDefMap.get(useNode);
+				if (defs == null || defs.size() != 1
+						|| !defs.contains(saveNode)) {
+					return false;
+				}
+			}
+		}
+		boolean dominatesExits = dominatesExits(block, body);
+		Set<MidUseNode> uses = defUseMap.get(saveNode);
+		if (uses != null && !dominatesExits) {
+			for (MidUseNode useNode : uses) {
+				if (!body.blocks.contains(generator.getBlock((MidNode) useNode))) {
+					return false;
+				}
+			}
+		}
+
+		for (MidNode node : tree) {
+			if (node instanceof MidLoadNode
+					&& !isInvariant((MidLoadNode) node, body)) {
+				return false;
+			}
+		}
+
+		if (dominatesExits) {
+			return true;
+		}
+		if (isColderThanEntry(block, loop, body)) {
+			coldSaves.add(saveNode);
+			return false;
+		}
+		if (!saveNode.savesRegister()) {
+			return true;
+		}
+		MidRegisterNode regNode = saveNode.getRegNode();
+		if (regNode instanceof MidLoadNode
+				&& ((MidLoadNode) regNode).getMemoryNode() instanceof MidArrayElementNode) {
+			MidArrayElementNode element = (MidArrayElementNode) ((MidLoadNode) regNode)
+					.getMemoryNode();
+			if (!element.isConstant()) {
+				return false;
+			}
+			long index = element.getConstantIndex();
+			return index >= 0 && index < element.getArrayDecl().getLength();
+		}
+		if (regNode instanceof MidRDXOverwriter) {
+			MidMemoryNode divisor = ((MidArithmeticNode) regNode)
+					.getRightOperand().getMemoryNode();
+			return isConstant(divisor) && divisor.getConstant() != 0
+					&& divisor.getConstant() != -1;
+		}
+		return true;
+	}
+
+	/**
+	 * Whether the profile says block ran fewer times than loop was entered.
+	 * Entries are the start's runs less those from inside the loop.
+	 */
+	private boolean isColderThanEntry(Block block, Loop loop, Body body) {
+		if (counts == null) {
+			return false;
+		}
+		long count = getCount(block);
+		long entries = getCount(loop.getStart());
+		if (count < 0 || entries < 0) {
+			return false;
+		}
+		for (Block pred : loop.getStart().getPredecessors()) {
+			if (body.blocks.contains(pred)) {
+				long predCount = getCount(pred);
+				if (predCount < 0) {
+					return false;
+				}
+				entries -= predCount;
+			}
+		}
+		return count < entries;
+	}
+
+	/**
+	 * The profiled count of block's head. Other nodes can have been moved
+	 * in from elsewhere, hoisted ones included, and keep the counts of
+	 * where they came from.
+	 */
+	private long getCount(Block block) {
+		return counts.getCount(block.getHead());
+	}
+
+	/**
+	 * Whether loadNode reads the same value all through the loop.
+	 */
+	private boolean isInvariant(MidLoadNode loadNode, Body body) {
+		MidMemoryNode memory = loadNode.getMemoryNode();
+		if (memory instanceof MidArrayElementNode) {
+			// A variable index is loaded separately and checked on its own.
+			return !body.calls
+					&& !body.arrays.contains(((MidArrayElementNode) memory)
+							.getArrayDecl());
+		}
+		if (isConstant(memory)) {
+			return true;
+		}
+		if (memory instanceof MidFieldDeclNode) {
+			return !body.calls && !body.writes(memory);
+		}
+		Set<MidSaveNode> defs = useDefMap.get(loadNode);
+		if (defs == null) {
+			return true;
+		}
+		for (MidSaveNode def : defs) {
+			if (body.blocks.contains(generator.getBlock(def))
+					&& !isHoistedOutOf(def, body)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Whether saveNode goes to the preheader of body's loop or of a loop
+	 * around it.
+	 */
+	private boolean isHoistedOutOf(MidSaveNode saveNode, Body body) {
+		Loop loop = invariantSaves.get(saveNode);
+		return loop != null && loops.get(loop).blocks.containsAll(body.blocks);
+	}
+
+	private boolean dominatesExits(Block block, Body body) {
+		if (body.exits.isEmpty()) {
+			return false;
+		}
+		for (Block exit : body.exits) {
+			Set<Block> dominators = record.getBlocks(exit);
+			if (dominators == null || !dominators.contains(block)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Constant elements of arrays aren't constant values.
+	 */
+	private static boolean isConstant(MidMemoryNode memory) {
+		return memory.isConstant() && !(memory instanceof MidArrayElementNode);
+	}
+
+	private static boolean reads(MidUseNode useNode, MidMemoryNode memory) {
+		MidMemoryNode read = useNode.getMemoryNode();
+		return read != null && memory.equals(read);
+	}
+
 }
@@ -3,51 +3,70 @@ package edu.mit.compilers.opt.cm;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
-import edu.mit.compilers.opt.Analyzer;
+import edu.mit.compilers.opt.BitVector;
 import edu.mit.compilers.opt.Block;
+import edu.mit.compilers.opt.Numbering;
 import edu.mit.compilers.opt.State;
 
+/**
+ * Set of dominating blocks, stored as a BitVector over the blocks of the
+ * method being analyzed. Blocks are numbered as they're first seen; every
+ * state derived from the same start state shares the numbering. The bottom
+ * state (every block) is kept as a flag rather than a full vector, since the
+ * blocks aren't known until the analysis reaches them.
+ */
 public class DomState implements State<DomState> {
 
-	private Set<Block> domSet;
+	private final Numbering<Block> numbering;
+	// null means every block.
+	private BitVector domSet;
 
 	public DomState() {
-		domSet = new LinkedHashSet<Block>();
+		this(new Numbering<Block>(), new BitVector());
 	}
 
-	private DomState(Set<Block> otherSet) {
-		domSet = otherSet;
+	private DomState(Numbering<Block> numbering, BitVector domSet) {
+		this.numbering = numbering;
+		this.domSet = domSet;
 	}
 
 	@Override
 	public DomState getInitialState(Block b) {
-		DomState out = new DomState();
+		DomState out = new DomState(numbering, new BitVector());
 		out.addBlock(b);
 		return out;
 	}
 
 	public DomState clone() {
-		Set<Block> newSet = new LinkedHashSet<Block>(domSet);
-		return new DomState(newSet);
+		return new DomState(numbering, (domSet == null) ? null : domSet
+				.clone());
 	}
 
 	@Override
 	public DomState getBottomState() {
-		DomState out = new DomState();
-		for (Block b : Analyzer.getReferenceBlocks()) {
-			out.addBlock(b);
-		}
-		return out;
+		return new DomState(numbering, null);
 	}
 
+	/**
+	 * Intersects this state into s. The analyzers only ever pass in the
+	 * running result of previous joins (or null), so s can be updated in
+	 * place.
+	 */
 	@Override
 	public DomState join(DomState s) {
 		if (s == null) {
 			return this.clone();
 		}
-		Set<Block> otherSet = new LinkedHashSet<Block>(s.getDomSet());
-		otherSet.retainAll(domSet);
-		return new DomState(otherSet);
+		assert s.numbering == numbering : "Joining states from different analyses.";
+		if (domSet == null) {
+			return s;
+		}
+		if (s.domSet == null) {
+			s.domSet = domSet.clone();
+		} else {
+			s.domSet.and(domSet);
+		}
+		return s;
 	}
 
 	@Override
@@ -56,27 +75,40 @@ public class DomState implements State<DomState> {
 			return false;
 		}
 		DomState oDomState = (DomState) o;
-		return domSet.equals(oDomState.getDomSet());
+		if (domSet == null || oDomState.domSet == null) {
+			return domSet == oDomState.domSet;
+		}
+		return domSet.equals(oDomState.domSet);
 	}
 
 	Set<Block> getDomSet() {
-		return domSet;
+		assert domSet != null : "Block was never reached from the entry.";
+		Set<Block> out = new LinkedHashSet<Block>();
+		for (int i = domSet.nextSetBit(0); i >= 0; i = domSet.nextSetBit(i + 1)) {
+			out.add(numbering.get(i));
+		}
+		return out;
 	}
 
 	@Override
 	public int hashCode() {
-		// Look at equals instead.
-		return 0;
+		return (domSet == null) ? 0 : domSet.hashCode();
 	}
 
 	public void addBlock(Block b) {
-		domSet.add(b);
+		if (domSet == null) {
+			return;
+		}
+		domSet.set(numbering.getId(b));
 	}
 
 	@Override
 	public String toString() {
+		if (domSet == null) {
+			return "[all]";
+		}
 		String out = "[";
-		for (Block b : domSet) {
+		for (Block b : getDomSet()) {
 			out += b.getBlockNum() + " (" + b.getHead() + "), ";
 		}
 		out += "]";
@@ -1,6 +1,6 @@
 package edu.mit.compilers.opt.cm;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -13,7 +13,7 @@ public class DominanceRecord {
 	private Map<Block, Set<Block>> dominanceMap;
 
 	public DominanceRecord(Analyzer<DomState, DomTransfer> dominatorAnalyzer) {
-		dominanceMap = new HashMap<Block, Set<Block>>();
+		dominanceMap = new LinkedHashMap<Block, Set<Block>>();
 		for (Block b : dominatorAnalyzer.getProcessedBlocks()) {
 			DomState domState = dominatorAnalyzer.getAnalyzedState(b);
 			Set<Block> domSet;
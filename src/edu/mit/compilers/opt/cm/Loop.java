@@ -1,9 +1,12 @@
 package edu.mit.compilers.opt.cm;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import edu.mit.compilers.codegen.nodes.FillerMidNode;
 import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.codegen.nodes.jumpops.MidJumpNode;
 import edu.mit.compilers.opt.Block;
 
 public class Loop {
@@ -20,29 +23,72 @@ public class Loop {
 	public Block getStart() {
 		return start;
 	}
-	
+
 	public Block getEnd() {
 		return end;
 	}
-	
-	public Block getPreheaderBlock() {
+
+	/**
+	 * Whether code placed right before the start runs exactly when the loop
+	 * is entered: every way in from outside blocks falls through into the
+	 * start, and every way around the loop jumps back.
+	 */
+	public boolean hasPreheader(Set<Block> blocks) {
+		if (start.getHead() == null || start.getHead().getPrevNode() == null) {
+			return false;
+		}
+		boolean entered = false;
+		for (Block pred : start.getPredecessors()) {
+			boolean fallsThrough = fallsThrough(pred, start);
+			if (blocks.contains(pred) == fallsThrough) {
+				return false;
+			}
+			entered |= fallsThrough;
+		}
+		return entered;
+	}
+
+	private static boolean fallsThrough(Block from, Block to) {
+		MidNode next = from.getTail().getNextNode();
+		if (next instanceof MidJumpNode) {
+			MidJumpNode jump = (MidJumpNode) next;
+			if (!jump.isConditional() || jump.getLabelNode() == to.getHead()) {
+				return false;
+			}
+			next = jump.getNextNode();
+		}
+		return next == to.getHead();
+	}
+
+	/**
+	 * An empty block right before the start, made the first time it's asked
+	 * for. The ways into the loop from outside blocks go through it instead
+	 * of straight to the start. Only a real preheader if
+	 * hasPreheader(blocks).
+	 */
+	public Block getPreheaderBlock(Set<Block> blocks) {
 		if (this.preheader == null) {
 			MidNode fillerNode = new FillerMidNode();
-			preheader = new Block(fillerNode, Block.blockNumCounter++);
+			// Preheaders aren't part of the numbered CFG.
+			preheader = new Block(fillerNode, -1);
 			preheader.setTail(fillerNode);
-			
+
 			MidNode startHead = start.getHead();
 			MidNode oldPrev = startHead.getPrevNode();
 			oldPrev.setNextNode(fillerNode);
 			fillerNode.setNextNode(startHead);
-			
-			for (Block pred : start.getPredecessors()) {
+
+			List<Block> preds = new ArrayList<Block>(start.getPredecessors());
+			for (Block pred : preds) {
+				if (blocks.contains(pred)) {
+					continue;
+				}
 				List<Block> successors = pred.getSuccessors();
-				successors.remove(start);
-				successors.add(preheader);
+				successors.set(successors.indexOf(start), preheader);
+				start.getPredecessors().remove(pred);
+				preheader.getPredecessors().add(pred);
 			}
-			
-			start.setPredecessor(preheader);
+			preheader.addSuccessor(start);
 		}
 		return preheader;
 	}
@@ -1,12 +1,12 @@
 package edu.mit.compilers.opt.cm;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 
@@ -29,9 +29,9 @@ public class LoopGenerator {
 
 	public LoopGenerator(DominanceRecord record) {
 		this.record = record;
-		nodeToBlockMap = new HashMap<MidNode, Block>();
-		blockToLoopMap = new HashMap<Block, Set<Loop>>();
-		loopToBlockMap = new HashMap<Loop, Set<Block>>();
+		nodeToBlockMap = new LinkedHashMap<MidNode, Block>();
+		blockToLoopMap = new LinkedHashMap<Block, Set<Loop>>();
+		loopToBlockMap = new LinkedHashMap<Loop, Set<Block>>();
 		loops = new LinkedHashSet<Loop>();
 	}
 
@@ -65,9 +65,14 @@ public class LoopGenerator {
 	 */
 	private void populateLoopMap(Loop loop) {
 		List<Block> visited = new ArrayList<Block>();
-		Set<Loop> loopStartSet = new LinkedHashSet<Loop>();
+		// An outer loop populated first has already added the start to its
+		// set. Replacing the set would drop the start from the outer loop.
+		Set<Loop> loopStartSet = blockToLoopMap.get(loop.getStart());
+		if (loopStartSet == null) {
+			loopStartSet = new LinkedHashSet<Loop>();
+			blockToLoopMap.put(loop.getStart(), loopStartSet);
+		}
 		loopStartSet.add(loop);
-		blockToLoopMap.put(loop.getStart(), loopStartSet);
 		visited.add(loop.getStart());
 
 		Stack<Block> stack = new Stack<Block>();
@@ -105,8 +110,8 @@ public class LoopGenerator {
 			if (partiallyVisited.contains(succ)) {
 				if (!fullyVisited.contains(succ)) {
 					// Discovered a loop.
-					LogCenter.debug("CM", "Found a new loop from "
-							+ succ.getHead() + " to " + next.getHead());
+					LogCenter.debug("CM", "Found a new loop from %s to %s",
+							succ.getHead(), next.getHead());
 					Loop loop = new Loop(next, succ);
 					loops.add(loop);
 				}
@@ -139,6 +144,17 @@ public class LoopGenerator {
 		return loops;
 	}
 
+	public Set<Loop> getLoops() {
+		return loopToBlockMap.keySet();
+	}
+
+	/**
+	 * The blocks in loop, its start included.
+	 */
+	public Set<Block> getBlocks(Loop loop) {
+		return loopToBlockMap.get(loop);
+	}
+
 	public DominanceRecord getRecord() {
 		return record;
 	}
@@ -55,8 +55,7 @@ public class CMTransformer extends Transformer<CMState> {
 		Loop l = local.getLoop(block);
 
 		if (l.getDepth() == 0) {
-			LogCenter.debug("CM", "" + block.getHead()
-					+ " not a loop, skipping");
+			LogCenter.debug("CM", "%s not a loop, skipping", block.getHead());
 			return;
 		}
 		
@@ -71,9 +70,9 @@ public class CMTransformer extends Transformer<CMState> {
 					MidLoadNode right = ((MidArithmeticNode) reg).getRightOperand();
 					Loop checkLeft = local.getLoop(defBlock.get(useDef.get(left)));
 					Loop checkRight = local.getLoop(defBlock.get(useDef.get(right)));
-					LogCenter.debug("CM", "loop " + l.getDepth());
-					LogCenter.debug("CM", "left " + checkLeft);
-					LogCenter.debug("CM", "right " + checkRight);
+					LogCenter.debug("CM", "loop %s", l.getDepth());
+					LogCenter.debug("CM", "left %s", checkLeft);
+					LogCenter.debug("CM", "right %s", checkRight);
 					if (checkLeft.getNum() < l.getNum() && checkRight.getNum() < l.getNum()) {
 						invariant = true;
 					}
@@ -91,8 +90,7 @@ public class CMTransformer extends Transformer<CMState> {
 					}
 				}
 
-				LogCenter.debug("CM", "" + node.toString() + " is invariant? "
-						+ invariant);
+				LogCenter.debug("CM", "%s is invariant? %s", node, invariant);
 			}
 		}
 	}
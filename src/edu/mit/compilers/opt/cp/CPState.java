@@ -2,7 +2,8 @@ package edu.mit.compilers.opt.cp;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -19,7 +20,7 @@ public class CPState implements State<CPState> {
 	HashMap<MidMemoryNode, MidMemoryNode> definitionMap;
 
 	public CPState() {
-		definitionMap = new HashMap<MidMemoryNode, MidMemoryNode>();
+		definitionMap = new LinkedHashMap<MidMemoryNode, MidMemoryNode>();
 	}
 
 	public CPState(HashMap<MidMemoryNode, MidMemoryNode> definitionMap) {
@@ -49,10 +50,10 @@ public class CPState implements State<CPState> {
 		if (s == null) {
 			return this.clone();
 		}
-		HashMap<MidMemoryNode, MidMemoryNode> outMap = new HashMap<MidMemoryNode, MidMemoryNode>();
+		HashMap<MidMemoryNode, MidMemoryNode> outMap = new LinkedHashMap<MidMemoryNode, MidMemoryNode>();
 
 		HashMap<MidMemoryNode, MidMemoryNode> otherMap = s.getDefinitionMap();
-		Set<MidMemoryNode> keySet = new HashSet<MidMemoryNode>(
+		Set<MidMemoryNode> keySet = new LinkedHashSet<MidMemoryNode>(
 				definitionMap.keySet());
 		keySet.addAll(otherMap.keySet());
 		for (MidMemoryNode key : keySet) {
@@ -94,13 +95,13 @@ public class CPState implements State<CPState> {
 			return;
 		}
 
-		LogCenter.debug("CP", "Processing def " + destNode + " <- " + fromNode);
+		LogCenter.debug("CP", "Processing def %s <- %s", destNode, fromNode);
 
 		MidMemoryNode lookedUpNode = definitionMap.get(fromNode);
 		if (lookedUpNode != null) {
 			definitionMap.put(destNode, lookedUpNode);
-			LogCenter.debug("CP", "Ended up mapping " + destNode + " <- "
-					+ lookedUpNode);
+			LogCenter.debug("CP", "Ended up mapping %s <- %s", destNode,
+					lookedUpNode);
 		} else {
 			definitionMap.put(destNode, fromNode);
 		}
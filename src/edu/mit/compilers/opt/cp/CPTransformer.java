@@ -12,7 +12,6 @@ import edu.mit.compilers.codegen.nodes.regops.MidLoadNode;
 import edu.mit.compilers.codegen.nodes.regops.MidRegisterNode;
 import edu.mit.compilers.opt.Block;
 import edu.mit.compilers.opt.Transformer;
-import edu.mit.compilers.opt.meta.Optimizer;
 
 public class CPTransformer extends Transformer<CPState> {
 
@@ -66,7 +65,7 @@ public class CPTransformer extends Transformer<CPState> {
 					replacementNode = localState.lookup(memNode);
 					if (replacementNode != memNode) {
 						loadNode.updateMemoryNode(replacementNode, true);
-						Optimizer.setHasAdditionalChanges();
+						markChanged();
 					}
 				}
 
@@ -75,10 +74,10 @@ public class CPTransformer extends Transformer<CPState> {
 						&& ((MidMethodCallNode) node).isStarbucksCall()) {
 					continue;
 				}
-				LogCenter.debug("CP", "Resetting state because of "
-						+ ((MidCallNode) node).getName());
+				LogCenter.debug("CP", "Resetting state because of %s",
+						((MidCallNode) node).getName());
 				localState.reset();
-				LogCenter.debug("CP", "New state: " + localState);
+				LogCenter.debug("CP", "New state: %s", localState);
 			}
 		}
 	}
@@ -87,12 +86,17 @@ public class CPTransformer extends Transformer<CPState> {
 			MidArrayElementNode arrayElementNode) {
 		MidLoadNode loadNode = arrayElementNode.getLoadNode();
 		MidMemoryNode memNode = loadNode.getMemoryNode();
-		LogCenter.debug("CPJ", "Looking at " + memNode + " ("
-				+ memNode.isConstant() + ")");
-		if (memNode.isConstant()) {
+		LogCenter.debug("CPJ", "Looking at %s (%s)", memNode,
+				memNode.isConstant());
+		if (memNode.isConstant() && !arrayElementNode.isConstant()) {
 			// Remove register operation and use a constant instead.
+			// Copies can lead to a temp that only ever holds a constant.
+			MidConstantNode constantNode = memNode instanceof MidConstantNode
+					? (MidConstantNode) memNode
+					: new MidConstantNode(memNode.getConstant());
 			block.delete(loadNode);
-			arrayElementNode.setConstantNode((MidConstantNode) memNode);
+			arrayElementNode.setConstantNode(constantNode);
+			markChanged();
 		}
 	}
 
@@ -2,6 +2,7 @@ package edu.mit.compilers.opt.cse;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,9 +26,9 @@ public class CSEGlobalState implements State<CSEGlobalState>, Cloneable {
 	HashMap<MidMemoryNode, List<GlobalExpr>> mentionMap;
 
 	public CSEGlobalState() {
-		refToExprMap = new HashMap<MidMemoryNode, GlobalExpr>();
-		exprToRefMap = new HashMap<GlobalExpr, List<MidMemoryNode>>();
-		mentionMap = new HashMap<MidMemoryNode, List<GlobalExpr>>();
+		refToExprMap = new LinkedHashMap<MidMemoryNode, GlobalExpr>();
+		exprToRefMap = new LinkedHashMap<GlobalExpr, List<MidMemoryNode>>();
+		mentionMap = new LinkedHashMap<MidMemoryNode, List<GlobalExpr>>();
 	}
 
 	public CSEGlobalState(HashMap<MidMemoryNode, GlobalExpr> refToExprMap,
@@ -59,20 +60,20 @@ public class CSEGlobalState implements State<CSEGlobalState>, Cloneable {
 
 	@Override
 	public CSEGlobalState join(CSEGlobalState s) {
-		LogCenter.debug("OPT", "JOINING " + this);
-		LogCenter.debug("OPT", "WITH " + s);
+		LogCenter.debug("OPT", "JOINING %s", this);
+		LogCenter.debug("OPT", "WITH %s", s);
 		// Take common expressions, only if they're temp vars or equal non-temp
 		// vars.
 		if (s == null) {
 			CSEGlobalState out = this.clone();
-			LogCenter.debug("OPT", "RESULT: " + out);
+			LogCenter.debug("OPT", "RESULT: %s", out);
 			return out;
 		}
 		Set<GlobalExpr> sharedSet = exprToRefMap.keySet();
 		sharedSet.retainAll(s.exprToRefMap.keySet());
-		HashMap<GlobalExpr, List<MidMemoryNode>> newExprToRefMap = new HashMap<GlobalExpr, List<MidMemoryNode>>();
-		HashMap<MidMemoryNode, GlobalExpr> newRefToExprMap = new HashMap<MidMemoryNode, GlobalExpr>();
-		HashMap<MidMemoryNode, List<GlobalExpr>> newMentionMap = new HashMap<MidMemoryNode, List<GlobalExpr>>();
+		HashMap<GlobalExpr, List<MidMemoryNode>> newExprToRefMap = new LinkedHashMap<GlobalExpr, List<MidMemoryNode>>();
+		HashMap<MidMemoryNode, GlobalExpr> newRefToExprMap = new LinkedHashMap<MidMemoryNode, GlobalExpr>();
+		HashMap<MidMemoryNode, List<GlobalExpr>> newMentionMap = new LinkedHashMap<MidMemoryNode, List<GlobalExpr>>();
 		for (GlobalExpr e : sharedSet) {
 			MidMemoryNode newMemNode = null;
 			List<MidMemoryNode> thisMemoryNodes = exprToRefMap.get(e);
@@ -124,7 +125,7 @@ public class CSEGlobalState implements State<CSEGlobalState>, Cloneable {
 		}
 		CSEGlobalState out = new CSEGlobalState(newRefToExprMap,
 				newExprToRefMap, newMentionMap);
-		LogCenter.debug("OPT", "RESULT: " + out);
+		LogCenter.debug("OPT", "RESULT: %s", out);
 		return out;
 	}
 
@@ -160,15 +161,15 @@ public class CSEGlobalState implements State<CSEGlobalState>, Cloneable {
 	// TODO (this always gets called before gen reference, so just make them one
 	// method) ?
 	public void killReferences(MidMemoryNode node) {
-		LogCenter.debug("OPT", "Killing references to " + node);
+		LogCenter.debug("OPT", "Killing references to %s", node);
 		// LogCenter.debug("[OPTJ] mentionMap:\n[OPTJ] " + mentionMap);
 		// LogCenter.debug("[OPTJ] refToExprMap:\n[OPTJ] " + refToExprMap);
 		// LogCenter.debug("[OPTJ] exprToRefMap:\n[OPTJ] " + exprToRefMap);
 		if (mentionMap.containsKey(node)) {
-			LogCenter.debug("OPT", "-- Found references to " + node);
+			LogCenter.debug("OPT", "-- Found references to %s", node);
 			// Remove stuff for each expr that is affected by the node.
 			for (GlobalExpr e : new ArrayList<GlobalExpr>(mentionMap.get(node))) {
-				LogCenter.debug("OPT", "-- Killing  " + e);
+				LogCenter.debug("OPT", "-- Killing  %s", e);
 				// Kill the expression e by deleting expression from
 				// expr -> [R] and all R -> expr
 
@@ -199,9 +200,9 @@ public class CSEGlobalState implements State<CSEGlobalState>, Cloneable {
 			}
 
 			LogCenter.debug("OPT", "AFTER:");
-			LogCenter.debug("OPT", "mentionMap:\n[OPTJ] " + mentionMap);
-			LogCenter.debug("OPT", "refToExprMap:\n[OPTJ] " + refToExprMap);
-			LogCenter.debug("OPT", "exprToRefMap:\n[OPTJ] " + exprToRefMap);
+			LogCenter.debug("OPT", "mentionMap:\n[OPTJ] %s", mentionMap);
+			LogCenter.debug("OPT", "refToExprMap:\n[OPTJ] %s", refToExprMap);
+			LogCenter.debug("OPT", "exprToRefMap:\n[OPTJ] %s", exprToRefMap);
 			LogCenter.debug("OPT", "");
 		}
 	}
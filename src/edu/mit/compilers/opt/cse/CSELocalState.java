@@ -45,8 +45,7 @@ public class CSELocalState {
 			v = new Value();
 			this.varToVal.put(node, v);
 		}
-		LogCenter.debug("OPT", String
-				.format("Map VAR->VAL : %s -> %s", node, v));
+		LogCenter.debug("OPT", "Map VAR->VAL : %s -> %s", node, v);
 		return v;
 	}
 
@@ -56,7 +55,7 @@ public class CSELocalState {
 	 * following temp variable can store from the same register.
 	 */
 	public void addVarVal(MidMemoryNode m, MidRegisterNode r, Value v) {
-		LogCenter.debug("OPT", String.format("Map VAR->VAL : %s -> %s", m, v));
+		LogCenter.debug("OPT", "Map VAR->VAL : %s -> %s", m, v);
 		this.varToVal.put(m, v);
 	}
 
@@ -96,8 +95,8 @@ public class CSELocalState {
 			MidLoadNode loadNode) {
 		assert !this.valToTemp.containsKey(v3);
 		MidSaveNode m = new OptSaveNode(loadNode, destinationNode);
-		LogCenter.debug("OPT", "Saving temp node for later use: " + m + " ("
-				+ m.hashCode() + ")");
+		LogCenter.debug("OPT", "Saving temp node for later use: %s (%s)", m,
+				m.hashCode());
 		this.valToTemp.put(v3, m);
 		return m;
 	}
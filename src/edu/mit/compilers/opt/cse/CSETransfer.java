@@ -19,7 +19,6 @@ import edu.mit.compilers.opt.Transfer;
 import edu.mit.compilers.opt.cse.data.BinaryGlobalExpr;
 import edu.mit.compilers.opt.cse.data.GlobalExpr;
 import edu.mit.compilers.opt.cse.data.LeafGlobalExpr;
-import edu.mit.compilers.opt.meta.Optimizer;
 
 public class CSETransfer implements Transfer<CSEGlobalState> {
 
@@ -49,7 +48,7 @@ public class CSETransfer implements Transfer<CSEGlobalState> {
 		}
 
 		for (MidNode assignmentNode : this.assignments) {
-			LogCenter.debug("OPT", "\nProcessing " + assignmentNode);
+			LogCenter.debug("OPT", "\nProcessing %s", assignmentNode);
 			if (assignmentNode instanceof MidSaveNode) {
 				if (assignmentNode instanceof OptSaveNode) {
 					continue;
@@ -72,13 +71,18 @@ public class CSETransfer implements Transfer<CSEGlobalState> {
 			}
 		}
 
-		LogCenter.debug("OPT", "FINAL STATE IS " + outState);
+		LogCenter.debug("OPT", "FINAL STATE IS %s", outState);
 		LogCenter.debug("OPT", "");
 
 		return outState;
 	}
 
-	private void processSimpleAssignment(MidSaveNode node, CSEGlobalState state) {
+	/**
+	 * Records a = x for global CSE: a now holds x, and expressions that
+	 * mention a are gone.
+	 */
+	public static void processSimpleAssignment(MidSaveNode node,
+			CSEGlobalState state) {
 
 		MidLoadNode loadNode = (MidLoadNode) node.getRegNode();
 
@@ -127,7 +131,6 @@ public class CSETransfer implements Transfer<CSEGlobalState> {
 				newSaveNode.insertAfter(loadTempNode);
 				AnalyzerHelpers.completeDeleteUnary(saveNode, block);
 				modified = true;
-				Optimizer.setHasAdditionalChanges();
 			}
 		}
 
@@ -169,7 +172,6 @@ public class CSETransfer implements Transfer<CSEGlobalState> {
 				newSaveNode.insertAfter(loadTempNode);
 				AnalyzerHelpers.completeDeleteBinary(saveNode, block);
 				modified = true;
-				Optimizer.setHasAdditionalChanges();
 			}
 		}
 
@@ -15,7 +15,6 @@ import edu.mit.compilers.opt.AnalyzerHelpers;
 import edu.mit.compilers.opt.Block;
 import edu.mit.compilers.opt.Transformer;
 import edu.mit.compilers.opt.Value;
-import edu.mit.compilers.opt.meta.Optimizer;
 
 public class CSETransformer extends Transformer<CSEGlobalState> {
 
@@ -49,12 +48,18 @@ public class CSETransformer extends Transformer<CSEGlobalState> {
 		}
 
 		for (MidNode assignmentNode : this.assignments) {
-			LogCenter.debug("CSE", "Processing " + assignmentNode);
+			LogCenter.debug("CSE", "Processing %s", assignmentNode);
 			if (assignmentNode instanceof MidSaveNode) {
 				MidSaveNode saveNode = (MidSaveNode) assignmentNode;
 				// a = x
 				if (saveNode.getRegNode() instanceof MidLoadNode) {
 					processSimpleAssignment(saveNode, localState);
+					// Keep the global state in step with CSETransfer, or an
+					// expression over a stays available after a changes.
+					if (!(saveNode instanceof OptSaveNode)) {
+						CSETransfer.processSimpleAssignment(saveNode,
+								globalState);
+					}
 				}
 				// a = -x
 				if (saveNode.getRegNode() instanceof MidNegNode) {
@@ -101,6 +106,9 @@ public class CSETransformer extends Transformer<CSEGlobalState> {
 		// Check if we can reuse from an earlier block, i.e. global state
 		boolean modified = CSETransfer.processUnaryAssignmentHelper(block,
 				saveNode, globalState, true);
+		if (modified) {
+			markChanged();
+		}
 
 		// Check if the value is already in a temp.
 		if (tempNode == null) {
@@ -121,7 +129,7 @@ public class CSETransformer extends Transformer<CSEGlobalState> {
 			newSaveNode.insertAfter(loadTempNode);
 			AnalyzerHelpers.completeDeleteUnary(saveNode, block);
 
-			Optimizer.setHasAdditionalChanges();
+			markChanged();
 		}
 	}
 
@@ -142,6 +150,9 @@ public class CSETransformer extends Transformer<CSEGlobalState> {
 
 		boolean modified = CSETransfer.processArithmeticAssignmentHelper(block,
 				saveNode, globalState, true);
+		if (modified) {
+			markChanged();
+		}
 
 		// Check if the value is already in a temp.
 		if (tempNode == null) {
@@ -151,10 +162,10 @@ public class CSETransformer extends Transformer<CSEGlobalState> {
 			// instead. This is the magical optimization step.
 			// We assume tempNode is already in the midNodeList and can be
 			// loaded.
-			LogCenter.debug("CSE|CPJ", s.toString());
+			LogCenter.debug("CSE|CPJ", "%s", s);
 			LogCenter.debug("CSE|CPJ", "HALLELUJAH OPTIMIZING CSE (BINARY).");
-			LogCenter.debug("CSE|CPJ", "replacing " + saveNode + " with: "
-					+ tempNode + " (" + tempNode.hashCode() + ")");
+			LogCenter.debug("CSE|CPJ", "replacing %s with: %s (%s)", saveNode,
+					tempNode, tempNode.hashCode());
 			MidLoadNode loadTempNode = new MidLoadNode(
 					tempNode.getDestinationNode());
 			MidSaveNode newSaveNode = new MidSaveNode(loadTempNode,
@@ -164,7 +175,7 @@ public class CSETransformer extends Transformer<CSEGlobalState> {
 			newSaveNode.insertAfter(loadTempNode);
 			AnalyzerHelpers.completeDeleteBinary(saveNode, block);
 
-			Optimizer.setHasAdditionalChanges();
+			markChanged();
 		}
 	}
 
@@ -178,8 +189,8 @@ public class CSETransformer extends Transformer<CSEGlobalState> {
 		tempDeclNode.insertAfter(saveNode);
 		newLoadNode.insertAfter(tempDeclNode);
 		newTempNode.insertAfter(newLoadNode);
-		LogCenter.debug("CSE", "Inserting a temp node: " + newTempNode + " ("
-				+ newTempNode.hashCode() + ")");
+		LogCenter.debug("CSE", "Inserting a temp node: %s (%s)", newTempNode,
+				newTempNode.hashCode());
 	}
 
 }
@@ -1,7 +1,5 @@
 package edu.mit.compilers.opt.dce;
 
-import java.util.Set;
-
 import edu.mit.compilers.LogCenter;
 import edu.mit.compilers.codegen.nodes.MidCallNode;
 import edu.mit.compilers.codegen.nodes.MidNode;
@@ -9,6 +7,7 @@ import edu.mit.compilers.codegen.nodes.MidSaveNode;
 import edu.mit.compilers.codegen.nodes.memory.MidConstantNode;
 import edu.mit.compilers.codegen.nodes.memory.MidLocalMemoryNode;
 import edu.mit.compilers.codegen.nodes.memory.MidMemoryNode;
+import edu.mit.compilers.codegen.nodes.memory.MidTempDeclNode;
 import edu.mit.compilers.codegen.nodes.regops.MidArithmeticNode;
 import edu.mit.compilers.codegen.nodes.regops.MidLoadNode;
 import edu.mit.compilers.codegen.nodes.regops.MidNegNode;
@@ -47,9 +46,7 @@ public class DeadCodeElim extends Transformer<LivenessState> {
 					}
 				}
 
-				Set<MidUseNode> uses = localState.getUses(saveNode
-						.getDestinationNode());
-				if (uses == null || uses.isEmpty()) {
+				if (!localState.isLive(saveNode.getDestinationNode())) {
 					// Delete dead code, only if dealing with local variables.
 					MidMemoryNode destNode = (saveNode).getDestinationNode();
 					if (destNode instanceof MidLocalMemoryNode
@@ -66,8 +63,13 @@ public class DeadCodeElim extends Transformer<LivenessState> {
 	}
 
 	private void deleteSaveNodeEtAl(Block block, MidSaveNode saveNode) {
-		LogCenter.debug("DCE", "DELETING " + saveNode);
+		LogCenter.debug("DCE", "DELETING %s", saveNode);
 		if (saveNode.savesRegister()) {
+			// CSE adds temps every run and they're mostly dead, dropping
+			// them again isn't progress.
+			if (!(saveNode.getDestinationNode() instanceof MidTempDeclNode)) {
+				markChanged();
+			}
 			if (saveNode.getRegNode() instanceof MidCallNode) {
 				AnalyzerHelpers.completeDeleteMethodSave(saveNode, block);
 			} else if (saveNode.getRegNode() instanceof MidLoadNode) {
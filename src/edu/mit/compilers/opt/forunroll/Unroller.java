@@ -25,15 +25,59 @@ import edu.mit.compilers.grammar.tokens.WHILENode;
 import edu.mit.compilers.grammar.tokens.WHILE_TERMINATENode;
 
 public class Unroller {
-	static int count = 0;
-	static int varCounter = 0;
+	/**
+	 * Numbering for the program being unrolled. Each thread compiling a
+	 * program has its own.
+	 */
+	private static class Counters {
+		int count = 0;
+		int varCounter = 0;
+		// See setFactor().
+		int maxForLength = MAX_FOR_LENGTH;
+		int largestUnrollLg = LARGEST_UNROLL_LG;
+	}
+
+	private static final ThreadLocal<Counters> counters = new ThreadLocal<Counters>() {
+		@Override
+		protected Counters initialValue() {
+			return new Counters();
+		}
+	};
 	
 	static int MAX_FOR_LENGTH = 0; 
 	
 	static int LARGEST_UNROLL_LG = 1; // corresponds to 2**5 unroll.
 	
+	/**
+	 * Restarts the unroll variable numbering for the next program compiled
+	 * on this thread.
+	 */
+	public static void reset(){
+		counters.set(new Counters());
+	}
+
+	/**
+	 * Unrolls loops of any length factor times in the next program compiled
+	 * on this thread. factor must be a power of two; 0 or 1 leaves the
+	 * defaults, which only unroll empty loops. Call after reset().
+	 *
+	 * Only innermost loops are unrolled, since each unrolled level multiplies
+	 * the size of everything inside it.
+	 */
+	public static void setFactor(int factor){
+		assert Integer.bitCount(factor) <= 1 : factor;
+		Counters c = counters.get();
+		if (factor <= 1) {
+			c.maxForLength = MAX_FOR_LENGTH;
+			c.largestUnrollLg = LARGEST_UNROLL_LG;
+		} else {
+			c.maxForLength = Integer.MAX_VALUE;
+			c.largestUnrollLg = Integer.numberOfTrailingZeros(factor);
+		}
+	}
+	
 	public static String getVariableName(){
-		return "!unroll_"+varCounter++;
+		return "!unroll_"+counters.get().varCounter++;
 	}
 	
 	
@@ -81,6 +125,17 @@ public class Unroller {
 		}
 	}
 	
+	private static boolean containsLoop(DecafNode node) {
+		for (DecafNode child = node.getFirstChild(); child != null; child = child
+				.getNextSibling()) {
+			if (child instanceof FORNode || child instanceof WHILENode
+					|| containsLoop(child)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/* Unroll completely 
 	for(i=4; 10){
 		print(i)
@@ -131,7 +186,7 @@ public class Unroller {
 	*/
 	
 	public static DecafNode unroll(FORNode forNode){
-		count++;
+		counters.get().count++;
 		
 		LogCenter.debug("FU", "I enter! ");
 
@@ -144,7 +199,9 @@ public class Unroller {
 		BLOCKNode blockNode = forNode.getBlockNode();
 		
 		// Can't unroll if variable gets modified.
-		if (!blockNode.isUnrollable(iterVar, true) || blockNode.getNumberOfChildren() > MAX_FOR_LENGTH){
+		// Or if it holds another loop, already unrolled or not.
+		if (!blockNode.isUnrollable(iterVar, true) || blockNode.getNumberOfChildren() > counters.get().maxForLength
+				|| containsLoop(blockNode)){
 			LogCenter.debug("FU", "I exit1!");
 			return forNode;
 		}
@@ -180,7 +237,7 @@ public class Unroller {
 			iterInitDeclNode.setNextSibling(copyAssignNode);
 			copyAssignNode.setNextSibling(innerBlock);
 			
-			LogCenter.debug("FU","Unrolled to: "+unrolledBlock);
+			LogCenter.debug("FU", "Unrolled to: %s", unrolledBlock);
 			
 			LogCenter.debug("FU", "I exit2!");
 			return unrolledBlock;
@@ -215,11 +272,12 @@ public class Unroller {
 		// ADD PARAMS HERE.
 		DecafNode lastNode = null;
 		
+		int largestUnrollLg = counters.get().largestUnrollLg;
 		long pow2 = 1;
-		for(int i=0; i < LARGEST_UNROLL_LG; i++){
+		for(int i=0; i < largestUnrollLg; i++){
 			pow2*=2;
 		}
-		for(int i=0; i <= LARGEST_UNROLL_LG; i++){
+		for(int i=0; i <= largestUnrollLg; i++){
 			if (i==0){
 				WHILENode whileNode = generateWhile(iterVar, termVar, blockNode, pow2);
 				if (innerNode.getFirstChild() == null) {
@@ -247,7 +305,7 @@ public class Unroller {
 		copyAssignIterNode.setNextSibling(copyAssignTermNode);
 		copyAssignTermNode.setNextSibling(innerNode);
 		
-		LogCenter.debug("FU","Unrolled to: "+unrolledBlock);
+		LogCenter.debug("FU", "Unrolled to: %s", unrolledBlock);
 		LogCenter.debug("FU", "I exit3!");
 		return unrolledBlock;
 	}
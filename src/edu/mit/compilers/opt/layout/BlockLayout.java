@@ -0,0 +1,362 @@
+package edu.mit.compilers.opt.layout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.codegen.MidLabelManager.LabelType;
+import edu.mit.compilers.codegen.MidNodeList;
+import edu.mit.compilers.codegen.nodes.MidExitNode;
+import edu.mit.compilers.codegen.nodes.MidLabelNode;
+import edu.mit.compilers.codegen.nodes.MidMethodCallNode;
+import edu.mit.compilers.codegen.nodes.MidMethodDeclNode;
+import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.codegen.nodes.MidReturnNode;
+import edu.mit.compilers.codegen.nodes.jumpops.MidJumpNode;
+import edu.mit.compilers.opt.AnalysisManager;
+import edu.mit.compilers.opt.profile.FrequencyEstimator;
+
+/**
+ * Reorders a method's blocks so that each one is followed by its likeliest
+ * successor, then inverts branches so the likely way falls through and
+ * drops jumps to the block right after. Blocks that end in a runtime error,
+ * or that the profile says never run, go to the end of the method.
+ *
+ * Blocks are chained greedily along the heaviest edges first, after Pettis
+ * and Hansen. Edges are weighted by FrequencyEstimator, split between a
+ * block's successors by how often those run. This also rotates loops: the
+ * test ends up below the body, so an iteration takes one branch instead of
+ * a jump and a branch that isn't taken.
+ *
+ * Only labels and jumps are added and removed, so it can run after register
+ * allocation. The CFG doesn't end blocks at returns and runtime errors, so
+ * those keep a jump to the code they used to fall into. It's never taken,
+ * but passes after this one see the same CFG as before.
+ */
+public class BlockLayout {
+
+	/**
+	 * A run of nodes only entered at the top: the label, the code and the
+	 * jumps ending it.
+	 */
+	private static class Chunk {
+		final int id;
+		final MidLabelNode label;
+		// Where Block.getAllBlocks() starts this chunk's block.
+		final MidNode first;
+		final List<MidNode> nodes;
+		// Conditional jumps at the end, in order.
+		final List<MidJumpNode> branches;
+		// The unconditional jump after them, if any.
+		MidJumpNode jump;
+		// Where control goes if no branch is taken. For chunks that exit
+		// that's where Block.getAllBlocks() thinks it goes, null at the end.
+		Chunk next;
+		// Returns, exits or calls a method that reports a runtime error.
+		boolean exits;
+		boolean cold;
+		double frequency;
+		Chunk chainPrev;
+		Chunk chainNext;
+
+		Chunk(int id, MidLabelNode label, MidNode first) {
+			this.id = id;
+			this.label = label;
+			this.first = first;
+			this.nodes = new ArrayList<MidNode>();
+			this.branches = new ArrayList<MidJumpNode>();
+		}
+
+		boolean isEnded() {
+			return jump != null || !branches.isEmpty();
+		}
+
+		Chunk getChainHead() {
+			Chunk out = this;
+			while (out.chainPrev != null) {
+				out = out.chainPrev;
+			}
+			return out;
+		}
+
+		@Override
+		public String toString() {
+			return label == null ? "entry" : label.getName();
+		}
+	}
+
+	private static class Edge {
+		final Chunk from;
+		final Chunk to;
+		final double weight;
+
+		Edge(Chunk from, Chunk to, double weight) {
+			this.from = from;
+			this.to = to;
+			this.weight = weight;
+		}
+	}
+
+	private final String methodName;
+	private final MidMethodDeclNode method;
+	private final FrequencyEstimator frequencies;
+	private final List<MidNode> original;
+	private final List<Chunk> chunks;
+	private final Map<MidLabelNode, Chunk> labeled;
+
+	public BlockLayout(AnalysisManager analyses) {
+		this.methodName = analyses.getMethodName();
+		this.method = analyses.getMethod();
+		this.frequencies = new FrequencyEstimator(analyses.getLoops(),
+				analyses.getBlockCounts());
+		this.original = new ArrayList<MidNode>();
+		this.chunks = new ArrayList<Chunk>();
+		this.labeled = new HashMap<MidLabelNode, Chunk>();
+	}
+
+	/**
+	 * Lays out the method. Returns whether anything moved.
+	 */
+	public boolean layout() {
+		split();
+		if (!link()) {
+			LogCenter.debug("BL", "%s: jumps out of the method, skipping",
+					methodName);
+			return false;
+		}
+		for (Chunk chunk : chunks) {
+			if (!chunk.cold) {
+				chunk.frequency = frequencies.getFrequency(chunk.first);
+			}
+		}
+		chain();
+		List<MidNode> out = emit(order());
+		if (out.equals(original)) {
+			return false;
+		}
+		MidNodeList nodeList = new MidNodeList();
+		for (MidNode node : out) {
+			node.setNextNode(null);
+		}
+		for (MidNode node : out) {
+			nodeList.add(node);
+		}
+		method.setNodeList(nodeList);
+		return true;
+	}
+
+	/**
+	 * Cuts the method into chunks. Code after a jump gets a new label so
+	 * it can be moved on its own.
+	 */
+	private void split() {
+		MidNode head = method.getNodeList().getHead();
+		Chunk current = addChunk(null, head);
+		for (MidNode node = head; node != null; node = node.getNextNode()) {
+			original.add(node);
+			if (node instanceof MidLabelNode) {
+				current = addChunk((MidLabelNode) node, node);
+			} else if (node instanceof MidJumpNode) {
+				MidJumpNode jump = (MidJumpNode) node;
+				if (current.jump != null) {
+					// Dead, nothing falls into it.
+					current = addChunk(newLabel(), node);
+				}
+				if (jump.isConditional()) {
+					current.branches.add(jump);
+				} else {
+					current.jump = jump;
+				}
+			} else {
+				if (current.isEnded()) {
+					current = addChunk(newLabel(), node);
+				}
+				current.nodes.add(node);
+				if (node instanceof MidReturnNode) {
+					current.exits = true;
+				} else if (node instanceof MidExitNode
+						|| (node instanceof MidMethodCallNode && ((MidMethodCallNode) node)
+								.isStarbucksCall())) {
+					current.exits = true;
+					current.cold = true;
+				}
+			}
+		}
+	}
+
+	private Chunk addChunk(MidLabelNode label, MidNode first) {
+		Chunk out = new Chunk(chunks.size(), label, first);
+		chunks.add(out);
+		if (label != null) {
+			labeled.put(label, out);
+		}
+		return out;
+	}
+
+	/**
+	 * Labels made here have a dot in them, so they can't clash with any
+	 * other label in the program.
+	 */
+	private MidLabelNode newLabel() {
+		return new MidLabelNode(LabelType.SKIP, String.format("%s.bl%d",
+				methodName, chunks.size()));
+	}
+
+	/**
+	 * Finds each chunk's successor. Returns false if some jump goes
+	 * somewhere that isn't a chunk or control can fall off the end.
+	 */
+	private boolean link() {
+		for (Chunk chunk : chunks) {
+			for (MidJumpNode branch : chunk.branches) {
+				if (!labeled.containsKey(branch.getLabelNode())) {
+					return false;
+				}
+			}
+			if (chunk.jump != null) {
+				chunk.next = labeled.get(chunk.jump.getLabelNode());
+			} else if (chunk.id + 1 < chunks.size()) {
+				chunk.next = chunks.get(chunk.id + 1);
+			}
+			if (chunk.next == null && (chunk.jump != null || !chunk.exits)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Chains chunks along the heaviest edges first. An edge is taken if it
+	 * leaves the end of one chain and enters the start of another. Edges
+	 * that never run aren't taken at all, so cold chunks stay apart.
+	 */
+	private void chain() {
+		List<Edge> edges = new ArrayList<Edge>();
+		for (Chunk chunk : chunks) {
+			if (chunk.exits) {
+				continue;
+			}
+			Set<Chunk> successors = new LinkedHashSet<Chunk>();
+			for (MidJumpNode branch : chunk.branches) {
+				successors.add(labeled.get(branch.getLabelNode()));
+			}
+			if (chunk.next != null) {
+				successors.add(chunk.next);
+			}
+			double total = 0;
+			for (Chunk successor : successors) {
+				total += successor.frequency;
+			}
+			for (Chunk successor : successors) {
+				if (total > 0 && successor.frequency > 0) {
+					edges.add(new Edge(chunk, successor, chunk.frequency
+							* successor.frequency / total));
+				}
+			}
+		}
+		Collections.sort(edges, new Comparator<Edge>() {
+			@Override
+			public int compare(Edge a, Edge b) {
+				if (a.weight != b.weight) {
+					return a.weight > b.weight ? -1 : 1;
+				}
+				// On a tie, keep the order the code was written in.
+				boolean aInOrder = a.to.id == a.from.id + 1;
+				boolean bInOrder = b.to.id == b.from.id + 1;
+				if (aInOrder != bInOrder) {
+					return aInOrder ? -1 : 1;
+				}
+				return a.from.id != b.from.id ? a.from.id - b.from.id
+						: a.to.id - b.to.id;
+			}
+		});
+		for (Edge edge : edges) {
+			if (edge.from.chainNext == null && edge.to.chainPrev == null
+					&& edge.to.id != 0 && edge.from.getChainHead() != edge.to) {
+				edge.from.chainNext = edge.to;
+				edge.to.chainPrev = edge.from;
+			}
+		}
+	}
+
+	/**
+	 * The entry's chain, then the other chains in the order their first
+	 * chunks were written, then the ones that never run.
+	 */
+	private List<Chunk> order() {
+		List<Chunk> hot = new ArrayList<Chunk>();
+		List<Chunk> cold = new ArrayList<Chunk>();
+		for (Chunk chunk : chunks) {
+			if (chunk.chainPrev != null) {
+				continue;
+			}
+			boolean runs = false;
+			for (Chunk c = chunk; c != null; c = c.chainNext) {
+				runs |= c.frequency > 0;
+			}
+			if (chunk.id == 0 || runs) {
+				hot.add(chunk);
+			} else {
+				cold.add(chunk);
+			}
+		}
+		hot.addAll(cold);
+		List<Chunk> out = new ArrayList<Chunk>();
+		for (Chunk head : hot) {
+			for (Chunk c = head; c != null; c = c.chainNext) {
+				out.add(c);
+			}
+		}
+		LogCenter.debug("BL", "%s: laid out as %s", methodName, out);
+		return out;
+	}
+
+	/**
+	 * The method's nodes in the new order, with the jumps fixed up. Labels
+	 * nothing jumps to any more are left out.
+	 */
+	private List<MidNode> emit(List<Chunk> order) {
+		List<List<MidJumpNode>> endings = new ArrayList<List<MidJumpNode>>();
+		Set<MidLabelNode> targets = new HashSet<MidLabelNode>();
+		for (int i = 0; i < order.size(); i++) {
+			Chunk chunk = order.get(i);
+			Chunk after = i + 1 < order.size() ? order.get(i + 1) : null;
+			List<MidJumpNode> ending = new ArrayList<MidJumpNode>(
+					chunk.branches);
+			if (chunk.next != null && chunk.next != after) {
+				MidJumpNode branch = ending.size() == 1 ? ending.get(0) : null;
+				MidJumpNode inverted = branch != null
+						&& labeled.get(branch.getLabelNode()) == after ? branch
+						.invert(chunk.next.label) : null;
+				if (inverted != null) {
+					ending.set(0, inverted);
+				} else {
+					ending.add(chunk.jump != null ? chunk.jump
+							: new MidJumpNode(chunk.next.label));
+				}
+			}
+			for (MidJumpNode jump : ending) {
+				targets.add(jump.getLabelNode());
+			}
+			endings.add(ending);
+		}
+		List<MidNode> out = new ArrayList<MidNode>();
+		for (int i = 0; i < order.size(); i++) {
+			Chunk chunk = order.get(i);
+			if (chunk.label != null && targets.contains(chunk.label)) {
+				out.add(chunk.label);
+			}
+			out.addAll(chunk.nodes);
+			out.addAll(endings.get(i));
+		}
+		return out;
+	}
+
+}
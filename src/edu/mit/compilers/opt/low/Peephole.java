@@ -0,0 +1,688 @@
+package edu.mit.compilers.opt.low;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.Stats;
+import edu.mit.compilers.codegen.Reg;
+import edu.mit.compilers.codegen.asm.ASM;
+import edu.mit.compilers.codegen.asm.ImmediateOperand;
+import edu.mit.compilers.codegen.asm.LabelASM;
+import edu.mit.compilers.codegen.asm.LabelOperand;
+import edu.mit.compilers.codegen.asm.LabeledOpASM;
+import edu.mit.compilers.codegen.asm.MemoryOperand;
+import edu.mit.compilers.codegen.asm.OpASM;
+import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
+import edu.mit.compilers.codegen.asm.RegisterOperand;
+import edu.mit.compilers.opt.regalloc.RegisterAllocator;
+
+/**
+ * Rewrites short runs of allocated assembly into cheaper code, e.g.
+ *
+ * <pre>
+ * MOV R10, RSI
+ * ADD R10, 1
+ * MOV RSI, R10
+ * </pre>
+ *
+ * into ADD RSI, 1. Each Rule looks at a window of consecutive lines. Every
+ * line is tried once, and after a rewrite only the lines whose windows
+ * overlap the new code are tried again, until no rule matches.
+ *
+ * The temp registers R10 and R11 only carry values within the code for one
+ * mid-level node, and the flags only from a CMP to its jumps, so neither is
+ * live at a label or a call. Rules rely on that to tell whether a value
+ * they drop is read later.
+ */
+public class Peephole {
+
+	/**
+	 * A rewrite of size consecutive lines.
+	 */
+	abstract static class Rule {
+		final String name;
+		final int size;
+
+		Rule(String name, int size) {
+			this.name = name;
+			this.size = size;
+		}
+
+		/**
+		 * The lines to put in place of the window's, or null if the window
+		 * doesn't match.
+		 */
+		abstract List<ASM> rewrite(Window window);
+	}
+
+	private static class Line {
+		final ASM asm;
+		Line prev;
+		Line next;
+		boolean removed;
+		boolean queued;
+
+		Line(ASM asm) {
+			this.asm = asm;
+		}
+	}
+
+	/**
+	 * The lines a rule is looking at, and maybe some after them.
+	 */
+	static class Window {
+		private final Line[] lines;
+		private final int size;
+
+		/**
+		 * The next maxSize lines from first, or as many as there are.
+		 */
+		Window(Line first) {
+			lines = new Line[maxSize];
+			int i = 0;
+			for (Line line = first; line != null && i < maxSize; line = line.next) {
+				lines[i++] = line;
+			}
+			size = i;
+		}
+
+		ASM get(int i) {
+			return lines[i].asm;
+		}
+
+		/**
+		 * Whether line i is op with that many operands.
+		 */
+		boolean is(int i, OpCode op, int args) {
+			return op(i) == op && ((OpASM) get(i)).getArgs().length == args;
+		}
+
+		boolean is(int i, Set<OpCode> ops, int args) {
+			return op(i) != null && ops.contains(op(i))
+					&& ((OpASM) get(i)).getArgs().length == args;
+		}
+
+		/**
+		 * Line i's op code, or null if it's a label.
+		 */
+		OpCode op(int i) {
+			return isCode(get(i)) ? ((OpASM) get(i)).getOpCode() : null;
+		}
+
+		Operand arg(int i, int j) {
+			return ((OpASM) get(i)).getArg(j);
+		}
+
+		/**
+		 * Whether the value temp has after line i is never read.
+		 */
+		boolean isDeadAfter(int i, Reg temp) {
+			assert TEMPS.contains(temp);
+			for (Line line = lines[i].next; line != null; line = line.next) {
+				if (!isCode(line.asm)) {
+					return true;
+				}
+				OpASM asm = (OpASM) line.asm;
+				if (asm.reads(temp)) {
+					return false;
+				}
+				if (asm.overwrites(temp) || ENDS.contains(asm.getOpCode())) {
+					return true;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Whether the flags after line i are never read.
+		 */
+		boolean flagsDeadAfter(int i) {
+			return flagReaders(i, FLAG_READERS);
+		}
+
+		/**
+		 * Whether only JE and JNE read the flags after line i.
+		 */
+		boolean onlyZeroTestedAfter(int i) {
+			return flagReaders(i, EnumSet.complementOf(EnumSet.of(OpCode.JE,
+					OpCode.JNE)));
+		}
+
+		/**
+		 * Whether no instruction in banned reads the flags after line i.
+		 */
+		private boolean flagReaders(int i, Set<OpCode> banned) {
+			for (Line line = lines[i].next; line != null; line = line.next) {
+				if (!isCode(line.asm)) {
+					return true;
+				}
+				OpCode op = ((OpASM) line.asm).getOpCode();
+				if (FLAG_READERS.contains(op) && banned.contains(op)) {
+					return false;
+				}
+				if (FLAG_WRITERS.contains(op) || ENDS.contains(op)) {
+					return true;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static final Set<OpCode> BRANCHES = EnumSet.of(OpCode.JE,
+			OpCode.JNE, OpCode.JL, OpCode.JLE, OpCode.JG, OpCode.JGE);
+	private static final Set<OpCode> FLAG_READERS = EnumSet.of(OpCode.JE,
+			OpCode.JNE, OpCode.JL, OpCode.JLE, OpCode.JG, OpCode.JGE,
+			OpCode.CMOVE, OpCode.CMOVNE, OpCode.CMOVL, OpCode.CMOVLE,
+			OpCode.CMOVG, OpCode.CMOVGE);
+	private static final Set<OpCode> FLAG_WRITERS = EnumSet.of(OpCode.ADD,
+			OpCode.SUB, OpCode.IMUL, OpCode.AND, OpCode.OR, OpCode.XOR,
+			OpCode.CMP, OpCode.NEG, OpCode.IDIV);
+	// Neither temps nor flags are live past these.
+	private static final Set<OpCode> ENDS = EnumSet.of(OpCode.CALL,
+			OpCode.JMP, OpCode.RET);
+	// Only read their first operand.
+	private static final Set<OpCode> READS = EnumSet.of(OpCode.CMP,
+			OpCode.PUSH, OpCode.IDIV);
+	private static final Set<OpCode> ARITHMETIC = EnumSet.of(OpCode.ADD,
+			OpCode.SUB, OpCode.IMUL, OpCode.AND, OpCode.OR, OpCode.XOR);
+	private static final Set<OpCode> COMMUTATIVE = EnumSet.of(OpCode.ADD,
+			OpCode.IMUL, OpCode.AND, OpCode.OR, OpCode.XOR);
+	// Take any operand, see make().
+	private static final Set<OpCode> TWO_OPERAND = EnumSet.of(OpCode.MOV,
+			OpCode.ADD, OpCode.SUB, OpCode.IMUL, OpCode.AND, OpCode.OR,
+			OpCode.XOR, OpCode.CMP);
+	private static final Set<OpCode> DATA = EnumSet.of(OpCode.DB,
+			OpCode.DW, OpCode.DQ, OpCode.TIMES, OpCode.RESW, OpCode.EXTERN,
+			OpCode.GLOBAL, OpCode.EQU);
+	private static final Set<Reg> TEMPS = EnumSet.noneOf(Reg.class);
+	static {
+		Collections.addAll(TEMPS, RegisterAllocator.TEMP_REGISTERS);
+	}
+	private static final Operand ZERO = Operand.imm(0);
+
+	private static final List<Rule> RULES = new ArrayList<Rule>();
+	// Run once over the result, since other rules don't match what they make.
+	private static final List<Rule> LATE_RULES = new ArrayList<Rule>();
+	private static int maxSize = 0;
+	static {
+		// MOV RBX, RBX
+		add(new Rule("self-move", 1) {
+			List<ASM> rewrite(Window w) {
+				if (w.is(0, OpCode.MOV, 2) && w.arg(0, 0).equals(w.arg(0, 1))) {
+					return Collections.emptyList();
+				}
+				return null;
+			}
+		});
+		// JMP x
+		// x:
+		add(new Rule("jump-to-next", 2) {
+			List<ASM> rewrite(Window w) {
+				if ((w.is(0, OpCode.JMP, 1) || w.is(0, BRANCHES, 1))
+						&& w.get(1) instanceof LabelASM
+						&& ((LabelOperand) w.arg(0, 0)).getName().equals(
+								((LabelASM) w.get(1)).getName())) {
+					return Collections.singletonList(w.get(1));
+				}
+				return null;
+			}
+		});
+		// Code after a JMP or RET that no label leads to.
+		add(new Rule("unreachable", 2) {
+			List<ASM> rewrite(Window w) {
+				if ((w.op(0) == OpCode.JMP || w.op(0) == OpCode.RET)
+						&& w.op(1) != null && !DATA.contains(w.op(1))) {
+					return Collections.singletonList(w.get(0));
+				}
+				return null;
+			}
+		});
+		// MOV x, a
+		// MOV x, b
+		add(new Rule("dead-store", 2) {
+			List<ASM> rewrite(Window w) {
+				if (!w.is(0, OpCode.MOV, 2) || w.op(1) == null) {
+					return null;
+				}
+				Operand dest = w.arg(0, 0);
+				OpASM next = (OpASM) w.get(1);
+				boolean overwritten;
+				if (dest instanceof RegisterOperand) {
+					Reg reg = reg(dest);
+					overwritten = next.overwrites(reg) && !next.reads(reg);
+				} else {
+					// The second MOV can't read memory too.
+					overwritten = w.is(1, OpCode.MOV, 2)
+							&& w.arg(1, 0).equals(dest);
+				}
+				return overwritten ? Collections.singletonList(w.get(1))
+						: null;
+			}
+		});
+		// MOV R10, a where R10 isn't read.
+		add(new Rule("dead-temp", 1) {
+			List<ASM> rewrite(Window w) {
+				if ((w.is(0, OpCode.MOV, 2) || w.is(0, OpCode.LEA, 2))
+						&& isTemp(w.arg(0, 0))
+						&& w.isDeadAfter(0, reg(w.arg(0, 0)))) {
+					return Collections.emptyList();
+				}
+				return null;
+			}
+		});
+		// MOV R10, a
+		// ADD R10, b
+		// MOV a, R10
+		// becomes ADD a, b, or ADD b, a if the last MOV is to b.
+		add(new Rule("fold-op", 3) {
+			List<ASM> rewrite(Window w) {
+				if (!w.is(0, OpCode.MOV, 2) || !w.is(1, ARITHMETIC, 2)
+						|| !w.is(2, OpCode.MOV, 2)) {
+					return null;
+				}
+				Operand temp = w.arg(0, 0);
+				Operand a = w.arg(0, 1);
+				Operand b = w.arg(1, 1);
+				if (!isTemp(temp) || !w.arg(1, 0).equals(temp)
+						|| !w.arg(2, 1).equals(temp) || b.uses(reg(temp))
+						|| !w.isDeadAfter(2, reg(temp))) {
+					return null;
+				}
+				OpASM out = null;
+				if (w.arg(2, 0).equals(a)) {
+					out = make(name, w.op(1), a, b);
+				} else if (w.arg(2, 0).equals(b) && COMMUTATIVE.contains(w.op(1))) {
+					out = make(name, w.op(1), b, a);
+				}
+				return out == null ? null : Collections.<ASM> singletonList(out);
+			}
+		});
+		// MOV R10, a
+		// ADD RBX, R10
+		// becomes ADD RBX, a when R10 isn't read after.
+		add(new Rule("forward", 2) {
+			List<ASM> rewrite(Window w) {
+				if (!w.is(0, OpCode.MOV, 2) || w.op(1) == null) {
+					return null;
+				}
+				Operand temp = w.arg(0, 0);
+				Operand value = w.arg(0, 1);
+				OpASM next = (OpASM) w.get(1);
+				if (!isTemp(temp)) {
+					return null;
+				}
+				Reg t = reg(temp);
+				if (value.uses(t) || !next.reads(t)) {
+					return null;
+				}
+				boolean written = next.overwrites(t);
+				if (!written && !w.isDeadAfter(1, t)) {
+					return null;
+				}
+				Operand[] args = next.getArgs().clone();
+				OpCode op = next.getOpCode();
+				OpASM out;
+				if (value instanceof RegisterOperand) {
+					// Registers can stand anywhere the temp is read.
+					if (!written && args[0].equals(temp) && !READS.contains(op)) {
+						return null;
+					}
+					for (int j = written ? 1 : 0; j < args.length; j++) {
+						args[j] = args[j].replace(t, reg(value));
+					}
+					out = new OpASM(name, op, args);
+				} else if (!written && TWO_OPERAND.contains(op)
+						&& args.length == 2) {
+					// Anything else only as a whole operand.
+					if (args[1].equals(temp) && !args[0].uses(t)) {
+						out = make(name, op, args[0], value);
+					} else if (op == OpCode.CMP && args[0].equals(temp)
+							&& !args[1].uses(t)) {
+						out = make(name, op, value, args[1]);
+					} else {
+						out = null;
+					}
+				} else {
+					out = null;
+				}
+				return out == null ? null : Collections.<ASM> singletonList(out);
+			}
+		});
+		// MOV R10, a
+		// ADD R10, b
+		// becomes LEA R10, [ a + b ], which the next rule can move.
+		add(new Rule("add-to-lea", 2) {
+			List<ASM> rewrite(Window w) {
+				if (!w.is(0, OpCode.MOV, 2)
+						|| !(w.is(1, OpCode.ADD, 2) || w.is(1, OpCode.SUB, 2))) {
+					return null;
+				}
+				Operand dest = w.arg(0, 0);
+				Operand a = w.arg(0, 1);
+				Operand b = w.arg(1, 1);
+				if (!(dest instanceof RegisterOperand)
+						|| !(a instanceof RegisterOperand) || a.equals(dest)
+						|| !w.arg(1, 0).equals(dest) || b.equals(dest)
+						|| !w.flagsDeadAfter(1)) {
+					return null;
+				}
+				MemoryOperand address;
+				if (b instanceof ImmediateOperand
+						&& ((ImmediateOperand) b).fits32()
+						&& ((ImmediateOperand) b).getValue() >= 0) {
+					long value = ((ImmediateOperand) b).getValue();
+					address = new MemoryOperand(reg(a),
+							w.op(1) == OpCode.ADD ? value : -value, false);
+				} else if (b instanceof RegisterOperand && w.op(1) == OpCode.ADD) {
+					address = new MemoryOperand(null, reg(a), reg(b), 1, 0, false);
+				} else {
+					return null;
+				}
+				return Collections.<ASM> singletonList(new OpASM(name,
+						OpCode.LEA, dest, address));
+			}
+		});
+		// LEA R10, [ a + b ]
+		// MOV RBX, R10
+		add(new Rule("retarget", 2) {
+			List<ASM> rewrite(Window w) {
+				if (w.is(0, OpCode.LEA, 2) && w.is(1, OpCode.MOV, 2)
+						&& isTemp(w.arg(0, 0))
+						&& w.arg(1, 1).equals(w.arg(0, 0))
+						&& w.arg(1, 0) instanceof RegisterOperand
+						&& w.isDeadAfter(1, reg(w.arg(0, 0)))) {
+					return Collections.<ASM> singletonList(new OpASM(name,
+							OpCode.LEA, w.arg(1, 0), w.arg(0, 1)));
+				}
+				return null;
+			}
+		});
+		// CMP a, b
+		// JL x
+		// CMP a, b
+		add(new Rule("repeated-cmp", 3) {
+			List<ASM> rewrite(Window w) {
+				if (w.is(0, OpCode.CMP, 2) && w.is(1, BRANCHES, 1)
+						&& w.is(2, OpCode.CMP, 2)
+						&& w.arg(0, 0).equals(w.arg(2, 0))
+						&& w.arg(0, 1).equals(w.arg(2, 1))) {
+					return Arrays.asList(w.get(0), w.get(1));
+				}
+				return null;
+			}
+		});
+		// SUB a, b
+		// CMP a, 0
+		// JE x
+		add(new Rule("cmp-zero", 2) {
+			List<ASM> rewrite(Window w) {
+				if (!w.is(0, ARITHMETIC, 2) || w.op(0) == OpCode.IMUL
+						|| !w.is(1, OpCode.CMP, 2)
+						|| !w.arg(1, 0).equals(w.arg(0, 0))
+						|| !w.arg(1, 1).equals(ZERO)) {
+					return null;
+				}
+				// Logic sets the flags just like the CMP, ADD and SUB may
+				// set the overflow flag where it doesn't.
+				boolean logic = w.op(0) != OpCode.ADD && w.op(0) != OpCode.SUB;
+				if (logic || w.onlyZeroTestedAfter(1)) {
+					return Collections.singletonList(w.get(0));
+				}
+				return null;
+			}
+		});
+		// MOV R10, 3
+		// CMP R10, 7
+		// JL x
+		// becomes JMP x.
+		add(new Rule("constant-cmp", 3) {
+			List<ASM> rewrite(Window w) {
+				if (!w.is(0, OpCode.MOV, 2) || !w.is(1, OpCode.CMP, 2)
+						|| !w.is(2, BRANCHES, 1)) {
+					return null;
+				}
+				Operand temp = w.arg(0, 0);
+				if (!isTemp(temp) || !w.arg(1, 0).equals(temp)
+						|| !(w.arg(0, 1) instanceof ImmediateOperand)
+						|| !(w.arg(1, 1) instanceof ImmediateOperand)
+						|| !w.isDeadAfter(1, reg(temp)) || !w.flagsDeadAfter(2)) {
+					return null;
+				}
+				return branch(w, 2, ((ImmediateOperand) w.arg(0, 1)).getValue(),
+						((ImmediateOperand) w.arg(1, 1)).getValue());
+			}
+		});
+		// CMP RBX, RBX
+		// JE x
+		add(new Rule("constant-cmp", 2) {
+			List<ASM> rewrite(Window w) {
+				if (w.is(0, OpCode.CMP, 2) && w.is(1, BRANCHES, 1)
+						&& w.arg(0, 0) instanceof RegisterOperand
+						&& w.arg(0, 0).equals(w.arg(0, 1))
+						&& w.flagsDeadAfter(1)) {
+					return branch(w, 1, 0, 0);
+				}
+				return null;
+			}
+		});
+
+		// MOV RBX, 0
+		LATE_RULES.add(new Rule("zero", 1) {
+			List<ASM> rewrite(Window w) {
+				if (w.is(0, OpCode.MOV, 2) && w.arg(0, 0) instanceof RegisterOperand
+						&& w.arg(0, 1).equals(ZERO) && w.flagsDeadAfter(0)) {
+					return Collections.<ASM> singletonList(new OpASM(name,
+							OpCode.XOR, w.arg(0, 0), w.arg(0, 0)));
+				}
+				return null;
+			}
+		});
+	}
+
+	private static void add(Rule rule) {
+		RULES.add(rule);
+		maxSize = Math.max(maxSize, rule.size);
+	}
+
+	/**
+	 * Whether asm is an instruction without a label.
+	 */
+	private static boolean isCode(ASM asm) {
+		return asm instanceof OpASM && !(asm instanceof LabeledOpASM);
+	}
+
+	/**
+	 * Whether operand is one of the temp registers.
+	 */
+	private static boolean isTemp(Operand operand) {
+		return operand instanceof RegisterOperand
+				&& TEMPS.contains(((RegisterOperand) operand).getRegister());
+	}
+
+	private static Reg reg(Operand operand) {
+		return ((RegisterOperand) operand).getRegister();
+	}
+
+	/**
+	 * op dest, source, or null if there's no such instruction. An immediate
+	 * source has to fit in 32 bits unless it's moved to a register.
+	 */
+	private static OpASM make(String comment, OpCode op, Operand dest,
+			Operand source) {
+		boolean register = dest instanceof RegisterOperand;
+		if (!register && !(dest instanceof MemoryOperand)) {
+			return null;
+		}
+		if (!register && source instanceof MemoryOperand) {
+			return null;
+		}
+		if (op == OpCode.IMUL && !register) {
+			return null;
+		}
+		boolean toRegister = op == OpCode.MOV && register;
+		if (source instanceof LabelOperand && !toRegister) {
+			return null;
+		}
+		if (source instanceof ImmediateOperand) {
+			if (!toRegister && !((ImmediateOperand) source).fits32()) {
+				return null;
+			}
+			if (dest instanceof MemoryOperand) {
+				// nasm can't tell the size from an immediate.
+				dest = ((MemoryOperand) dest).toSized();
+			}
+		}
+		return new OpASM(comment, op, dest, source);
+	}
+
+	/**
+	 * The window's branch at i decided by comparing a to b: a JMP if it's
+	 * taken and nothing if it isn't.
+	 */
+	private static List<ASM> branch(Window w, int i, long a, long b) {
+		boolean taken;
+		switch (w.op(i)) {
+		case JE:
+			taken = a == b;
+			break;
+		case JNE:
+			taken = a != b;
+			break;
+		case JL:
+			taken = a < b;
+			break;
+		case JLE:
+			taken = a <= b;
+			break;
+		case JG:
+			taken = a > b;
+			break;
+		case JGE:
+			taken = a >= b;
+			break;
+		default:
+			throw new AssertionError(w.op(i));
+		}
+		if (!taken) {
+			return Collections.emptyList();
+		}
+		return Collections.<ASM> singletonList(new OpASM("constant-cmp",
+				OpCode.JMP, w.arg(i, 0)));
+	}
+
+	/**
+	 * Optimizes asmList, which is one method's code after register
+	 * allocation. Adds how often each rule matched to the stats.
+	 */
+	public static List<ASM> optimize(List<ASM> asmList) {
+		Line head = new Line(null);
+		Line last = head;
+		Deque<Line> work = new ArrayDeque<Line>();
+		for (ASM asm : asmList) {
+			Line line = new Line(asm);
+			line.prev = last;
+			last.next = line;
+			last = line;
+			line.queued = true;
+			work.add(line);
+		}
+
+		Map<String, Integer> hits = new LinkedHashMap<String, Integer>();
+		while (!work.isEmpty()) {
+			Line line = work.poll();
+			line.queued = false;
+			if (line.removed) {
+				continue;
+			}
+			Window window = new Window(line);
+			for (Rule rule : RULES) {
+				Line end = apply(rule, window, hits);
+				if (end == null) {
+					continue;
+				}
+				// The new code is at most maxSize lines, and windows that
+				// start up to maxSize - 1 lines before it overlap it.
+				Line from = end;
+				for (int k = 0; k < 2 * maxSize - 1 && from != head; k++) {
+					from = from.prev;
+				}
+				for (Line l = from; l != end.next; l = l.next) {
+					if (l != head && !l.queued) {
+						l.queued = true;
+						work.add(l);
+					}
+				}
+				break;
+			}
+		}
+		for (Line line = head.next; line != null; line = line.next) {
+			Window window = new Window(line);
+			for (Rule rule : LATE_RULES) {
+				if (apply(rule, window, hits) != null) {
+					break;
+				}
+			}
+		}
+
+		List<ASM> out = new ArrayList<ASM>();
+		for (Line line = head.next; line != null; line = line.next) {
+			if (!line.removed) {
+				out.add(line.asm);
+			}
+		}
+		for (Map.Entry<String, Integer> hit : hits.entrySet()) {
+			Stats.count("peephole " + hit.getKey(), hit.getValue());
+		}
+		LogCenter.debug("PEEP", "%d lines to %d, rules matched: %s", asmList
+				.size(), out.size(), hits);
+		return out;
+	}
+
+	/**
+	 * Tries rule on the start of window. If it matches, puts the new code
+	 * in and returns its last line, or the line before it if the rule
+	 * deleted its lines.
+	 */
+	private static Line apply(Rule rule, Window window,
+			Map<String, Integer> hits) {
+		if (window.size < rule.size) {
+			return null;
+		}
+		List<ASM> replacement = rule.rewrite(window);
+		if (replacement == null) {
+			return null;
+		}
+		Integer count = hits.get(rule.name);
+		hits.put(rule.name, count == null ? 1 : count + 1);
+
+		Line[] lines = window.lines;
+		Line before = lines[0].prev;
+		Line after = lines[rule.size - 1].next;
+		Line prev = before;
+		for (ASM asm : replacement) {
+			Line added = new Line(asm);
+			added.prev = prev;
+			prev.next = added;
+			prev = added;
+		}
+		prev.next = after;
+		if (after != null) {
+			after.prev = prev;
+		}
+		for (int i = 0; i < rule.size; i++) {
+			lines[i].removed = true;
+		}
+		return prev;
+	}
+
+}
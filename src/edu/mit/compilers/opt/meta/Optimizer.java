@@ -1,237 +1,282 @@
 package edu.mit.compilers.opt.meta;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
-
-import com.google.common.io.Files;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.Stats;
 import edu.mit.compilers.codegen.AsmVisitor;
 import edu.mit.compilers.codegen.MemoryManager;
+import edu.mit.compilers.codegen.MidLabelManager;
 import edu.mit.compilers.codegen.MidSymbolTable;
 import edu.mit.compilers.codegen.asm.ASM;
-import edu.mit.compilers.opt.Analyzer;
-import edu.mit.compilers.opt.BackwardsAnalyzer;
-import edu.mit.compilers.opt.as.MidAlgebraicSimplifier;
-import edu.mit.compilers.opt.cm.CodeHoister;
-import edu.mit.compilers.opt.cm.DomState;
-import edu.mit.compilers.opt.cm.DomTransfer;
-import edu.mit.compilers.opt.cm.DominanceRecord;
-import edu.mit.compilers.opt.cm.LoopGenerator;
-import edu.mit.compilers.opt.cp.CPState;
-import edu.mit.compilers.opt.cp.CPTransfer;
-import edu.mit.compilers.opt.cp.CPTransformer;
-import edu.mit.compilers.opt.cse.CSEGlobalState;
-import edu.mit.compilers.opt.cse.CSETransfer;
-import edu.mit.compilers.opt.cse.CSETransformer;
-import edu.mit.compilers.opt.dce.DeadCodeElim;
-import edu.mit.compilers.opt.low.SaveSaver;
-import edu.mit.compilers.opt.regalloc.LivenessDoctor;
-import edu.mit.compilers.opt.regalloc.LivenessState;
-import edu.mit.compilers.opt.regalloc.RegisterAllocator;
+import edu.mit.compilers.codegen.nodes.MidMethodDeclNode;
+import edu.mit.compilers.opt.AnalysisManager;
+import edu.mit.compilers.opt.Block;
+import edu.mit.compilers.opt.low.Peephole;
+import edu.mit.compilers.opt.profile.Instrumenter;
+import edu.mit.compilers.opt.profile.Profile;
+import edu.mit.compilers.tools.CLI;
 
 /**
- * Let's play the meta game. Re-compiles with different parameters and
- * experiments to find the best set. This is a singleton.
+ * Let's play the meta game. Optimizes and lowers a program with one
+ * Tuning; Autotuner re-compiles with many and experiments to find the best
+ * set. This is a singleton per compiling thread.
  */
 public class Optimizer {
 
-	private static int iterID = -1;
-
-	private static final int MAX_CSE_CP_DCE_TIMES = 2;
-	private static Optimizer singleton;
+	// Per thread like the singleton. Method tasks copy it from the thread
+	// that started them.
+	private static final ThreadLocal<Integer> iterID = new ThreadLocal<Integer>() {
+		@Override
+		protected Integer initialValue() {
+			return -1;
+		}
+	};
 
-	// Statically track whether or not we've made optimizations.
-	public static boolean hasAdditionalChanges = false;
-	private int x;
+	private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+	private static final ThreadLocal<Optimizer> singleton = new ThreadLocal<Optimizer>();
 
-	private final boolean optsOn;
-	private boolean enableCSE;
-	private final boolean enableCP;
-	private final boolean enableDCE;
-	private boolean enableCM;
+	private final PassManager passes;
 	private final boolean enableRA;
-
-	private Optimizer(int options) {
-		optsOn = (options & Options.OPTS_ON) == Options.OPTS_ON;
-		enableCSE = (options & Options.CSE) == Options.CSE;
-		enableCP = (options & Options.CP) == Options.CP;
-		enableDCE = (options & Options.DCE) == Options.DCE;
-		enableCM = (options & Options.CM) == Options.CM;
-		enableRA = (options & Options.RA) == Options.RA;
+	private final boolean peephole;
+	private final int jobs;
+	// Set for -profile-generate and -profile-use.
+	private Instrumenter instrumenter;
+	private Profile profile;
+
+	private Optimizer(PassManager passes, boolean peephole, int jobs) {
+		this.passes = passes;
+		this.enableRA = passes.allocates();
+		this.peephole = peephole;
+		this.jobs = jobs;
 	}
 
-	public void ventureForth(MidSymbolTable symbolTable, String outputFile) {
-
-		setHasAdditionalChanges();
-		x = 0;
-		// Run CSE + CP + DCE as long as there are changes,
-		// since each round of CP may help the next round's
-		// CSE.
-		while (hasAdditionalChanges && x < MAX_CSE_CP_DCE_TIMES) {
-			clearHasAdditionalChanges();
-
-			if (enableCSE) {
-				LogCenter.debug("SB", "STARTING CSE.");
-				Analyzer<CSEGlobalState, CSETransfer> analyzer = new Analyzer<CSEGlobalState, CSETransfer>(
-						new CSEGlobalState(), new CSETransfer());
-				analyzer.analyze(symbolTable);
-				CSETransformer localAnalyzer = new CSETransformer();
-				localAnalyzer.analyze(analyzer, symbolTable);
-			}
+	/**
+	 * Optimizes and lowers the program into outputFile. Returns false if the
+	 * output couldn't be written.
+	 */
+	public boolean ventureForth(MidSymbolTable symbolTable, String outputFile) {
+		if (enableRA) {
+			LogCenter.debug("SB", "STARTING RA.");
+			iterID.set(iterID.get() + 1);
+		}
+		Stats.Timer timer = Stats.begin("memory");
+		MemoryManager.assignFieldStorage(symbolTable);
+		Stats.end(timer);
+
+		// Methods don't share any IR, so each one is optimized and lowered
+		// independently. Every method numbers its new nodes from the same
+		// base so the output doesn't depend on scheduling.
+		final int idBase = MidLabelManager.peekNextId();
+		final int iter = iterID.get();
+		List<Callable<List<ASM>>> tasks = new ArrayList<Callable<List<ASM>>>();
+		Map<String, MidMethodDeclNode> methods = symbolTable.getMethods();
+		for (final String methodName : methods.keySet()) {
+			final MidMethodDeclNode method = methods.get(methodName);
+			tasks.add(new Callable<List<ASM>>() {
+				public List<ASM> call() {
+					iterID.set(iter);
+					MidLabelManager.beginMethodScope(idBase);
+					try {
+						optimizeMethod(methodName, method);
+						return lowerMethod(method);
+					} finally {
+						MidLabelManager.endMethodScope();
+					}
+				}
+			});
+		}
+		Map<String, MidMethodDeclNode> starbucksMethods = symbolTable
+				.getStarbucksMethods();
+		for (final String methodName : starbucksMethods.keySet()) {
+			final MidMethodDeclNode method = starbucksMethods.get(methodName);
+			tasks.add(new Callable<List<ASM>>() {
+				public List<ASM> call() {
+					iterID.set(iter);
+					MidLabelManager.beginMethodScope(idBase);
+					try {
+						return lowerMethod(method);
+					} finally {
+						MidLabelManager.endMethodScope();
+					}
+				}
+			});
+		}
+		List<ASM> methodsASM = runAll(tasks);
+		if (instrumenter != null) {
+			methodsASM.addAll(instrumenter.getDumpASM(methods.keySet()));
+		}
+		timer = Stats.begin("build asm");
+		List<ASM> asmList = AsmVisitor.buildASMList(symbolTable, methodsASM);
+		Stats.end(timer, asmList);
+
+		LogCenter.debug("SB", "WRITING FINAL FILE.");
+		timer = Stats.begin("write output");
+		boolean written = writeToOutput(outputFile, asmList);
+		Stats.end(timer, asmList);
+		return written;
+	}
 
-			if (enableCP) {
-				LogCenter.debug("SB", "STARTING CP.");
-				Analyzer<CPState, CPTransfer> analyzer = new Analyzer<CPState, CPTransfer>(
-						new CPState(), new CPTransfer());
-				analyzer.analyze(symbolTable);
-				CPTransformer localAnalyzer = new CPTransformer();
-				localAnalyzer.analyze(analyzer, symbolTable);
-			}
+	/**
+	 * Runs the pipeline on a single method. The CFG and the analyses on it
+	 * are shared between passes through an AnalysisManager, so they're only
+	 * rebuilt after a pass edits the method. Profiling looks at the blocks
+	 * before any pass does, so the counts line up between the instrumented
+	 * build and the one using its profile.
+	 */
+	public void optimizeMethod(String methodName, MidMethodDeclNode method) {
+		AnalysisManager analyses = new AnalysisManager(methodName, method);
+		if (profile != null) {
+			analyses.setBlockCounts(profile.getCounts(methodName, analyses
+					.getBlocks()));
+		}
+		if (instrumenter != null) {
+			List<Block> blocks = analyses.getBlocks();
+			instrumenter.instrument(methodName, blocks);
+			analyses.transformed();
+		}
+		passes.run(analyses);
+	}
 
-			if (enableDCE) {
-				LogCenter.debug("SB", "STARTING DCE.");
-				LivenessDoctor doctor = new LivenessDoctor();
-				BackwardsAnalyzer<LivenessState, LivenessDoctor> analyzer = new BackwardsAnalyzer<LivenessState, LivenessDoctor>(
-						new LivenessState().getBottomState(), doctor);
-				analyzer.analyze(symbolTable);
-				DeadCodeElim dce = new DeadCodeElim();
-				dce.analyze(analyzer, symbolTable);
-			}
+	/**
+	 * Builds the program so that it writes block counts to profileFile when
+	 * it exits, see Instrumenter.
+	 */
+	public void instrument(String profileFile) {
+		instrumenter = new Instrumenter(profileFile);
+	}
 
-			if (optsOn) {
-				LogCenter.debug("SB", "STARTING AS.");
-				MidAlgebraicSimplifier simplifier = new MidAlgebraicSimplifier();
-				simplifier.analyze(symbolTable);
-			}
+	/**
+	 * Optimizes using the block counts in profile.
+	 */
+	public void useProfile(Profile profile) {
+		this.profile = profile;
+	}
 
-			x++;
+	/**
+	 * Assigns storage for a single method and generates its assembly.
+	 */
+	private List<ASM> lowerMethod(MidMethodDeclNode method) {
+		Stats.Timer timer = Stats.begin("memory");
+		MemoryManager.assignStorage(method);
+		Stats.end(timer, method);
+		timer = Stats.begin("lower to asm");
+		List<ASM> asmList = method.toASM();
+		Stats.end(timer, asmList);
+		if (enableRA && peephole) {
+			timer = Stats.begin("peephole");
+			asmList = Peephole.optimize(asmList);
+			Stats.end(timer, asmList);
 		}
+		return asmList;
+	}
 
-		if (enableCM) {
-			for (int i = 0; i < 2; i++) {
-				LogCenter.debug("SB", "STARTING CM.");
-				Analyzer<DomState, DomTransfer> dominatorAnalyzer = new Analyzer<DomState, DomTransfer>(
-						new DomState(), new DomTransfer());
-				dominatorAnalyzer.analyze(symbolTable);
-				DominanceRecord record = new DominanceRecord(dominatorAnalyzer);
-				// Perform DFS through CFGs to build list of loops (IDed by loop
-				// end).
-				LoopGenerator generator = new LoopGenerator(record);
-				generator.run();
-
-				LivenessDoctor doctor = new LivenessDoctor();
-				BackwardsAnalyzer<LivenessState, LivenessDoctor> livenessAnalyzer = new BackwardsAnalyzer<LivenessState, LivenessDoctor>(
-						new LivenessState().getBottomState(), doctor);
-				livenessAnalyzer.analyze(symbolTable);
-
-				CodeHoister hoister = new CodeHoister(generator, doctor);
-				hoister.hoist();
+	/**
+	 * Runs the tasks on up to jobs threads and concatenates their results in
+	 * task order.
+	 */
+	private List<ASM> runAll(List<Callable<List<ASM>>> tasks) {
+		List<ASM> out = new ArrayList<ASM>();
+		if (jobs <= 1) {
+			for (Callable<List<ASM>> task : tasks) {
+				try {
+					out.addAll(task.call());
+				} catch (Exception e) {
+					throw rethrow(e);
+				}
 			}
+			return out;
 		}
-
-		LogCenter.debug("OPT", "Ran CSE/CP/DCE optimizations " + (x - 1)
-				+ " times.");
-
-		File testDir = null;
-		File finalFile = new File(outputFile);
-		if (enableRA) {
-			File testFile = null;
-			while (true) {
-				LogCenter.debug("SB", "STARTING RA.");
-				iterID++;
-				RegisterAllocator allocator = new RegisterAllocator(symbolTable);
-				allocator.run();
-
-				// Create a test folder
+		LogCenter.debug("OPT", "Running %s methods on %s threads.",
+				tasks.size(), jobs);
+		ForkJoinPool pool = new ForkJoinPool(jobs);
+		try {
+			for (Future<List<ASM>> result : pool.invokeAll(tasks)) {
 				try {
-					testDir = Files.createTempDir();
-					LogCenter.debug("META", "Created temp folder: " + testDir);
-				} catch (IllegalStateException e) {
-					abort("Could not create folder for testing binaries.");
+					out.addAll(result.get());
+				} catch (ExecutionException e) {
+					throw rethrow(e.getCause());
+				} catch (InterruptedException e) {
+					throw rethrow(e);
 				}
-
-				// Try a test file.
-				testFile = new File(testDir,
-						String.format("starbucks%d.s", iterID));
-				MemoryManager.assignStorage(symbolTable);
-
-				List<ASM> asmList = AsmVisitor.buildASMList(symbolTable);
-				asmList = SaveSaver.pruneList(asmList);
-				asmList = SaveSaver.pruneList(asmList);
-
-				writeToOutput(testFile.getAbsolutePath(), AsmVisitor.generateText(asmList));
-				LogCenter.debug("META", "Wrote to "
-						+ testFile.getAbsolutePath());
-
-				// try {
-				// long time = TestBench.testFile(testFile);
-				// LogCenter.debug("META", "Expecting the binary to take " +
-				// time + "ms.");
-				// } catch (IOException e) {
-				// abort("Could not create directory and files to test binaries.");
-				// }
-
-				break;
-			}
-
-			LogCenter.debug("SB", "WRITING FINAL FILE.");
-			// Write to the final file.
-			try {
-				Files.copy(testFile, finalFile);
-			} catch (IOException e) {
-				abort("Could not write to output file " + outputFile);
 			}
-		} else {
-			// If no optimizations, go straight to writing the final file.
-			MemoryManager.assignStorage(symbolTable);
-			writeToOutput(finalFile.getAbsolutePath(), AsmVisitor.generateText(AsmVisitor
-					.buildASMList(symbolTable)));
-		}
-
-		// Clean up temp files if necessary.
-		if (testDir != null) {
-			testDir.delete();
+		} finally {
+			pool.shutdown();
 		}
-
+		return out;
 	}
 
-	private void abort(String error) {
-		System.out.println(error);
-		System.exit(1);
+	private static RuntimeException rethrow(Throwable t) {
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+		if (t instanceof RuntimeException) {
+			return (RuntimeException) t;
+		}
+		return new RuntimeException(t);
 	}
 
-	private void writeToOutput(String outputFile, String text) {
-		FileOutputStream outStream;
+	/**
+	 * Streams the program straight into the output file.
+	 */
+	private boolean writeToOutput(String outputFile, List<ASM> asmList) {
+		Writer out = null;
 		try {
-			outStream = new FileOutputStream(outputFile);
-			outStream.write(text.getBytes());
-			outStream.close();
-		} catch (Exception e) {
-			System.out.println(String
-					.format("Could not open file %s for output.", outputFile));
+			out = new BufferedWriter(new FileWriter(CLI.resolve(outputFile)),
+					OUTPUT_BUFFER_SIZE);
+			AsmVisitor.writeText(asmList, out);
+			out.close();
+		} catch (IOException e) {
+			System.out.println(String.format(
+					"Could not write to output file %s: %s", outputFile, e
+							.getMessage()));
+			return false;
 		}
+		return true;
 	}
 
-	private static void clearHasAdditionalChanges() {
-		hasAdditionalChanges = false;
+	/**
+	 * The optimizer for the pipeline -opt runs with options, see Options.
+	 */
+	public static Optimizer getOptimizer(int options, int jobs) {
+		String pipeline = PassManager.getPipeline(options);
+		return getOptimizer(new Tuning(pipeline, false, !pipeline.isEmpty(),
+				0, true, PassManager.DEFAULT_BUDGET), jobs);
 	}
 
-	public static void setHasAdditionalChanges() {
-		hasAdditionalChanges = true;
+	/**
+	 * The optimizer for tuning. Throws an IllegalArgumentException if its
+	 * pipeline is bad.
+	 */
+	public static Optimizer getOptimizer(Tuning tuning, int jobs) {
+		if (singleton.get() == null) {
+			singleton.set(new Optimizer(tuning.getPasses(), tuning
+					.peepholes(), jobs));
+		}
+		return singleton.get();
 	}
 
-	public static Optimizer getOptimizer(int options) {
-		if (singleton == null) {
-			singleton = new Optimizer(options);
-		}
-		return singleton;
+	/**
+	 * Forgets this thread's optimizer and its options, so the next compile
+	 * on it gets a fresh one.
+	 */
+	public static void reset() {
+		singleton.remove();
+		iterID.remove();
 	}
 
 	public static int getIterID() {
-		return iterID;
+		return iterID.get();
 	}
 
 }
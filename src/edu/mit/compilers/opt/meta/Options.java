@@ -2,11 +2,13 @@ package edu.mit.compilers.opt.meta;
 
 public class Options {
 
-	public static final int OPTS_ON = 	Integer.parseInt("100000", 2);
-	public static final int CSE = 		Integer.parseInt("010000", 2);
-	public static final int CP = 		Integer.parseInt("001000", 2);
-	public static final int DCE = 		Integer.parseInt("000100", 2);
-	public static final int CM = 		Integer.parseInt("000010", 2);
-	public static final int RA = 		Integer.parseInt("000001", 2);
+	public static final int SR = 		Integer.parseInt("10000000", 2);
+	public static final int LINEAR_SCAN = 	Integer.parseInt("1000000", 2);
+	public static final int OPTS_ON = 	Integer.parseInt("0100000", 2);
+	public static final int CSE = 		Integer.parseInt("0010000", 2);
+	public static final int CP = 		Integer.parseInt("0001000", 2);
+	public static final int DCE = 		Integer.parseInt("0000100", 2);
+	public static final int CM = 		Integer.parseInt("0000010", 2);
+	public static final int RA = 		Integer.parseInt("0000001", 2);
 
 }
@@ -0,0 +1,53 @@
+package edu.mit.compilers.opt.meta;
+
+import edu.mit.compilers.opt.AnalysisManager;
+
+/**
+ * One pass over a single method, as named in a pipeline, see PassManager.
+ */
+public abstract class Pass {
+
+	private final String name;
+	private final String statsName;
+
+	/**
+	 * statsName is what -stats calls its runs.
+	 */
+	public Pass(String name, String statsName) {
+		this.name = name;
+		this.statsName = statsName;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getStatsName() {
+		return statsName;
+	}
+
+	/**
+	 * Whether this is a register allocator. Those have to come last, and
+	 * the lowered code then goes through Peephole.
+	 */
+	public boolean allocates() {
+		return false;
+	}
+
+	/**
+	 * Whether this pass leaves every node's register alone, only moving
+	 * code around. Those are the only passes that can come after the
+	 * register allocator.
+	 */
+	public boolean keepsAllocation() {
+		return false;
+	}
+
+	/**
+	 * Runs the pass on the method analyses is for, telling analyses about
+	 * any edits. Returns whether it optimized anything, so that running the
+	 * passes around it again may find more to do.
+	 */
+	public abstract boolean run(AnalysisManager analyses);
+
+}
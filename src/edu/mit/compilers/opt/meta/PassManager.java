@@ -0,0 +1,424 @@
+package edu.mit.compilers.opt.meta;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.Stats;
+import edu.mit.compilers.opt.AnalysisManager;
+import edu.mit.compilers.opt.Analyzer;
+import edu.mit.compilers.opt.as.MidAlgebraicSimplifier;
+import edu.mit.compilers.opt.cm.CodeHoister;
+import edu.mit.compilers.opt.cp.CPState;
+import edu.mit.compilers.opt.cp.CPTransfer;
+import edu.mit.compilers.opt.cp.CPTransformer;
+import edu.mit.compilers.opt.cse.CSEGlobalState;
+import edu.mit.compilers.opt.cse.CSETransfer;
+import edu.mit.compilers.opt.cse.CSETransformer;
+import edu.mit.compilers.opt.dce.DeadCodeElim;
+import edu.mit.compilers.opt.layout.BlockLayout;
+import edu.mit.compilers.opt.regalloc.RegisterAllocator;
+import edu.mit.compilers.opt.sr.StrengthReducer;
+
+/**
+ * Runs a pipeline of passes over each method. Pipelines are written as
+ * pass names separated by commas, with parentheses for grouping. A star
+ * after a pass or group repeats it until a round changes nothing, and a
+ * number (at least 1) after the star caps the rounds:
+ *
+ * <pre>
+ * (cse,cp,dce,as)*2,cm*2,sr,(cse,cp,dce,as)*2,ra,bl
+ * </pre>
+ *
+ * Register allocation comes last, followed only by passes that keep the
+ * allocation like bl. Every pass in the pipeline runs at least once.
+ * Repeats also stop once the method has had budget pass runs, so a pipeline
+ * that doesn't settle still finishes in bounded time.
+ */
+public class PassManager {
+
+	/**
+	 * Pipelines for -O0 to -O3. -O1 is a quick build, -O2 is what -opt all
+	 * runs and -O3 repeats until nothing changes.
+	 */
+	public static final String[] LEVELS = { "", "cse,cp,dce,as,lsra,bl",
+			"(cse,cp,dce,as)*2,cm*2,sr,(cse,cp,dce,as)*2,ra,bl",
+			"(cse,cp,dce,as)*,cm,sr,(cse,cp,dce,as)*,ra,bl" };
+
+	public static final int DEFAULT_BUDGET = 40;
+
+	// Rounds of CSE, CP, DCE and AS that -opt gets.
+	private static final int OPT_ROUNDS = 2;
+
+	private static final Map<String, Pass> PASSES = new LinkedHashMap<String, Pass>();
+	static {
+		add(new Pass("cse", "cse") {
+			public boolean run(AnalysisManager analyses) {
+				Analyzer<CSEGlobalState, CSETransfer> analyzer = new Analyzer<CSEGlobalState, CSETransfer>(
+						new CSEGlobalState(), new CSETransfer());
+				analyzer.analyze(analyses.getMethodName(), analyses.getBlocks());
+				boolean changed = new CSETransformer().analyze(analyzer);
+				analyses.transformed();
+				return changed;
+			}
+		});
+		add(new Pass("cp", "cp") {
+			public boolean run(AnalysisManager analyses) {
+				Analyzer<CPState, CPTransfer> analyzer = new Analyzer<CPState, CPTransfer>(
+						new CPState(), new CPTransfer());
+				analyzer.analyze(analyses.getMethodName(), analyses.getBlocks());
+				boolean changed = new CPTransformer().analyze(analyzer);
+				analyses.transformed();
+				return changed;
+			}
+		});
+		add(new Pass("dce", "dce") {
+			public boolean run(AnalysisManager analyses) {
+				boolean changed = new DeadCodeElim().analyze(analyses
+						.getLiveness());
+				analyses.transformed();
+				return changed;
+			}
+		});
+		add(new Pass("as", "as") {
+			public boolean run(AnalysisManager analyses) {
+				boolean changed = new MidAlgebraicSimplifier().analyze(
+						analyses.getMethodName(), analyses.getMethod());
+				analyses.transformed();
+				return changed;
+			}
+		});
+		add(new Pass("cm", "cm") {
+			public boolean run(AnalysisManager analyses) {
+				boolean changed = new CodeHoister(analyses).hoist();
+				analyses.transformed();
+				return changed;
+			}
+		});
+		add(new Pass("sr", "sr") {
+			public boolean run(AnalysisManager analyses) {
+				boolean changed = new StrengthReducer(analyses).reduce();
+				analyses.transformed();
+				return changed;
+			}
+		});
+		add(new AllocationPass("ra", false));
+		add(new AllocationPass("lsra", true));
+		add(new Pass("bl", "layout") {
+			@Override
+			public boolean keepsAllocation() {
+				return true;
+			}
+
+			public boolean run(AnalysisManager analyses) {
+				boolean changed = new BlockLayout(analyses).layout();
+				analyses.transformed();
+				return changed;
+			}
+		});
+	}
+
+	private static void add(Pass pass) {
+		PASSES.put(pass.getName(), pass);
+	}
+
+	private static class AllocationPass extends Pass {
+		private final boolean linearScan;
+
+		AllocationPass(String name, boolean linearScan) {
+			super(name, "regalloc");
+			this.linearScan = linearScan;
+		}
+
+		@Override
+		public boolean allocates() {
+			return true;
+		}
+
+		@Override
+		public boolean run(AnalysisManager analyses) {
+			new RegisterAllocator(linearScan).run(analyses);
+			// Only annotates nodes with registers.
+			return false;
+		}
+	}
+
+	/**
+	 * What's left of one method's budget, and how often each pass ran on it.
+	 */
+	private static class Run {
+		final AnalysisManager analyses;
+		final Map<String, Integer> counts;
+		int budget;
+
+		Run(AnalysisManager analyses, int budget) {
+			this.analyses = analyses;
+			this.counts = new HashMap<String, Integer>();
+			this.budget = budget;
+		}
+	}
+
+	/**
+	 * A pass or a group of steps, run up to rounds times.
+	 */
+	private static class Step {
+		// Exactly one of these is set.
+		final Pass pass;
+		final List<Step> steps;
+		int rounds;
+
+		Step(Pass pass) {
+			this.pass = pass;
+			this.steps = null;
+			this.rounds = 1;
+		}
+
+		Step(List<Step> steps) {
+			this.pass = null;
+			this.steps = steps;
+			this.rounds = 1;
+		}
+
+		boolean run(Run run) {
+			boolean changed = false;
+			for (int round = 1;; round++) {
+				boolean roundChanged = pass != null ? runPass(run)
+						: runSteps(run);
+				changed |= roundChanged;
+				if (!roundChanged || round == rounds || run.budget <= 0) {
+					return changed;
+				}
+			}
+		}
+
+		private boolean runSteps(Run run) {
+			boolean changed = false;
+			for (Step step : steps) {
+				changed |= step.run(run);
+			}
+			return changed;
+		}
+
+		private boolean runPass(Run run) {
+			// How the autotuner stops a compile it has given up on.
+			if (Thread.currentThread().isInterrupted()) {
+				throw new IllegalStateException("Compile interrupted");
+			}
+			String name = pass.getStatsName();
+			Integer count = run.counts.get(name);
+			count = count == null ? 1 : count + 1;
+			run.counts.put(name, count);
+			run.budget--;
+			LogCenter.debug("SB", "STARTING %s.", pass.getName().toUpperCase());
+			// Allocation runs once, so it keeps its plain name.
+			Stats.Timer timer = Stats.begin(pass.allocates() ? name : name
+					+ " " + count);
+			boolean changed = pass.run(run.analyses);
+			Stats.end(timer, run.analyses.getMethod());
+			LogCenter.debug("OPT", "%s: %s %s", run.analyses.getMethodName(),
+					pass.getName(), changed ? "changed something" : "is done");
+			return changed;
+		}
+	}
+
+	private final String pipeline;
+	private final int budget;
+	private final boolean linearScan;
+	private final Step root;
+	private boolean allocates;
+
+	// Parser state.
+	private int pos;
+
+	/**
+	 * Parses pipeline, throwing an IllegalArgumentException if it's
+	 * malformed or budget isn't positive. With linearScan, ra allocates by
+	 * linear scan like lsra.
+	 */
+	public PassManager(String pipeline, int budget, boolean linearScan) {
+		if (budget < 1) {
+			throw new IllegalArgumentException(
+					"Pass budget must be positive, not " + budget);
+		}
+		this.pipeline = pipeline.replaceAll("\\s", "");
+		this.budget = budget;
+		this.linearScan = linearScan;
+		this.pos = 0;
+		this.root = parseSequence();
+		if (pos < this.pipeline.length()) {
+			throw error("unexpected '" + this.pipeline.charAt(pos) + "'");
+		}
+	}
+
+	/**
+	 * The pipeline for -O level.
+	 */
+	public static String getLevel(int level) {
+		if (level < 0 || level >= LEVELS.length) {
+			throw new IllegalArgumentException("No optimization level "
+					+ level + ", there's -O0 to -O" + (LEVELS.length - 1));
+		}
+		return LEVELS[level];
+	}
+
+	/**
+	 * The pipeline -opt runs for options, see Options.
+	 */
+	public static String getPipeline(int options) {
+		List<String> round = new ArrayList<String>();
+		if ((options & Options.CSE) != 0) {
+			round.add("cse");
+		}
+		if ((options & Options.CP) != 0) {
+			round.add("cp");
+		}
+		if ((options & Options.DCE) != 0) {
+			round.add("dce");
+		}
+		if ((options & Options.OPTS_ON) != 0) {
+			round.add("as");
+		}
+		List<String> out = new ArrayList<String>();
+		if (!round.isEmpty()) {
+			out.add("(" + join(round) + ")*" + OPT_ROUNDS);
+		}
+		if ((options & Options.CM) != 0) {
+			out.add("cm*2");
+		}
+		if ((options & Options.SR) != 0) {
+			out.add("sr");
+			// Cleans up after the counters it leaves dead.
+			if (!round.isEmpty()) {
+				out.add("(" + join(round) + ")*" + OPT_ROUNDS);
+			}
+		}
+		if ((options & Options.RA) != 0) {
+			out.add((options & Options.LINEAR_SCAN) != 0 ? "lsra" : "ra");
+		}
+		if ((options & Options.OPTS_ON) != 0) {
+			out.add("bl");
+		}
+		return join(out);
+	}
+
+	/**
+	 * Whether the pipeline allocates registers.
+	 */
+	public boolean allocates() {
+		return allocates;
+	}
+
+	/**
+	 * Runs the pipeline on the method analyses is for.
+	 */
+	public void run(AnalysisManager analyses) {
+		Run run = new Run(analyses, budget);
+		root.run(run);
+		LogCenter.debug("OPT", "%s: ran %d passes of %s", analyses
+				.getMethodName(), budget - run.budget, pipeline);
+	}
+
+	@Override
+	public String toString() {
+		return pipeline;
+	}
+
+	private Step parseSequence() {
+		List<Step> steps = new ArrayList<Step>();
+		while (pos < pipeline.length() && pipeline.charAt(pos) != ')') {
+			if (!steps.isEmpty()) {
+				expect(',');
+			}
+			steps.add(parseItem());
+		}
+		return new Step(steps);
+	}
+
+	private Step parseItem() {
+		boolean allocated = allocates;
+		Step step;
+		if (pos < pipeline.length() && pipeline.charAt(pos) == '(') {
+			pos++;
+			step = parseSequence();
+			expect(')');
+		} else {
+			int start = pos;
+			while (pos < pipeline.length()
+					&& Character.isLetter(pipeline.charAt(pos))) {
+				pos++;
+			}
+			String name = pipeline.substring(start, pos);
+			Pass pass = PASSES.get(name.equals("ra") && linearScan ? "lsra"
+					: name);
+			if (pass == null) {
+				throw error(name.isEmpty() ? "missing pass name"
+						: "unknown pass " + name + ", there's "
+								+ PASSES.keySet());
+			}
+			if (allocates && !pass.keepsAllocation()) {
+				throw error(name + " can't come after register allocation");
+			}
+			allocates |= pass.allocates();
+			step = new Step(pass);
+		}
+		if (pos < pipeline.length() && pipeline.charAt(pos) == '*') {
+			if (allocates && !allocated) {
+				throw error("register allocation can't be repeated");
+			}
+			pos++;
+			int start = pos;
+			while (pos < pipeline.length()
+					&& Character.isDigit(pipeline.charAt(pos))) {
+				pos++;
+			}
+			step.rounds = start == pos ? Integer.MAX_VALUE : parseRounds(start);
+		}
+		return step;
+	}
+
+	/**
+	 * The repeat count from start to pos.
+	 */
+	private int parseRounds(int start) {
+		String digits = pipeline.substring(start, pos);
+		int rounds;
+		try {
+			rounds = Integer.parseInt(digits);
+		} catch (NumberFormatException e) {
+			pos = start;
+			throw error("repeat count " + digits + " is too large");
+		}
+		if (rounds < 1) {
+			pos = start;
+			throw error("repeat count must be at least 1");
+		}
+		return rounds;
+	}
+
+	private void expect(char c) {
+		if (pos >= pipeline.length() || pipeline.charAt(pos) != c) {
+			throw error("expected '" + c + "'");
+		}
+		pos++;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(String.format(
+				"Bad pipeline \"%s\" at %d: %s", pipeline, pos, message));
+	}
+
+	private static String join(List<String> parts) {
+		StringBuilder out = new StringBuilder();
+		for (String part : parts) {
+			if (out.length() > 0) {
+				out.append(',');
+			}
+			out.append(part);
+		}
+		return out.toString();
+	}
+
+}
@@ -2,69 +2,250 @@ package edu.mit.compilers.opt.meta;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
 
 import edu.mit.compilers.LogCenter;
 
+/**
+ * Builds assembly into programs with nasm and gcc, and runs them on a
+ * directory of input files to see how long they take and what they output.
+ */
 public class TestBench {
 
-	private final static String NASM_CMD = "nasm -f elf64 -o %s %s";
-	private final static String GCC_CMD = "gcc -o %s %s";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final long TIMEOUT_SECONDS = 60;
+	private static final String STDOUT = "stdout.txt";
+	// The runtime library's end_caliper() prints "Timer: N usecs".
+	private static final String TIMER_PREFIX = "Timer:";
 
 	/**
-	 * Takes an ASM text file, compiles it, runs it, and returns how long it
-	 * took (in milliseconds).
-	 * 
-	 * @throws IOException
+	 * What a program did when it was run once.
 	 */
-	public static long testFile(File asmFile) throws IOException {
-		File tempDir = Files.createTempDir();
-		String tempPath = tempDir.getAbsolutePath() + "/";
-		Runtime runtime = Runtime.getRuntime();
-
-		String asmFileName = asmFile.getName();
-		int dotPos = asmFileName.lastIndexOf('.');
-		if (dotPos != -1) {
-			asmFileName = asmFileName.substring(0, dotPos);
+	public static class Run {
+		private final int exitCode;
+		private final long nanos;
+		private final String output;
+
+		Run(int exitCode, long nanos, String output) {
+			this.exitCode = exitCode;
+			this.nanos = nanos;
+			this.output = output;
+		}
+
+		/**
+		 * The exit code, or -1 if the program was killed for taking too long.
+		 */
+		public int getExitCode() {
+			return exitCode;
 		}
-		String oFileName = tempPath + asmFileName + ".o";
-		String exeFileName = tempPath + asmFileName;
 
-		String nasmCmd = String.format(NASM_CMD, oFileName,
-				asmFile.getAbsolutePath());
-		String gccCmd = String.format(GCC_CMD, exeFileName, oFileName);
+		/**
+		 * The time the program's calipers measured, or if it has none, the
+		 * wall clock time from starting it to its exit.
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * A digest of what the program printed, minus timer lines, and of
+		 * every file it left in its directory. Runs that behaved the same
+		 * have the same output.
+		 */
+		public String getOutput() {
+			return output;
+		}
+	}
+
+	private final File inputDir;
+	private final File libDir;
+	private final String nasm;
+
+	/**
+	 * Programs are linked against the runtime library in libDir and run in
+	 * a fresh directory with a copy of inputDir's files.
+	 */
+	public TestBench(File inputDir, File libDir) {
+		this.inputDir = inputDir;
+		this.libDir = libDir;
+		this.nasm = findNasm();
+	}
 
-		long elapsedTime = -1;
+	/**
+	 * Assembles and links asmFile into a program next to it and returns the
+	 * program. Throws an IOException with the tools' output if either fails.
+	 */
+	public File build(File asmFile) throws IOException {
+		String path = asmFile.getAbsolutePath();
+		String base = path.endsWith(".s") ? path.substring(0,
+				path.length() - 2) : path;
+		File objectFile = new File(base + ".o");
+		File program = new File(base);
+		exec(Arrays.asList(nasm, "-felf64", "-o", objectFile.getPath(), path),
+				asmFile.getParentFile());
+		exec(Arrays.asList("gcc", "-no-pie", "-o", program.getPath(),
+				objectFile.getPath(), "-L" + libDir.getAbsolutePath(),
+				"-l6035", "-lpthread"), asmFile.getParentFile());
+		objectFile.delete();
+		return program;
+	}
 
-		LogCenter.debug("META", "Test bench a go with starting command: "
-				+ nasmCmd);
+	/**
+	 * Runs program once in a new copy of the input directory.
+	 */
+	public Run run(File program) throws IOException {
+		File dir = Files.createTempDir();
 		try {
-			String[] buildCmd = { "/bin/sh", "-c",
-					nasmCmd + "; " + gccCmd + "; exit" };
-			Process p1 = runtime.exec(buildCmd);
-			p1.waitFor();
-
-			long curTime = System.currentTimeMillis();
-			String[] runCmd = { "/bin/sh", "-c", exeFileName + "; exit" };
-			Process p2 = runtime.exec(runCmd);
-			p2.waitFor();
-			elapsedTime = System.currentTimeMillis() - curTime;
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+			File[] inputs = inputDir.listFiles();
+			if (inputs != null) {
+				for (File input : inputs) {
+					if (input.isFile()) {
+						Files.copy(input, new File(dir, input.getName()));
+					}
+				}
+			}
+			File stdout = new File(dir, STDOUT);
+			ProcessBuilder builder = new ProcessBuilder(program
+					.getAbsolutePath());
+			builder.directory(dir);
+			builder.redirectErrorStream(true);
+			builder.redirectOutput(stdout);
+
+			long start = System.nanoTime();
+			Process process = builder.start();
+			int exitCode = waitFor(process);
+			long nanos = System.nanoTime() - start;
+			long caliperNanos = getCaliperNanos(stdout);
+			if (caliperNanos >= 0) {
+				nanos = caliperNanos;
+			}
+			LogCenter.debug("META", "Ran %s in %.1fms, exit code %d",
+					program, nanos / 1e6, exitCode);
+			return new Run(exitCode, nanos, digest(dir, stdout));
+		} finally {
+			deleteAll(dir);
 		}
+	}
 
-		tempDir.delete();
-		return elapsedTime;
+	/**
+	 * The total of the timer lines in stdout, or -1 if there are none.
+	 */
+	private static long getCaliperNanos(File stdout) throws IOException {
+		long out = -1;
+		for (String line : Files.readLines(stdout, UTF8)) {
+			if (!line.startsWith(TIMER_PREFIX)) {
+				continue;
+			}
+			String[] words = line.substring(TIMER_PREFIX.length()).trim()
+					.split(" ");
+			try {
+				out = Math.max(out, 0) + Long.parseLong(words[0]) * 1000;
+			} catch (NumberFormatException e) {
+				LogCenter.debug("META", "Can't read timer line %s", line);
+			}
+		}
+		return out;
+	}
+
+	private static String digest(File dir, File stdout) throws IOException {
+		Hasher hasher = Hashing.md5().newHasher();
+		for (String line : Files.readLines(stdout, UTF8)) {
+			// Timings differ from run to run.
+			if (!line.startsWith(TIMER_PREFIX)) {
+				hasher.putString(line).putChar('\n');
+			}
+		}
+		String[] names = dir.list();
+		Arrays.sort(names);
+		for (String name : names) {
+			File file = new File(dir, name);
+			if (!file.equals(stdout) && file.isFile()) {
+				hasher.putString(name).putBytes(Files.toByteArray(file));
+			}
+		}
+		return hasher.hash().toString();
 	}
 
-	public static void main(String[] args) {
+	private static void exec(List<String> command, File dir)
+			throws IOException {
+		LogCenter.debug("META", "Running %s", command);
+		File log = File.createTempFile("testbench", ".log");
+		try {
+			ProcessBuilder builder = new ProcessBuilder(command);
+			builder.directory(dir);
+			builder.redirectErrorStream(true);
+			builder.redirectOutput(log);
+			if (waitFor(builder.start()) != 0) {
+				throw new IOException(command.get(0) + " failed: "
+						+ Files.toString(log, UTF8).trim());
+			}
+		} finally {
+			log.delete();
+		}
+	}
+
+	/**
+	 * Waits for process to exit and returns its exit code, or kills it and
+	 * returns -1 if that takes too long.
+	 */
+	private static int waitFor(Process process) throws IOException {
 		try {
-			testFile(new File(
-					"/afs/athena.mit.edu/user/j/o/joshma/starbucks/tmp/sample.s"));
-		} catch (IOException e) {
-			e.printStackTrace();
+			if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				process.destroyForcibly().waitFor();
+				return -1;
+			}
+			return process.exitValue();
+		} catch (InterruptedException e) {
+			process.destroyForcibly();
+			throw new IOException("Interrupted", e);
+		}
+	}
+
+	private static void deleteAll(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				deleteAll(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * nasm from the PATH, or else the one checked in next to the compiler
+	 * like tests/derby/icount.sh uses.
+	 */
+	private static String findNasm() {
+		String path = System.getenv("PATH");
+		if (path != null) {
+			for (String dir : path.split(File.pathSeparator)) {
+				if (new File(dir, "nasm").canExecute()) {
+					return "nasm";
+				}
+			}
+		}
+		// The jar is in dist/ and the classes in classes/, both next to lib/.
+		File location = new File(TestBench.class.getProtectionDomain()
+				.getCodeSource().getLocation().getPath());
+		File root = location.isFile() ? location.getParentFile()
+				.getParentFile() : location.getParentFile();
+		List<File> candidates = new ArrayList<File>();
+		candidates.add(new File(root, "lib/nasm"));
+		candidates.add(new File("lib/nasm"));
+		for (File candidate : candidates) {
+			if (candidate.canExecute()) {
+				return candidate.getAbsolutePath();
+			}
 		}
+		return "nasm";
 	}
 
 }
@@ -0,0 +1,94 @@
+package edu.mit.compilers.opt.meta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The settings a program is optimized with: the pass pipeline and the knobs
+ * around it. Main builds one from the command line, the autotuner builds
+ * many and compiles the program with each.
+ */
+public class Tuning {
+
+	private final String pipeline;
+	private final boolean linearScan;
+	private final boolean simplify;
+	private final int unrollFactor;
+	private final boolean peephole;
+	private final int budget;
+
+	/**
+	 * simplify turns on the AST simplifications and unrolling. unrollFactor
+	 * is passed to Unroller.setFactor(). peephole runs Peephole on
+	 * allocated code.
+	 */
+	public Tuning(String pipeline, boolean linearScan, boolean simplify,
+			int unrollFactor, boolean peephole, int budget) {
+		this.pipeline = pipeline;
+		this.linearScan = linearScan;
+		this.simplify = simplify;
+		this.unrollFactor = unrollFactor;
+		this.peephole = peephole;
+		this.budget = budget;
+	}
+
+	/**
+	 * Parses the pipeline, throwing an IllegalArgumentException if it's bad.
+	 */
+	public PassManager getPasses() {
+		return new PassManager(pipeline, budget, linearScan);
+	}
+
+	public String getPipeline() {
+		return pipeline;
+	}
+
+	public boolean simplifies() {
+		return simplify;
+	}
+
+	public int getUnrollFactor() {
+		return unrollFactor;
+	}
+
+	public boolean peepholes() {
+		return peephole;
+	}
+
+	/**
+	 * Command line flags that compile with these settings.
+	 */
+	public List<String> getFlags() {
+		List<String> out = new ArrayList<String>();
+		// -passes turns on the AST simplifications too.
+		out.add(simplify ? "-passes=" + pipeline : "-O0");
+		if (linearScan) {
+			out.add("-linearscan");
+		}
+		if (unrollFactor > 1) {
+			out.add("-unroll");
+			out.add(Integer.toString(unrollFactor));
+		}
+		if (!peephole) {
+			out.add("-nopeephole");
+		}
+		if (budget != PassManager.DEFAULT_BUDGET) {
+			out.add("-passbudget");
+			out.add(Integer.toString(budget));
+		}
+		return out;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder();
+		for (String flag : getFlags()) {
+			if (out.length() > 0) {
+				out.append(' ');
+			}
+			out.append(flag);
+		}
+		return out.toString();
+	}
+
+}
@@ -0,0 +1,66 @@
+package edu.mit.compilers.opt.profile;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.opt.Block;
+
+/**
+ * How often the blocks of one method ran, from a Profile. Counts are kept
+ * per node, so they stay usable as optimizations edit the method and the
+ * CFG is rebuilt: a block gets the largest count of the original nodes
+ * still in it. Nodes added since the profile was taken have no count.
+ */
+public class BlockCounts {
+
+	private final Map<MidNode, Long> counts;
+	private final long entryCount;
+
+	/**
+	 * blocks are the method's unoptimized blocks, and counts their counts in
+	 * the same order.
+	 */
+	public BlockCounts(List<Block> blocks, List<Long> counts) {
+		assert blocks.size() == counts.size();
+		this.counts = new HashMap<MidNode, Long>();
+		for (int i = 0; i < blocks.size(); i++) {
+			for (MidNode node : blocks.get(i)) {
+				this.counts.put(node, counts.get(i));
+			}
+		}
+		this.entryCount = counts.isEmpty() ? 0 : counts.get(0);
+	}
+
+	/**
+	 * The number of times block ran, or -1 if none of its nodes were
+	 * profiled.
+	 */
+	public long getCount(Block block) {
+		long out = -1;
+		for (MidNode node : block) {
+			Long count = counts.get(node);
+			if (count != null) {
+				out = Math.max(out, count);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * The number of times node ran, or -1 if it wasn't profiled.
+	 */
+	public long getCount(MidNode node) {
+		Long count = counts.get(node);
+		return count == null ? -1 : count;
+	}
+
+	/**
+	 * The number of times the method was called.
+	 */
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+}
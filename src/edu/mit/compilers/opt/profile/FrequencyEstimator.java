@@ -0,0 +1,65 @@
+package edu.mit.compilers.opt.profile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.opt.Block;
+import edu.mit.compilers.opt.cm.LoopGenerator;
+
+/**
+ * Estimates how often the code of one method runs. That's the profiled
+ * count where there is one. Otherwise code in a loop is assumed to run
+ * LOOP_WEIGHT times as often as the code around the loop.
+ */
+public class FrequencyEstimator {
+
+	public static final double LOOP_WEIGHT = 10;
+
+	private final LoopGenerator loops;
+	// Null without a profile.
+	private final BlockCounts counts;
+	private final Map<Block, Double> frequencies;
+
+	public FrequencyEstimator(LoopGenerator loops, BlockCounts counts) {
+		this.loops = loops;
+		this.counts = counts;
+		this.frequencies = new HashMap<Block, Double>();
+	}
+
+	/**
+	 * Relative number of times node runs, 0 if it's unreachable.
+	 */
+	public double getFrequency(MidNode node) {
+		Block block = loops.getBlock(node);
+		if (block == null) {
+			// Unreachable.
+			return 0;
+		}
+		return getFrequency(block);
+	}
+
+	/**
+	 * Relative number of times block runs: its profiled count, or
+	 * LOOP_WEIGHT to the power of its loop depth. Blocks the profile doesn't
+	 * cover are guessed relative to the method's entry count so both kinds
+	 * of estimate are on the same scale.
+	 */
+	public double getFrequency(Block block) {
+		Double out = frequencies.get(block);
+		if (out == null) {
+			long count = counts == null ? -1 : counts.getCount(block);
+			if (count >= 0) {
+				out = (double) count;
+			} else {
+				out = Math.pow(LOOP_WEIGHT, loops.getLoops(block).size());
+				if (counts != null) {
+					out *= counts.getEntryCount();
+				}
+			}
+			frequencies.put(block, out);
+		}
+		return out;
+	}
+
+}
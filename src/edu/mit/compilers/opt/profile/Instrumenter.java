@@ -0,0 +1,170 @@
+package edu.mit.compilers.opt.profile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.mit.compilers.codegen.Reg;
+import edu.mit.compilers.codegen.asm.ASM;
+import edu.mit.compilers.codegen.asm.LabelASM;
+import edu.mit.compilers.codegen.asm.MemoryOperand;
+import edu.mit.compilers.codegen.asm.OpASM;
+import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
+import edu.mit.compilers.codegen.asm.SectionASM;
+import edu.mit.compilers.codegen.nodes.MidLabelNode;
+import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.opt.Block;
+
+/**
+ * Builds programs that count how often each block runs. Every method gets
+ * an array of counters, one per block from Block.getAllBlocks() on the
+ * unoptimized method, and a destructor writes them all to a profile file in
+ * the working directory when the program exits. See Profile for the
+ * format.
+ */
+public class Instrumenter {
+
+	private static final String PREFIX = "__profile_";
+	private static final String DUMP = PREFIX + "dump";
+
+	private final String profileFile;
+	// Blocks counted in each method. Methods are instrumented in parallel.
+	private final Map<String, Integer> methods;
+
+	/**
+	 * The program will write its counts to profileFile.
+	 */
+	public Instrumenter(String profileFile) {
+		this.profileFile = profileFile;
+		this.methods = new HashMap<String, Integer>();
+	}
+
+	/**
+	 * The profile file a program compiled to outfile writes: its name with
+	 * .profile for .s.
+	 */
+	public static String getProfileFile(String outfile) {
+		String name = outfile == null ? "a.out" : new File(outfile).getName();
+		if (name.endsWith(".s")) {
+			name = name.substring(0, name.length() - 2);
+		}
+		return name + ".profile";
+	}
+
+	/**
+	 * Puts a counter at the top of each of blocks, which must be the
+	 * method's blocks before any optimization.
+	 */
+	public void instrument(String methodName, List<Block> blocks) {
+		for (int i = 0; i < blocks.size(); i++) {
+			MidNode head = blocks.get(i).getHead();
+			MidProfileCounterNode counter = new MidProfileCounterNode(
+					getCounters(methodName), i);
+			// The first block starts at the list's filler node, any other
+			// that doesn't start at a label starts right after a jump.
+			if (i == 0 || head instanceof MidLabelNode) {
+				counter.insertAfter(head);
+			} else {
+				counter.insertAfter(head.getPrevNode());
+			}
+		}
+		synchronized (methods) {
+			methods.put(methodName, blocks.size());
+		}
+	}
+
+	/**
+	 * The counters and the destructor that writes them, for methodNames in
+	 * the order they should appear in the profile. Goes after the text
+	 * section's code.
+	 */
+	public List<ASM> getDumpASM(Collection<String> methodNames) {
+		List<ASM> text = new ArrayList<ASM>();
+		List<ASM> data = new ArrayList<ASM>();
+		data.add(new SectionASM("data"));
+		addString(data, PREFIX + "file", profileFile);
+		addString(data, PREFIX + "mode", "w");
+		addString(data, PREFIX + "format", "%ld\n");
+
+		Operand rax = Operand.reg(Reg.RAX);
+		Operand rbx = Operand.reg(Reg.RBX);
+		Operand rdx = Operand.reg(Reg.RDX);
+		Operand rsi = Operand.reg(Reg.RSI);
+		Operand rdi = Operand.reg(Reg.RDI);
+		Operand r12 = Operand.reg(Reg.R12);
+		Operand rsp = Operand.reg(Reg.RSP);
+
+		// Entered aligned to 8, the two pushes and the SUB realign to 16.
+		text.add(new LabelASM("Writes the block counts", DUMP));
+		text.add(new OpASM(OpCode.PUSH, rbx));
+		text.add(new OpASM(OpCode.PUSH, r12));
+		text.add(new OpASM(OpCode.SUB, rsp, Operand.imm(8)));
+		text.add(new OpASM(OpCode.MOV, rdi, Operand.label(PREFIX + "file")));
+		text.add(new OpASM(OpCode.MOV, rsi, Operand.label(PREFIX + "mode")));
+		text.add(new OpASM(OpCode.CALL, Operand.label("fopen")));
+		text.add(new OpASM(OpCode.CMP, rax, Operand.imm(0)));
+		text.add(new OpASM("Can't write the profile", OpCode.JE, Operand
+				.label(DUMP + "_done")));
+		text.add(new OpASM(OpCode.MOV, rbx, rax));
+		for (String methodName : methodNames) {
+			Integer blocks = methods.get(methodName);
+			if (blocks == null) {
+				continue;
+			}
+			String counters = getCounters(methodName);
+			String header = counters + "_header";
+			data.add(new LabelASM("", counters));
+			data.add(new OpASM(OpCode.TIMES, Operand.label(blocks + " "
+					+ OpCode.DQ + " 0")));
+			addString(data, header, String.format("method %s %d\n",
+					methodName, blocks));
+
+			text.add(new OpASM(OpCode.MOV, rdi, rbx));
+			text.add(new OpASM(OpCode.MOV, rsi, Operand.label(header)));
+			text.add(new OpASM(OpCode.XOR, rax, rax));
+			text.add(new OpASM(OpCode.CALL, Operand.label("fprintf")));
+			text.add(new OpASM(OpCode.XOR, r12, r12));
+			text.add(new LabelASM("", counters + "_loop"));
+			text.add(new OpASM(OpCode.MOV, rdi, rbx));
+			text.add(new OpASM(OpCode.MOV, rsi, Operand.label(PREFIX
+					+ "format")));
+			text.add(new OpASM(OpCode.MOV, rdx, new MemoryOperand(
+					counters, null, Reg.R12, 8, 0, false)));
+			text.add(new OpASM(OpCode.XOR, rax, rax));
+			text.add(new OpASM(OpCode.CALL, Operand.label("fprintf")));
+			text.add(new OpASM(OpCode.ADD, r12, Operand.imm(1)));
+			text.add(new OpASM(OpCode.CMP, r12, Operand.imm(blocks)));
+			text.add(new OpASM(OpCode.JL, Operand.label(counters
+					+ "_loop")));
+		}
+		text.add(new OpASM(OpCode.MOV, rdi, rbx));
+		text.add(new OpASM(OpCode.CALL, Operand.label("fclose")));
+		text.add(new LabelASM("", DUMP + "_done"));
+		text.add(new OpASM(OpCode.ADD, rsp, Operand.imm(8)));
+		text.add(new OpASM(OpCode.POP, r12));
+		text.add(new OpASM(OpCode.POP, rbx));
+		text.add(new OpASM(OpCode.RET));
+
+		List<ASM> out = new ArrayList<ASM>(text);
+		out.addAll(data);
+		// Run at exit like any C destructor.
+		out.add(new SectionASM("fini_array progbits alloc write align=8"));
+		out.add(new OpASM(OpCode.DQ, Operand.label(DUMP)));
+		return out;
+	}
+
+	private static String getCounters(String methodName) {
+		return PREFIX + methodName;
+	}
+
+	private static void addString(List<ASM> data, String label, String text) {
+		data.add(new LabelASM("", label));
+		data.add(new OpASM(OpCode.DB, Operand.label("`"
+				+ text.replace("\n", "\\n") + "`, 0")));
+	}
+
+}
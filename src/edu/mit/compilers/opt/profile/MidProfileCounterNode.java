@@ -0,0 +1,40 @@
+package edu.mit.compilers.opt.profile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.mit.compilers.codegen.asm.ASM;
+import edu.mit.compilers.codegen.asm.MemoryOperand;
+import edu.mit.compilers.codegen.asm.OpASM;
+import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
+import edu.mit.compilers.codegen.nodes.MidNode;
+
+/**
+ * Counts how often its block runs, see Instrumenter. Goes at the top of
+ * the block, where the flags aren't live, and uses no registers.
+ */
+public class MidProfileCounterNode extends MidNode {
+
+	private final String counters;
+	private final int index;
+
+	public MidProfileCounterNode(String counters, int index) {
+		this.counters = counters;
+		this.index = index;
+	}
+
+	@Override
+	public List<ASM> toASM() {
+		List<ASM> out = new ArrayList<ASM>();
+		out.add(new OpASM("Profile block " + index, OpCode.ADD,
+				new MemoryOperand(counters, 8 * index).toSized(), Operand.imm(1)));
+		return out;
+	}
+
+	@Override
+	public String toString() {
+		return "<" + getNodeClass() + ": " + counters + "[" + index + "]>";
+	}
+
+}
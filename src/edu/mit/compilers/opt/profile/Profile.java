@@ -0,0 +1,100 @@
+package edu.mit.compilers.opt.profile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.io.Files;
+
+import edu.mit.compilers.opt.Block;
+
+/**
+ * Block counts written by a program built with -profile-generate. For each
+ * method there's a line
+ *
+ * <pre>
+ * method NAME BLOCKS
+ * </pre>
+ *
+ * followed by BLOCKS lines with one count each, in the order of
+ * Block.getAllBlocks() on the unoptimized method. Lines starting with # are
+ * comments, so counts from several runs can be pasted together by hand.
+ */
+public class Profile {
+
+	private final Map<String, long[]> counts;
+
+	private Profile(Map<String, long[]> counts) {
+		this.counts = counts;
+	}
+
+	/**
+	 * Reads a profile, throwing an IOException if it's malformed.
+	 */
+	public static Profile read(File file) throws IOException {
+		Map<String, long[]> counts = new HashMap<String, long[]>();
+		long[] current = null;
+		int next = 0;
+		int lineNum = 0;
+		for (String line : Files.readLines(file, Charset.forName("UTF-8"))) {
+			lineNum++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] words = line.split("\\s+");
+			try {
+				if (words[0].equals("method") && words.length == 3) {
+					if (current != null && next < current.length) {
+						throw new NumberFormatException("missing counts");
+					}
+					current = new long[Integer.parseInt(words[2])];
+					next = 0;
+					counts.put(words[1], current);
+				} else if (current != null && next < current.length
+						&& words.length == 1) {
+					current[next++] = Long.parseLong(words[0]);
+				} else {
+					throw new NumberFormatException("unexpected line");
+				}
+			} catch (NumberFormatException e) {
+				throw new IOException(String.format("%s:%d: bad profile, %s",
+						file, lineNum, e.getMessage()));
+			}
+		}
+		if (current != null && next < current.length) {
+			throw new IOException(file + ": bad profile, missing counts");
+		}
+		return new Profile(counts);
+	}
+
+	/**
+	 * The counts for methodName, whose unoptimized blocks are blocks, or
+	 * null if the profile has none that fit. Then the method is optimized
+	 * as if there was no profile.
+	 */
+	public BlockCounts getCounts(String methodName, List<Block> blocks) {
+		long[] methodCounts = counts.get(methodName);
+		if (methodCounts == null) {
+			System.err.println("Warning: no profile for " + methodName);
+			return null;
+		}
+		if (methodCounts.length != blocks.size()) {
+			System.err.println(String.format(
+					"Warning: profile for %s has %d blocks, not %d. "
+							+ "Was it made from another version?", methodName,
+					methodCounts.length, blocks.size()));
+			return null;
+		}
+		List<Long> list = new ArrayList<Long>();
+		for (long count : methodCounts) {
+			list.add(count);
+		}
+		return new BlockCounts(blocks, list);
+	}
+
+}
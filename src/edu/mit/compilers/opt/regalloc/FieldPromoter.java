@@ -0,0 +1,160 @@
+package edu.mit.compilers.opt.regalloc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.codegen.nodes.MidMethodCallNode;
+import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.codegen.nodes.MidReturnNode;
+import edu.mit.compilers.codegen.nodes.MidSaveNode;
+import edu.mit.compilers.codegen.nodes.memory.MidFieldArrayDeclNode;
+import edu.mit.compilers.codegen.nodes.memory.MidFieldDeclNode;
+import edu.mit.compilers.codegen.nodes.memory.MidMemoryNode;
+import edu.mit.compilers.codegen.nodes.memory.MidStringDeclNode;
+import edu.mit.compilers.codegen.nodes.memory.MidTempDeclNode;
+import edu.mit.compilers.codegen.nodes.regops.MidLoadNode;
+import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
+import edu.mit.compilers.opt.AnalysisManager;
+import edu.mit.compilers.opt.Block;
+import edu.mit.compilers.opt.cm.Loop;
+
+/**
+ * Keeps scalar fields in temps while loops run, so they can get registers
+ * like locals instead of being reloaded on every use. The field is copied
+ * into a temp before the loop and, if the loop writes it, back at the
+ * loop's exits.
+ *
+ * Only method calls can see a field behind our back. Callouts can't name
+ * Decaf fields and runtime error calls never return, so loops with either
+ * are fine. Methods are optimized in parallel, so nothing is known about
+ * what a callee touches and loops with method calls are left alone.
+ *
+ * A return leaves the loop without passing an exit, so a field the loop
+ * writes isn't promoted in a loop that returns. Runtime errors end the
+ * program, so nothing can read the field after them.
+ */
+public class FieldPromoter extends LoopRewriter {
+
+	// Temps made by promote() and the field each one holds.
+	private final Map<MidMemoryNode, MidFieldDeclNode> promoted;
+
+	public FieldPromoter(AnalysisManager analyses) {
+		super(analyses);
+		this.promoted = new HashMap<MidMemoryNode, MidFieldDeclNode>();
+	}
+
+	/**
+	 * Promotes every field but excluded in each outermost loop it can.
+	 * Returns whether anything was promoted; the IR has changed if so.
+	 */
+	public boolean promote(Set<MidFieldDeclNode> excluded) {
+		Set<MidFieldDeclNode> fields = new LinkedHashSet<MidFieldDeclNode>();
+		for (Block block : blocks) {
+			for (MidNode node : block) {
+				MidMemoryNode memoryNode = null;
+				if (node instanceof MidUseNode) {
+					memoryNode = ((MidUseNode) node).getMemoryNode();
+				} else if (node instanceof MidSaveNode) {
+					memoryNode = ((MidSaveNode) node).getDestinationNode();
+				}
+				if (memoryNode instanceof MidFieldDeclNode
+						&& !(memoryNode instanceof MidFieldArrayDeclNode)
+						&& !(memoryNode instanceof MidStringDeclNode)
+						&& !excluded.contains(memoryNode)) {
+					fields.add((MidFieldDeclNode) memoryNode);
+				}
+			}
+		}
+
+		boolean changed = false;
+		for (MidFieldDeclNode field : fields) {
+			List<Set<Block>> done = new ArrayList<Set<Block>>();
+			for (Loop loop : loopBlocks.keySet()) {
+				Set<Block> blocks = loopBlocks.get(loop);
+				if (!isInside(blocks, done) && promote(field, loop, blocks)) {
+					done.add(blocks);
+					changed = true;
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * The field temp holds, or null if temp isn't from promote().
+	 */
+	public MidFieldDeclNode getField(MidMemoryNode temp) {
+		return promoted.get(temp);
+	}
+
+	@Override
+	public void undo() {
+		super.undo();
+		promoted.clear();
+	}
+
+	private boolean promote(MidFieldDeclNode field, Loop loop,
+			Set<Block> blocks) {
+		List<MidLoadNode> reads = new ArrayList<MidLoadNode>();
+		List<MidSaveNode> writes = new ArrayList<MidSaveNode>();
+		boolean returns = false;
+		for (Block block : blocks) {
+			for (MidNode node : block) {
+				if (node instanceof MidMethodCallNode
+						&& !((MidMethodCallNode) node).isStarbucksCall()) {
+					return false;
+				}
+				if (node instanceof MidReturnNode) {
+					returns = true;
+				}
+				if (node instanceof MidSaveNode
+						&& field.equals(((MidSaveNode) node)
+								.getDestinationNode())) {
+					writes.add((MidSaveNode) node);
+				}
+				if (node instanceof MidUseNode
+						&& field.equals(((MidUseNode) node).getMemoryNode())) {
+					if (!(node instanceof MidLoadNode)) {
+						return false;
+					}
+					reads.add((MidLoadNode) node);
+				}
+			}
+		}
+		if (reads.isEmpty() && writes.isEmpty()) {
+			return false;
+		}
+		// The copy back at the exits would be skipped.
+		if (returns && !writes.isEmpty()) {
+			return false;
+		}
+		List<Block> exits = new ArrayList<Block>();
+		if (!writes.isEmpty()) {
+			// The field is live after every exit, it's global.
+			exits = getExits(blocks);
+			for (Block exit : exits) {
+				if (!isDedicated(exit, blocks)) {
+					return false;
+				}
+			}
+		}
+		LogCenter.debug("RA", "Promoting %s in loop at %s", field, loop
+				.getStart().getHead());
+		MidTempDeclNode temp = copyBefore(loop, field);
+		for (MidLoadNode read : reads) {
+			rename(read, temp);
+		}
+		for (MidSaveNode write : writes) {
+			rename(write, temp);
+		}
+		copyAfter(exits, temp, field);
+		promoted.put(temp, field);
+		return true;
+	}
+
+}
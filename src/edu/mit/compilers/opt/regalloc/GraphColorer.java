@@ -1,8 +1,8 @@
 package edu.mit.compilers.opt.regalloc;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -12,68 +12,449 @@ import java.util.Stack;
 import edu.mit.compilers.LogCenter;
 import edu.mit.compilers.codegen.Reg;
 
+/**
+ * Colors webs with registers by iterated register coalescing (George and
+ * Appel). Simplification, coalescing, freezing and spilling alternate until
+ * every web is on the select stack, then webs are popped and given a
+ * register none of their neighbors has. Webs joined by a move are merged
+ * when Briggs' or George's test says that can't make the graph uncolorable,
+ * so the move ends up between one register and itself.
+ *
+ * There are no precolored webs, and spilling needs no rewrite: a web that
+ * doesn't get a register stays in memory and is accessed through the
+ * temporary registers.
+ */
 public class GraphColorer {
 
 	private final Set<Reg> usableRegisters;
+	// The same registers, caller-saved first, for webs that aren't live
+	// across calls. That leaves the callee-saved ones for webs that are.
+	// RDX stays last since DIV and MOD clobber it.
+	private final Set<Reg> callerSavedFirst;
+	private final int K;
+
+	// The graph. Adjacency includes webs that were coalesced or simplified,
+	// use adjacent() for the webs still in play.
+	private Map<Web, Set<Web>> adjList;
+	private Map<Web, Integer> degree;
+	private Map<Web, Set<WebMove>> moveList;
+	private Map<Web, Web> alias;
+	// Spill and call save costs of each web plus the webs coalesced into it.
+	private Map<Web, Double> spillCost;
+	private Map<Web, Double> callSaveCost;
+	// Webs live across a call, or with such a web coalesced into them.
+	private Set<Web> liveAcrossCall;
+
+	// Every web is in exactly one of these at any time.
+	private Set<Web> simplifyWorklist;
+	private Set<Web> freezeWorklist;
+	private Set<Web> spillWorklist;
+	private Set<Web> coalescedWebs;
+	private Stack<Web> selectStack;
+	private Set<Web> onStack;
+
+	// Every move is in exactly one of these at any time.
+	private Set<WebMove> worklistMoves;
+	private Set<WebMove> activeMoves;
+	private Set<WebMove> coalescedMoves;
+	private Set<WebMove> constrainedMoves;
+	private Set<WebMove> frozenMoves;
+
 	private Map<Web, Reg> out;
 
 	public GraphColorer(Reg[] usableRegisters) {
 		this.usableRegisters = new LinkedHashSet<Reg>(
 				Arrays.asList(usableRegisters));
+		K = this.usableRegisters.size();
+		callerSavedFirst = new LinkedHashSet<Reg>();
+		for (Reg reg : this.usableRegisters) {
+			if (reg != Reg.RDX && isCallerSaved(reg)) {
+				callerSavedFirst.add(reg);
+			}
+		}
+		callerSavedFirst.addAll(this.usableRegisters);
+		if (callerSavedFirst.remove(Reg.RDX)) {
+			callerSavedFirst.add(Reg.RDX);
+		}
+	}
+
+	/**
+	 * Colors webs, trying to give both ends of each move the same register.
+	 * Webs that couldn't be colored are mapped to null.
+	 */
+	public Map<Web, Reg> color(List<Web> webs, List<WebMove> moves) {
+		build(webs, moves);
+		makeWorklist(webs);
+		while (true) {
+			if (!simplifyWorklist.isEmpty()) {
+				simplify();
+			} else if (!worklistMoves.isEmpty()) {
+				coalesce();
+			} else if (!freezeWorklist.isEmpty()) {
+				freeze();
+			} else if (!spillWorklist.isEmpty()) {
+				selectSpill();
+			} else {
+				break;
+			}
+		}
+		assignColors(webs);
+		LogCenter.debug("RA",
+				"Coalesced %d of %d moves, %d constrained, %d frozen.",
+				coalescedMoves.size(), moves.size(), constrainedMoves.size(),
+				frozenMoves.size());
+		return out;
 	}
 
-	public Map<Web, Reg> color(List<Web> webs) {
+	private void build(List<Web> webs, List<WebMove> moves) {
+		adjList = new HashMap<Web, Set<Web>>();
+		degree = new HashMap<Web, Integer>();
+		moveList = new HashMap<Web, Set<WebMove>>();
+		alias = new HashMap<Web, Web>();
+		spillCost = new HashMap<Web, Double>();
+		callSaveCost = new HashMap<Web, Double>();
+		liveAcrossCall = new HashSet<Web>();
+		simplifyWorklist = new LinkedHashSet<Web>();
+		freezeWorklist = new LinkedHashSet<Web>();
+		spillWorklist = new LinkedHashSet<Web>();
+		coalescedWebs = new LinkedHashSet<Web>();
+		selectStack = new Stack<Web>();
+		onStack = new HashSet<Web>();
+		worklistMoves = new LinkedHashSet<WebMove>();
+		activeMoves = new LinkedHashSet<WebMove>();
+		coalescedMoves = new LinkedHashSet<WebMove>();
+		constrainedMoves = new LinkedHashSet<WebMove>();
+		frozenMoves = new LinkedHashSet<WebMove>();
 		out = new HashMap<Web, Reg>();
-		// Initialize all webs to no register at first.
+
+		for (Web web : webs) {
+			adjList.put(web, new LinkedHashSet<Web>());
+			degree.put(web, 0);
+			moveList.put(web, new LinkedHashSet<WebMove>());
+			spillCost.put(web, web.getSpillCost());
+			callSaveCost.put(web, web.getCallSaveCost());
+			if (web.isLiveAcrossCall()) {
+				liveAcrossCall.add(web);
+			}
+		}
 		for (Web web : webs) {
-			out.put(web, null);
-		}
-		// An approximation to NP-complete coloring with usableRegisters.
-		WebGraph graph = new WebGraph(webs);
-		Stack<Web> workingStack = new Stack<Web>();
-		int N = usableRegisters.size();
-		while (!graph.isEmpty()) {
-			// Duplicate list so as to avoid concurrent modification issues.
-			for (Web web : new ArrayList<Web>(graph.getVertices())) {
-				// Remove nodes with degree < N.
-				if (graph.getDegree(web) < N) {
-					// Push removed nodes onto stack.
-					workingStack.push(web);
-					graph.removeVertex(web);
+			for (Web neighbor : web.getInterferences()) {
+				// Can't assume all interfering webs are being colored.
+				if (adjList.containsKey(neighbor)) {
+					addEdge(web, neighbor);
 				}
 			}
-			if (graph.isEmpty()) {
-				break;
+		}
+		for (WebMove move : moves) {
+			Web source = move.getSource();
+			Web destination = move.getDestination();
+			if (!adjList.containsKey(source)
+					|| !adjList.containsKey(destination)) {
+				continue;
+			}
+			if (move.isSplit()) {
+				frozenMoves.add(move);
+			} else {
+				worklistMoves.add(move);
+			}
+			moveList.get(source).add(move);
+			moveList.get(destination).add(move);
+		}
+	}
+
+	private void addEdge(Web u, Web v) {
+		if (u == v || adjList.get(u).contains(v)) {
+			return;
+		}
+		adjList.get(u).add(v);
+		adjList.get(v).add(u);
+		degree.put(u, degree.get(u) + 1);
+		degree.put(v, degree.get(v) + 1);
+	}
+
+	private void makeWorklist(List<Web> webs) {
+		for (Web web : webs) {
+			if (degree.get(web) >= K) {
+				spillWorklist.add(web);
+			} else if (isMoveRelated(web)) {
+				freezeWorklist.add(web);
+			} else {
+				simplifyWorklist.add(web);
+			}
+		}
+	}
+
+	private Set<Web> adjacent(Web web) {
+		Set<Web> out = new LinkedHashSet<Web>();
+		for (Web neighbor : adjList.get(web)) {
+			if (!onStack.contains(neighbor) && !coalescedWebs.contains(neighbor)) {
+				out.add(neighbor);
 			}
-			
-			// Remove a remaining nodes with degree >= N. (We are spilling it by
-			// not giving it a register.)
-			Web removed = graph.removeMostConstrainedVertex();
-			LogCenter.debug("RA", "Could not color all nodes, spilling "
-					+ removed);
-		}
-		while (!workingStack.isEmpty()) {
-			// When all nodes are removed, start to color.
-			// Pop a node from the stack back and pick a valid color.
-			Web poppedWeb = workingStack.pop();
-			Set<Reg> validColors = new LinkedHashSet<Reg>(usableRegisters);
-			graph.insertVertex(poppedWeb);
-			for (Web neighbor : graph.getNeighbors(poppedWeb)) {
-				validColors.remove(getColor(neighbor));
-			}
-			assert validColors.size() > 0 : "Should be colorable since we removed degrees >= N.";
-			assignColor(poppedWeb, validColors.iterator().next());
 		}
 		return out;
 	}
 
-	private void assignColor(Web web, Reg color) {
-		assert out.get(web) == null : "Web was already colored!";
-		out.put(web, color);
+	private Set<WebMove> nodeMoves(Web web) {
+		Set<WebMove> out = new LinkedHashSet<WebMove>();
+		for (WebMove move : moveList.get(web)) {
+			if (activeMoves.contains(move) || worklistMoves.contains(move)) {
+				out.add(move);
+			}
+		}
+		return out;
+	}
+
+	private boolean isMoveRelated(Web web) {
+		return !nodeMoves(web).isEmpty();
+	}
+
+	private void simplify() {
+		// Cheap webs live across calls go on the stack first so they're
+		// colored last, leaving the callee-saved registers to costly ones.
+		Web web = null;
+		for (Web candidate : simplifyWorklist) {
+			if (liveAcrossCall.contains(candidate)
+					&& (web == null || spillCost.get(candidate) < spillCost
+							.get(web))) {
+				web = candidate;
+			}
+		}
+		if (web == null) {
+			web = simplifyWorklist.iterator().next();
+		}
+		simplifyWorklist.remove(web);
+		selectStack.push(web);
+		onStack.add(web);
+		for (Web neighbor : adjacent(web)) {
+			decrementDegree(neighbor);
+		}
+	}
+
+	private void decrementDegree(Web web) {
+		int d = degree.get(web);
+		degree.put(web, d - 1);
+		if (d == K) {
+			// Just became colorable, so moves that were waiting on it might
+			// now coalesce.
+			Set<Web> webs = adjacent(web);
+			webs.add(web);
+			enableMoves(webs);
+			spillWorklist.remove(web);
+			if (isMoveRelated(web)) {
+				freezeWorklist.add(web);
+			} else {
+				simplifyWorklist.add(web);
+			}
+		}
+	}
+
+	private void enableMoves(Set<Web> webs) {
+		for (Web web : webs) {
+			for (WebMove move : nodeMoves(web)) {
+				if (activeMoves.remove(move)) {
+					worklistMoves.add(move);
+				}
+			}
+		}
+	}
+
+	private void coalesce() {
+		WebMove move = removeFirst(worklistMoves);
+		Web u = getAlias(move.getSource());
+		Web v = getAlias(move.getDestination());
+		if (u == v) {
+			coalescedMoves.add(move);
+			addWorkList(u);
+		} else if (adjList.get(u).contains(v)) {
+			constrainedMoves.add(move);
+			addWorkList(u);
+			addWorkList(v);
+		} else if (george(u, v) || briggs(u, v)) {
+			LogCenter.debug("RA", "Coalescing %s into %s", v, u);
+			coalescedMoves.add(move);
+			combine(u, v);
+			addWorkList(u);
+		} else {
+			activeMoves.add(move);
+		}
+	}
+
+	private void addWorkList(Web web) {
+		if (!isMoveRelated(web) && degree.get(web) < K) {
+			freezeWorklist.remove(web);
+			simplifyWorklist.add(web);
+		}
+	}
+
+	/**
+	 * George's test: every neighbor of v either already interferes with u or
+	 * is of insignificant degree.
+	 */
+	private boolean george(Web u, Web v) {
+		for (Web t : adjacent(v)) {
+			if (degree.get(t) >= K && !adjList.get(t).contains(u)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Briggs' test: the merged web has fewer than K neighbors of significant
+	 * degree.
+	 */
+	private boolean briggs(Web u, Web v) {
+		Set<Web> webs = adjacent(u);
+		webs.addAll(adjacent(v));
+		int significant = 0;
+		for (Web web : webs) {
+			if (degree.get(web) >= K) {
+				significant++;
+			}
+		}
+		return significant < K;
+	}
+
+	private void combine(Web u, Web v) {
+		if (!freezeWorklist.remove(v)) {
+			spillWorklist.remove(v);
+		}
+		coalescedWebs.add(v);
+		alias.put(v, u);
+		spillCost.put(u, spillCost.get(u) + spillCost.get(v));
+		callSaveCost.put(u, callSaveCost.get(u) + callSaveCost.get(v));
+		if (liveAcrossCall.contains(v)) {
+			liveAcrossCall.add(u);
+		}
+		moveList.get(u).addAll(moveList.get(v));
+		Set<Web> webs = new LinkedHashSet<Web>();
+		webs.add(v);
+		enableMoves(webs);
+		for (Web t : adjacent(v)) {
+			addEdge(t, u);
+			decrementDegree(t);
+		}
+		if (degree.get(u) >= K && freezeWorklist.remove(u)) {
+			spillWorklist.add(u);
+		}
+	}
+
+	private Web getAlias(Web web) {
+		while (coalescedWebs.contains(web)) {
+			web = alias.get(web);
+		}
+		return web;
+	}
+
+	/**
+	 * Gives up on coalescing a low-degree web so it can be simplified.
+	 */
+	private void freeze() {
+		Web web = removeFirst(freezeWorklist);
+		simplifyWorklist.add(web);
+		freezeMoves(web);
+	}
+
+	private void freezeMoves(Web u) {
+		for (WebMove move : nodeMoves(u)) {
+			Web x = move.getSource();
+			Web y = move.getDestination();
+			Web v = getAlias(y) == getAlias(u) ? getAlias(x) : getAlias(y);
+			activeMoves.remove(move);
+			frozenMoves.add(move);
+			if (freezeWorklist.contains(v) && nodeMoves(v).isEmpty()) {
+				freezeWorklist.remove(v);
+				simplifyWorklist.add(v);
+			}
+		}
+	}
+
+	/**
+	 * Picks the web whose spill is cheapest for the neighbors it frees up,
+	 * lowest spill cost per degree, as a potential spill. It's simplified
+	 * like any other and only actually spilled if no register is left for
+	 * it when it's popped.
+	 */
+	private void selectSpill() {
+		Web spill = null;
+		double minRatio = Double.POSITIVE_INFINITY;
+		for (Web web : spillWorklist) {
+			double ratio = spillCost.get(web) / degree.get(web);
+			if (spill == null || ratio < minRatio) {
+				minRatio = ratio;
+				spill = web;
+			}
+		}
+		LogCenter.debug("RA", "Potential spill %s, cost %.0f, degree %d",
+				spill, spillCost.get(spill), degree.get(spill));
+		spillWorklist.remove(spill);
+		simplifyWorklist.add(spill);
+		freezeMoves(spill);
+	}
+
+	private void assignColors(List<Web> webs) {
+		while (!selectStack.isEmpty()) {
+			Web web = selectStack.pop();
+			Set<Reg> validColors = new LinkedHashSet<Reg>(liveAcrossCall
+					.contains(web) ? usableRegisters : callerSavedFirst);
+			for (Web neighbor : adjList.get(web)) {
+				validColors.remove(out.get(getAlias(neighbor)));
+			}
+			if (validColors.isEmpty()) {
+				LogCenter.debug("RA", "Could not color all nodes, spilling %s",
+						web);
+				out.put(web, null);
+			} else if (isCallerSaved(validColors.iterator().next())
+					&& liveAcrossCall.contains(web)
+					&& callSaveCost.get(web) > spillCost.get(web)) {
+				// Callee-saved registers are preferred for these, so only
+				// caller-saved ones are left.
+				LogCenter.debug("RA", "Saving %s around calls costs more "
+						+ "than spilling it, spilling", web);
+				out.put(web, null);
+			} else {
+				out.put(web, pickColor(web, validColors));
+			}
+		}
+		for (Web web : webs) {
+			if (coalescedWebs.contains(web)) {
+				out.put(web, out.get(getAlias(web)));
+			}
+		}
+	}
+
+	private static boolean isCallerSaved(Reg reg) {
+		return Arrays.asList(RegisterAllocator.CALLER_SAVED_REGISTERS)
+				.contains(reg);
+	}
+
+	/**
+	 * Picks the color of a web that web has a frozen move with if there is
+	 * one, so the move still goes away. A web live across calls doesn't
+	 * trade a callee-saved register for a caller-saved one; the partner
+	 * already uses whatever it has, so the other way round costs nothing.
+	 */
+	private Reg pickColor(Web web, Set<Reg> validColors) {
+		Reg first = validColors.iterator().next();
+		for (WebMove move : moveList.get(web)) {
+			Web partner = getAlias(move.getSource());
+			if (partner.equals(web)) {
+				partner = getAlias(move.getDestination());
+			}
+			Reg color = out.get(partner);
+			if (color != null && validColors.contains(color)
+					&& (!liveAcrossCall.contains(web) || !isCallerSaved(color)
+							|| isCallerSaved(first))) {
+				return color;
+			}
+		}
+		return first;
 	}
 
-	private Reg getColor(Web web) {
-		return out.get(web);
+	private static <T> T removeFirst(Set<T> set) {
+		T first = set.iterator().next();
+		set.remove(first);
+		return first;
 	}
 
 }
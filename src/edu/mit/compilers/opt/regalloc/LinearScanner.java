@@ -0,0 +1,315 @@
+package edu.mit.compilers.opt.regalloc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.codegen.Reg;
+import edu.mit.compilers.codegen.nodes.MidCallNode;
+import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.codegen.nodes.MidSaveNode;
+import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
+import edu.mit.compilers.opt.BitVector;
+import edu.mit.compilers.opt.Block;
+import edu.mit.compilers.opt.regalloc.nodes.LiveWebsActivist;
+
+/**
+ * Allocates registers by linear scan (Poletto and Sarkar). The method's
+ * nodes are numbered in list order and each web gets one interval, from
+ * the first to the last node it's live at. Intervals are visited by start
+ * and take any register no active interval holds. When none is left, the
+ * cheapest of the web and the active ones stays in memory.
+ *
+ * Nothing is built that grows with the square of the webs, so this is much
+ * faster than GraphColorer on huge methods. The price is that intervals
+ * have no holes and copies are only coalesced when the source's register
+ * happens to be free.
+ */
+public class LinearScanner {
+
+	private final Reg[] usableRegisters;
+	// Same order as GraphColorer uses for webs not live across calls.
+	private final Reg[] callerSavedFirst;
+
+	// Web liveness, one bit per web in webs order.
+	private List<Web> webs;
+	private Map<Web, Integer> webIds;
+	private int[] start;
+	private int[] end;
+
+	public LinearScanner(Reg[] usableRegisters) {
+		this.usableRegisters = usableRegisters;
+		List<Reg> order = new ArrayList<Reg>();
+		for (Reg reg : usableRegisters) {
+			if (reg != Reg.RDX && isCallerSaved(reg)) {
+				order.add(reg);
+			}
+		}
+		for (Reg reg : usableRegisters) {
+			if (reg != Reg.RDX && !order.contains(reg)) {
+				order.add(reg);
+			}
+		}
+		if (Arrays.asList(usableRegisters).contains(Reg.RDX)) {
+			order.add(Reg.RDX);
+		}
+		this.callerSavedFirst = order.toArray(new Reg[order.size()]);
+	}
+
+	/**
+	 * Computes each web's interval over nodes, which must be the method's
+	 * nodes in list order. Like WebProcessor, tells every LiveWebsActivist
+	 * which webs are live there and marks the webs live across calls, so
+	 * run this before scoring the webs.
+	 */
+	public void buildIntervals(Iterable<MidNode> nodes, List<Block> blocks,
+			List<Web> webs, Map<MidSaveNode, Web> webDefs,
+			Map<MidUseNode, Web> webUses) {
+		this.webs = webs;
+		webIds = new HashMap<Web, Integer>();
+		for (Web web : webs) {
+			webIds.put(web, webIds.size());
+		}
+		start = new int[webs.size()];
+		end = new int[webs.size()];
+		Arrays.fill(start, Integer.MAX_VALUE);
+		Arrays.fill(end, -1);
+
+		Map<MidNode, Integer> positions = new HashMap<MidNode, Integer>();
+		for (MidNode node : nodes) {
+			positions.put(node, positions.size());
+		}
+
+		// Upward-exposed uses and definitions of each block.
+		Map<Block, BitVector> gen = new HashMap<Block, BitVector>();
+		Map<Block, BitVector> kill = new HashMap<Block, BitVector>();
+		for (Block block : blocks) {
+			BitVector blockGen = new BitVector(webs.size());
+			BitVector blockKill = new BitVector(webs.size());
+			for (MidNode node : block.reverse()) {
+				Integer id = getId(node, webDefs, webUses);
+				if (id == null) {
+					continue;
+				}
+				if (node instanceof MidSaveNode) {
+					blockKill.set(id);
+					blockGen.clear(id);
+				} else {
+					blockGen.set(id);
+				}
+			}
+			gen.put(block, blockGen);
+			kill.put(block, blockKill);
+		}
+
+		Map<Block, BitVector> liveIn = new HashMap<Block, BitVector>();
+		Map<Block, BitVector> liveOut = new HashMap<Block, BitVector>();
+		for (Block block : blocks) {
+			liveIn.put(block, gen.get(block).clone());
+			liveOut.put(block, new BitVector(webs.size()));
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = blocks.size() - 1; i >= 0; i--) {
+				Block block = blocks.get(i);
+				BitVector out = liveOut.get(block);
+				for (Block successor : block.getSuccessors()) {
+					out.or(liveIn.get(successor));
+				}
+				BitVector in = out.clone();
+				in.andNot(kill.get(block));
+				in.or(gen.get(block));
+				changed |= liveIn.get(block).or(in);
+			}
+		}
+
+		for (Block block : blocks) {
+			BitVector live = liveOut.get(block).clone();
+			extend(live, positions.get(block.getTail()));
+			extend(liveIn.get(block), positions.get(block.getHead()));
+			for (MidNode node : block.reverse()) {
+				int position = positions.get(node);
+				Integer id = getId(node, webDefs, webUses);
+				if (id != null) {
+					extend(id, position);
+					if (node instanceof MidSaveNode) {
+						live.clear(id);
+					} else {
+						live.set(id);
+					}
+					continue;
+				}
+				// Runtime error calls don't return, so nothing needs saving.
+				if (node instanceof MidCallNode
+						&& ((MidCallNode) node).isStarbucksCall()) {
+					continue;
+				}
+				if (node instanceof LiveWebsActivist) {
+					((LiveWebsActivist) node).setLiveWebs(getWebs(live));
+				}
+				if (node instanceof MidCallNode) {
+					for (Web web : getWebs(live)) {
+						web.markLiveAcrossCall((MidCallNode) node);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Allocates the webs given to buildIntervals(), trying to give the
+	 * destination of each move its source's register. Webs that didn't get
+	 * a register are mapped to null.
+	 */
+	public Map<Web, Reg> scan(List<WebMove> moves) {
+		Map<Web, Reg> out = new HashMap<Web, Reg>();
+		Map<Web, Set<Web>> partners = new HashMap<Web, Set<Web>>();
+		for (WebMove move : moves) {
+			addPartner(partners, move.getSource(), move.getDestination());
+			addPartner(partners, move.getDestination(), move.getSource());
+		}
+
+		List<Integer> order = new ArrayList<Integer>();
+		for (int id = 0; id < webs.size(); id++) {
+			if (end[id] >= 0) {
+				order.add(id);
+			}
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return start[a] - start[b];
+			}
+		});
+
+		// Active intervals, ordered by end.
+		List<Integer> active = new ArrayList<Integer>();
+		Set<Reg> free = new LinkedHashSet<Reg>(Arrays.asList(usableRegisters));
+		for (int id : order) {
+			while (!active.isEmpty() && end[active.get(0)] < start[id]) {
+				free.add(out.get(webs.get(active.remove(0))));
+			}
+			Web web = webs.get(id);
+			Reg reg = pickRegister(web, free, out, partners);
+			if (reg == null) {
+				// Of the active webs, the cheapest to keep in memory.
+				int cheapest = -1;
+				for (int other : active) {
+					if (cheapest < 0
+							|| webs.get(other).getSpillCost() < webs.get(
+									cheapest).getSpillCost()) {
+						cheapest = other;
+					}
+				}
+				if (cheapest < 0
+						|| webs.get(cheapest).getSpillCost() >= web
+								.getSpillCost()) {
+					LogCenter.debug("RA", "Out of registers, spilling %s", web);
+					out.put(web, null);
+					continue;
+				}
+				Web spilled = webs.get(cheapest);
+				LogCenter.debug("RA", "Out of registers, spilling %s for %s",
+						spilled, web);
+				reg = out.put(spilled, null);
+				active.remove(Integer.valueOf(cheapest));
+			} else if (isCallerSaved(reg) && web.isLiveAcrossCall()
+					&& web.getCallSaveCost() > web.getSpillCost()) {
+				// Callee-saved registers come first for these, so only
+				// caller-saved ones are left.
+				LogCenter.debug("RA", "Saving %s around calls costs more "
+						+ "than spilling it, spilling", web);
+				out.put(web, null);
+				continue;
+			}
+			free.remove(reg);
+			out.put(web, reg);
+			int i = 0;
+			while (i < active.size() && end[active.get(i)] <= end[id]) {
+				i++;
+			}
+			active.add(i, id);
+		}
+		return out;
+	}
+
+	/**
+	 * A free register for web, preferring one a move partner has. Webs live
+	 * across calls try callee-saved registers first, the rest caller-saved.
+	 */
+	private Reg pickRegister(Web web, Set<Reg> free, Map<Web, Reg> out,
+			Map<Web, Set<Web>> partners) {
+		Reg first = null;
+		for (Reg reg : web.isLiveAcrossCall() ? usableRegisters
+				: callerSavedFirst) {
+			if (free.contains(reg)) {
+				first = reg;
+				break;
+			}
+		}
+		if (first == null || !partners.containsKey(web)) {
+			return first;
+		}
+		for (Web partner : partners.get(web)) {
+			Reg reg = out.get(partner);
+			if (reg != null && free.contains(reg)
+					&& (!web.isLiveAcrossCall() || !isCallerSaved(reg)
+							|| isCallerSaved(first))) {
+				return reg;
+			}
+		}
+		return first;
+	}
+
+	private Integer getId(MidNode node, Map<MidSaveNode, Web> webDefs,
+			Map<MidUseNode, Web> webUses) {
+		Web web = null;
+		if (node instanceof MidSaveNode) {
+			web = webDefs.get(node);
+		} else if (node instanceof MidUseNode) {
+			web = webUses.get(node);
+		}
+		return web == null ? null : webIds.get(web);
+	}
+
+	private void extend(int id, int position) {
+		start[id] = Math.min(start[id], position);
+		end[id] = Math.max(end[id], position);
+	}
+
+	private void extend(BitVector live, int position) {
+		for (int id = live.nextSetBit(0); id >= 0; id = live.nextSetBit(id + 1)) {
+			extend(id, position);
+		}
+	}
+
+	private List<Web> getWebs(BitVector live) {
+		List<Web> out = new ArrayList<Web>();
+		for (int id = live.nextSetBit(0); id >= 0; id = live.nextSetBit(id + 1)) {
+			out.add(webs.get(id));
+		}
+		return out;
+	}
+
+	private static void addPartner(Map<Web, Set<Web>> partners, Web web,
+			Web partner) {
+		if (!partners.containsKey(web)) {
+			partners.put(web, new LinkedHashSet<Web>());
+		}
+		partners.get(web).add(partner);
+	}
+
+	private static boolean isCallerSaved(Reg reg) {
+		return Arrays.asList(RegisterAllocator.CALLER_SAVED_REGISTERS)
+				.contains(reg);
+	}
+
+}
@@ -0,0 +1,218 @@
+package edu.mit.compilers.opt.regalloc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.codegen.Reg;
+import edu.mit.compilers.codegen.nodes.MidCallNode;
+import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.codegen.nodes.MidSaveNode;
+import edu.mit.compilers.codegen.nodes.memory.MidLocalMemoryNode;
+import edu.mit.compilers.codegen.nodes.memory.MidMemoryNode;
+import edu.mit.compilers.codegen.nodes.memory.MidTempDeclNode;
+import edu.mit.compilers.codegen.nodes.regops.MidLoadNode;
+import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
+import edu.mit.compilers.opt.AnalysisManager;
+import edu.mit.compilers.opt.BackwardsAnalyzer;
+import edu.mit.compilers.opt.Block;
+import edu.mit.compilers.opt.cm.Loop;
+
+/**
+ * Splits the live ranges of variables that didn't get a good register at
+ * loop boundaries, so the next coloring can treat the part inside the loop
+ * and the part outside separately. Two splits are made, outermost loop
+ * first:
+ *
+ * - A variable live through a loop that doesn't mention it is copied to a
+ * new temp before the loop and back after it. The temp is cheap to keep in
+ * memory, which frees the register inside the loop, and no register needs
+ * saving around the calls there.
+ *
+ * - A variable only read inside a loop is copied to a new temp before the
+ * loop and the loop reads the temp. The loop's part can then get a register
+ * even if the rest of the variable doesn't.
+ *
+ * Copies are ordinary loads and saves. They're never coalesced (see
+ * WebMove.isSplit()), since that would join the ranges again, so a split
+ * always costs its copies. Splits that don't pay off can be undone.
+ *
+ * Nothing is split at calls themselves: a caller-saved register pushed and
+ * popped around a call already keeps the variable in memory only there.
+ */
+public class LiveRangeSplitter extends LoopRewriter {
+
+	private final BackwardsAnalyzer<LivenessState, LivenessDoctor> liveness;
+
+	public LiveRangeSplitter(AnalysisManager analyses) {
+		super(analyses);
+		this.liveness = analyses.getLiveness();
+	}
+
+	/**
+	 * Splits variables at the loops where mapping spilled a web or has to
+	 * save a caller-saved register around a call. Returns whether anything
+	 * was split; the IR has changed if so.
+	 */
+	public boolean split(List<Web> webs, Map<Web, Reg> mapping) {
+		List<Reg> callerSaved = Arrays
+				.asList(RegisterAllocator.CALLER_SAVED_REGISTERS);
+		Set<MidMemoryNode> variables = new LinkedHashSet<MidMemoryNode>();
+		Set<MidMemoryNode> spilled = new LinkedHashSet<MidMemoryNode>();
+		Set<Loop> pressured = new LinkedHashSet<Loop>();
+		for (Web web : webs) {
+			MidMemoryNode variable = web.getDefinitions().get(0)
+					.getDestinationNode();
+			if (!(variable instanceof MidLocalMemoryNode)
+					|| variable.isConstant()) {
+				continue;
+			}
+			variables.add(variable);
+			Reg reg = mapping.get(web);
+			if (reg == null) {
+				spilled.add(variable);
+				for (MidSaveNode def : web.getDefinitions()) {
+					addLoops(def, pressured);
+				}
+				for (MidUseNode use : web.getUses()) {
+					addLoops((MidNode) use, pressured);
+				}
+			} else if (callerSaved.contains(reg)) {
+				for (MidCallNode call : web.getCallsLiveAcross()) {
+					addLoops(call, pressured);
+				}
+			}
+		}
+
+		boolean changed = false;
+		for (MidMemoryNode variable : variables) {
+			changed |= splitVariable(variable, spilled.contains(variable),
+					pressured);
+		}
+		return changed;
+	}
+
+	private void addLoops(MidNode node, Set<Loop> out) {
+		Block block = loops.getBlock(node);
+		if (block != null) {
+			out.addAll(loops.getLoops(block));
+		}
+	}
+
+	private boolean splitVariable(MidMemoryNode variable, boolean spilled,
+			Set<Loop> pressured) {
+		boolean changed = false;
+		List<Set<Block>> done = new ArrayList<Set<Block>>();
+		for (Loop loop : loopBlocks.keySet()) {
+			Set<Block> blocks = loopBlocks.get(loop);
+			if (isInside(blocks, done)) {
+				continue;
+			}
+			boolean split = false;
+			if (!isReferenced(variable, blocks)) {
+				// Only worth it if something in the loop wants the register.
+				if (pressured.contains(loop)
+						&& isLiveIn(variable, loop.getStart())) {
+					split = splitThrough(variable, loop, blocks);
+				}
+			} else if (spilled) {
+				split = splitReads(variable, loop, blocks);
+			}
+			if (split) {
+				done.add(blocks);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Keeps variable in a new temp while loop runs, copying it back at the
+	 * loop's exits. Returns false if an exit is shared with code outside the
+	 * loop, since the copy back can't go there.
+	 */
+	private boolean splitThrough(MidMemoryNode variable, Loop loop,
+			Set<Block> blocks) {
+		List<Block> exits = new ArrayList<Block>();
+		for (Block exit : getExits(blocks)) {
+			if (!isLiveIn(variable, exit)) {
+				continue;
+			}
+			if (!isDedicated(exit, blocks)) {
+				return false;
+			}
+			exits.add(exit);
+		}
+		LogCenter.debug("RA", "Splitting %s around loop at %s", variable,
+				loop.getStart().getHead());
+		MidTempDeclNode temp = copyBefore(loop, variable);
+		copyAfter(exits, temp, variable);
+		return true;
+	}
+
+	/**
+	 * Makes loop read variable from a new temp that's set before the loop.
+	 * Returns false if the loop also writes variable, or variable isn't used
+	 * outside the loop so there's nothing to split from.
+	 */
+	private boolean splitReads(MidMemoryNode variable, Loop loop,
+			Set<Block> blocks) {
+		List<MidLoadNode> reads = new ArrayList<MidLoadNode>();
+		for (Block block : blocks) {
+			for (MidNode node : block) {
+				if (node instanceof MidSaveNode
+						&& variable.equals(((MidSaveNode) node)
+								.getDestinationNode())) {
+					return false;
+				}
+				if (node instanceof MidUseNode
+						&& variable.equals(((MidUseNode) node).getMemoryNode())) {
+					if (!(node instanceof MidLoadNode)) {
+						return false;
+					}
+					reads.add((MidLoadNode) node);
+				}
+			}
+		}
+		boolean usedOutside = false;
+		for (Block block : this.blocks) {
+			if (!blocks.contains(block) && isReferenced(variable, block)) {
+				usedOutside = true;
+				break;
+			}
+		}
+		if (!usedOutside || !isLiveIn(variable, loop.getStart())) {
+			return false;
+		}
+		LogCenter.debug("RA", "Splitting reads of %s in loop at %s",
+				variable, loop.getStart().getHead());
+		MidTempDeclNode temp = copyBefore(loop, variable);
+		for (MidLoadNode read : reads) {
+			rename(read, temp);
+		}
+		return true;
+	}
+
+	/**
+	 * Whether variable's value on entry to block may still be read.
+	 */
+	private boolean isLiveIn(MidMemoryNode variable, Block block) {
+		for (MidNode node : block) {
+			if (node instanceof MidUseNode
+					&& variable.equals(((MidUseNode) node).getMemoryNode())) {
+				return true;
+			}
+			if (node instanceof MidSaveNode
+					&& variable.equals(((MidSaveNode) node)
+							.getDestinationNode())) {
+				return false;
+			}
+		}
+		return liveness.getAnalyzedState(block).isLive(variable);
+	}
+
+}
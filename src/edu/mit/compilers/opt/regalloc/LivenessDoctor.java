@@ -1,6 +1,6 @@
 package edu.mit.compilers.opt.regalloc;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -21,9 +21,19 @@ import edu.mit.compilers.opt.Transfer;
 public class LivenessDoctor implements Transfer<LivenessState> {
 
 	private Map<MidSaveNode, Set<MidUseNode>> defUseMap;
+	private final UseNumbering numbering;
 
 	public LivenessDoctor() {
-		defUseMap = new HashMap<MidSaveNode, Set<MidUseNode>>();
+		defUseMap = new LinkedHashMap<MidSaveNode, Set<MidUseNode>>();
+		numbering = new UseNumbering();
+	}
+
+	/**
+	 * Returns an empty state numbered consistently with the states this
+	 * transfer function produces. Use it as the analyzer's start state.
+	 */
+	public LivenessState getStartState() {
+		return new LivenessState(numbering);
 	}
 
 	public void save(MidSaveNode node, Set<MidUseNode> useList) {
@@ -32,10 +42,10 @@ public class LivenessDoctor implements Transfer<LivenessState> {
 
 	@Override
 	public LivenessState apply(Block block, LivenessState s) {
-		LogCenter.debug("DCE", "Liveness on " + block.getBlockNum());
+		LogCenter.debug("DCE", "Liveness on %s", block.getBlockNum());
 		LivenessState out;
 		if (s == null) {
-			out = new LivenessState();
+			out = new LivenessState(numbering);
 		} else {
 			out = s.clone();
 		}
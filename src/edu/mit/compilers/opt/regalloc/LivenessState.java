@@ -1,115 +1,98 @@
 package edu.mit.compilers.opt.regalloc;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import edu.mit.compilers.LogCenter;
 import edu.mit.compilers.codegen.nodes.MidSaveNode;
 import edu.mit.compilers.codegen.nodes.memory.MidMemoryNode;
 import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
+import edu.mit.compilers.opt.BitVector;
 import edu.mit.compilers.opt.Block;
 import edu.mit.compilers.opt.State;
 
+/**
+ * The set of uses that are reachable (without an intervening definition) from
+ * a point in the program, stored as a BitVector over a shared UseNumbering.
+ * All states taking part in one analysis must share the same numbering.
+ */
 public class LivenessState implements State<LivenessState> {
 
-	private Map<MidMemoryNode, Set<MidUseNode>> uses;
+	private final UseNumbering numbering;
+	private final BitVector liveUses;
 
 	public LivenessState() {
-		uses = new HashMap<MidMemoryNode, Set<MidUseNode>>();
+		this(new UseNumbering());
 	}
 
-	public LivenessState(Map<MidMemoryNode, Set<MidUseNode>> uses) {
-		this.uses = uses;
+	public LivenessState(UseNumbering numbering) {
+		this(numbering, new BitVector(numbering.size()));
 	}
 
+	private LivenessState(UseNumbering numbering, BitVector liveUses) {
+		this.numbering = numbering;
+		this.liveUses = liveUses;
+	}
+
+	/**
+	 * Unions this state into s. The analyzers only ever pass in the running
+	 * result of previous joins (or null), so s can be updated in place.
+	 */
 	@Override
-	public LivenessState join(LivenessState livenessState) {
-		if (livenessState == null) {
+	public LivenessState join(LivenessState s) {
+		if (s == null) {
 			return this.clone();
 		}
-		Map<MidMemoryNode, Set<MidUseNode>> joinedUses = new HashMap<MidMemoryNode, Set<MidUseNode>>();
-		for (Entry<MidMemoryNode, Set<MidUseNode>> entry : uses.entrySet()) {
-			MidMemoryNode memNode = entry.getKey();
-			Set<MidUseNode> thisUses = new HashSet<MidUseNode>(
-					entry.getValue());
-			Set<MidUseNode> otherUses = livenessState.getUses(memNode);
-			if (otherUses != null) {
-				thisUses.addAll(otherUses);
-			}
-			joinedUses.put(memNode, thisUses);
-		}
-		// Catch any memory nodes that weren't in the first set.
-		for (Entry<MidMemoryNode, Set<MidUseNode>> entry : livenessState
-				.getUses().entrySet()) {
-			MidMemoryNode memNode = entry.getKey();
-			// If already have it, skip it.
-			if (joinedUses.containsKey(memNode)) {
-				continue;
-			}
-			Set<MidUseNode> thisUses = new HashSet<MidUseNode>(
-					entry.getValue());
-			Set<MidUseNode> otherUses = getUses(memNode);
-			if (otherUses != null) {
-				thisUses.addAll(otherUses);
-			}
-			joinedUses.put(memNode, thisUses);
-		}
-		return new LivenessState(joinedUses);
+		assert s.numbering == numbering : "Joining states from different analyses.";
+		s.liveUses.or(liveUses);
+		return s;
 	}
 
+	/**
+	 * Returns the live uses of memNode, or null if there aren't any.
+	 */
 	public Set<MidUseNode> getUses(MidMemoryNode memNode) {
-		return uses.get(memNode);
+		BitVector mask = numbering.getMask(memNode);
+		if (mask == null || !liveUses.intersects(mask)) {
+			return null;
+		}
+		return numbering.getUses(liveUses, mask);
+	}
+
+	public boolean isLive(MidMemoryNode memNode) {
+		BitVector mask = numbering.getMask(memNode);
+		return mask != null && liveUses.intersects(mask);
 	}
 
 	@Override
 	public LivenessState clone() {
-		Map<MidMemoryNode, Set<MidUseNode>> newUses = new HashMap<MidMemoryNode, Set<MidUseNode>>();
-		for (Entry<MidMemoryNode, Set<MidUseNode>> entry : getUses()
-				.entrySet()) {
-			newUses.put(entry.getKey(), new HashSet<MidUseNode>(entry
-					.getValue()));
-		}
-		return new LivenessState(newUses);
+		return new LivenessState(numbering, liveUses.clone());
 	}
 
 	public void processUse(MidUseNode node) {
-		MidMemoryNode memNode = node.getMemoryNode();
-		Set<MidUseNode> currentUses = uses.get(memNode);
-		if (currentUses == null) {
-			currentUses = new HashSet<MidUseNode>();
-			uses.put(memNode, currentUses);
-		}
-		currentUses.add(node);
+		liveUses.set(numbering.getId(node));
 	}
-	
+
 	public void processDefinition(MidSaveNode node,
 			LivenessDoctor livenessAnalyzer) {
-		
+
 		MidMemoryNode destNode = node.getDestinationNode();
-		Set<MidUseNode> useList = uses.get(destNode);
-		if (useList == null) {
+		BitVector mask = numbering.getMask(destNode);
+		if (mask == null || !liveUses.intersects(mask)) {
 			LogCenter.debug("RA", "> Nothing to see here folks");
 			return;
 		}
-		LogCenter.debug("RA", "> Removing "+destNode+" from uses");
-		uses.remove(destNode);
-		if (livenessAnalyzer != null){
-			livenessAnalyzer.save(node, useList);
-		} else{
+		LogCenter.debug("RA", "> Removing %s from uses", destNode);
+		if (livenessAnalyzer != null) {
+			livenessAnalyzer.save(node, numbering.getUses(liveUses, mask));
+		} else {
 			LogCenter.debug("RA", "> No save to liveness Analyze");
 		}
+		liveUses.andNot(mask);
 	}
 
 	public void processDefinition(MidSaveNode node) {
 		processDefinition(node, null);
 	}
-	
-	public Map<MidMemoryNode, Set<MidUseNode>> getUses() {
-		return uses;
-	}
 
 	@Override
 	public boolean equals(Object o) {
@@ -117,18 +100,22 @@ public class LivenessState implements State<LivenessState> {
 			return false;
 		}
 		LivenessState otherState = (LivenessState) o;
-		boolean isEqual = getUses().equals(otherState.getUses());
-		return isEqual;
+		return liveUses.equals(otherState.liveUses);
+	}
+
+	@Override
+	public int hashCode() {
+		return liveUses.hashCode();
 	}
 
 	@Override
 	public LivenessState getInitialState(Block b) {
-		return new LivenessState();
+		return new LivenessState(numbering);
 	}
 
 	@Override
 	public LivenessState getBottomState() {
-		return new LivenessState();
+		return new LivenessState(numbering);
 	}
 
 }
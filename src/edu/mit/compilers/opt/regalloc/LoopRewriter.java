@@ -0,0 +1,261 @@
+package edu.mit.compilers.opt.regalloc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import edu.mit.compilers.codegen.MidNodeList;
+import edu.mit.compilers.codegen.nodes.MidLabelNode;
+import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.codegen.nodes.MidSaveNode;
+import edu.mit.compilers.codegen.nodes.memory.MidMemoryNode;
+import edu.mit.compilers.codegen.nodes.memory.MidTempDeclNode;
+import edu.mit.compilers.codegen.nodes.regops.MidLoadNode;
+import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
+import edu.mit.compilers.opt.AnalysisManager;
+import edu.mit.compilers.opt.Block;
+import edu.mit.compilers.opt.cm.Loop;
+import edu.mit.compilers.opt.cm.LoopGenerator;
+
+/**
+ * Base for passes that move a variable into a temp while a loop runs. The
+ * temp is set before the loop and, where needed, copied back at the
+ * loop's exits. Every edit is recorded so it can be undone.
+ */
+public abstract class LoopRewriter {
+
+	// Analyses of the method before any edits. Edits only add copies
+	// around loops, so what they say about other loops stays true.
+	protected final List<Block> blocks;
+	protected final LoopGenerator loops;
+	// Loops with a preheader, outermost first, and the blocks in each.
+	protected final Map<Loop, Set<Block>> loopBlocks;
+	// The variables each block reads or writes.
+	private final Map<Block, Set<MidMemoryNode>> references;
+	// What was changed, for undo().
+	private final List<MidNode> inserted;
+	// Removed nodes, each with the node it followed.
+	private final List<MidNode[]> removed;
+	private final Map<MidLoadNode, MidMemoryNode> renamedReads;
+	private final Map<MidSaveNode, MidMemoryNode> renamedWrites;
+	private final Set<MidSaveNode> copies;
+
+	protected LoopRewriter(AnalysisManager analyses) {
+		this.blocks = analyses.getBlocks();
+		this.loops = analyses.getLoops();
+		this.loopBlocks = new LinkedHashMap<Loop, Set<Block>>();
+		this.inserted = new ArrayList<MidNode>();
+		this.removed = new ArrayList<MidNode[]>();
+		this.renamedReads = new LinkedHashMap<MidLoadNode, MidMemoryNode>();
+		this.renamedWrites = new LinkedHashMap<MidSaveNode, MidMemoryNode>();
+		this.copies = new HashSet<MidSaveNode>();
+		this.references = new HashMap<Block, Set<MidMemoryNode>>();
+		for (Block block : blocks) {
+			Set<MidMemoryNode> variables = new HashSet<MidMemoryNode>();
+			for (MidNode node : block) {
+				if (node instanceof MidUseNode) {
+					variables.add(((MidUseNode) node).getMemoryNode());
+				} else if (node instanceof MidSaveNode) {
+					variables.add(((MidSaveNode) node).getDestinationNode());
+				}
+			}
+			references.put(block, variables);
+		}
+		final Map<Loop, Set<Block>> unsorted = new LinkedHashMap<Loop, Set<Block>>();
+		for (Block block : blocks) {
+			for (Loop loop : loops.getLoops(block)) {
+				if (!unsorted.containsKey(loop)) {
+					unsorted.put(loop, new LinkedHashSet<Block>());
+				}
+				unsorted.get(loop).add(block);
+			}
+		}
+		List<Loop> sorted = new ArrayList<Loop>(unsorted.keySet());
+		Collections.sort(sorted, new Comparator<Loop>() {
+			@Override
+			public int compare(Loop a, Loop b) {
+				return unsorted.get(b).size() - unsorted.get(a).size();
+			}
+		});
+		for (Loop loop : sorted) {
+			// Checked up front since the copies put before a loop come
+			// between its preheader and start.
+			if (loop.hasPreheader(unsorted.get(loop))) {
+				loopBlocks.put(loop, unsorted.get(loop));
+			}
+		}
+	}
+
+	/**
+	 * The copies put in so far. Coalescing them would just join up what
+	 * was split.
+	 */
+	public Set<MidSaveNode> getCopies() {
+		return copies;
+	}
+
+	/**
+	 * Takes out every edit made so far.
+	 */
+	public void undo() {
+		for (MidNode node : inserted) {
+			node.delete();
+		}
+		// Later removals can have taken out what earlier ones followed.
+		for (int i = removed.size() - 1; i >= 0; i--) {
+			removed.get(i)[0].insertAfter(removed.get(i)[1]);
+		}
+		for (Entry<MidLoadNode, MidMemoryNode> entry : renamedReads
+				.entrySet()) {
+			entry.getKey().setMemoryNode(entry.getValue());
+		}
+		for (Entry<MidSaveNode, MidMemoryNode> entry : renamedWrites
+				.entrySet()) {
+			entry.getKey().setDestinationNode(entry.getValue());
+		}
+		inserted.clear();
+		removed.clear();
+		renamedReads.clear();
+		renamedWrites.clear();
+		copies.clear();
+	}
+
+	/**
+	 * Declares a new temp and copies variable into it right before loop.
+	 */
+	protected MidTempDeclNode copyBefore(Loop loop, MidMemoryNode variable) {
+		MidTempDeclNode temp = new MidTempDeclNode();
+		MidNodeList entryCopy = new MidNodeList();
+		entryCopy.add(temp);
+		entryCopy.addAll(copy(variable, temp));
+		insertBefore(loop, entryCopy);
+		return temp;
+	}
+
+	/**
+	 * Puts nodes right before loop, where they run once each time it's
+	 * entered.
+	 */
+	protected void insertBefore(Loop loop, MidNodeList nodes) {
+		insertAfter(loop.getStart().getHead().getPrevNode(), nodes);
+	}
+
+	/**
+	 * Copies temp back to variable on entry to each of exits.
+	 */
+	protected void copyAfter(List<Block> exits, MidTempDeclNode temp,
+			MidMemoryNode variable) {
+		for (Block exit : exits) {
+			MidNode head = exit.getHead();
+			if (head instanceof MidLabelNode) {
+				insertAfter(head, copy(temp, variable));
+			} else {
+				insertAfter(head.getPrevNode(), copy(temp, variable));
+			}
+		}
+	}
+
+	protected void rename(MidLoadNode read, MidMemoryNode memoryNode) {
+		renamedReads.put(read, read.getMemoryNode());
+		read.setMemoryNode(memoryNode);
+	}
+
+	protected void rename(MidSaveNode write, MidMemoryNode memoryNode) {
+		renamedWrites.put(write, write.getDestinationNode());
+		write.setDestinationNode(memoryNode);
+	}
+
+	/**
+	 * The blocks outside the loop that it can jump or fall into.
+	 */
+	protected static List<Block> getExits(Set<Block> blocks) {
+		List<Block> out = new ArrayList<Block>();
+		for (Block block : blocks) {
+			for (Block successor : block.getSuccessors()) {
+				if (!blocks.contains(successor) && !out.contains(successor)) {
+					out.add(successor);
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Whether exit is only reached from the loop, so a copy at its start
+	 * runs just when the loop is left.
+	 */
+	protected static boolean isDedicated(Block exit, Set<Block> blocks) {
+		return blocks.containsAll(exit.getPredecessors());
+	}
+
+	/**
+	 * Whether any of blocks mentions variable. Looks at the blocks as they
+	 * were before any edits; renames only happen in loops that are then
+	 * done, so that's still right for the loops left.
+	 */
+	protected boolean isReferenced(MidMemoryNode variable, Set<Block> blocks) {
+		for (Block block : blocks) {
+			if (isReferenced(variable, block)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected boolean isReferenced(MidMemoryNode variable, Block block) {
+		Set<MidMemoryNode> variables = references.get(block);
+		if (variables.contains(variable)) {
+			return true;
+		}
+		// CSE links temps that hold the same value, and they're equal.
+		return variable instanceof MidTempDeclNode
+				&& ((MidTempDeclNode) variable).getLink() != null
+				&& variables.contains(((MidTempDeclNode) variable).getLink());
+	}
+
+	protected static boolean isInside(Set<Block> blocks,
+			List<Set<Block>> outer) {
+		for (Set<Block> other : outer) {
+			if (other.containsAll(blocks)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private MidNodeList copy(MidMemoryNode from, MidMemoryNode to) {
+		MidNodeList out = new MidNodeList();
+		MidLoadNode load = new MidLoadNode(from);
+		out.add(load);
+		MidSaveNode save = new MidSaveNode(load, to);
+		out.add(save);
+		copies.add(save);
+		return out;
+	}
+
+	protected void insertAfter(MidNode node, MidNodeList nodes) {
+		for (MidNode n = nodes.getHead(); n != nodes.getTail(); n = n
+				.getNextNode()) {
+			inserted.add(n);
+		}
+		inserted.add(nodes.getTail());
+		node.insertNodeListAfter(nodes);
+	}
+
+	/**
+	 * Takes node out of block.
+	 */
+	protected void remove(MidNode node, Block block) {
+		removed.add(new MidNode[] { node, node.getPrevNode() });
+		block.delete(node);
+	}
+
+}
@@ -1,5 +1,6 @@
 package edu.mit.compilers.opt.regalloc;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -12,7 +13,9 @@ import edu.mit.compilers.codegen.nodes.MidCallNode;
 import edu.mit.compilers.codegen.nodes.MidMethodDeclNode;
 import edu.mit.compilers.codegen.nodes.MidNode;
 import edu.mit.compilers.codegen.nodes.MidSaveNode;
-import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
+import edu.mit.compilers.codegen.nodes.memory.MidFieldDeclNode;
+import edu.mit.compilers.opt.AnalysisManager;
+import edu.mit.compilers.opt.AnalysisManager.Analysis;
 import edu.mit.compilers.opt.BackwardsAnalyzer;
 import edu.mit.compilers.opt.HashMapUtils;
 import edu.mit.compilers.opt.regalloc.nodes.Allocatable;
@@ -20,7 +23,6 @@ import edu.mit.compilers.opt.regalloc.nodes.LiveWebsActivist;
 
 public class RegisterAllocator {
 
-	private final MidSymbolTable symbolTable;
 	// MidMethodDeclNode honors CALLEE_SAVED_REGISTERS.
 	public final static Reg[] CALLEE_SAVED_REGISTERS = { Reg.RBX, Reg.R12,
 			Reg.R13, Reg.R14, Reg.R15 };
@@ -37,40 +39,172 @@ public class RegisterAllocator {
 
 	public static final Reg[] TEMP_REGISTERS = { Reg.R10, Reg.R11 };
 
-	public RegisterAllocator(MidSymbolTable symbolTable) {
-		this.symbolTable = symbolTable;
+	// Methods with more webs than this get linear scan even without
+	// -linearscan. Coloring takes seconds past here (unrolled loops), the
+	// biggest method in the tests has about 200.
+	public static final int LINEAR_SCAN_WEBS = 500;
+
+	private final boolean linearScan;
+
+	public RegisterAllocator() {
+		this(false);
 	}
 
-	public void run() {
-		LivenessDoctor doctor = new LivenessDoctor();
-		BackwardsAnalyzer<LivenessState, LivenessDoctor> analyzer = new BackwardsAnalyzer<LivenessState, LivenessDoctor>(
-				new LivenessState().getBottomState(), doctor);
-		analyzer.analyze(symbolTable);
+	/**
+	 * With linearScan, every method is allocated by LinearScanner instead of
+	 * GraphColorer.
+	 */
+	public RegisterAllocator(boolean linearScan) {
+		this.linearScan = linearScan;
+	}
 
-		Map<MidSaveNode, Set<MidUseNode>> defUseMap = doctor.getDefUseMap();
-		WebKnitter knitter = new WebKnitter(defUseMap);
-		List<Web> webs = knitter.run();
+	public void run(MidSymbolTable symbolTable) {
+		for (Entry<String, MidMethodDeclNode> entry : symbolTable.getMethods()
+				.entrySet()) {
+			run(new AnalysisManager(entry.getKey(), entry.getValue()));
+		}
+	}
+
+	/**
+	 * A coloring of one method's webs.
+	 */
+	private static class Allocation {
+		WebKnitter knitter;
+		Map<Web, Reg> mapping;
+		double cost;
+	}
+
+	/**
+	 * Allocates registers for a single method. Webs never span methods, so
+	 * each method gets its own interference graph. Reuses the method's
+	 * liveness if nothing changed since it was computed. Linear scan
+	 * allocates once, without the loop rewrites.
+	 */
+	public void run(AnalysisManager analyses) {
+		Allocation allocation = linearScan ? allocate(analyses, null)
+				: rewriteAndAllocate(analyses);
+		applyAllocations(analyses.getMethod(), allocation.mapping,
+				allocation.knitter);
+		// Only annotates nodes with registers.
+		analyses.transformed(Analysis.values());
+	}
+
+	/**
+	 * Fields are first promoted to temps in loops, and go back to memory if
+	 * their temps don't get a register. If some variables don't get a good
+	 * register, their live ranges are split at loops and the method is
+	 * colored again, keeping the splits only if that's cheaper.
+	 */
+	private Allocation rewriteAndAllocate(AnalysisManager analyses) {
+		FieldPromoter promoter = new FieldPromoter(analyses);
+		Set<MidFieldDeclNode> demoted = new HashSet<MidFieldDeclNode>();
+		if (promoter.promote(demoted)) {
+			analyses.transformed();
+		}
+		Allocation allocation = allocate(analyses, null);
+		for (Web web : allocation.knitter.getWebs()) {
+			MidFieldDeclNode field = promoter.getField(web.getDefinitions()
+					.get(0).getDestinationNode());
+			if (field != null && allocation.mapping.get(web) == null) {
+				demoted.add(field);
+			}
+		}
+		if (!demoted.isEmpty()) {
+			LogCenter.debug("RA", "%s: demoting %s", analyses
+					.getMethodName(), demoted);
+			promoter.undo();
+			promoter.promote(demoted);
+			analyses.transformed();
+			allocation = allocate(analyses, null);
+		}
+
+		LiveRangeSplitter splitter = new LiveRangeSplitter(analyses);
+		if (splitter.split(allocation.knitter.getWebs(), allocation.mapping)) {
+			analyses.transformed();
+			Allocation split = allocate(analyses, splitter.getCopies());
+			LogCenter.debug("RA", "%s: cost %.0f unsplit, %.0f split",
+					analyses.getMethodName(), allocation.cost, split.cost);
+			if (split.cost < allocation.cost) {
+				allocation = split;
+			} else {
+				splitter.undo();
+				analyses.transformed();
+				allocation = allocate(analyses, null);
+			}
+		}
+
+		return allocation;
+	}
+
+	/**
+	 * Colors the method's webs. Moves made by splitCopies, if given, are
+	 * not coalesced. Uses linear scan instead if asked to or the method is
+	 * huge.
+	 */
+	private Allocation allocate(AnalysisManager analyses,
+			Set<MidSaveNode> splitCopies) {
+		Allocation out = new Allocation();
+		out.knitter = new WebKnitter(analyses.getLivenessDoctor()
+				.getDefUseMap());
+		List<Web> webs = out.knitter.run();
+		if (linearScan || webs.size() > LINEAR_SCAN_WEBS) {
+			LogCenter.debug("RA", "%s: %d webs, using linear scan", analyses
+					.getMethodName(), webs.size());
+			return scan(analyses, out);
+		}
 
-		WebProcessor.initialize(knitter.getWebMapDefs(), knitter
-				.getWebMapUses());
 		BackwardsAnalyzer<WebState, WebProcessor> interferenceAnalyzer = new BackwardsAnalyzer<WebState, WebProcessor>(
-				new WebState().getBottomState(), new WebProcessor());
-		interferenceAnalyzer.analyze(symbolTable);
+				new WebState().getBottomState(), new WebProcessor(out.knitter
+						.getWebMapDefs(), out.knitter.getWebMapUses()));
+		interferenceAnalyzer.analyze(analyses.getMethodName(), analyses
+				.getBlocks());
+		WebStaticApproximator approximator = new WebStaticApproximator(
+				analyses.getLoops(), analyses.getBlockCounts());
+		approximator.scoreWebs(webs);
 
-		LogCenter.debug("RA", "Webs created:");
-		for (Web w : webs) {
-			LogCenter.debug("RA", String.format("%s: %s", w, w
-					.getInterferences()));
+		if (LogCenter.isEnabled("RA")) {
+			LogCenter.debug("RA", "Webs created:");
+			for (Web w : webs) {
+				LogCenter.debug("RA", "%s (cost %.0f): %s", w, w
+						.getSpillCost(), w.getInterferences());
+			}
 		}
 		GraphColorer crayola = new GraphColorer(USABLE_REGISTERS);
-		Map<Web, Reg> mapping = crayola.color(webs);
-		LogCenter.debug("RA", "Coloring results: "
-				+ HashMapUtils.toMapString(mapping));
+		List<WebMove> moves = out.knitter.getMoves();
+		if (splitCopies != null) {
+			for (WebMove move : moves) {
+				move.setSplit(splitCopies.contains(move.getSaveNode()));
+			}
+		}
+		out.mapping = crayola.color(webs, moves);
+		if (LogCenter.isEnabled("RA")) {
+			LogCenter.debug("RA", "Coloring results: %s", HashMapUtils
+					.toMapString(out.mapping));
+		}
+		out.cost = approximator.estimateCost(webs, moves, out.mapping);
+		return out;
+	}
 
-		for (Entry<String, MidMethodDeclNode> entry : symbolTable.getMethods()
-				.entrySet()) {
-			applyAllocations(entry.getValue(), mapping, knitter);
+	/**
+	 * Allocates the webs knit into out by linear scan.
+	 */
+	private Allocation scan(AnalysisManager analyses, Allocation out) {
+		List<Web> webs = out.knitter.getWebs();
+		LinearScanner scanner = new LinearScanner(USABLE_REGISTERS);
+		scanner.buildIntervals(analyses.getMethod().getNodeList(), analyses
+				.getBlocks(), webs, out.knitter.getWebMapDefs(), out.knitter
+				.getWebMapUses());
+		WebStaticApproximator approximator = new WebStaticApproximator(
+				analyses.getLoops(), analyses.getBlockCounts());
+		approximator.scoreWebs(webs);
+		List<WebMove> moves = out.knitter.getMoves();
+		out.mapping = scanner.scan(moves);
+		if (LogCenter.isEnabled("RA")) {
+			LogCenter.debug("RA", "Linear scan results: %s", HashMapUtils
+					.toMapString(out.mapping));
 		}
+		out.cost = approximator.estimateCost(webs, moves, out.mapping);
+		return out;
 	}
 
 	private void applyAllocations(MidMethodDeclNode methodDeclNode,
@@ -81,16 +215,16 @@ public class RegisterAllocator {
 				Web web = knitter.lookupWeb(allocatedNode);
 				Reg allocatedReg = mapping.get(web);
 				if (allocatedReg != null) {
-					LogCenter.debug("RA", "Allocating " + allocatedReg.name()
-							+ " (" + web + ") to " + node);
+					LogCenter.debug("RA", "Allocating %s (%s) to %s",
+							allocatedReg.name(), web, node);
 					allocatedNode.allocateRegister(allocatedReg);
 				}
 				continue;
 			}
 			if (node instanceof LiveWebsActivist) {
 				if (node instanceof MidCallNode) {
-					LogCenter.debug("CALL", "Checking out "
-							+ ((MidCallNode) node).getName());
+					LogCenter.debug("CALL", "Checking out %s",
+							((MidCallNode) node).getName());
 				}
 				((LiveWebsActivist) node).applyAllocatedMapping(mapping);
 			}
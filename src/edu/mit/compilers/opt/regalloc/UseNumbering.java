@@ -0,0 +1,72 @@
+package edu.mit.compilers.opt.regalloc;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import edu.mit.compilers.codegen.nodes.memory.MidMemoryNode;
+import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
+import edu.mit.compilers.opt.BitVector;
+import edu.mit.compilers.opt.Numbering;
+
+/**
+ * Numbers the MidUseNodes seen by a liveness analysis so that LivenessState
+ * can keep its live uses in a BitVector. Also tracks, for each memory node,
+ * the mask of use ids that read from it so that a definition can kill all of
+ * its uses with a single andNot.
+ * 
+ * Uses are numbered lazily the first time they're processed, which is always
+ * before any definition could need to kill them.
+ */
+public class UseNumbering {
+
+	private final Numbering<MidUseNode> uses;
+	private final Map<MidMemoryNode, BitVector> masks;
+
+	public UseNumbering() {
+		uses = new Numbering<MidUseNode>();
+		masks = new HashMap<MidMemoryNode, BitVector>();
+	}
+
+	public int getId(MidUseNode use) {
+		int oldSize = uses.size();
+		int id = uses.getId(use);
+		if (id == oldSize) {
+			// First time we've seen this use, add it to its memory node's mask.
+			MidMemoryNode memNode = use.getMemoryNode();
+			BitVector mask = masks.get(memNode);
+			if (mask == null) {
+				mask = new BitVector();
+				masks.put(memNode, mask);
+			}
+			mask.set(id);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the ids of all uses of memNode, or null if it has none.
+	 */
+	public BitVector getMask(MidMemoryNode memNode) {
+		return masks.get(memNode);
+	}
+
+	/**
+	 * Materializes the uses in live that also belong to mask.
+	 */
+	public Set<MidUseNode> getUses(BitVector live, BitVector mask) {
+		Set<MidUseNode> out = new LinkedHashSet<MidUseNode>();
+		for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1)) {
+			if (mask.get(i)) {
+				out.add(uses.get(i));
+			}
+		}
+		return out;
+	}
+
+	public int size() {
+		return uses.size();
+	}
+
+}
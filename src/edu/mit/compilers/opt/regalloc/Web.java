@@ -1,10 +1,11 @@
 package edu.mit.compilers.opt.regalloc;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import edu.mit.compilers.codegen.nodes.MidCallNode;
 import edu.mit.compilers.codegen.nodes.MidSaveNode;
 import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
 
@@ -13,11 +14,15 @@ public class Web {
 	private List<MidSaveNode> definitions;
 	private List<MidUseNode> uses;
 	private Set<Web> interferences;
+	private Set<MidCallNode> callsLiveAcross;
+	private double spillCost;
+	private double callSaveCost;
 
 	public Web() {
 		definitions = new ArrayList<MidSaveNode>();
 		uses = new ArrayList<MidUseNode>();
-		interferences = new HashSet<Web>();
+		interferences = new LinkedHashSet<Web>();
+		callsLiveAcross = new LinkedHashSet<MidCallNode>();
 	}
 
 	public void expand(MidSaveNode newDef, Set<MidUseNode> newUses) {
@@ -25,6 +30,15 @@ public class Web {
 		uses.addAll(newUses);
 	}
 
+	/**
+	 * Takes in other's definitions and uses, for when a definition reaches
+	 * uses in both.
+	 */
+	public void absorb(Web other) {
+		definitions.addAll(other.definitions);
+		uses.addAll(other.uses);
+	}
+
 	public void addInterference(Web otherWeb) {
 		// It's going to want to interfere with itself, so ignore that.
 		if (interferences.contains(otherWeb) || otherWeb == this) {
@@ -44,4 +58,52 @@ public class Web {
 		return interferences;
 	}
 
+	public List<MidSaveNode> getDefinitions() {
+		return definitions;
+	}
+
+	public List<MidUseNode> getUses() {
+		return uses;
+	}
+
+	/**
+	 * Estimated cost of keeping the web in memory, see
+	 * WebStaticApproximator.
+	 */
+	public double getSpillCost() {
+		return spillCost;
+	}
+
+	public void setSpillCost(double spillCost) {
+		this.spillCost = spillCost;
+	}
+
+	/**
+	 * Estimated cost of saving a caller-saved register around the calls the
+	 * web is live across, see WebStaticApproximator.
+	 */
+	public double getCallSaveCost() {
+		return callSaveCost;
+	}
+
+	public void setCallSaveCost(double callSaveCost) {
+		this.callSaveCost = callSaveCost;
+	}
+
+	public void markLiveAcrossCall(MidCallNode call) {
+		callsLiveAcross.add(call);
+	}
+
+	/**
+	 * Returns whether the web is live at some call, so a caller-saved
+	 * register would have to be saved around it.
+	 */
+	public boolean isLiveAcrossCall() {
+		return !callsLiveAcross.isEmpty();
+	}
+
+	public Set<MidCallNode> getCallsLiveAcross() {
+		return callsLiveAcross;
+	}
+
 }
\ No newline at end of file
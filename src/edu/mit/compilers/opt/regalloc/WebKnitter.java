@@ -9,6 +9,7 @@ import java.util.Set;
 
 import edu.mit.compilers.codegen.nodes.MidSaveNode;
 import edu.mit.compilers.codegen.nodes.memory.MidFieldDeclNode;
+import edu.mit.compilers.codegen.nodes.regops.MidLoadNode;
 import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
 import edu.mit.compilers.opt.regalloc.nodes.Allocatable;
 
@@ -24,6 +25,7 @@ public class WebKnitter {
 	private Map<MidUseNode, Web> webMapUses;
 	private Map<MidSaveNode, Web> webMapDefs;
 	private Map<MidSaveNode, Set<MidUseNode>> defUseMap;
+	private List<Web> webs;
 
 	public WebKnitter(Map<MidSaveNode, Set<MidUseNode>> defUseMap) {
 		this.defUseMap = defUseMap;
@@ -32,26 +34,32 @@ public class WebKnitter {
 	}
 
 	public List<Web> run() {
-		List<Web> output = new ArrayList<Web>();
+		webs = new ArrayList<Web>();
 		for (Entry<MidSaveNode, Set<MidUseNode>> entry : defUseMap.entrySet()) {
 			Set<MidUseNode> uses = entry.getValue();
 			MidSaveNode def = entry.getKey();
-			// We skip web generation for field nodes. Can potentially improve
-			// this in the future by splitting the web at method calls instead
-			// of not doing it at all.
+			// We skip web generation for field nodes, any method call might
+			// read or write them. FieldPromoter moves them into temps in
+			// loops without calls.
 			if (def.getDestinationNode() instanceof MidFieldDeclNode) {
 				continue;
 			}
 			Web targetWeb = null;
 			for (MidUseNode use : uses) {
-				targetWeb = webMapUses.get(use);
-				if (targetWeb != null) {
-					break;
+				Web web = webMapUses.get(use);
+				if (web == null || web == targetWeb) {
+					continue;
+				}
+				if (targetWeb == null) {
+					targetWeb = web;
+				} else {
+					// def reaches uses in two webs, so they're one web.
+					merge(web, targetWeb);
 				}
 			}
 			if (targetWeb == null) {
 				targetWeb = new Web();
-				output.add(targetWeb);
+				webs.add(targetWeb);
 			}
 			targetWeb.expand(def, uses);
 			for (MidUseNode use : uses) {
@@ -59,7 +67,42 @@ public class WebKnitter {
 			}
 			webMapDefs.put(def, targetWeb);
 		}
-		return output;
+		return webs;
+	}
+
+	private void merge(Web from, Web into) {
+		into.absorb(from);
+		for (MidSaveNode def : from.getDefinitions()) {
+			webMapDefs.put(def, into);
+		}
+		for (MidUseNode use : from.getUses()) {
+			webMapUses.put(use, into);
+		}
+		webs.remove(from);
+	}
+
+	/**
+	 * Returns the copies between webs made by run(), in web order.
+	 */
+	public List<WebMove> getMoves() {
+		List<WebMove> moves = new ArrayList<WebMove>();
+		for (Web web : webs) {
+			for (MidSaveNode def : web.getDefinitions()) {
+				if (!def.savesRegister()
+						|| !(def.getRegNode() instanceof MidLoadNode)) {
+					continue;
+				}
+				Web source = webMapUses.get(def.getRegNode());
+				if (source != null && source != web) {
+					moves.add(new WebMove(source, web, def));
+				}
+			}
+		}
+		return moves;
+	}
+
+	public List<Web> getWebs() {
+		return webs;
 	}
 
 	public Map<MidUseNode, Web> getWebMapUses() {
@@ -0,0 +1,52 @@
+package edu.mit.compilers.opt.regalloc;
+
+import edu.mit.compilers.codegen.nodes.MidSaveNode;
+
+/**
+ * A copy from one web to another: a save whose value comes straight from a
+ * load. If both webs get the same register the copy does nothing, which is
+ * what coalescing in GraphColorer aims for.
+ */
+public class WebMove {
+
+	private final Web source;
+	private final Web destination;
+	private final MidSaveNode saveNode;
+	private boolean split;
+
+	public WebMove(Web source, Web destination, MidSaveNode saveNode) {
+		this.source = source;
+		this.destination = destination;
+		this.saveNode = saveNode;
+	}
+
+	public Web getSource() {
+		return source;
+	}
+
+	public Web getDestination() {
+		return destination;
+	}
+
+	public MidSaveNode getSaveNode() {
+		return saveNode;
+	}
+
+	/**
+	 * Split moves come from live-range splitting, so coalescing them would
+	 * undo the split. They're only a hint for picking colors.
+	 */
+	public boolean isSplit() {
+		return split;
+	}
+
+	public void setSplit(boolean split) {
+		this.split = split;
+	}
+
+	@Override
+	public String toString() {
+		return source + " -> " + destination;
+	}
+
+}
@@ -4,8 +4,10 @@ import java.util.ArrayList;
 import java.util.Map;
 
 import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.codegen.nodes.MidCallNode;
 import edu.mit.compilers.codegen.nodes.MidNode;
 import edu.mit.compilers.codegen.nodes.MidSaveNode;
+import edu.mit.compilers.codegen.nodes.regops.MidLoadNode;
 import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
 import edu.mit.compilers.opt.Block;
 import edu.mit.compilers.opt.Transfer;
@@ -20,12 +22,18 @@ import edu.mit.compilers.opt.regalloc.nodes.LiveWebsActivist;
  */
 public class WebProcessor implements Transfer<WebState> {
 
-	private static Map<MidSaveNode, Web> webDefs;
-	private static Map<MidUseNode, Web> webUses;
+	private final Map<MidSaveNode, Web> webDefs;
+	private final Map<MidUseNode, Web> webUses;
+
+	public WebProcessor(Map<MidSaveNode, Web> webDefs,
+			Map<MidUseNode, Web> webUses) {
+		assert (webDefs != null && webUses != null) : "WebProcessor created with null arguments.";
+		this.webDefs = webDefs;
+		this.webUses = webUses;
+	}
 
 	@Override
 	public WebState apply(Block b, WebState s) {
-		assert (webDefs != null && webUses != null) : "WebProcessor function apply() called before initialize().";
 		// LogCenter.debug("RA", "\n########\nProcessing " + b);
 		WebState out;
 		if (s == null) {
@@ -33,26 +41,28 @@ public class WebProcessor implements Transfer<WebState> {
 		} else {
 			out = s.clone();
 		}
-		LogCenter.debug("RA", "Live webs: " + out.getLiveWebs());
+		LogCenter.debug("RA", "Live webs: %s", out.getLiveWebs());
 		for (MidNode node : b.reverse()) {
-			LogCenter.debug("RA", "Processing " + node);
+			LogCenter.debug("RA", "Processing %s", node);
 			if (node instanceof MidSaveNode) {
 				if (!webDefs.containsKey(node)) {
-					LogCenter.debug("RA", "Warning: saveNode: " + node
-							+ " doesn't belong to a web.");
+					LogCenter.debug("RA",
+							"Warning: saveNode: %s doesn't belong to a web.",
+							node);
 					continue;
 				}
 				Web web = webDefs.get(node);
 				out.killWeb(web);
-				out.interfereWith(web);
+				out.interfereWith(web, getCopiedWeb((MidSaveNode) node));
 				continue;
 			}
 			if (node instanceof MidUseNode) {
 				// It's possible that this is dead code and doesn't belong to a
 				// web.
 				if (!webUses.containsKey(node)) {
-					LogCenter.debug("RA", "Warning: loadNode " + node
-							+ " doesn't belong to a web.");
+					LogCenter.debug("RA",
+							"Warning: loadNode %s doesn't belong to a web.",
+							node);
 					continue;
 				}
 				Web web = webUses.get(node);
@@ -60,20 +70,38 @@ public class WebProcessor implements Transfer<WebState> {
 				out.interfereWith(web);
 				continue;
 			}
+			// Runtime error calls don't return, so nothing needs saving.
+			if (node instanceof MidCallNode
+					&& ((MidCallNode) node).isStarbucksCall()) {
+				continue;
+			}
 			if (node instanceof LiveWebsActivist) {
 				((LiveWebsActivist) node).setLiveWebs(new ArrayList<Web>(out
 						.getLiveWebs()));
 			}
+			if (node instanceof MidCallNode) {
+				for (Web web : out.getLiveWebs()) {
+					web.markLiveAcrossCall((MidCallNode) node);
+				}
+			}
 		}
-		LogCenter.debug("RA", "Live webs: " + out.getLiveWebs() + "\n#\n#");
+		LogCenter.debug("RA", "Live webs: %s\n#\n#", out.getLiveWebs());
 		return out;
 	}
 
-	public static void initialize(Map<MidSaveNode, Web> webDefs,
-			Map<MidUseNode, Web> webUses) {
-		assert (webDefs != null && webUses != null) : "WebProcessor function initialized() called with null arguments.";
-		WebProcessor.webDefs = webDefs;
-		WebProcessor.webUses = webUses;
+	/**
+	 * Returns the web saveNode copies from, if the value is loaded right
+	 * before the save. The destination holds the same value as that web
+	 * afterwards, so the two don't interfere there and can share a
+	 * register. A later definition of either still makes them interfere.
+	 */
+	private Web getCopiedWeb(MidSaveNode saveNode) {
+		if (!saveNode.savesRegister()
+				|| !(saveNode.getRegNode() instanceof MidLoadNode)
+				|| saveNode.getPrevNode() != saveNode.getRegNode()) {
+			return null;
+		}
+		return webUses.get(saveNode.getRegNode());
 	}
 
 }
@@ -1,6 +1,6 @@
 package edu.mit.compilers.opt.regalloc;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import edu.mit.compilers.LogCenter;
@@ -12,7 +12,7 @@ public class WebState implements State<WebState> {
 	private Set<Web> liveWebs;
 
 	public WebState() {
-		liveWebs = new HashSet<Web>();
+		liveWebs = new LinkedHashSet<Web>();
 	}
 
 	public WebState(Set<Web> newLiveWebs) {
@@ -35,12 +35,12 @@ public class WebState implements State<WebState> {
 
 	@Override
 	public WebState join(WebState s) {
-		LogCenter.debug("RA", "Joining " + s + " with " + this);
+		LogCenter.debug("RA", "Joining %s with %s", s, this);
 		if (s == null) {
 			return clone();
 		}
 		// A live web node is live in either both place.
-		Set<Web> thisLiveWebs = new HashSet<Web>(getLiveWebs());
+		Set<Web> thisLiveWebs = new LinkedHashSet<Web>(getLiveWebs());
 		Set<Web> thatLiveWebs = s.getLiveWebs();
 		thisLiveWebs.addAll(thatLiveWebs);
 		WebState out = new WebState(thisLiveWebs);
@@ -49,7 +49,7 @@ public class WebState implements State<WebState> {
 
 	@Override
 	public WebState clone() {
-		Set<Web> newLiveWebs = new HashSet<Web>(getLiveWebs());
+		Set<Web> newLiveWebs = new LinkedHashSet<Web>(getLiveWebs());
 		WebState out = new WebState(newLiveWebs);
 		return out;
 	}
@@ -70,20 +70,30 @@ public class WebState implements State<WebState> {
 
 	public void birthWeb(Web web) {
 		assert web != null;
-		LogCenter.debug("RA", "Birthing new web " + web);
+		LogCenter.debug("RA", "Birthing new web %s", web);
 		liveWebs.add(web);
 	}
 
 	public void killWeb(Web web) {
-		LogCenter.debug("RA", "Killing web " + web);
+		LogCenter.debug("RA", "Killing web %s", web);
 		liveWebs.remove(web);
 	}
 
 	public void interfereWith(Web web) {
+		interfereWith(web, null);
+	}
+
+	/**
+	 * Marks web as interfering with every live web but except.
+	 */
+	public void interfereWith(Web web, Web except) {
 		for (Web liveWeb : liveWebs) {
 			assert liveWeb != null;
-			LogCenter.debug("RA", "Marking " + web + " as interfering with "
-					+ liveWeb);
+			if (liveWeb == except) {
+				continue;
+			}
+			LogCenter.debug("RA", "Marking %s as interfering with %s", web,
+					liveWeb);
 			liveWeb.addInterference(web);
 		}
 	}
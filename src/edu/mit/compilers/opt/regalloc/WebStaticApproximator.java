@@ -1,11 +1,80 @@
 package edu.mit.compilers.opt.regalloc;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
+import edu.mit.compilers.codegen.Reg;
+import edu.mit.compilers.codegen.nodes.MidCallNode;
+import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.codegen.nodes.MidSaveNode;
+import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
+import edu.mit.compilers.opt.cm.LoopGenerator;
+import edu.mit.compilers.opt.profile.BlockCounts;
+import edu.mit.compilers.opt.profile.FrequencyEstimator;
+
+/**
+ * Estimates what spilling each web would cost: every def and use of a
+ * spilled web is a memory access, weighted by how often it runs, see
+ * FrequencyEstimator.
+ */
 public class WebStaticApproximator {
-	
+
+	private final FrequencyEstimator frequencies;
+
+	/**
+	 * counts are the method's profiled block counts, or null.
+	 */
+	public WebStaticApproximator(LoopGenerator loops, BlockCounts counts) {
+		this.frequencies = new FrequencyEstimator(loops, counts);
+	}
+
 	public void scoreWebs(List<Web> webs) {
-		
+		for (Web web : webs) {
+			double cost = 0;
+			for (MidSaveNode def : web.getDefinitions()) {
+				cost += frequencies.getFrequency(def);
+			}
+			for (MidUseNode use : web.getUses()) {
+				cost += frequencies.getFrequency((MidNode) use);
+			}
+			web.setSpillCost(cost);
+			double callCost = 0;
+			for (MidCallNode call : web.getCallsLiveAcross()) {
+				// A push and a pop.
+				callCost += 2 * frequencies.getFrequency(call);
+			}
+			web.setCallSaveCost(callCost);
+		}
+	}
+
+	/**
+	 * Estimates the run-time cost of the code an allocation leaves behind:
+	 * the memory accesses of spilled webs, saving caller-saved registers
+	 * around calls, and copies between webs in different registers. Only
+	 * useful for comparing allocations of the same method.
+	 */
+	public double estimateCost(List<Web> webs, List<WebMove> moves,
+			Map<Web, Reg> mapping) {
+		List<Reg> callerSaved = Arrays
+				.asList(RegisterAllocator.CALLER_SAVED_REGISTERS);
+		double cost = 0;
+		for (Web web : webs) {
+			Reg reg = mapping.get(web);
+			if (reg == null) {
+				cost += web.getSpillCost();
+			} else if (callerSaved.contains(reg)) {
+				cost += web.getCallSaveCost();
+			}
+		}
+		for (WebMove move : moves) {
+			Reg source = mapping.get(move.getSource());
+			Reg destination = mapping.get(move.getDestination());
+			if (source != null && destination != null && source != destination) {
+				cost += frequencies.getFrequency(move.getSaveNode());
+			}
+		}
+		return cost;
 	}
 
 }
@@ -9,6 +9,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.MidNode;
 import edu.mit.compilers.codegen.nodes.regops.MidParamLoadNode;
 import edu.mit.compilers.opt.meta.Optimizer;
@@ -41,13 +42,10 @@ public class MidPreserveParamsNode extends MidNode {
 		List<ASM> stackParams = new ArrayList<ASM>();
 		for (MidParamLoadNode paramNode : paramNodes) {
 			Reg fromReg = paramNode.getAllocatedRegister();
-			if (fromReg == null) {
-				continue;
-			}
 			Reg destReg = paramNode.getRegister();
-			if (regWillBeOverwritten(fromReg, destReg)) {
+			if (needsPush(paramNode)) {
 				OpASM opASM = new OpASM("Save from overwriting.", OpCode.PUSH,
-						fromReg.name());
+						Operand.reg(fromReg));
 				if (findRegisterIndex(destReg) == -1) {
 					stackParams.add(opASM);
 				} else {
@@ -63,6 +61,32 @@ public class MidPreserveParamsNode extends MidNode {
 		return out;
 	}
 
+	/**
+	 * How many registers toASM() pushes.
+	 */
+	public int countPushes() {
+		int count = 0;
+		for (MidParamLoadNode paramNode : paramNodes) {
+			if (needsPush(paramNode)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * How many params are passed on the stack rather than in registers.
+	 */
+	public int getStackParamCount() {
+		return Math.max(0, paramNodes.size() - AsmVisitor.paramRegisters.length);
+	}
+
+	private static boolean needsPush(MidParamLoadNode paramNode) {
+		Reg fromReg = paramNode.getAllocatedRegister();
+		return fromReg != null
+				&& regWillBeOverwritten(fromReg, paramNode.getRegister());
+	}
+
 	/**
 	 * If true, means that the register we're loading from already has been
 	 * overwritten! For example, if we're loading a web value RDI into RSI, RDI
@@ -103,7 +127,7 @@ public class MidPreserveParamsNode extends MidNode {
 			stackOffset = 0;
 		}
 		stackOffset += 8;
-		LogCenter.debug("JM", "Offset increased to " + stackOffset);
+		LogCenter.debug("JM", "Offset increased to %s", stackOffset);
 	}
 
 	public int getOffset() {
@@ -7,6 +7,7 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.MidCallNode;
 import edu.mit.compilers.codegen.nodes.MidNode;
 
@@ -28,7 +29,7 @@ public class MidRestoreRegLaterNode extends MidNode {
 
 		List<Reg> needToSaveRegs = callNode.getNeedToSaveRegisters();
 		for (Reg r : needToSaveRegs) {
-			out.add(0, new OpASM("Restore live reg.", OpCode.POP, r.name()));
+			out.add(0, new OpASM("Restore live reg.", OpCode.POP, Operand.reg(r)));
 		}
 
 		return out;
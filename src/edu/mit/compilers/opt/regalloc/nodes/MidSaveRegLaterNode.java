@@ -3,10 +3,12 @@ package edu.mit.compilers.opt.regalloc.nodes;
 import java.util.ArrayList;
 import java.util.List;
 
+import edu.mit.compilers.codegen.MemoryManager;
 import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.MidCallNode;
 import edu.mit.compilers.codegen.nodes.MidNode;
 
@@ -20,9 +22,24 @@ import edu.mit.compilers.codegen.nodes.MidNode;
 public class MidSaveRegLaterNode extends MidNode {
 
 	private final MidCallNode callNode;
+	private final MidPreserveParamsNode preserveParamsNode;
 
-	public MidSaveRegLaterNode(MidCallNode callNode) {
+	public MidSaveRegLaterNode(MidCallNode callNode,
+			MidPreserveParamsNode preserveParamsNode) {
 		this.callNode = callNode;
+		this.preserveParamsNode = preserveParamsNode;
+	}
+
+	/**
+	 * Whether an odd number of registers gets pushed before the call, so the
+	 * stack needs another 8 bytes to stay 16-byte aligned at the call as the
+	 * ABI requires.
+	 */
+	public boolean isPadded() {
+		int pushes = callNode.getNeedToSaveRegisters().size()
+				+ preserveParamsNode.countPushes()
+				+ preserveParamsNode.getStackParamCount();
+		return pushes % 2 == 1;
 	}
 
 	@Override
@@ -33,7 +50,11 @@ public class MidSaveRegLaterNode extends MidNode {
 		
 		List<Reg> needToSaveRegs = callNode.getNeedToSaveRegisters();
 		for (Reg r : needToSaveRegs) {
-			out.add(new OpASM("Save live reg.", OpCode.PUSH, r.name()));
+			out.add(new OpASM("Save live reg.", OpCode.PUSH, Operand.reg(r)));
+		}
+		if (isPadded()) {
+			out.add(new OpASM("Align stack for call.", OpCode.SUB, Operand
+					.reg(Reg.RSP), Operand.imm(MemoryManager.ADDRESS_SIZE)));
 		}
 
 		return out;
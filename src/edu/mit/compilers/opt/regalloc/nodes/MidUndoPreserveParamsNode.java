@@ -8,17 +8,22 @@ import edu.mit.compilers.codegen.Reg;
 import edu.mit.compilers.codegen.asm.ASM;
 import edu.mit.compilers.codegen.asm.OpASM;
 import edu.mit.compilers.codegen.asm.OpCode;
+import edu.mit.compilers.codegen.asm.Operand;
 import edu.mit.compilers.codegen.nodes.MidNode;
 
 /**
- * Cleans up the stack pushing that MidPreserveParamsNode did.
+ * Cleans up the stack pushing that MidPreserveParamsNode did, along with any
+ * alignment padding from MidSaveRegLaterNode right below it.
  */
 public class MidUndoPreserveParamsNode extends MidNode {
 
 	private MidPreserveParamsNode preserveParamsNode;
+	private MidSaveRegLaterNode saveRegLaterNode;
 
-	public MidUndoPreserveParamsNode(MidPreserveParamsNode preserveParamsNode) {
+	public MidUndoPreserveParamsNode(MidPreserveParamsNode preserveParamsNode,
+			MidSaveRegLaterNode saveRegLaterNode) {
 		this.preserveParamsNode = preserveParamsNode;
+		this.saveRegLaterNode = saveRegLaterNode;
 	}
 
 	@Override
@@ -27,9 +32,12 @@ public class MidUndoPreserveParamsNode extends MidNode {
 
 		int offset = preserveParamsNode.getPushedParamCount()
 				* MemoryManager.ADDRESS_SIZE;
+		if (saveRegLaterNode.isPadded()) {
+			offset += MemoryManager.ADDRESS_SIZE;
+		}
 		if (offset != 0) {
-			out.add(new OpASM("Fix up preserve params.", OpCode.ADD, Reg.RSP
-					.name(), Integer.toString(offset)));
+			out.add(new OpASM("Fix up preserve params.", OpCode.ADD, Operand
+					.reg(Reg.RSP), Operand.imm(offset)));
 		}
 
 		return out;
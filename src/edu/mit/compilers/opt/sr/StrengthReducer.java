@@ -0,0 +1,551 @@
+package edu.mit.compilers.opt.sr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.mit.compilers.LogCenter;
+import edu.mit.compilers.Stats;
+import edu.mit.compilers.codegen.MidNodeList;
+import edu.mit.compilers.codegen.nodes.MidLabelNode;
+import edu.mit.compilers.codegen.nodes.MidNode;
+import edu.mit.compilers.codegen.nodes.MidSaveNode;
+import edu.mit.compilers.codegen.nodes.jumpops.MidJumpNode;
+import edu.mit.compilers.codegen.nodes.memory.MidArrayElementNode;
+import edu.mit.compilers.codegen.nodes.memory.MidConstantNode;
+import edu.mit.compilers.codegen.nodes.memory.MidLocalMemoryNode;
+import edu.mit.compilers.codegen.nodes.memory.MidLocalVarDeclNode;
+import edu.mit.compilers.codegen.nodes.memory.MidMemoryNode;
+import edu.mit.compilers.codegen.nodes.memory.MidTempDeclNode;
+import edu.mit.compilers.codegen.nodes.regops.MidArithmeticNode;
+import edu.mit.compilers.codegen.nodes.regops.MidCompareNode;
+import edu.mit.compilers.codegen.nodes.regops.MidLoadNode;
+import edu.mit.compilers.codegen.nodes.regops.MidMinusNode;
+import edu.mit.compilers.codegen.nodes.regops.MidPlusNode;
+import edu.mit.compilers.codegen.nodes.regops.MidRegisterNode;
+import edu.mit.compilers.codegen.nodes.regops.MidTimesNode;
+import edu.mit.compilers.codegen.nodes.regops.MidUseNode;
+import edu.mit.compilers.opt.AnalysisManager;
+import edu.mit.compilers.opt.Block;
+import edu.mit.compilers.opt.cm.Loop;
+import edu.mit.compilers.opt.regalloc.LoopRewriter;
+
+/**
+ * Strength-reduces multiplies of loop counters. In
+ *
+ * <pre>
+ * for (c = 0; cols) {
+ *   image[r * 2193 + c * 3] = ...;
+ * }
+ * </pre>
+ *
+ * the loop only ever adds a constant to c, so c is a basic induction
+ * variable and c * 3 is a derived one that moves in steps of 3. It's kept
+ * in a temp that's set to c * 3 before the loop and bumped by 3 right
+ * after each update of c, and the multiply becomes a copy of the temp.
+ * r * 2193 is reduced the same way in the outer loop.
+ *
+ * If all that's left of c is its updates and the loop's test, and it's
+ * dead once the loop is left, the test compares the temp against the bound
+ * times 3 instead and c goes away. c < n and c * 3 < n * 3 only agree
+ * while the products don't overflow, so that's only done when c starts at
+ * a constant, n is a constant and c only goes up, by updates that run at
+ * most once each time around. The values c is tested with then lie between
+ * two constants, and both have to fit when multiplied by 3.
+ */
+public class StrengthReducer extends LoopRewriter {
+
+	/**
+	 * A write i = i + step in a loop, either straight or through a temp
+	 * that's only copied to i: t = i + step; i = t.
+	 */
+	private static class Update {
+		final MidSaveNode save;
+		final MidSaveNode sum;
+		final long step;
+
+		Update(MidSaveNode save, MidSaveNode sum, long step) {
+			this.save = save;
+			this.sum = sum;
+			this.step = step;
+		}
+	}
+
+	/**
+	 * Multiplies of a basic induction variable by factor, all replaced by
+	 * reads of one temp.
+	 */
+	private static class Reduction {
+		final MidMemoryNode counter;
+		final long factor;
+		final List<MidSaveNode> multiplies = new ArrayList<MidSaveNode>();
+		MidTempDeclNode temp;
+
+		Reduction(MidMemoryNode counter, long factor) {
+			this.counter = counter;
+			this.factor = factor;
+		}
+	}
+
+	private final Map<MidNode, Block> blockOf;
+	// Multiplies already reduced in an outer loop.
+	private final Set<MidSaveNode> reduced;
+	private int reductions;
+	private int counters;
+
+	public StrengthReducer(AnalysisManager analyses) {
+		super(analyses);
+		this.blockOf = new HashMap<MidNode, Block>();
+		for (Block block : blocks) {
+			for (MidNode node : block) {
+				blockOf.put(node, block);
+			}
+		}
+		this.reduced = new HashSet<MidSaveNode>();
+	}
+
+	/**
+	 * Reduces multiplies in every loop with a preheader, outermost first.
+	 * Returns whether anything changed.
+	 */
+	public boolean reduce() {
+		boolean changed = false;
+		for (Loop loop : loopBlocks.keySet()) {
+			changed |= reduce(loop, loopBlocks.get(loop));
+		}
+		if (changed) {
+			Stats.count("sr multiplies", reductions);
+			Stats.count("sr counters", counters);
+		}
+		return changed;
+	}
+
+	private boolean reduce(Loop loop, Set<Block> blocks) {
+		Map<MidMemoryNode, List<MidSaveNode>> writes = new HashMap<MidMemoryNode, List<MidSaveNode>>();
+		for (Block block : blocks) {
+			for (MidNode node : block) {
+				if (node instanceof MidSaveNode) {
+					MidMemoryNode dest = ((MidSaveNode) node)
+							.getDestinationNode();
+					if (!writes.containsKey(dest)) {
+						writes.put(dest, new ArrayList<MidSaveNode>());
+					}
+					writes.get(dest).add((MidSaveNode) node);
+				}
+			}
+		}
+
+		Map<MidMemoryNode, List<Update>> basic = new HashMap<MidMemoryNode, List<Update>>();
+		for (Map.Entry<MidMemoryNode, List<MidSaveNode>> entry : writes
+				.entrySet()) {
+			MidMemoryNode variable = entry.getKey();
+			if (!(variable instanceof MidLocalVarDeclNode || variable instanceof MidTempDeclNode)
+					|| variable.isConstant()) {
+				continue;
+			}
+			List<Update> updates = new ArrayList<Update>();
+			for (MidSaveNode write : entry.getValue()) {
+				Update update = getUpdate(write, variable, writes);
+				if (update == null) {
+					updates = null;
+					break;
+				}
+				updates.add(update);
+			}
+			if (updates != null) {
+				basic.put(variable, updates);
+			}
+		}
+		if (basic.isEmpty()) {
+			return false;
+		}
+
+		Map<String, Reduction> found = new LinkedHashMap<String, Reduction>();
+		for (Block block : blocks) {
+			for (MidNode node : block) {
+				if (!(node instanceof MidSaveNode) || reduced.contains(node)) {
+					continue;
+				}
+				MidSaveNode save = (MidSaveNode) node;
+				if (!save.savesRegister()
+						|| !(save.getRegNode() instanceof MidTimesNode)
+						|| !isTree(save)) {
+					continue;
+				}
+				MidTimesNode times = (MidTimesNode) save.getRegNode();
+				MidLoadNode counter = times.getLeftOperand();
+				MidLoadNode factor = times.getRightOperand();
+				if (!isConstant(factor)) {
+					counter = times.getRightOperand();
+					factor = times.getLeftOperand();
+				}
+				if (!isConstant(factor) || counter.usesArrayRegister()
+						|| !basic.containsKey(counter.getMemoryNode())) {
+					continue;
+				}
+				long k = factor.getMemoryNode().getConstant();
+				String key = counter.getMemoryNode().getName() + "*" + k;
+				if (!found.containsKey(key)) {
+					found.put(key, new Reduction(counter.getMemoryNode(), k));
+				}
+				found.get(key).multiplies.add(save);
+			}
+		}
+		if (found.isEmpty()) {
+			return false;
+		}
+
+		for (Reduction reduction : found.values()) {
+			apply(loop, reduction, basic.get(reduction.counter));
+		}
+		for (Reduction reduction : found.values()) {
+			if (reduction.factor > 0
+					&& eliminate(loop, blocks, reduction, basic
+							.get(reduction.counter), found.values())) {
+				counters++;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * write as an update of variable, or null if it's anything else.
+	 */
+	private Update getUpdate(MidSaveNode write, MidMemoryNode variable,
+			Map<MidMemoryNode, List<MidSaveNode>> writes) {
+		Long step = getStep(write, variable);
+		if (step != null) {
+			return new Update(write, write, step);
+		}
+		if (!write.savesRegister()
+				|| !(write.getRegNode() instanceof MidLoadNode)) {
+			return null;
+		}
+		MidLoadNode copied = (MidLoadNode) write.getRegNode();
+		List<MidSaveNode> sums = writes.get(copied.getMemoryNode());
+		if (copied.usesArrayRegister()
+				|| !(copied.getMemoryNode() instanceof MidTempDeclNode)
+				|| sums == null || sums.size() != 1) {
+			return null;
+		}
+		MidSaveNode sum = sums.get(0);
+		step = getStep(sum, variable);
+		if (step == null) {
+			return null;
+		}
+		// The sum has to be of the value the copy replaces.
+		for (MidNode node = write.getPrevNode(); node != sum; node = node
+				.getPrevNode()) {
+			if (node == null || node instanceof MidLabelNode
+					|| node instanceof MidJumpNode
+					|| (node instanceof MidSaveNode && variable
+							.equals(((MidSaveNode) node).getDestinationNode()))) {
+				return null;
+			}
+		}
+		return new Update(write, sum, step);
+	}
+
+	/**
+	 * c if save is variable + c, c + variable or variable - c, else null.
+	 */
+	private static Long getStep(MidSaveNode save, MidMemoryNode variable) {
+		if (!save.savesRegister()
+				|| !(save.getRegNode() instanceof MidPlusNode || save
+						.getRegNode() instanceof MidMinusNode)) {
+			return null;
+		}
+		if (!isTree(save)) {
+			return null;
+		}
+		MidArithmeticNode op = (MidArithmeticNode) save.getRegNode();
+		MidLoadNode left = op.getLeftOperand();
+		MidLoadNode right = op.getRightOperand();
+		if (isRead(left, variable) && isConstant(right)) {
+			long c = right.getMemoryNode().getConstant();
+			return op instanceof MidPlusNode ? c : -c;
+		}
+		if (op instanceof MidPlusNode && isConstant(left)
+				&& isRead(right, variable)) {
+			return left.getMemoryNode().getConstant();
+		}
+		return null;
+	}
+
+	/**
+	 * Whether save's operation and its operands come right before it, so
+	 * they can go with it.
+	 */
+	private static boolean isTree(MidSaveNode save) {
+		MidArithmeticNode op = (MidArithmeticNode) save.getRegNode();
+		MidNode node = skipDeclarations(save.getPrevNode());
+		if (node != op) {
+			return false;
+		}
+		MidNode first = skipDeclarations(op.getPrevNode());
+		MidNode second = first == null ? null : skipDeclarations(first
+				.getPrevNode());
+		return (first == op.getLeftOperand() && second == op
+				.getRightOperand())
+				|| (first == op.getRightOperand() && second == op
+						.getLeftOperand());
+	}
+
+	private static MidNode skipDeclarations(MidNode node) {
+		while (node instanceof MidLocalMemoryNode) {
+			node = node.getPrevNode();
+		}
+		return node;
+	}
+
+	private static boolean isRead(MidLoadNode load, MidMemoryNode variable) {
+		return !load.usesArrayRegister()
+				&& variable.equals(load.getMemoryNode());
+	}
+
+	/**
+	 * Whether node reads variable. Some uses like MidReturnNode read no
+	 * memory, and an unlinked temp equals null.
+	 */
+	private static boolean reads(MidNode node, MidMemoryNode variable) {
+		if (!(node instanceof MidUseNode)) {
+			return false;
+		}
+		MidMemoryNode memory = ((MidUseNode) node).getMemoryNode();
+		return memory != null && variable.equals(memory);
+	}
+
+	/**
+	 * Constant elements of arrays aren't constant values.
+	 */
+	private static boolean isConstant(MidLoadNode load) {
+		MidMemoryNode memory = load.getMemoryNode();
+		return memory.isConstant() && !(memory instanceof MidArrayElementNode);
+	}
+
+	/**
+	 * Keeps counter * factor in a new temp through the loop and replaces
+	 * the multiplies with reads of it.
+	 */
+	private void apply(Loop loop, Reduction reduction, List<Update> updates) {
+		LogCenter.debug("SR", "Reducing %s * %s in loop at %s",
+				reduction.counter, reduction.factor, loop.getStart()
+						.getHead());
+		MidTempDeclNode temp = new MidTempDeclNode();
+		reduction.temp = temp;
+
+		MidNodeList init = new MidNodeList();
+		init.add(temp);
+		MidLoadNode counter = new MidLoadNode(reduction.counter);
+		MidLoadNode factor = new MidLoadNode(new MidConstantNode(
+				reduction.factor));
+		MidTimesNode product = new MidTimesNode(counter, factor);
+		init.add(counter);
+		init.add(factor);
+		init.add(product);
+		init.add(new MidSaveNode(product, temp));
+		insertBefore(loop, init);
+
+		for (Update update : updates) {
+			MidNodeList bump = new MidNodeList();
+			MidLoadNode old = new MidLoadNode(temp);
+			MidLoadNode step = new MidLoadNode(new MidConstantNode(update.step
+					* reduction.factor));
+			MidPlusNode sum = new MidPlusNode(old, step);
+			bump.add(old);
+			bump.add(step);
+			bump.add(sum);
+			bump.add(new MidSaveNode(sum, temp));
+			insertAfter(update.save, bump);
+		}
+
+		for (MidSaveNode multiply : reduction.multiplies) {
+			MidNodeList copy = new MidNodeList();
+			MidLoadNode load = new MidLoadNode(temp);
+			copy.add(load);
+			copy.add(new MidSaveNode(load, multiply.getDestinationNode()));
+			insertAfter(multiply, copy);
+			removeSave(multiply);
+			reduced.add(multiply);
+			reductions++;
+		}
+	}
+
+	/**
+	 * Drops reduction's counter if it's only used by the loop's test and
+	 * its own updates, comparing the temp against the scaled bound instead.
+	 * Returns whether it did.
+	 */
+	private boolean eliminate(Loop loop, Set<Block> blocks,
+			Reduction reduction, List<Update> updates,
+			Iterable<Reduction> reductions) {
+		MidMemoryNode counter = reduction.counter;
+		MidCompareNode test = null;
+		for (MidNode node : loop.getStart()) {
+			if (node instanceof MidCompareNode) {
+				test = (MidCompareNode) node;
+			}
+		}
+		if (test == null || !(test.getLeftOperand() instanceof MidLoadNode)
+				|| !(test.getRightOperand() instanceof MidLoadNode)
+				|| !isRead((MidLoadNode) test.getLeftOperand(), counter)) {
+			return false;
+		}
+		MidLoadNode bound = (MidLoadNode) test.getRightOperand();
+		MidMemoryNode boundNode = bound.getMemoryNode();
+		Long start = getStart(loop, counter);
+		if (!isConstant(bound) || start == null) {
+			return false;
+		}
+		int depth = loops.getLoops(loop.getStart()).size();
+		try {
+			long trip = 0;
+			for (Update update : updates) {
+				Block block = blockOf.get(update.save);
+				if (update.step <= 0 || loops.getLoops(block).size() > depth) {
+					return false;
+				}
+				trip = Math.addExact(trip, update.step);
+			}
+			// The counter is tested with start, then with values below the
+			// bound plus what one trip adds.
+			long last = Math.max(start, Math.addExact(boundNode.getConstant(),
+					trip - 1));
+			Math.multiplyExact(start, reduction.factor);
+			Math.multiplyExact(last, reduction.factor);
+		} catch (ArithmeticException e) {
+			return false;
+		}
+
+		// Every read of the counter left has to go with it.
+		Set<MidNode> going = new HashSet<MidNode>();
+		going.add(test.getLeftOperand());
+		for (Update update : updates) {
+			MidArithmeticNode op = (MidArithmeticNode) update.sum.getRegNode();
+			going.add(op.getLeftOperand());
+			going.add(op.getRightOperand());
+			if (update.sum != update.save
+					&& countReads(update.sum.getDestinationNode()) != 1) {
+				return false;
+			}
+		}
+		for (Block block : blocks) {
+			for (MidNode node : block) {
+				if (reads(node, counter) && !going.contains(node)) {
+					return false;
+				}
+			}
+		}
+		for (Block exit : getExits(blocks)) {
+			if (isLiveInto(counter, exit, new HashSet<Block>())) {
+				return false;
+			}
+		}
+
+		LogCenter.debug("SR", "Replacing %s in the test of loop at %s",
+				counter, loop.getStart().getHead());
+		MidTempDeclNode scaled = new MidTempDeclNode();
+		MidNodeList init = new MidNodeList();
+		init.add(scaled);
+		MidLoadNode limit = new MidLoadNode(boundNode);
+		MidLoadNode factor = new MidLoadNode(new MidConstantNode(
+				reduction.factor));
+		MidTimesNode product = new MidTimesNode(limit, factor);
+		init.add(limit);
+		init.add(factor);
+		init.add(product);
+		init.add(new MidSaveNode(product, scaled));
+		insertBefore(loop, init);
+		rename((MidLoadNode) test.getLeftOperand(), reduction.temp);
+		rename(bound, scaled);
+
+		for (Update update : updates) {
+			removeSave(update.save);
+			if (update.sum != update.save) {
+				removeSave(update.sum);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The constant counter is set to right before loop, or null if it isn't
+	 * set to one there.
+	 */
+	private static Long getStart(Loop loop, MidMemoryNode counter) {
+		for (MidNode node = loop.getStart().getHead().getPrevNode(); node != null
+				&& !(node instanceof MidLabelNode)
+				&& !(node instanceof MidJumpNode); node = node.getPrevNode()) {
+			if (!(node instanceof MidSaveNode)) {
+				continue;
+			}
+			MidSaveNode save = (MidSaveNode) node;
+			if (!counter.equals(save.getDestinationNode())) {
+				continue;
+			}
+			if (save.savesRegister()
+					&& save.getRegNode() instanceof MidLoadNode
+					&& isConstant((MidLoadNode) save.getRegNode())) {
+				return ((MidLoadNode) save.getRegNode()).getMemoryNode()
+						.getConstant();
+			}
+			return null;
+		}
+		return null;
+	}
+
+	private void removeSave(MidSaveNode save) {
+		Block block = blockOf.get(save);
+		MidRegisterNode value = save.getRegNode();
+		remove(save, block);
+		remove(value, block);
+		if (value instanceof MidArithmeticNode) {
+			remove(((MidArithmeticNode) value).getLeftOperand(), block);
+			remove(((MidArithmeticNode) value).getRightOperand(), block);
+		}
+	}
+
+	private int countReads(MidMemoryNode variable) {
+		int out = 0;
+		for (Block block : blocks) {
+			for (MidNode node : block) {
+				if (reads(node, variable)) {
+					out++;
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Whether variable can be read from the start of block before it's
+	 * written.
+	 */
+	private static boolean isLiveInto(MidMemoryNode variable, Block block,
+			Set<Block> visited) {
+		if (!visited.add(block)) {
+			return false;
+		}
+		for (MidNode node : block) {
+			if (reads(node, variable)) {
+				return true;
+			}
+			if (node instanceof MidSaveNode
+					&& variable.equals(((MidSaveNode) node)
+							.getDestinationNode())) {
+				return false;
+			}
+		}
+		for (Block successor : block.getSuccessors()) {
+			if (isLiveInto(variable, successor, visited)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -1,7 +1,10 @@
 package edu.mit.compilers.tools;
 
+import java.io.File;
 import java.util.Vector;
 
+import edu.mit.compilers.opt.meta.PassManager;
+
 /**
  * A generic command-line interface for 6.035 compilers. This class provides
  * command-line parsing for student projects. It recognizes the required
@@ -61,6 +64,18 @@ public class CLI {
 	 */
 	public static String infile;
 
+	/**
+	 * Names of all the input files, in order. Compiling more than one at a
+	 * time writes each one's output to outdir, or next to it.
+	 */
+	public static Vector<String> infiles;
+
+	/**
+	 * Directory to put the output files in, set with <tt>-outdir DIR</tt>.
+	 * Null means next to each input file, or outfile for a single file.
+	 */
+	public static String outdir;
+
 	/**
 	 * The target stage. This should be one of the integer constants defined
 	 * elsewhere in this package.
@@ -87,17 +102,156 @@ public class CLI {
 
 	public static boolean optOn;
 
+	/**
+	 * Name of the file to write debug messages to as Chrome trace events,
+	 * set with <tt>-trace FILE</tt>. Null means messages go to stdout.
+	 */
+	public static String tracefile;
+
+	/**
+	 * The stats flag. This is true if <tt>-stats</tt> was passed on the
+	 * command line, requesting a table of the time and memory each phase
+	 * took.
+	 */
+	public static boolean stats;
+
+	/**
+	 * Name of the file to write the stats to as JSON, set with
+	 * <tt>-statsfile FILE</tt>.
+	 */
+	public static String statsfile;
+
+	/**
+	 * Number of threads to optimize methods on. Set with <tt>-jobs N</tt>,
+	 * defaults to 1.
+	 */
+	public static int jobs;
+
+	/**
+	 * The linear scan flag. This is true if <tt>-linearscan</tt> was passed
+	 * on the command line, asking for the faster but weaker register
+	 * allocator.
+	 */
+	public static boolean linearScan;
+
+	/**
+	 * Optimization level from <tt>-O0</tt> to <tt>-O3</tt>, or -1 if none was
+	 * given. Levels name pipelines, see PassManager.
+	 */
+	public static int level;
+
+	/**
+	 * Pipeline to optimize with, set with <tt>-passes SPEC</tt> or
+	 * <tt>-passes=SPEC</tt>. Overrides <tt>-O</tt> and <tt>-opt</tt>.
+	 */
+	public static String passes;
+
+	/**
+	 * Most pass runs each method gets, set with <tt>-passbudget N</tt>.
+	 */
+	public static int passBudget;
+
+	/**
+	 * How many times to unroll loops, set with <tt>-unroll N</tt>. Must be a
+	 * power of two; 0 leaves unrolling to the optimizer's defaults.
+	 */
+	public static int unroll;
+
+	/**
+	 * The peephole flag. False if <tt>-nopeephole</tt> was passed on the
+	 * command line, skipping the peephole pass over allocated code.
+	 */
+	public static boolean peephole;
+
+	/**
+	 * Directory holding the files the program reads, set with
+	 * <tt>-autotune DIR</tt>. If set, the program is compiled with many
+	 * settings, each one is run and the fastest is written out.
+	 */
+	public static String autotune;
+
+	/**
+	 * Directory with the runtime library to link autotuned programs with,
+	 * set with <tt>-tunelib DIR</tt>. Defaults to <tt>lib</tt> next to the
+	 * autotune directory.
+	 */
+	public static String tunelib;
+
+	/**
+	 * Times each autotuned program is run, set with <tt>-tunereps N</tt>.
+	 */
+	public static int tunereps;
+
+	/**
+	 * The profile generating flag. True if <tt>-profile-generate</tt> was
+	 * passed on the command line, building a program that writes how often
+	 * each block ran to OUTFILE.profile in its working directory.
+	 */
+	public static boolean profileGenerate;
+
+	/**
+	 * Profile to optimize with, set with <tt>-profile-use FILE</tt>. Made by
+	 * running a program built with <tt>-profile-generate</tt>.
+	 */
+	public static String profileUse;
+
+	/**
+	 * Directory that relative file names are resolved against, see
+	 * resolve(). Null means the JVM's working directory. Not touched by
+	 * parse(); the compile server sets it to each client's directory.
+	 */
+	public static File workdir;
+
+	static {
+		reset();
+	}
+
 	/**
 	 * Sets up default values for all of the result fields. Specifically, sets
 	 * the input and output files to null, the target to DEFAULT, and the extras
-	 * and extraopts arrays to new empty Vectors.
+	 * and extraopts arrays to new empty Vectors. Called by parse(), so nothing
+	 * carries over between compiles in the same JVM.
 	 */
-	static {
+	public static void reset() {
+		opts = null;
+		tags = null;
 		outfile = null;
 		infile = null;
+		infiles = new Vector<String>();
+		outdir = null;
+		tracefile = null;
 		target = Action.DEFAULT;
 		extras = new Vector<String>();
 		extraopts = new Vector<String>();
+		debug = false;
+		visual = false;
+		dot = false;
+		optOn = false;
+		stats = false;
+		statsfile = null;
+		jobs = 1;
+		linearScan = false;
+		level = -1;
+		passes = null;
+		passBudget = PassManager.DEFAULT_BUDGET;
+		unroll = 0;
+		peephole = true;
+		autotune = null;
+		tunelib = null;
+		tunereps = 3;
+		profileGenerate = false;
+		profileUse = null;
+	}
+
+	/**
+	 * The file a name given on the command line refers to.
+	 */
+	public static File resolve(String name) {
+		File file = new File(name);
+		if (workdir == null || file.isAbsolute()) {
+			return file;
+		}
+		return new File(workdir, name);
 	}
 
 	/**
@@ -121,10 +275,9 @@ public class CLI {
 	 */
 	public static void parse(String args[], String optnames[]) {
 		int context = 0;
-		String ext = ".out";
 
+		reset();
 		opts = new boolean[optnames.length];
-		optOn = false;
 
 		for (int i = 0; i < args.length; i++) {
 			if (args[i].equals("-debug")) {
@@ -141,6 +294,42 @@ public class CLI {
 				context = 2;
 			} else if (args[i].equals("-target")) {
 				context = 3;
+			} else if (args[i].equals("-jobs")) {
+				context = 5;
+			} else if (args[i].equals("-trace")) {
+				context = 6;
+			} else if (args[i].equals("-outdir")) {
+				context = 7;
+			} else if (args[i].equals("-stats")) {
+				stats = true;
+			} else if (args[i].equals("-linearscan")) {
+				linearScan = true;
+			} else if (args[i].equals("-statsfile")) {
+				context = 8;
+			} else if (args[i].matches("-O\\d")) {
+				level = args[i].charAt(2) - '0';
+				optOn = level > 0;
+			} else if (args[i].equals("-passes")) {
+				context = 9;
+			} else if (args[i].startsWith("-passes=")) {
+				passes = args[i].substring("-passes=".length());
+				optOn = true;
+			} else if (args[i].equals("-passbudget")) {
+				context = 10;
+			} else if (args[i].equals("-unroll")) {
+				context = 11;
+			} else if (args[i].equals("-nopeephole")) {
+				peephole = false;
+			} else if (args[i].equals("-autotune")) {
+				context = 12;
+			} else if (args[i].equals("-tunelib")) {
+				context = 13;
+			} else if (args[i].equals("-tunereps")) {
+				context = 14;
+			} else if (args[i].equals("-profile-generate")) {
+				profileGenerate = true;
+			} else if (args[i].equals("-profile-use")) {
+				context = 15;
 			} else if (context == 1) {
 				boolean hit = false;
 				for (int j = 0; j < optnames.length; j++) {
@@ -183,23 +372,89 @@ public class CLI {
 				// Debug.
 				tags = args[i].split(",");
 				context = 0;
+			} else if (context == 5) {
+				try {
+					jobs = Math.max(1, Integer.parseInt(args[i]));
+				} catch (NumberFormatException e) {
+					extras.addElement(args[i]);
+				}
+				context = 0;
+			} else if (context == 6) {
+				tracefile = args[i];
+				context = 0;
+			} else if (context == 7) {
+				outdir = args[i];
+				context = 0;
+			} else if (context == 8) {
+				statsfile = args[i];
+				context = 0;
+			} else if (context == 9) {
+				passes = args[i];
+				optOn = true;
+				context = 0;
+			} else if (context == 10) {
+				try {
+					passBudget = Integer.parseInt(args[i]);
+				} catch (NumberFormatException e) {
+					extras.addElement(args[i]);
+				}
+				context = 0;
+			} else if (context == 11) {
+				try {
+					unroll = Integer.highestOneBit(Math.max(0, Integer
+							.parseInt(args[i])));
+				} catch (NumberFormatException e) {
+					extras.addElement(args[i]);
+				}
+				context = 0;
+			} else if (context == 12) {
+				autotune = args[i];
+				context = 0;
+			} else if (context == 13) {
+				tunelib = args[i];
+				context = 0;
+			} else if (context == 14) {
+				try {
+					tunereps = Math.max(1, Integer.parseInt(args[i]));
+				} catch (NumberFormatException e) {
+					extras.addElement(args[i]);
+				}
+				context = 0;
+			} else if (context == 15) {
+				profileUse = args[i];
+				context = 0;
 			} else {
 				extras.addElement(args[i]);
 			}
 		}
 
-		// grab infile and lose extra args
+		// grab the input files and lose extra args
 		int i = 0;
-		while (infile == null && i < extras.size()) {
+		while (i < extras.size()) {
 			String fn = extras.elementAt(i);
 			if (fn.charAt(0) != '-') {
-				infile = fn;
+				infiles.addElement(fn);
 				extras.removeElementAt(i);
+			} else {
+				i++;
 			}
-			i++;
 		}
+		if (!infiles.isEmpty()) {
+			infile = infiles.firstElement();
+		}
+
+		// Several files each get their own, see getOutfile().
+		if (outfile == null && infiles.size() == 1) {
+			outfile = getOutfile(infile);
+		}
+	}
 
-		// create outfile name
+	/**
+	 * Name of the file to put the output for infile in: infile with the
+	 * extension of the target, in outdir if there is one.
+	 */
+	public static String getOutfile(String infile) {
+		String ext;
 		switch (target) {
 		case SCAN:
 			ext = ".scan";
@@ -225,17 +480,20 @@ public class CLI {
 			break;
 		}
 
-		if (outfile == null && infile != null) {
-			int dot = infile.lastIndexOf('.');
-			int slash = infile.lastIndexOf('/');
-			// Last dot comes after last slash means that the file
-			// has an extention. Note that the base case where dot
-			// or slash are -1 also work.
-			if (dot <= slash) {
-				outfile = infile + ext;
-			} else {
-				outfile = infile.substring(0, dot) + ext;
-			}
+		String name;
+		int dot = infile.lastIndexOf('.');
+		int slash = infile.lastIndexOf('/');
+		// Last dot comes after last slash means that the file
+		// has an extention. Note that the base case where dot
+		// or slash are -1 also work.
+		if (dot <= slash) {
+			name = infile + ext;
+		} else {
+			name = infile.substring(0, dot) + ext;
+		}
+		if (outdir != null) {
+			name = new File(outdir, name.substring(slash + 1)).getPath();
 		}
+		return name;
 	}
 }
@@ -1,8 +1,8 @@
 #!/bin/sh
 
+# Picks up the assembly for $1 from the batch compile below.
 runcompiler() {
-  java -ea -jar `dirname $0`/../../dist/Compiler.jar \
-    -target codegen -opt all -o $2 $1
+  cp $asmdir/`basename $1 .dcf`.s $2 2>/dev/null
 }
 
 fail=0
@@ -12,6 +12,11 @@ if ! gcc -v 2>&1 |grep -q '^Target: x86_64-linux-gnu'; then
   exit 0;
 fi
 
+# Compile every input up front in one JVM.
+asmdir=`mktemp -d`
+java -ea -jar `dirname $0`/../../dist/Compiler.jar \
+  -target codegen -opt all -jobs `nproc` -outdir $asmdir `dirname $0`/input/*.dcf
+
 for file in `dirname $0`/input/*.dcf; do
   echo ${file}
   asm=`tempfile --suffix=.s`
@@ -48,4 +53,5 @@ for file in `dirname $0`/input/*.dcf; do
   rm -f $diffout $output $binary $asm;
 done
 
+rm -rf $asmdir
 exit $fail;
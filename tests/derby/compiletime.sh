@@ -0,0 +1,45 @@
+#!/bin/sh
+# Times compiling derby, unoptimized and with -opt all. Pass another
+# Compiler.jar to compare against it, e.g. one built from an older commit:
+#   tests/derby/compiletime.sh [runs] [other.jar]
+
+runs=${1:-5}
+other=$2
+
+cd `dirname $0`
+orig_pwd=$PWD
+file="./input/derby.dcf"
+asm=`mktemp`
+
+# Prints the median wall time in ms of compiling with the given jar and flags.
+timecompile() {
+  jar=$1
+  shift
+  i=0
+  times=""
+  while [ $i -lt $runs ]; do
+    start=`date +%s%N`
+    if ! java -jar $jar -target codegen "$@" -o $asm $file > /dev/null; then
+      echo "Compile failed: $jar $@" 1>&2
+      exit 1
+    fi
+    end=`date +%s%N`
+    times="$times $((($end - $start) / 1000000))"
+    i=$(($i + 1))
+  done
+  echo $times | tr ' ' '\n' | sort -n | sed -n "$((($runs + 1) / 2))p"
+}
+
+report() {
+  jar=$1
+  echo "$jar"
+  echo "  Unoptimized: `timecompile $jar` ms"
+  echo "  Fullopt:     `timecompile $jar -opt all` ms"
+}
+
+report $orig_pwd/../../dist/Compiler.jar
+if [ ! -z "$other" ]; then
+  report $other
+fi
+
+rm -f $asm
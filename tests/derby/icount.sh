@@ -0,0 +1,86 @@
+#!/bin/bash
+# Counts the instructions derby executes when compiled with the given
+# compiler flags, e.g.
+#   tests/derby/icount.sh -opt all
+# Every basic block of the generated assembly gets a counter increment, so
+# the count covers the compiled code only, not the runtime library. The
+# output image is checked against derby_gcc's.
+
+cd `dirname $0`
+orig_pwd=$PWD
+workingdir=`mktemp -d`
+trap "rm -rf $workingdir" EXIT
+
+asm=$workingdir/derby.s
+counted=$workingdir/derby_counted.s
+
+if ! java -jar $orig_pwd/../../dist/Compiler.jar -target codegen \
+    -o $asm "$@" ./input/derby.dcf; then
+  echo "Program failed to generate assembly."
+  exit 1
+fi
+
+# Puts PUSHFQ; ADD [__icount], n; POPFQ at the start of every block of n
+# instructions in .text. Blocks start at labels and after jumps.
+awk '
+function flush() {
+  if (n > 0) {
+    print "   PUSHFQ"
+    print "   ADD        qword [ __icount ], " n
+    print "   POPFQ"
+  }
+  for (i = 0; i < n_lines; i++) print lines[i]
+  n = 0; n_lines = 0
+}
+NR == 1 { print "   EXTERN     dprintf" }
+/^section/ { flush(); text = ($2 == ".text"); print; next }
+!text { print; next }
+/^[A-Za-z_.][A-Za-z0-9_.]*:/ { flush(); print; next }
+/^[ \t]+[A-Z]/ && $1 != "GLOBAL" && $1 != "EXTERN" {
+  lines[n_lines++] = $0; n++
+  if ($1 ~ /^J/ || $1 == "RET") flush()
+  next
+}
+{ lines[n_lines++] = $0 }
+END {
+  flush()
+  print "section .data"
+  print "__icount: dq 0"
+  print "__icount_format: db \"%ld instructions\", 10, 0"
+  print "section .fini_array progbits alloc write align=8"
+  print "   dq __icount_report"
+  print "section .text"
+  print "__icount_report:"
+  print "   SUB        RSP, 8"
+  print "   MOV        RDI, 2"
+  print "   MOV        RSI, __icount_format"
+  print "   MOV        RDX, [ __icount ]"
+  print "   XOR        RAX, RAX"
+  print "   CALL       dprintf"
+  print "   ADD        RSP, 8"
+  print "   RET"
+}' $asm > $counted
+
+nasm=nasm
+if ! which nasm > /dev/null 2>&1; then
+  nasm=$orig_pwd/../../lib/nasm
+fi
+if ! $nasm -felf64 -o $workingdir/derby.o $counted || \
+   ! gcc -no-pie -o $workingdir/derby -L./lib $workingdir/derby.o \
+     -l6035 -lpthread 2> /dev/null; then
+  echo "Program failed to assemble."
+  exit 1
+fi
+
+# The runtime library can't read PPM comments.
+grep -v '^#' input.ppm > $workingdir/input.ppm
+cd $workingdir
+$orig_pwd/derby_gcc > /dev/null && mv output.ppm expected.ppm
+if ! ./derby 2>&1 > /dev/null | grep instructions; then
+  echo "Program failed to run."
+  exit 1
+fi
+if ! cmp -s output.ppm expected.ppm; then
+  echo "Output mismatch."
+  exit 1
+fi
@@ -0,0 +1,75 @@
+#!/bin/sh
+
+# Compiles programs from ProgramGenerator with each set of flags below and
+# checks they print what the unoptimized build prints.
+#
+# usage: differential.sh [first seed] [number of seeds]
+
+first=${1:-1}
+count=${2:-60}
+shape="-methods 2 -depth 3 -loops 2 -vars 12 -arrays 1"
+flagsets="-O1|-O2|-O3|-opt all|-O2 -linearscan|-passes ra|-O2 -unroll 4"
+
+fail=0
+
+if ! gcc -v 2>&1 |grep -q '^Target: x86_64-linux-gnu'; then
+  echo "Refusing to run cross-compilation on non-64-bit architecture."
+  exit 0;
+fi
+
+cd `dirname $0`
+orig_pwd=$PWD
+classpath=$orig_pwd/../../classes:$orig_pwd/../../classes-bench
+
+inputdir=`mktemp -d`
+seed=$first
+while [ $seed -lt $(($first + $count)) ]; do
+  java -cp $classpath edu.mit.compilers.bench.ProgramGenerator $shape \
+    -seed $seed -o $inputdir/seed$seed.dcf
+  seed=$(($seed + 1))
+done
+
+# Runs the assembly for every input in $1, leaving each output in $2.
+runall() {
+  for file in $inputdir/*.dcf; do
+    progname=`basename $file .dcf`
+    asm="$1/${progname}.s"
+    binary="$1/${progname}"
+    if nasm -felf64 -o $binary.o $asm && gcc -o $binary -L${orig_pwd}/lib $binary.o -l6035 -lpthread; then
+      $binary > $2/$progname.out 2>&1
+    else
+      echo "failed to assemble" > $2/$progname.out
+    fi
+  done
+}
+
+expecteddir=`mktemp -d`
+asmdir=`mktemp -d`
+java -ea -jar $orig_pwd/../../dist/Compiler.jar \
+  -target codegen -jobs `nproc` -outdir $asmdir $inputdir/*.dcf
+runall $asmdir $expecteddir
+
+echo "$flagsets" | tr '|' '\n' | while read flags; do
+  rm -rf $asmdir
+  asmdir=`mktemp -d`
+  outdir=`mktemp -d`
+  java -ea -jar $orig_pwd/../../dist/Compiler.jar \
+    -target codegen $flags -jobs `nproc` -outdir $asmdir $inputdir/*.dcf
+  runall $asmdir $outdir
+  for file in $inputdir/*.dcf; do
+    progname=`basename $file .dcf`
+    if ! diff -q $expecteddir/$progname.out $outdir/$progname.out > /dev/null; then
+      echo "$progname mismatch with $flags:"
+      echo "  expected `cat $expecteddir/$progname.out`"
+      echo "  got      `cat $outdir/$progname.out`"
+      echo 1 > $expecteddir/failed
+    fi
+  done
+  rm -rf $asmdir $outdir
+done
+
+if [ -f $expecteddir/failed ]; then
+  fail=1
+fi
+rm -rf $inputdir $expecteddir
+exit $fail;
@@ -1,13 +1,12 @@
 #!/bin/sh
 
+# Pick up the assembly for $1 from the batch compiles below.
 runcompiler_opt() {
-  java -ea -jar $orig_pwd/../../dist/Compiler.jar \
-    -target codegen -opt all -o $2 $1
+  cp $optdir/`basename $1 .dcf`.s $2 2>/dev/null
 }
 
 runcompiler_unopt() {
-  java -ea -jar $orig_pwd/../../dist/Compiler.jar \
-    -target codegen -o $2 $1
+  cp $unoptdir/`basename $1 .dcf`.s $2 2>/dev/null
 }
 
 fail=0
@@ -19,6 +18,15 @@ fi
 
 cd `dirname $0`
 orig_pwd=$PWD
+
+# Compile every input up front, one JVM per set of flags.
+optdir=`mktemp -d`
+unoptdir=`mktemp -d`
+java -ea -jar $orig_pwd/../../dist/Compiler.jar \
+  -target codegen -opt all -jobs `nproc` -outdir $optdir $orig_pwd/input/*.dcf
+java -ea -jar $orig_pwd/../../dist/Compiler.jar \
+  -target codegen -jobs `nproc` -outdir $unoptdir $orig_pwd/input/*.dcf
+
 for file in $PWD/input/*.dcf; do
   echo "    "${file}
   workingdir=`mktemp -d`
@@ -97,4 +105,5 @@ for file in $PWD/input/*.dcf; do
   rm -r -f $workingdir;
 done
 
+rm -rf $optdir $unoptdir
 exit $fail;